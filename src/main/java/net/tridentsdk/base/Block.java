@@ -37,6 +37,11 @@ public interface Block {
     /**
      * Set the substance of the block
      *
+     * <p>Implementations mark the block as changed in the
+     * world's {@link net.tridentsdk.world.LightEngine} so
+     * that the light around it is updated incrementally, as
+     * do the other setters of this block.</p>
+     *
      * @param substance The new substance
      */
     void setSubstance(Substance substance);
@@ -111,6 +111,19 @@ public interface Item {
      */
     ItemMeta getMeta();
 
+    /**
+     * Creates a copy of this item with the given metadata.
+     *
+     * <p>Metadata is immutable, so it is shared between
+     * this item and the new item rather than copied.</p>
+     *
+     * @param meta the new item metadata
+     * @return the new item
+     */
+    default Item withMeta(ItemMeta meta) {
+        return newItem(this.getSubstance(), this.getCount(), this.getDamage(), meta);
+    }
+
     /**
      * Checks to see if this item is {@link Substance#AIR},
      * and therefore does not represent an actual item.
@@ -16,10 +16,16 @@
  */
 package net.tridentsdk.meta;
 
+import net.tridentsdk.meta.nbt.ImmutableCompound;
 import net.tridentsdk.meta.nbt.Tag;
 
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.Immutable;
 import java.io.DataOutputStream;
+import java.lang.ref.WeakReference;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.function.UnaryOperator;
 
 /**
  * A class representing an item's extra metadata such as
@@ -31,27 +37,126 @@ import java.io.DataOutputStream;
  */
 @Immutable
 public class ItemMeta {
+    /**
+     * The compound shared by all metas without any data
+     */
+    private static final ImmutableCompound EMPTY = new ImmutableCompound("tag");
+    /**
+     * The metas which have been interned, which are kept
+     * only for as long as they are in use elsewhere
+     */
+    @GuardedBy("INTERNED")
+    private static final Map<ItemMeta, WeakReference<ItemMeta>> INTERNED = new WeakHashMap<>();
+
     /**
      * The NBT data which contains modifications made to
      * this item.
      */
-    private final Tag.Compound nbt;
+    private final ImmutableCompound nbt;
 
     /**
      * Creates a new empty meta object for items
      */
     public ItemMeta() {
-        this.nbt = new Tag.Compound("tag");
+        this.nbt = EMPTY;
     }
 
     /**
      * Creates a new item meta object with the attributes
      * specified in the "tag" tag of the given compound
      *
+     * <p>The compound is copied unless it is already
+     * immutable, in which case it is shared.</p>
+     *
      * @param compound the tag compound to read data
      */
     public ItemMeta(Tag.Compound compound) {
-        this.nbt = compound;
+        this.nbt = ImmutableCompound.of(compound);
+    }
+
+    /**
+     * Obtains the NBT data contained by this item meta.
+     *
+     * @return the item NBT data
+     */
+    public ImmutableCompound getNbt() {
+        return this.nbt;
+    }
+
+    /**
+     * Derives a new item meta with the given value set at
+     * the given key. The new meta shares all other data
+     * with this meta.
+     *
+     * @param key the key to set
+     * @param type the type of the value
+     * @param value the value
+     * @return the derived item meta
+     */
+    public ItemMeta with(String key, Tag.Type type, Object value) {
+        return new ItemMeta(this.nbt.with(key, type, value));
+    }
+
+    /**
+     * Derives a new item meta with the NBT data replaced
+     * by the result of the given function. Use the
+     * {@code with} methods of the compound passed to the
+     * function to change nested data while sharing the rest.
+     *
+     * @param func the function deriving the new NBT data
+     * @return the derived item meta
+     */
+    public ItemMeta edit(UnaryOperator<ImmutableCompound> func) {
+        ImmutableCompound nbt = func.apply(this.nbt);
+        return nbt == this.nbt ? this : new ItemMeta(nbt);
+    }
+
+    /**
+     * Obtains the content fingerprint of the NBT data of
+     * this meta.
+     *
+     * @return the fingerprint
+     * @see net.tridentsdk.meta.nbt.TagFingerprint
+     */
+    public long fingerprint() {
+        return this.nbt.fingerprint();
+    }
+
+    /**
+     * Obtains the canonical instance of this meta, so that
+     * metas with equal data held by many items are only
+     * stored once.
+     *
+     * <p>Interned metas are held weakly, so interning does
+     * not keep metas alive which are no longer used by any
+     * item. They are found by the fingerprint of their NBT
+     * data, whose lists cannot be modified; its arrays must
+     * not be modified in place either.</p>
+     *
+     * @return the meta equal to this meta which was
+     * interned first
+     */
+    public ItemMeta intern() {
+        synchronized (INTERNED) {
+            WeakReference<ItemMeta> ref = INTERNED.get(this);
+            ItemMeta meta = ref == null ? null : ref.get();
+            if (meta != null) {
+                return meta;
+            }
+
+            INTERNED.put(this, new WeakReference<>(this));
+            return this;
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return this == obj || obj instanceof ItemMeta && this.nbt.equals(((ItemMeta) obj).nbt);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.nbt.hashCode();
     }
 
     /**
@@ -0,0 +1,76 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+
+/**
+ * An input stream that reads directly out of a
+ * {@link ByteBuffer}, advancing its position, so that
+ * {@link Tag.Type} can decode from heap and memory-mapped
+ * buffers without an intermediate copy.
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@NotThreadSafe
+final class BufferInputStream extends InputStream {
+    /**
+     * The buffer being read
+     */
+    private final ByteBuffer buf;
+
+    /**
+     * Creates a new stream reading from the current
+     * position of the given buffer.
+     *
+     * @param buf the buffer to read
+     */
+    BufferInputStream(ByteBuffer buf) {
+        this.buf = buf;
+    }
+
+    @Override
+    public int read() {
+        return this.buf.hasRemaining() ? this.buf.get() & 0xFF : -1;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) {
+        if (!this.buf.hasRemaining()) {
+            return -1;
+        }
+
+        len = Math.min(len, this.buf.remaining());
+        this.buf.get(b, off, len);
+        return len;
+    }
+
+    @Override
+    public long skip(long n) {
+        int len = (int) Math.max(0, Math.min(n, this.buf.remaining()));
+        this.buf.position(this.buf.position() + len);
+        return len;
+    }
+
+    @Override
+    public int available() {
+        return this.buf.remaining();
+    }
+}
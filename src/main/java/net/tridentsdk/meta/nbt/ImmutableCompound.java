@@ -0,0 +1,480 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.AbstractMap;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.ListIterator;
+import java.util.Map;
+import java.util.function.BiFunction;
+import java.util.function.Predicate;
+import java.util.function.UnaryOperator;
+
+/**
+ * A compound tag which cannot be modified, but from which
+ * modified copies can be derived cheaply.
+ *
+ * <p>A derived compound shares every entry that was not
+ * changed with the compound it was derived from, so
+ * deriving a compound with a change at some nested path
+ * only copies the compounds along that path. The values of
+ * an immutable compound are deep copied once when it is
+ * created with {@link #of(Tag.Compound)}; from then on they
+ * are shared. Lists obtained from an immutable compound
+ * throw an {@link UnsupportedOperationException} when
+ * modified, but array values cannot be protected, so they
+ * must not be modified in place.</p>
+ *
+ * <p>All methods that would modify this compound throw an
+ * {@link UnsupportedOperationException}.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@Immutable
+public final class ImmutableCompound extends Tag.Compound {
+    /**
+     * The content fingerprint, kept up to date as entries
+     * are set while the compound is being built
+     */
+    private long fingerprint;
+
+    /**
+     * Creates a new, empty immutable compound.
+     *
+     * @param name the name of the compound tag
+     */
+    public ImmutableCompound(String name) {
+        super(name);
+    }
+
+    /**
+     * Creates a copy of the given compound that cannot be
+     * modified. If the given compound is already immutable,
+     * it is returned as-is.
+     *
+     * @param compound the compound to copy
+     * @return the immutable compound
+     */
+    public static ImmutableCompound of(Tag.Compound compound) {
+        if (compound instanceof ImmutableCompound) {
+            return (ImmutableCompound) compound;
+        }
+
+        ImmutableCompound copy = new ImmutableCompound(compound.getName());
+        for (Map.Entry<String, Tag> entry : compound.getEntries().entrySet()) {
+            Tag tag = entry.getValue();
+            copy.set(entry.getKey(), new Tag(tag.getType(), freeze(tag.getType(), tag.getObject())));
+        }
+
+        return copy;
+    }
+
+    /**
+     * Derives a compound with the given value set at the
+     * given key.
+     *
+     * @param key the key to set
+     * @param type the type of the value
+     * @param value the value, which is copied
+     * @return the derived compound
+     */
+    public ImmutableCompound with(String key, Tag.Type type, Object value) {
+        ImmutableCompound copy = this.copy();
+        copy.set(key, new Tag(type, freeze(type, value)));
+        return copy;
+    }
+
+    /**
+     * Derives a compound with the nested compound at the
+     * given key replaced by the result of the given
+     * function.
+     *
+     * <p>The function is passed the existing compound at
+     * the key, or an empty compound if there is none, and
+     * may itself derive nested compounds, which allows any
+     * path to be changed while only copying the compounds
+     * along it.</p>
+     *
+     * @param key the key of the nested compound
+     * @param func the function deriving the new nested
+     * compound
+     * @return the derived compound
+     */
+    public ImmutableCompound withCompound(String key, UnaryOperator<ImmutableCompound> func) {
+        Tag.Compound child = this.get(key);
+        ImmutableCompound derived = func.apply(child == null ? new ImmutableCompound(key) : (ImmutableCompound) child);
+        return this.with(key, Tag.Type.COMPOUND, derived);
+    }
+
+    /**
+     * Derives a compound without the value at the given
+     * key.
+     *
+     * @param key the key to remove
+     * @return the derived compound, or this compound if
+     * the key does not exist
+     */
+    public ImmutableCompound without(String key) {
+        if (this.get(key) == null) {
+            return this;
+        }
+
+        ImmutableCompound copy = this.copy();
+        copy.unset(key);
+        return copy;
+    }
+
+    /**
+     * Obtains the content fingerprint of this compound, as
+     * computed by {@link TagFingerprint}.
+     *
+     * @return the fingerprint
+     */
+    public long fingerprint() {
+        return this.fingerprint;
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+
+        if (!(obj instanceof ImmutableCompound)) {
+            return false;
+        }
+
+        ImmutableCompound other = (ImmutableCompound) obj;
+        return this.fingerprint == other.fingerprint && this.getName().equals(other.getName()) &&
+                TagFingerprint.contentEquals(this, other);
+    }
+
+    @Override
+    public int hashCode() {
+        return (int) (this.fingerprint ^ (this.fingerprint >>> 32));
+    }
+
+    @Override
+    public Map<String, Tag> getEntries() {
+        return Collections.unmodifiableMap(super.getEntries());
+    }
+
+    @Override
+    public void putByte(String key, byte i) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void putShort(String key, short i) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void putInt(String key, int i) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void putLong(String key, long i) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void putFloat(String key, float i) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void putDouble(String key, double i) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void putByteArray(String key, byte[] i) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void putString(String key, String i) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void putList(String key, Tag.List i) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void putCompound(Tag.Compound i) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void putIntArray(String key, int[] i) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void computeByte(String key, BiFunction<String, Byte, Byte> func) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void computeShort(String key, BiFunction<String, Short, Short> func) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void computerInt(String key, BiFunction<String, Integer, Integer> func) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void computeLong(String key, BiFunction<String, Long, Long> func) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void computeFloat(String key, BiFunction<String, Float, Float> func) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void computeDouble(String key, BiFunction<String, Double, Double> func) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void computeByteArray(String key, BiFunction<String, byte[], byte[]> func) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void computeString(String key, BiFunction<String, String, String> func) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void computeList(String key, BiFunction<String, Tag.List, Tag.List> func) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void computeCompound(String key, BiFunction<String, Tag.Compound, Tag.Compound> func) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public void computeIntArray(String key, BiFunction<String, int[], int[]> func) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    public boolean remove(String key) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    @Override
+    protected void add(Map.Entry<String, Tag> entry) {
+        throw new UnsupportedOperationException("Immutable compound");
+    }
+
+    /**
+     * Creates a compound sharing all of the entries of
+     * this compound.
+     *
+     * @return the copy
+     */
+    private ImmutableCompound copy() {
+        ImmutableCompound copy = new ImmutableCompound(this.getName());
+        super.getEntries().forEach(copy::share);
+        copy.fingerprint = this.fingerprint;
+        return copy;
+    }
+
+    /**
+     * Sets an entry while this compound is being built.
+     *
+     * @param key the entry key
+     * @param tag the entry value
+     */
+    private void set(String key, Tag tag) {
+        this.unset(key);
+        super.add(new AbstractMap.SimpleEntry<>(key, tag));
+        this.fingerprint += TagFingerprint.entry(key, tag.getType(), tag.getObject());
+    }
+
+    /**
+     * Adds an entry shared with another compound whose
+     * fingerprint is copied separately.
+     *
+     * @param key the entry key
+     * @param tag the entry value
+     */
+    private void share(String key, Tag tag) {
+        super.add(new AbstractMap.SimpleEntry<>(key, tag));
+    }
+
+    /**
+     * Removes an entry while this compound is being built.
+     *
+     * @param key the key of the entry
+     */
+    private void unset(String key) {
+        Tag old = super.getEntries().remove(key);
+        if (old != null) {
+            this.fingerprint -= TagFingerprint.entry(key, old.getType(), old.getObject());
+        }
+    }
+
+    /**
+     * Copies the given value such that it is no longer
+     * reachable from any mutable compound.
+     *
+     * @param type the type of the value
+     * @param value the value to copy
+     * @return the copied value
+     */
+    private static Object freeze(Tag.Type type, Object value) {
+        switch (type) {
+            case COMPOUND:
+                return of((Tag.Compound) value);
+            case LIST: {
+                Tag.List<?> list = (Tag.List<?>) value;
+                return list instanceof FrozenList ? list : new FrozenList<>(list);
+            }
+            case BYTE_ARRAY:
+                return ((byte[]) value).clone();
+            case INT_ARRAY:
+                return ((int[]) value).clone();
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * A list tag whose elements are frozen and which cannot
+     * be modified.
+     *
+     * @param <E> the element type
+     */
+    @Immutable
+    private static final class FrozenList<E> extends Tag.List<E> {
+        FrozenList(Tag.List<?> list) {
+            super(list.getType());
+            this.ensureCapacity(list.size());
+            for (Object o : list) {
+                super.add((E) freeze(list.getType(), o));
+            }
+        }
+
+        @Override
+        public boolean add(E e) {
+            throw new UnsupportedOperationException("Immutable list");
+        }
+
+        @Override
+        public void add(int index, E element) {
+            throw new UnsupportedOperationException("Immutable list");
+        }
+
+        @Override
+        public boolean addAll(Collection<? extends E> c) {
+            throw new UnsupportedOperationException("Immutable list");
+        }
+
+        @Override
+        public boolean addAll(int index, Collection<? extends E> c) {
+            throw new UnsupportedOperationException("Immutable list");
+        }
+
+        @Override
+        public E set(int index, E element) {
+            throw new UnsupportedOperationException("Immutable list");
+        }
+
+        @Override
+        public E remove(int index) {
+            throw new UnsupportedOperationException("Immutable list");
+        }
+
+        @Override
+        public boolean remove(Object o) {
+            throw new UnsupportedOperationException("Immutable list");
+        }
+
+        @Override
+        public boolean removeAll(Collection<?> c) {
+            throw new UnsupportedOperationException("Immutable list");
+        }
+
+        @Override
+        public boolean retainAll(Collection<?> c) {
+            throw new UnsupportedOperationException("Immutable list");
+        }
+
+        @Override
+        public boolean removeIf(Predicate<? super E> filter) {
+            throw new UnsupportedOperationException("Immutable list");
+        }
+
+        @Override
+        public void replaceAll(UnaryOperator<E> operator) {
+            throw new UnsupportedOperationException("Immutable list");
+        }
+
+        @Override
+        public void sort(Comparator<? super E> c) {
+            throw new UnsupportedOperationException("Immutable list");
+        }
+
+        @Override
+        public void clear() {
+            throw new UnsupportedOperationException("Immutable list");
+        }
+
+        @Override
+        protected void removeRange(int fromIndex, int toIndex) {
+            throw new UnsupportedOperationException("Immutable list");
+        }
+
+        @Override
+        public Iterator<E> iterator() {
+            return this.listIterator(0);
+        }
+
+        @Override
+        public ListIterator<E> listIterator() {
+            return this.listIterator(0);
+        }
+
+        @Override
+        public ListIterator<E> listIterator(int index) {
+            return this.subList(0, this.size()).listIterator(index);
+        }
+
+        @Override
+        public java.util.List<E> subList(int fromIndex, int toIndex) {
+            return Collections.unmodifiableList(super.subList(fromIndex, toIndex));
+        }
+    }
+}
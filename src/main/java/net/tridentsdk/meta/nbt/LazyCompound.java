@@ -0,0 +1,285 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * A compound tag which keeps hold of its encoded form and
+ * only decodes entries once they are accessed.
+ *
+ * <p>The first access to any entry scans the buffer to
+ * find the offsets of every entry in this compound, without
+ * decoding them. From then on, each key is decoded the
+ * first time it is requested; nested compounds are
+ * themselves lazy views over a slice of the same buffer.
+ * </p>
+ *
+ * <p>When written, entries that were never accessed are
+ * copied out of the buffer as-is rather than re-encoded.
+ * </p>
+ *
+ * <p>The backing buffer must not be modified while this
+ * compound is in use.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@ThreadSafe
+public class LazyCompound extends Tag.Compound {
+    /**
+     * The payload of this compound, starting at the header
+     * of its first entry
+     */
+    private final ByteBuffer buffer;
+    /**
+     * The entries that have not yet been decoded, or
+     * {@code null} if the buffer has not been scanned
+     */
+    private volatile Map<String, Raw> index;
+
+    /**
+     * Creates a new lazy compound over the given payload.
+     *
+     * @param name the name of the compound tag
+     * @param buffer the payload of the compound, positioned
+     * at the header of the first entry
+     */
+    protected LazyCompound(String name, ByteBuffer buffer) {
+        super(name);
+        this.buffer = buffer.slice();
+    }
+
+    /**
+     * Reads the root compound tag header from the given
+     * buffer and creates a lazy compound over the rest of
+     * the buffer.
+     *
+     * @param buffer the buffer containing the encoded root
+     * tag, which is not modified
+     * @return the lazy root compound tag
+     */
+    public static LazyCompound decode(ByteBuffer buffer) {
+        ByteBuffer buf = buffer.duplicate();
+        try {
+            DataInputStream stream = new DataInputStream(new BufferInputStream(buf));
+            Tag.Type type = Tag.Type.getMapping().get((int) stream.readByte());
+            if (type != Tag.Type.COMPOUND) {
+                throw new IllegalArgumentException("Root tag is not a compound: " + type);
+            }
+
+            String name = TagReader.readName(stream);
+            return new LazyCompound(name, buf);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Memory-maps the given uncompressed NBT file and
+     * creates a lazy compound over the mapping.
+     *
+     * @param path the path to the file to map
+     * @return the lazy root compound tag
+     * @throws IOException if the file could not be mapped
+     */
+    public static LazyCompound map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return decode(buf);
+        }
+    }
+
+    @Override
+    public Map<String, Tag> getEntries() {
+        Map<String, Raw> index = this.index();
+        for (String key : index.keySet()) {
+            this.entriesFor(key);
+        }
+
+        return super.getEntries();
+    }
+
+    @Override
+    public boolean remove(String key) {
+        boolean removed = this.index().remove(key) != null;
+        return super.remove(key) || removed;
+    }
+
+    @Override
+    protected Map<String, Tag> entriesFor(String key) {
+        Map<String, Tag> entries = super.getEntries();
+        Map<String, Raw> index = this.index();
+        if (!index.isEmpty()) {
+            index.computeIfPresent(key, (k, raw) -> {
+                entries.putIfAbsent(k, new Tag(raw.type, this.decode(k, raw)));
+                return null;
+            });
+        }
+
+        return entries;
+    }
+
+    @Override
+    protected void writeEntries(DataOutputStream stream) throws IOException {
+        super.writeEntries(stream);
+
+        byte[] copy = null;
+        for (Map.Entry<String, Raw> entry : this.index().entrySet()) {
+            Raw raw = entry.getValue();
+            byte[] name = entry.getKey().getBytes(Tag.Type.UTF_8);
+            stream.writeByte(raw.type.ordinal());
+            stream.writeShort(name.length);
+            stream.write(name);
+
+            ByteBuffer buf = this.slice(raw);
+            if (buf.hasArray()) {
+                stream.write(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining());
+            } else {
+                if (copy == null) {
+                    copy = new byte[8192];
+                }
+
+                while (buf.hasRemaining()) {
+                    int len = Math.min(copy.length, buf.remaining());
+                    buf.get(copy, 0, len);
+                    stream.write(copy, 0, len);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void writeEntries(TagWriter writer) {
+        super.writeEntries(writer);
+        for (Map.Entry<String, Raw> entry : this.index().entrySet()) {
+            Raw raw = entry.getValue();
+            writer.writeHeader(raw.type, entry.getKey());
+            writer.writeRaw(this.slice(raw));
+        }
+    }
+
+    /**
+     * Obtains the entries which have not been decoded yet,
+     * scanning the buffer if that has not been done.
+     *
+     * @return the undecoded entries
+     */
+    private Map<String, Raw> index() {
+        Map<String, Raw> index = this.index;
+        if (index == null) {
+            synchronized (this) {
+                index = this.index;
+                if (index == null) {
+                    this.index = index = this.scan();
+                }
+            }
+        }
+
+        return index;
+    }
+
+    /**
+     * Finds the type, offset and length of each entry in
+     * the buffer, skipping over their payloads.
+     *
+     * @return the entries in the buffer
+     */
+    private Map<String, Raw> scan() {
+        ByteBuffer buf = this.buffer.duplicate();
+        DataInputStream stream = new DataInputStream(new BufferInputStream(buf));
+        Map<String, Raw> index = new ConcurrentHashMap<>();
+        try {
+            while (true) {
+                Tag.Type type = Tag.Type.getMapping().get((int) stream.readByte());
+                if (type == Tag.Type.END) {
+                    break;
+                }
+
+                String name = TagReader.readName(stream);
+                int start = buf.position();
+                type.skip(stream);
+                index.put(name, new Raw(type, start, buf.position() - start));
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        return index;
+    }
+
+    /**
+     * Decodes the given raw entry.
+     *
+     * @param name the name of the entry
+     * @param raw the location of the entry payload
+     * @return the decoded value
+     */
+    private Object decode(String name, Raw raw) {
+        ByteBuffer buf = this.slice(raw);
+        if (raw.type == Tag.Type.COMPOUND) {
+            return new LazyCompound(name, buf);
+        }
+
+        try {
+            return raw.type.read(name, new DataInputStream(new BufferInputStream(buf)));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Creates a view of the buffer containing only the
+     * payload of the given entry.
+     *
+     * @param raw the entry
+     * @return the payload of the entry
+     */
+    private ByteBuffer slice(Raw raw) {
+        ByteBuffer buf = this.buffer.duplicate();
+        buf.limit(raw.pos + raw.len);
+        buf.position(raw.pos);
+        return buf;
+    }
+
+    /**
+     * The location of an entry which has not been decoded.
+     */
+    @Immutable
+    private static final class Raw {
+        private final Tag.Type type;
+        private final int pos;
+        private final int len;
+
+        Raw(Tag.Type type, int pos, int len) {
+            this.type = type;
+            this.pos = pos;
+            this.len = len;
+        }
+    }
+}
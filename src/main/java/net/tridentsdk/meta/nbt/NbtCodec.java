@@ -0,0 +1,503 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import javassist.*;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Converts objects with {@link NbtField} annotated fields
+ * directly to and from encoded compound tags.
+ *
+ * <p>Codecs are generated once per class with javassist,
+ * and the generated code reads and writes the annotated
+ * fields directly, so no intermediate {@link Tag.Compound}
+ * is built and no reflection is used after the codec has
+ * been created. Reference fields which are {@code null} are
+ * left out when writing, and keys which are unknown or
+ * have an unexpected type are skipped when reading.</p>
+ *
+ * @param <T> the type of object handled by the codec
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@ThreadSafe
+public abstract class NbtCodec<T> {
+    /**
+     * The codecs which have been generated so far
+     */
+    private static final Map<Class<?>, NbtCodec<?>> CODECS = new ConcurrentHashMap<>();
+    /**
+     * The class pool used to generate codecs
+     */
+    @GuardedBy("CODECS")
+    private static final ClassPool CODEC_CP = new ClassPool(true);
+    /**
+     * Scratch space used to read keys without allocating
+     */
+    private static final ThreadLocal<byte[]> SCRATCH = ThreadLocal.withInitial(() -> new byte[64]);
+
+    static {
+        CODEC_CP.appendClassPath(new ClassClassPath(NbtCodec.class));
+    }
+
+    /**
+     * The class loaders whose classes can be found by the
+     * class pool
+     */
+    @GuardedBy("CODECS")
+    private static final Set<ClassLoader> LOADERS = Collections.newSetFromMap(new WeakHashMap<>());
+
+    /**
+     * The key of each field
+     */
+    protected final String[] names;
+    /**
+     * The UTF-8 encoded keys of each field
+     */
+    private final byte[][] keys;
+    /**
+     * The tag header of each field, consisting of the type
+     * byte and the encoded key
+     */
+    protected final byte[][] headers;
+    /**
+     * The tag type of each field
+     */
+    protected final byte[] types;
+    /**
+     * The codec of each field which holds a nested object,
+     * otherwise {@code null}
+     */
+    protected final NbtCodec[] codecs;
+
+    /**
+     * Creates the base of a generated codec.
+     *
+     * @param keys the keys of the fields
+     * @param types the tag types of the fields
+     */
+    protected NbtCodec(String[] keys, byte[] types) {
+        this.names = keys;
+        this.keys = new byte[keys.length][];
+        this.headers = new byte[keys.length][];
+        this.types = types;
+        this.codecs = new NbtCodec[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            byte[] key = keys[i].getBytes(Tag.Type.UTF_8);
+            byte[] header = new byte[key.length + 3];
+            header[0] = types[i];
+            header[1] = (byte) (key.length >>> 8);
+            header[2] = (byte) key.length;
+            System.arraycopy(key, 0, header, 3, key.length);
+            this.keys[i] = key;
+            this.headers[i] = header;
+        }
+    }
+
+    /**
+     * Obtains the codec for the given class, generating it
+     * if it has not been used before.
+     *
+     * @param cls the class whose annotated fields to encode
+     * @param <T> the type of object handled by the codec
+     * @return the codec
+     * @throws IllegalArgumentException if the class or one
+     * of its annotated fields cannot be handled
+     */
+    public static <T> NbtCodec<T> of(Class<T> cls) {
+        NbtCodec<T> codec = (NbtCodec<T>) CODECS.get(cls);
+        if (codec != null) {
+            return codec;
+        }
+
+        synchronized (CODECS) {
+            Map<Class<?>, NbtCodec<?>> pending = new HashMap<>();
+            codec = generate(cls, pending);
+            CODECS.putAll(pending);
+            return codec;
+        }
+    }
+
+    /**
+     * Creates a new instance of the handled class using its
+     * no-argument constructor.
+     *
+     * @return the new instance
+     */
+    public abstract T newInstance();
+
+    /**
+     * Writes the annotated fields of the given object as
+     * compound entries, not including the header or the
+     * end tag.
+     *
+     * @param obj the object to write
+     * @param stream the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    public abstract void writeEntries(T obj, DataOutputStream stream) throws IOException;
+
+    /**
+     * Reads compound entries into the annotated fields of
+     * the given object, up to and including the end tag.
+     *
+     * @param obj the object to read into
+     * @param stream the stream to read
+     * @throws IOException if the stream ends early
+     */
+    public abstract void readEntries(T obj, DataInputStream stream) throws IOException;
+
+    /**
+     * Writes the given object as a root compound tag with
+     * the given name.
+     *
+     * @param obj the object to write
+     * @param name the name of the compound
+     * @param stream the stream to write to
+     */
+    public void write(T obj, String name, DataOutputStream stream) {
+        try {
+            byte[] arr = name.getBytes(Tag.Type.UTF_8);
+            stream.writeByte(Tag.Type.COMPOUND.ordinal());
+            stream.writeShort(arr.length);
+            stream.write(arr);
+            this.writeEntries(obj, stream);
+            stream.writeByte(Tag.Type.END.ordinal());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads a new object from the root compound tag in the
+     * given stream.
+     *
+     * @param stream the stream to read
+     * @return the new object
+     */
+    public T read(DataInputStream stream) {
+        try {
+            byte type = stream.readByte();
+            if (type != Tag.Type.COMPOUND.ordinal()) {
+                throw new IllegalArgumentException("Root tag is not a compound: " +
+                        Tag.Type.getMapping().get((int) type));
+            }
+
+            TagReader.readName(stream);
+            T obj = this.newInstance();
+            this.readEntries(obj, stream);
+            return obj;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Converts the given object to a compound tag.
+     *
+     * @param obj the object to convert
+     * @param name the name of the compound
+     * @return the new compound
+     */
+    public Tag.Compound toCompound(T obj, String name) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        this.write(obj, name, new DataOutputStream(out));
+        return Tag.decode(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    /**
+     * Converts the given compound tag to a new object.
+     *
+     * @param compound the compound to convert
+     * @return the new object
+     */
+    public T fromCompound(Tag.Compound compound) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compound.write(new DataOutputStream(out));
+        return this.read(new DataInputStream(new ByteArrayInputStream(out.toByteArray())));
+    }
+
+    /**
+     * Reads the key of an entry and finds the field which
+     * it belongs to.
+     *
+     * @param stream the stream to read
+     * @param expected the field which is most likely to be
+     * next
+     * @return the index of the field, or {@code -1} if no
+     * field has the key
+     * @throws IOException if the stream ends early
+     */
+    protected final int readField(DataInputStream stream, int expected) throws IOException {
+        int len = stream.readUnsignedShort();
+        byte[] scratch = SCRATCH.get();
+        if (scratch.length < len) {
+            scratch = new byte[len];
+            SCRATCH.set(scratch);
+        }
+        stream.readFully(scratch, 0, len);
+
+        byte[][] keys = this.keys;
+        if (expected < keys.length && matches(keys[expected], scratch, len)) {
+            return expected;
+        }
+
+        for (int i = 0; i < keys.length; i++) {
+            if (matches(keys[i], scratch, len)) {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+    /**
+     * Skips the payload of a tag with the given type.
+     *
+     * @param type the tag type
+     * @param stream the stream to skip
+     * @throws IOException if the stream ends early or the
+     * type is unknown
+     */
+    protected static void skip(int type, DataInputStream stream) throws IOException {
+        Tag.Type.fromId(type).skip(stream);
+    }
+
+    /**
+     * Writes the payload of a string tag.
+     *
+     * @param stream the stream to write to
+     * @param s the string to write
+     * @throws IOException if the stream cannot be written
+     */
+    protected static void writeString(DataOutputStream stream, String s) throws IOException {
+        byte[] arr = s.getBytes(Tag.Type.UTF_8);
+        stream.writeShort(arr.length);
+        stream.write(arr);
+    }
+
+    /**
+     * Reads the payload of a string tag.
+     *
+     * @param stream the stream to read
+     * @return the string
+     * @throws IOException if the stream ends early
+     */
+    protected static String readString(DataInputStream stream) throws IOException {
+        return TagReader.readName(stream);
+    }
+
+    /**
+     * Writes the payload of a tag which is handled by
+     * {@link Tag.Type}.
+     *
+     * @param type the tag type
+     * @param o the value to write
+     * @param stream the stream to write to
+     * @throws IOException if the stream cannot be written
+     */
+    protected static void writeTag(int type, Object o, DataOutputStream stream) throws IOException {
+        Tag.Type.getMapping().get(type).write(o, stream);
+    }
+
+    /**
+     * Reads the payload of a tag which is handled by
+     * {@link Tag.Type}.
+     *
+     * @param type the tag type
+     * @param name the name of the tag
+     * @param stream the stream to read
+     * @return the value
+     * @throws IOException if the stream ends early
+     */
+    protected static Object readTag(int type, String name, DataInputStream stream) throws IOException {
+        return Tag.Type.getMapping().get(type).read(name, stream);
+    }
+
+    private static boolean matches(byte[] key, byte[] scratch, int len) {
+        if (key.length != len) {
+            return false;
+        }
+
+        for (int i = 0; i < len; i++) {
+            if (key[i] != scratch[i]) {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+    /**
+     * Obtains or generates the codec for the given class,
+     * recording newly generated codecs in the pending map
+     * so that they are only published once their nested
+     * codecs are set.
+     */
+    @GuardedBy("CODECS")
+    private static <T> NbtCodec<T> generate(Class<T> cls, Map<Class<?>, NbtCodec<?>> pending) {
+        NbtCodec<T> codec = (NbtCodec<T>) CODECS.get(cls);
+        if (codec == null) {
+            codec = (NbtCodec<T>) pending.get(cls);
+        }
+        if (codec != null) {
+            return codec;
+        }
+
+        List<Field> fields = new ArrayList<>();
+        for (Field field : cls.getDeclaredFields()) {
+            if (!field.isAnnotationPresent(NbtField.class)) {
+                continue;
+            }
+
+            int mod = field.getModifiers();
+            if (Modifier.isPrivate(mod) || Modifier.isFinal(mod) || Modifier.isStatic(mod)) {
+                throw new IllegalArgumentException(cls.getName() + '.' + field.getName() +
+                        " must not be private, final or static");
+            }
+            fields.add(field);
+        }
+
+        if (fields.isEmpty()) {
+            throw new IllegalArgumentException(cls.getName() + " has no @NbtField fields");
+        }
+
+        String[] keys = new String[fields.size()];
+        byte[] types = new byte[fields.size()];
+        String name = cls.getName();
+        StringBuilder write = new StringBuilder("public void writeEntries(Object o, java.io.DataOutputStream out) " +
+                "throws java.io.IOException {").append(name).append(" p = (").append(name).append(") o;");
+        StringBuilder read = new StringBuilder("public void readEntries(Object o, java.io.DataInputStream in) " +
+                "throws java.io.IOException {").append(name).append(" p = (").append(name).append(") o;")
+                .append("int next = 0; while (true) { int t = in.readByte(); if (t == 0) return;")
+                .append("int f = this.readField(in, next);")
+                .append("if (f < 0 || t != this.types[f]) { skip(t, in); continue; } next = f + 1;");
+        for (int i = 0; i < fields.size(); i++) {
+            Field field = fields.get(i);
+            String key = field.getAnnotation(NbtField.class).value();
+            keys[i] = key.isEmpty() ? field.getName() : key;
+
+            Class<?> type = field.getType();
+            String ref = "p." + field.getName();
+            String header = "out.write(this.headers[" + i + "]);";
+            String w;
+            String r;
+            if (type == byte.class) {
+                types[i] = (byte) Tag.Type.BYTE.ordinal();
+                w = header + "out.writeByte(" + ref + ");";
+                r = ref + " = in.readByte();";
+            } else if (type == boolean.class) {
+                types[i] = (byte) Tag.Type.BYTE.ordinal();
+                w = header + "out.writeByte(" + ref + " ? 1 : 0);";
+                r = ref + " = in.readByte() != 0;";
+            } else if (type == short.class) {
+                types[i] = (byte) Tag.Type.SHORT.ordinal();
+                w = header + "out.writeShort(" + ref + ");";
+                r = ref + " = in.readShort();";
+            } else if (type == int.class) {
+                types[i] = (byte) Tag.Type.INT.ordinal();
+                w = header + "out.writeInt(" + ref + ");";
+                r = ref + " = in.readInt();";
+            } else if (type == long.class) {
+                types[i] = (byte) Tag.Type.LONG.ordinal();
+                w = header + "out.writeLong(" + ref + ");";
+                r = ref + " = in.readLong();";
+            } else if (type == float.class) {
+                types[i] = (byte) Tag.Type.FLOAT.ordinal();
+                w = header + "out.writeFloat(" + ref + ");";
+                r = ref + " = in.readFloat();";
+            } else if (type == double.class) {
+                types[i] = (byte) Tag.Type.DOUBLE.ordinal();
+                w = header + "out.writeDouble(" + ref + ");";
+                r = ref + " = in.readDouble();";
+            } else if (type == String.class) {
+                types[i] = (byte) Tag.Type.STRING.ordinal();
+                w = "if (" + ref + " != null) {" + header + "writeString(out, " + ref + ");}";
+                r = ref + " = readString(in);";
+            } else if (type == byte[].class) {
+                types[i] = (byte) Tag.Type.BYTE_ARRAY.ordinal();
+                w = "if (" + ref + " != null) {" + header + "out.writeInt(" + ref + ".length); out.write(" +
+                        ref + ");}";
+                r = "{ byte[] a = new byte[in.readInt()]; in.readFully(a); " + ref + " = a; }";
+            } else if (type == int[].class || type == Tag.List.class || type == Tag.Compound.class) {
+                Tag.Type tag = type == int[].class ? Tag.Type.INT_ARRAY :
+                        type == Tag.List.class ? Tag.Type.LIST : Tag.Type.COMPOUND;
+                types[i] = (byte) tag.ordinal();
+                w = "if (" + ref + " != null) {" + header + "writeTag(" + tag.ordinal() + ", " + ref + ", out);}";
+                r = ref + " = (" + typeName(type) + ") readTag(" + tag.ordinal() + ", this.names[" + i +
+                        "], in);";
+            } else if (!type.isPrimitive() && !type.isArray()) {
+                types[i] = (byte) Tag.Type.COMPOUND.ordinal();
+                String nested = "this.codecs[" + i + "]";
+                w = "if (" + ref + " != null) {" + header + nested + ".writeEntries(" + ref + ", out); " +
+                        "out.writeByte(0);}";
+                r = "{ Object v = " + nested + ".newInstance(); " + nested + ".readEntries(v, in); " +
+                        ref + " = (" + type.getName() + ") v; }";
+            } else {
+                throw new IllegalArgumentException(cls.getName() + '.' + field.getName() +
+                        " has unsupported type " + type.getName());
+            }
+
+            write.append(w);
+            read.append("if (f == ").append(i).append(") ").append(r).append(" else ");
+        }
+        write.append('}');
+        read.append("{} } }");
+
+        try {
+            ClassLoader loader = cls.getClassLoader();
+            if (loader != null && LOADERS.add(loader)) {
+                CODEC_CP.appendClassPath(new LoaderClassPath(loader));
+            }
+
+            CtClass ct = CODEC_CP.makeClass(name + "$NbtCodec", CODEC_CP.get(NbtCodec.class.getName()));
+            CtClass[] params = { CODEC_CP.get(String[].class.getName()), CODEC_CP.get(byte[].class.getName()) };
+            ct.addConstructor(CtNewConstructor.make(params, new CtClass[0], "super($1, $2);", ct));
+            ct.addMethod(CtNewMethod.make("public Object newInstance() { return new " + name + "(); }", ct));
+            ct.addMethod(CtNewMethod.make(write.toString(), ct));
+            ct.addMethod(CtNewMethod.make(read.toString(), ct));
+
+            Class<?> gen = ct.toClass(loader, cls.getProtectionDomain());
+            ct.detach();
+            codec = (NbtCodec<T>) gen.getConstructor(String[].class, byte[].class).newInstance(keys, types);
+        } catch (CannotCompileException | NotFoundException | ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot generate codec for " + name, e);
+        }
+
+        pending.put(cls, codec);
+        for (int i = 0; i < fields.size(); i++) {
+            Class<?> type = fields.get(i).getType();
+            if (types[i] == Tag.Type.COMPOUND.ordinal() && type != Tag.Compound.class) {
+                codec.codecs[i] = generate(type, pending);
+            }
+        }
+
+        return codec;
+    }
+
+    private static String typeName(Class<?> type) {
+        return type.isArray() ? type.getComponentType().getName() + "[]" : type.getName();
+    }
+}
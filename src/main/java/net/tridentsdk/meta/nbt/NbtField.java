@@ -0,0 +1,48 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import java.lang.annotation.*;
+
+/**
+ * Marks a field which is persisted by the {@link NbtCodec}
+ * of the class that declares it.
+ *
+ * <p>Annotated fields may not be {@code private},
+ * {@code final} or {@code static}. Supported field types
+ * are the primitives other than {@code char} (a
+ * {@code boolean} is stored as a byte), {@link String},
+ * {@code byte[]}, {@code int[]}, {@link Tag.List},
+ * {@link Tag.Compound} and any other class which itself has
+ * annotated fields, which is stored as a nested
+ * compound.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface NbtField {
+    /**
+     * The key under which the field is stored. If left
+     * empty, the name of the field is used.
+     *
+     * @return the key
+     */
+    String value() default "";
+}
@@ -0,0 +1,768 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import net.tridentsdk.util.Int2ReferenceOpenHashMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
+
+/**
+ * A compound tag which stores its numeric entries in
+ * primitive slots rather than as boxed objects.
+ *
+ * <p>Byte, short, int, long, float and double tags are kept
+ * in an open addressed table made of a key array, a type
+ * array and a {@code long} array holding the value (or the
+ * raw bits of floating point values). The typed getters,
+ * setters and the unboxed compute functions on this class
+ * read and write these slots directly. All other tags are
+ * stored the same way as in a regular compound.</p>
+ *
+ * <p>Methods inherited from {@link Tag.Compound} that work
+ * on boxed values, such as {@link #computeByte(String,
+ * java.util.function.BiFunction)}, move the affected
+ * entries into boxed storage. They keep working, but give
+ * up the allocation-free behavior for those entries until
+ * they are put again through a typed setter.
+ * {@link #getEntries()} returns a read-only snapshot
+ * instead, leaving every entry where it is.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@ThreadSafe
+public class PrimitiveCompound extends Tag.Compound {
+    /**
+     * The tag types, indexed by ordinal
+     */
+    private static final Tag.Type[] TYPES = Tag.Type.values();
+    /**
+     * The initial size of the slot table
+     */
+    private static final int DEFAULT_CAPACITY = 8;
+
+    /**
+     * The slot keys, {@code null} if the slot is free
+     */
+    @GuardedBy("this")
+    private String[] keys = new String[DEFAULT_CAPACITY];
+    /**
+     * The ordinal of the tag type held by each slot
+     */
+    @GuardedBy("this")
+    private byte[] types = new byte[DEFAULT_CAPACITY];
+    /**
+     * The value held by each slot
+     */
+    @GuardedBy("this")
+    private long[] values = new long[DEFAULT_CAPACITY];
+    /**
+     * The amount of occupied slots
+     */
+    @GuardedBy("this")
+    private int size;
+
+    /**
+     * Creates a new, empty compound tag.
+     *
+     * @param name the name of the compound tag
+     */
+    public PrimitiveCompound(String name) {
+        super(name);
+    }
+
+    /**
+     * Reads a compound from the given stream directly into
+     * primitive compounds, without boxing the numeric
+     * values of any compound entries.
+     *
+     * @param stream the stream to read
+     * @return the root compound tag
+     * @throws IllegalArgumentException if the root tag is
+     * not a compound
+     */
+    public static PrimitiveCompound decode(DataInputStream stream) {
+        Builder builder = new Builder();
+        TagReader.read(stream, builder);
+        return builder.root;
+    }
+
+    /**
+     * Copies the given compound, converting it and any
+     * nested compounds directly held by it into primitive
+     * compounds. Other values are shared with the given
+     * compound.
+     *
+     * @param compound the compound to copy
+     * @return the copy
+     */
+    public static PrimitiveCompound copyOf(Tag.Compound compound) {
+        PrimitiveCompound copy = new PrimitiveCompound(compound.getName());
+        for (Map.Entry<String, Tag> entry : compound.getEntries().entrySet()) {
+            Tag tag = entry.getValue();
+            if (tag.getType() == Tag.Type.COMPOUND) {
+                tag = new Tag(Tag.Type.COMPOUND, copyOf((Tag.Compound) tag.getObject()));
+            }
+
+            copy.add(new AbstractMap.SimpleEntry<>(entry.getKey(), tag));
+        }
+
+        return copy;
+    }
+
+    @Nullable
+    @Override
+    public <T> T get(String key) {
+        synchronized (this) {
+            int pos = this.find(key);
+            if (pos >= 0) {
+                return (T) box(TYPES[this.types[pos]], this.values[pos]);
+            }
+        }
+
+        return super.get(key);
+    }
+
+    @Override
+    public byte getByte(String key) {
+        synchronized (this) {
+            int pos = this.find(key);
+            if (pos >= 0) {
+                return (byte) this.slot(pos, key, Tag.Type.BYTE);
+            }
+        }
+
+        return super.getByte(key);
+    }
+
+    @Override
+    public short getShort(String key) {
+        synchronized (this) {
+            int pos = this.find(key);
+            if (pos >= 0) {
+                return (short) this.slot(pos, key, Tag.Type.SHORT);
+            }
+        }
+
+        return super.getShort(key);
+    }
+
+    @Override
+    public int getInt(String key) {
+        synchronized (this) {
+            int pos = this.find(key);
+            if (pos >= 0) {
+                return (int) this.slot(pos, key, Tag.Type.INT);
+            }
+        }
+
+        return super.getInt(key);
+    }
+
+    @Override
+    public long getLong(String key) {
+        synchronized (this) {
+            int pos = this.find(key);
+            if (pos >= 0) {
+                return this.slot(pos, key, Tag.Type.LONG);
+            }
+        }
+
+        return super.getLong(key);
+    }
+
+    @Override
+    public float getFloat(String key) {
+        synchronized (this) {
+            int pos = this.find(key);
+            if (pos >= 0) {
+                return Float.intBitsToFloat((int) this.slot(pos, key, Tag.Type.FLOAT));
+            }
+        }
+
+        return super.getFloat(key);
+    }
+
+    @Override
+    public double getDouble(String key) {
+        synchronized (this) {
+            int pos = this.find(key);
+            if (pos >= 0) {
+                return Double.longBitsToDouble(this.slot(pos, key, Tag.Type.DOUBLE));
+            }
+        }
+
+        return super.getDouble(key);
+    }
+
+    @Override
+    public void putByte(String key, byte i) {
+        this.put(key, Tag.Type.BYTE, i);
+    }
+
+    @Override
+    public void putShort(String key, short i) {
+        this.put(key, Tag.Type.SHORT, i);
+    }
+
+    @Override
+    public void putInt(String key, int i) {
+        this.put(key, Tag.Type.INT, i);
+    }
+
+    @Override
+    public void putLong(String key, long i) {
+        this.put(key, Tag.Type.LONG, i);
+    }
+
+    @Override
+    public void putFloat(String key, float i) {
+        this.put(key, Tag.Type.FLOAT, Float.floatToRawIntBits(i));
+    }
+
+    @Override
+    public void putDouble(String key, double i) {
+        this.put(key, Tag.Type.DOUBLE, Double.doubleToRawLongBits(i));
+    }
+
+    /**
+     * Atomically replaces the int value at the given key
+     * with the result of the given function, without
+     * boxing.
+     *
+     * @param key the key to compute the value
+     * @param func the computation to run, which is passed
+     * {@code 0} if there is no value at the key
+     * @return the new value
+     */
+    public synchronized int computeInt(String key, IntUnaryOperator func) {
+        int pos = this.find(key);
+        int old;
+        if (pos >= 0) {
+            old = (int) this.slot(pos, key, Tag.Type.INT);
+        } else {
+            Integer boxed = super.get(key);
+            old = boxed == null ? 0 : boxed;
+        }
+
+        int i = func.applyAsInt(old);
+        this.put(key, Tag.Type.INT, i);
+        return i;
+    }
+
+    /**
+     * Atomically replaces the long value at the given key
+     * with the result of the given function, without
+     * boxing.
+     *
+     * @param key the key to compute the value
+     * @param func the computation to run, which is passed
+     * {@code 0} if there is no value at the key
+     * @return the new value
+     */
+    public synchronized long computeLong(String key, LongUnaryOperator func) {
+        int pos = this.find(key);
+        long old;
+        if (pos >= 0) {
+            old = this.slot(pos, key, Tag.Type.LONG);
+        } else {
+            Long boxed = super.get(key);
+            old = boxed == null ? 0 : boxed;
+        }
+
+        long i = func.applyAsLong(old);
+        this.put(key, Tag.Type.LONG, i);
+        return i;
+    }
+
+    /**
+     * Atomically replaces the double value at the given key
+     * with the result of the given function, without
+     * boxing.
+     *
+     * @param key the key to compute the value
+     * @param func the computation to run, which is passed
+     * {@code 0} if there is no value at the key
+     * @return the new value
+     */
+    public synchronized double computeDouble(String key, DoubleUnaryOperator func) {
+        int pos = this.find(key);
+        double old;
+        if (pos >= 0) {
+            old = Double.longBitsToDouble(this.slot(pos, key, Tag.Type.DOUBLE));
+        } else {
+            Double boxed = super.get(key);
+            old = boxed == null ? 0 : boxed;
+        }
+
+        double i = func.applyAsDouble(old);
+        this.put(key, Tag.Type.DOUBLE, Double.doubleToRawLongBits(i));
+        return i;
+    }
+
+    @Override
+    public boolean remove(String key) {
+        boolean removed;
+        synchronized (this) {
+            int pos = this.find(key);
+            removed = pos >= 0;
+            if (removed) {
+                this.delete(pos);
+            }
+        }
+
+        return super.remove(key) || removed;
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * <p>The returned map is a read-only snapshot which
+     * boxes the primitive entries without moving them out
+     * of their slots.</p>
+     */
+    @Override
+    public synchronized Map<String, Tag> getEntries() {
+        Map<String, Tag> entries = new HashMap<>(super.getEntries());
+        String[] keys = this.keys;
+        for (int i = 0; i < keys.length; i++) {
+            String key = keys[i];
+            if (key != null) {
+                entries.put(key, new Tag(TYPES[this.types[i]], box(TYPES[this.types[i]], this.values[i])));
+            }
+        }
+
+        return Collections.unmodifiableMap(entries);
+    }
+
+    @Override
+    protected synchronized Map<String, Tag> entriesFor(String key) {
+        Map<String, Tag> entries = super.entriesFor(key);
+        int pos = this.find(key);
+        if (pos >= 0) {
+            Tag.Type type = TYPES[this.types[pos]];
+            entries.put(key, new Tag(type, box(type, this.values[pos])));
+            this.delete(pos);
+        }
+
+        return entries;
+    }
+
+    @Override
+    protected void writeEntries(DataOutputStream stream) throws IOException {
+        super.writeEntries(stream);
+        synchronized (this) {
+            String[] keys = this.keys;
+            for (int i = 0; i < keys.length; i++) {
+                String key = keys[i];
+                if (key == null) {
+                    continue;
+                }
+
+                Tag.Type type = TYPES[this.types[i]];
+                long value = this.values[i];
+                byte[] name = key.getBytes(Tag.Type.UTF_8);
+                stream.writeByte(type.ordinal());
+                stream.writeShort(name.length);
+                stream.write(name);
+                switch (type) {
+                    case BYTE:
+                        stream.writeByte((byte) value);
+                        break;
+                    case SHORT:
+                        stream.writeShort((short) value);
+                        break;
+                    case INT:
+                    case FLOAT:
+                        stream.writeInt((int) value);
+                        break;
+                    default:
+                        stream.writeLong(value);
+                        break;
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void writeEntries(TagWriter writer) {
+        super.writeEntries(writer);
+        synchronized (this) {
+            String[] keys = this.keys;
+            for (int i = 0; i < keys.length; i++) {
+                String key = keys[i];
+                if (key != null) {
+                    Tag.Type type = TYPES[this.types[i]];
+                    writer.writeHeader(type, key);
+                    writer.writeNumeric(type, this.values[i]);
+                }
+            }
+        }
+    }
+
+    @Override
+    protected void add(Map.Entry<String, Tag> entry) {
+        Tag tag = entry.getValue();
+        Object o = tag.getObject();
+        switch (tag.getType()) {
+            case BYTE:
+                this.putByte(entry.getKey(), (byte) o);
+                break;
+            case SHORT:
+                this.putShort(entry.getKey(), (short) o);
+                break;
+            case INT:
+                this.putInt(entry.getKey(), (int) o);
+                break;
+            case LONG:
+                this.putLong(entry.getKey(), (long) o);
+                break;
+            case FLOAT:
+                this.putFloat(entry.getKey(), (float) o);
+                break;
+            case DOUBLE:
+                this.putDouble(entry.getKey(), (double) o);
+                break;
+            default:
+                super.add(entry);
+                break;
+        }
+    }
+
+    /**
+     * Boxes the given slot value.
+     *
+     * @param type the type of the slot
+     * @param value the slot value
+     * @return the boxed value
+     */
+    private static Object box(Tag.Type type, long value) {
+        switch (type) {
+            case BYTE:
+                return (byte) value;
+            case SHORT:
+                return (short) value;
+            case INT:
+                return (int) value;
+            case FLOAT:
+                return Float.intBitsToFloat((int) value);
+            case DOUBLE:
+                return Double.longBitsToDouble(value);
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * Reads the slot at the given position, checking that
+     * it holds the given type.
+     *
+     * @param pos the slot position
+     * @param key the slot key
+     * @param type the expected type
+     * @return the slot value
+     */
+    @GuardedBy("this")
+    private long slot(int pos, String key, Tag.Type type) {
+        if (this.types[pos] != type.ordinal()) {
+            throw new ClassCastException("Tag " + key + " is " + TYPES[this.types[pos]] + ", not " + type);
+        }
+
+        return this.values[pos];
+    }
+
+    /**
+     * Sets the slot for the given key, creating one if it
+     * doesn't exist.
+     *
+     * @param key the key
+     * @param type the numeric type of the value
+     * @param value the value, or its raw bits
+     */
+    private void put(String key, Tag.Type type, long value) {
+        boolean created;
+        synchronized (this) {
+            int pos = this.find(key);
+            created = pos < 0;
+            if (created) {
+                pos = -pos - 1;
+                this.keys[pos] = key;
+                this.size++;
+            }
+
+            this.types[pos] = (byte) type.ordinal();
+            this.values[pos] = value;
+            if (created && this.size > (this.keys.length >> 1) + (this.keys.length >> 2)) {
+                this.rehash(this.keys.length << 1);
+            }
+        }
+
+        // A new slot may shadow a boxed entry
+        if (created) {
+            super.remove(key);
+        }
+    }
+
+    /**
+     * Finds the slot for the given key.
+     *
+     * @param key the key to find
+     * @return the slot position, or {@code -(pos + 1)}
+     * where {@code pos} is the free slot at which the key
+     * would be inserted
+     */
+    @GuardedBy("this")
+    private int find(String key) {
+        String[] keys = this.keys;
+        int mask = keys.length - 1;
+        int pos = Int2ReferenceOpenHashMap.mix(key.hashCode()) & mask;
+        String cur;
+        while ((cur = keys[pos]) != null) {
+            if (cur.equals(key)) {
+                return pos;
+            }
+
+            pos = (pos + 1) & mask;
+        }
+
+        return -pos - 1;
+    }
+
+    /**
+     * Frees the slot at the given position, shifting back
+     * the slots which follow it.
+     *
+     * @param pos the slot to free
+     */
+    @GuardedBy("this")
+    private void delete(int pos) {
+        String[] keys = this.keys;
+        int mask = keys.length - 1;
+        this.size--;
+        while (true) {
+            int last = pos;
+            pos = (pos + 1) & mask;
+            String cur;
+            while (true) {
+                if ((cur = keys[pos]) == null) {
+                    keys[last] = null;
+                    return;
+                }
+
+                int slot = Int2ReferenceOpenHashMap.mix(cur.hashCode()) & mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot && slot > pos) {
+                    break;
+                }
+                pos = (pos + 1) & mask;
+            }
+
+            keys[last] = cur;
+            this.types[last] = this.types[pos];
+            this.values[last] = this.values[pos];
+        }
+    }
+
+    /**
+     * Resizes the slot table.
+     *
+     * @param capacity the new power of two capacity
+     */
+    @GuardedBy("this")
+    private void rehash(int capacity) {
+        String[] keys = this.keys;
+        byte[] types = this.types;
+        long[] values = this.values;
+
+        this.keys = new String[capacity];
+        this.types = new byte[capacity];
+        this.values = new long[capacity];
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != null) {
+                int pos = -this.find(keys[i]) - 1;
+                this.keys[pos] = keys[i];
+                this.types[pos] = types[i];
+                this.values[pos] = values[i];
+            }
+        }
+    }
+
+    /**
+     * Visitor which builds primitive compounds as the tags
+     * are read.
+     */
+    private static final class Builder implements TagVisitor {
+        /**
+         * The compounds and lists currently being read
+         */
+        private final Deque<Object> containers = new ArrayDeque<>();
+        /**
+         * The root compound
+         */
+        private PrimitiveCompound root;
+
+        @Override
+        public boolean visitCompound(String name) {
+            PrimitiveCompound compound = new PrimitiveCompound(name);
+            if (this.root == null) {
+                this.root = compound;
+            } else {
+                this.attach(name, Tag.Type.COMPOUND, compound);
+            }
+
+            this.containers.push(compound);
+            return true;
+        }
+
+        @Override
+        public void visitCompoundEnd(String name) {
+            this.containers.pop();
+        }
+
+        @Override
+        public boolean visitList(String name, Tag.Type type, int length) {
+            Tag.List<?> list = type.newListOfType();
+            this.attach(name, Tag.Type.LIST, list);
+            this.containers.push(list);
+            return true;
+        }
+
+        @Override
+        public void visitListEnd(String name) {
+            this.containers.pop();
+        }
+
+        @Override
+        public void visitByte(String name, byte value) {
+            Object top = this.containers.peek();
+            if (top instanceof PrimitiveCompound) {
+                ((PrimitiveCompound) top).putByte(name, value);
+            } else {
+                this.attach(name, Tag.Type.BYTE, value);
+            }
+        }
+
+        @Override
+        public void visitShort(String name, short value) {
+            Object top = this.containers.peek();
+            if (top instanceof PrimitiveCompound) {
+                ((PrimitiveCompound) top).putShort(name, value);
+            } else {
+                this.attach(name, Tag.Type.SHORT, value);
+            }
+        }
+
+        @Override
+        public void visitInt(String name, int value) {
+            Object top = this.containers.peek();
+            if (top instanceof PrimitiveCompound) {
+                ((PrimitiveCompound) top).putInt(name, value);
+            } else {
+                this.attach(name, Tag.Type.INT, value);
+            }
+        }
+
+        @Override
+        public void visitLong(String name, long value) {
+            Object top = this.containers.peek();
+            if (top instanceof PrimitiveCompound) {
+                ((PrimitiveCompound) top).putLong(name, value);
+            } else {
+                this.attach(name, Tag.Type.LONG, value);
+            }
+        }
+
+        @Override
+        public void visitFloat(String name, float value) {
+            Object top = this.containers.peek();
+            if (top instanceof PrimitiveCompound) {
+                ((PrimitiveCompound) top).putFloat(name, value);
+            } else {
+                this.attach(name, Tag.Type.FLOAT, value);
+            }
+        }
+
+        @Override
+        public void visitDouble(String name, double value) {
+            Object top = this.containers.peek();
+            if (top instanceof PrimitiveCompound) {
+                ((PrimitiveCompound) top).putDouble(name, value);
+            } else {
+                this.attach(name, Tag.Type.DOUBLE, value);
+            }
+        }
+
+        @Override
+        public void visitString(String name, String value) {
+            this.attach(name, Tag.Type.STRING, value);
+        }
+
+        @Override
+        public boolean visitByteArrayLength(String name, int length) {
+            return true;
+        }
+
+        @Override
+        public void visitByteArray(String name, byte[] value) {
+            this.attach(name, Tag.Type.BYTE_ARRAY, value);
+        }
+
+        @Override
+        public boolean visitIntArrayLength(String name, int length) {
+            return true;
+        }
+
+        @Override
+        public void visitIntArray(String name, int[] value) {
+            this.attach(name, Tag.Type.INT_ARRAY, value);
+        }
+
+        /**
+         * Adds the given value to the container currently
+         * being read.
+         *
+         * @param name the name of the value
+         * @param type the type of the value
+         * @param value the value
+         */
+        private void attach(String name, Tag.Type type, Object value) {
+            Object top = this.containers.peek();
+            if (top == null) {
+                throw new IllegalArgumentException("Root tag " + name + " is " + type + ", not a compound");
+            }
+
+            if (top instanceof Tag.List) {
+                ((Tag.List<Object>) top).add(value);
+            } else {
+                ((PrimitiveCompound) top).add(new AbstractMap.SimpleEntry<>(name, new Tag(type, value)));
+            }
+        }
+    }
+}
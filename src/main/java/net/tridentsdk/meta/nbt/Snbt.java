@@ -0,0 +1,657 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Parser and printer for the textual form of NBT used in
+ * commands, e.g. {@code {id:"minecraft:stone",Count:1b}}.
+ *
+ * <p>Every tag type survives a round trip, with the
+ * exception of the element type of empty lists, which the
+ * text form does not record. Compounds are printed straight
+ * to an {@link Appendable} and parsed in a single pass over
+ * the text, so neither direction builds intermediate
+ * strings for anything other than keys and values.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@Immutable
+public final class Snbt {
+    // Prevent instantiation
+    private Snbt() {
+    }
+
+    /**
+     * Parses the given compound text.
+     *
+     * @param text the text to parse
+     * @return the parsed compound, with an empty name
+     * @throws IllegalArgumentException if the text is not
+     * a well-formed compound
+     */
+    public static Tag.Compound parse(CharSequence text) {
+        Parser parser = new Parser(text);
+        parser.skipWhitespace();
+        if (parser.peek() != '{') {
+            throw parser.error("Expected {");
+        }
+
+        Tag.Compound compound = parser.compound("");
+        parser.skipWhitespace();
+        if (parser.pos != text.length()) {
+            throw parser.error("Trailing data");
+        }
+
+        return compound;
+    }
+
+    /**
+     * Converts the given compound to text.
+     *
+     * @param compound the compound to convert
+     * @return the compound text
+     */
+    public static String toString(Tag.Compound compound) {
+        StringBuilder builder = new StringBuilder();
+        try {
+            print(compound, builder);
+        } catch (IOException e) {
+            // StringBuilder does not throw
+            throw new RuntimeException(e);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Prints the given compound as text to the given
+     * output.
+     *
+     * @param compound the compound to print
+     * @param out the output to print to
+     * @throws IOException if the output could not be
+     * appended to
+     */
+    public static void print(Tag.Compound compound, Appendable out) throws IOException {
+        out.append('{');
+        boolean first = true;
+        for (Map.Entry<String, Tag> entry : compound.getEntries().entrySet()) {
+            if (!first) {
+                out.append(',');
+            }
+            first = false;
+
+            String key = entry.getKey();
+            if (isUnquoted(key)) {
+                out.append(key);
+            } else {
+                printString(key, out);
+            }
+            out.append(':');
+
+            Tag tag = entry.getValue();
+            printValue(tag.getType(), tag.getObject(), out);
+        }
+        out.append('}');
+    }
+
+    private static void printValue(Tag.Type type, Object o, Appendable out) throws IOException {
+        switch (type) {
+            case BYTE:
+                out.append(Byte.toString((byte) o)).append('b');
+                break;
+            case SHORT:
+                out.append(Short.toString((short) o)).append('s');
+                break;
+            case INT:
+                out.append(Integer.toString((int) o));
+                break;
+            case LONG:
+                out.append(Long.toString((long) o)).append('L');
+                break;
+            case FLOAT:
+                out.append(Float.toString((float) o)).append('f');
+                break;
+            case DOUBLE:
+                out.append(Double.toString((double) o)).append('d');
+                break;
+            case BYTE_ARRAY: {
+                out.append("[B;");
+                byte[] arr = (byte[]) o;
+                for (int i = 0; i < arr.length; i++) {
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    out.append(Byte.toString(arr[i])).append('b');
+                }
+                out.append(']');
+                break;
+            }
+            case STRING:
+                printString((String) o, out);
+                break;
+            case LIST: {
+                out.append('[');
+                Tag.List<?> list = (Tag.List<?>) o;
+                Tag.Type t = list.getType();
+                for (int i = 0; i < list.size(); i++) {
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    printValue(t, list.get(i), out);
+                }
+                out.append(']');
+                break;
+            }
+            case COMPOUND:
+                print((Tag.Compound) o, out);
+                break;
+            case INT_ARRAY: {
+                out.append("[I;");
+                int[] arr = (int[]) o;
+                for (int i = 0; i < arr.length; i++) {
+                    if (i > 0) {
+                        out.append(',');
+                    }
+                    out.append(Integer.toString(arr[i]));
+                }
+                out.append(']');
+                break;
+            }
+            default:
+                throw new IllegalArgumentException("Cannot print " + type + " tag");
+        }
+    }
+
+    private static void printString(String s, Appendable out) throws IOException {
+        out.append('"');
+        int start = 0;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append(s, start, i).append('\\').append(c);
+                start = i + 1;
+            }
+        }
+        out.append(s, start, s.length()).append('"');
+    }
+
+    private static boolean isUnquoted(String key) {
+        if (key.isEmpty()) {
+            return false;
+        }
+
+        for (int i = 0; i < key.length(); i++) {
+            if (!isUnquoted(key.charAt(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isUnquoted(char c) {
+        return c >= '0' && c <= '9' || c >= 'a' && c <= 'z' || c >= 'A' && c <= 'Z' ||
+                c == '_' || c == '-' || c == '.' || c == '+';
+    }
+
+    /**
+     * A single pass over some text.
+     */
+    @NotThreadSafe
+    private static final class Parser {
+        private final CharSequence text;
+        private final int len;
+        private int pos;
+        /**
+         * The type of the last value which was parsed
+         */
+        private Tag.Type type;
+
+        Parser(CharSequence text) {
+            this.text = text;
+            this.len = text.length();
+        }
+
+        IllegalArgumentException error(String msg) {
+            return new IllegalArgumentException(msg + " at position " + this.pos);
+        }
+
+        char peek() {
+            return this.pos < this.len ? this.text.charAt(this.pos) : 0;
+        }
+
+        void skipWhitespace() {
+            while (this.pos < this.len && Character.isWhitespace(this.text.charAt(this.pos))) {
+                this.pos++;
+            }
+        }
+
+        void expect(char c) {
+            this.skipWhitespace();
+            if (this.peek() != c) {
+                throw this.error("Expected " + c);
+            }
+            this.pos++;
+        }
+
+        /**
+         * Reads the separator after an element, returning
+         * {@code false} if the closing character was read
+         * instead.
+         */
+        boolean next(char close) {
+            this.skipWhitespace();
+            char c = this.peek();
+            this.pos++;
+            if (c == ',') {
+                return true;
+            }
+
+            if (c != close) {
+                this.pos--;
+                throw this.error("Expected , or " + close);
+            }
+            return false;
+        }
+
+        Tag.Compound compound(String name) {
+            this.expect('{');
+            Tag.Compound compound = new Tag.Compound(name);
+            this.skipWhitespace();
+            if (this.peek() == '}') {
+                this.pos++;
+                return compound;
+            }
+
+            do {
+                this.skipWhitespace();
+                String key = this.key();
+                this.expect(':');
+                Object o = this.value(key);
+                compound.add(new AbstractMap.SimpleEntry<>(key, new Tag(this.type, o)));
+            } while (this.next('}'));
+            return compound;
+        }
+
+        String key() {
+            char c = this.peek();
+            if (c == '"' || c == '\'') {
+                return this.quoted();
+            }
+
+            int start = this.pos;
+            while (this.pos < this.len && isUnquoted(this.text.charAt(this.pos))) {
+                this.pos++;
+            }
+
+            if (start == this.pos) {
+                throw this.error("Expected key");
+            }
+            return this.text.subSequence(start, this.pos).toString();
+        }
+
+        String quoted() {
+            char quote = this.text.charAt(this.pos++);
+            int start = this.pos;
+            StringBuilder builder = null;
+            while (this.pos < this.len) {
+                char c = this.text.charAt(this.pos);
+                if (c == quote) {
+                    String s = builder == null ? this.text.subSequence(start, this.pos).toString() :
+                            builder.append(this.text, start, this.pos).toString();
+                    this.pos++;
+                    return s;
+                }
+
+                if (c == '\\') {
+                    if (builder == null) {
+                        builder = new StringBuilder();
+                    }
+
+                    builder.append(this.text, start, this.pos);
+                    if (++this.pos >= this.len) {
+                        break;
+                    }
+
+                    char e = this.text.charAt(this.pos);
+                    if (e != '\\' && e != '"' && e != '\'') {
+                        throw this.error("Invalid escape \\" + e);
+                    }
+                    builder.append(e);
+                    start = this.pos + 1;
+                }
+                this.pos++;
+            }
+
+            throw this.error("Unterminated string");
+        }
+
+        Object value(String name) {
+            this.skipWhitespace();
+            char c = this.peek();
+            switch (c) {
+                case '{':
+                    Tag.Compound compound = this.compound(name);
+                    this.type = Tag.Type.COMPOUND;
+                    return compound;
+                case '[':
+                    if (this.pos + 2 < this.len && this.text.charAt(this.pos + 2) == ';') {
+                        char a = this.text.charAt(this.pos + 1);
+                        if (a == 'B') {
+                            return this.byteArray();
+                        }
+
+                        if (a == 'I') {
+                            return this.intArray();
+                        }
+                    }
+                    return this.list();
+                case '"':
+                case '\'':
+                    this.type = Tag.Type.STRING;
+                    return this.quoted();
+                default:
+                    return this.primitive();
+            }
+        }
+
+        Tag.List<?> list() {
+            this.pos++;
+            this.skipWhitespace();
+            if (this.peek() == ']') {
+                this.pos++;
+                this.type = Tag.Type.LIST;
+                return Tag.Type.END.newListOfType();
+            }
+
+            Tag.List<Object> list = null;
+            Tag.Type elem = null;
+            do {
+                Object o = this.value("");
+                if (list == null) {
+                    elem = this.type;
+                    list = (Tag.List<Object>) elem.newListOfType();
+                } else if (this.type != elem) {
+                    throw this.error("List of " + elem + " cannot hold " + this.type);
+                }
+                list.add(o);
+            } while (this.next(']'));
+
+            this.type = Tag.Type.LIST;
+            return list;
+        }
+
+        byte[] byteArray() {
+            this.pos += 3;
+            byte[] arr = new byte[16];
+            int size = 0;
+            this.skipWhitespace();
+            if (this.peek() == ']') {
+                this.pos++;
+            } else {
+                do {
+                    Object o = this.primitive();
+                    if (this.type != Tag.Type.BYTE) {
+                        throw this.error("Expected byte");
+                    }
+
+                    if (size == arr.length) {
+                        arr = Arrays.copyOf(arr, size << 1);
+                    }
+                    arr[size++] = (byte) o;
+                } while (this.next(']'));
+            }
+
+            this.type = Tag.Type.BYTE_ARRAY;
+            return size == arr.length ? arr : Arrays.copyOf(arr, size);
+        }
+
+        int[] intArray() {
+            this.pos += 3;
+            int[] arr = new int[16];
+            int size = 0;
+            this.skipWhitespace();
+            if (this.peek() == ']') {
+                this.pos++;
+            } else {
+                do {
+                    Object o = this.primitive();
+                    if (this.type != Tag.Type.INT) {
+                        throw this.error("Expected int");
+                    }
+
+                    if (size == arr.length) {
+                        arr = Arrays.copyOf(arr, size << 1);
+                    }
+                    arr[size++] = (int) o;
+                } while (this.next(']'));
+            }
+
+            this.type = Tag.Type.INT_ARRAY;
+            return size == arr.length ? arr : Arrays.copyOf(arr, size);
+        }
+
+        /**
+         * Parses an unquoted value, which is a number if it
+         * is formatted as one and a string otherwise.
+         */
+        Object primitive() {
+            this.skipWhitespace();
+            int start = this.pos;
+            while (this.pos < this.len && isUnquoted(this.text.charAt(this.pos))) {
+                this.pos++;
+            }
+
+            int end = this.pos;
+            if (start == end) {
+                throw this.error("Expected value");
+            }
+
+            char suffix = this.text.charAt(end - 1);
+            switch (suffix) {
+                case 'b':
+                case 'B':
+                    if (this.isIntegral(start, end - 1)) {
+                        long l = this.parseIntegral(start, end - 1);
+                        if (l >= Byte.MIN_VALUE && l <= Byte.MAX_VALUE) {
+                            this.type = Tag.Type.BYTE;
+                            return (byte) l;
+                        }
+                    }
+                    break;
+                case 's':
+                case 'S':
+                    if (this.isIntegral(start, end - 1)) {
+                        long l = this.parseIntegral(start, end - 1);
+                        if (l >= Short.MIN_VALUE && l <= Short.MAX_VALUE) {
+                            this.type = Tag.Type.SHORT;
+                            return (short) l;
+                        }
+                    }
+                    break;
+                case 'l':
+                case 'L':
+                    if (this.isIntegral(start, end - 1)) {
+                        long l = this.parseIntegral(start, end - 1);
+                        if (l != Long.MIN_VALUE || this.fits(start, end - 1)) {
+                            this.type = Tag.Type.LONG;
+                            return l;
+                        }
+                    }
+                    break;
+                case 'f':
+                case 'F':
+                    if (this.isDecimal(start, end - 1)) {
+                        this.type = Tag.Type.FLOAT;
+                        return Float.parseFloat(this.text.subSequence(start, end - 1).toString());
+                    }
+                    break;
+                case 'd':
+                case 'D':
+                    if (this.isDecimal(start, end - 1)) {
+                        this.type = Tag.Type.DOUBLE;
+                        return Double.parseDouble(this.text.subSequence(start, end - 1).toString());
+                    }
+                    break;
+                default:
+                    if (this.isIntegral(start, end)) {
+                        long l = this.parseIntegral(start, end);
+                        if (l >= Integer.MIN_VALUE && l <= Integer.MAX_VALUE) {
+                            this.type = Tag.Type.INT;
+                            return (int) l;
+                        }
+                    } else if (this.isDecimal(start, end) && this.hasDigit(start, end)) {
+                        this.type = Tag.Type.DOUBLE;
+                        return Double.parseDouble(this.text.subSequence(start, end).toString());
+                    }
+                    break;
+            }
+
+            String s = this.text.subSequence(start, end).toString();
+            if (s.equals("true") || s.equals("false")) {
+                this.type = Tag.Type.BYTE;
+                return s.equals("true") ? (byte) 1 : (byte) 0;
+            }
+
+            this.type = Tag.Type.STRING;
+            return s;
+        }
+
+        boolean isIntegral(int start, int end) {
+            int i = start;
+            if (i < end && (this.text.charAt(i) == '-' || this.text.charAt(i) == '+')) {
+                i++;
+            }
+
+            if (i == end) {
+                return false;
+            }
+
+            for (; i < end; i++) {
+                char c = this.text.charAt(i);
+                if (c < '0' || c > '9') {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * Parses an integral number, saturating at the
+         * bounds of a long.
+         */
+        long parseIntegral(int start, int end) {
+            boolean neg = this.text.charAt(start) == '-';
+            int i = neg || this.text.charAt(start) == '+' ? start + 1 : start;
+            long l = 0;
+            for (; i < end; i++) {
+                int d = this.text.charAt(i) - '0';
+                if (l < (Long.MIN_VALUE + d) / 10) {
+                    return Long.MIN_VALUE;
+                }
+                l = l * 10 - d;
+            }
+
+            if (neg) {
+                return l;
+            }
+            return l == Long.MIN_VALUE ? Long.MIN_VALUE : -l;
+        }
+
+        /**
+         * Checks whether an integral number which parsed to
+         * {@link Long#MIN_VALUE} actually is that value.
+         */
+        boolean fits(int start, int end) {
+            return this.text.subSequence(start, end).toString().equals(Long.toString(Long.MIN_VALUE));
+        }
+
+        boolean isDecimal(int start, int end) {
+            int i = start;
+            if (i < end && (this.text.charAt(i) == '-' || this.text.charAt(i) == '+')) {
+                i++;
+            }
+
+            if (this.matches(i, end, "NaN") || this.matches(i, end, "Infinity")) {
+                return true;
+            }
+
+            boolean digits = false;
+            while (i < end && Character.isDigit(this.text.charAt(i))) {
+                i++;
+                digits = true;
+            }
+
+            if (i < end && this.text.charAt(i) == '.') {
+                i++;
+                while (i < end && Character.isDigit(this.text.charAt(i))) {
+                    i++;
+                    digits = true;
+                }
+            }
+
+            if (!digits) {
+                return false;
+            }
+
+            if (i < end && (this.text.charAt(i) == 'e' || this.text.charAt(i) == 'E')) {
+                i++;
+                if (i < end && (this.text.charAt(i) == '-' || this.text.charAt(i) == '+')) {
+                    i++;
+                }
+
+                if (i == end) {
+                    return false;
+                }
+
+                while (i < end && Character.isDigit(this.text.charAt(i))) {
+                    i++;
+                }
+            }
+            return i == end;
+        }
+
+        /**
+         * Checks that an unsuffixed decimal has a point or
+         * exponent, as opposed to a word such as NaN that
+         * should stay a string.
+         */
+        boolean hasDigit(int start, int end) {
+            return Character.isDigit(this.text.charAt(end - 1)) || this.text.charAt(end - 1) == '.';
+        }
+
+        boolean matches(int start, int end, String s) {
+            if (end - start != s.length()) {
+                return false;
+            }
+
+            for (int i = 0; i < s.length(); i++) {
+                if (this.text.charAt(start + i) != s.charAt(i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
@@ -25,6 +25,7 @@ import javax.annotation.concurrent.ThreadSafe;
 import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -99,6 +100,28 @@ public class Tag {
         }
     }
 
+    /**
+     * Skips exactly the given amount of bytes from the
+     * stream, failing if the stream ends before then.
+     *
+     * @param stream the stream to skip
+     * @param len the amount of bytes to skip
+     * @throws IOException if the stream ends early
+     */
+    static void skipFully(DataInputStream stream, long len) throws IOException {
+        while (len > 0) {
+            long skipped = stream.skip(len);
+            if (skipped <= 0) {
+                // skip() may legally return 0 at EOF, force
+                // the stream to report it instead
+                stream.readByte();
+                skipped = 1;
+            }
+
+            len -= skipped;
+        }
+    }
+
     /**
      * An NBT type, which supports reading and writing of
      * those types.
@@ -118,6 +141,10 @@ public class Tag {
             public void write(Object o, DataOutputStream stream) {
             }
 
+            @Override
+            public void skip(DataInputStream stream) {
+            }
+
             @Override
             public List<?> newListOfType() {
                 return new List<Void>(this);
@@ -134,6 +161,11 @@ public class Tag {
                 stream.writeByte((byte) o);
             }
 
+            @Override
+            public void skip(DataInputStream stream) throws IOException {
+                skipFully(stream, 1);
+            }
+
             @Override
             public List<?> newListOfType() {
                 return new List<Byte>(this);
@@ -150,6 +182,11 @@ public class Tag {
                 stream.writeShort((short) o);
             }
 
+            @Override
+            public void skip(DataInputStream stream) throws IOException {
+                skipFully(stream, 2);
+            }
+
             @Override
             public List<?> newListOfType() {
                 return new List<Short>(this);
@@ -166,6 +203,11 @@ public class Tag {
                 stream.writeInt((int) o);
             }
 
+            @Override
+            public void skip(DataInputStream stream) throws IOException {
+                skipFully(stream, 4);
+            }
+
             @Override
             public List<?> newListOfType() {
                 return new List<Integer>(this);
@@ -182,6 +224,11 @@ public class Tag {
                 stream.writeLong((long) o);
             }
 
+            @Override
+            public void skip(DataInputStream stream) throws IOException {
+                skipFully(stream, 8);
+            }
+
             @Override
             public List<?> newListOfType() {
                 return new List<Long>(this);
@@ -198,6 +245,11 @@ public class Tag {
                 stream.writeFloat((float) o);
             }
 
+            @Override
+            public void skip(DataInputStream stream) throws IOException {
+                skipFully(stream, 4);
+            }
+
             @Override
             public List<?> newListOfType() {
                 return new List<Float>(this);
@@ -214,6 +266,11 @@ public class Tag {
                 stream.writeDouble((double) o);
             }
 
+            @Override
+            public void skip(DataInputStream stream) throws IOException {
+                skipFully(stream, 8);
+            }
+
             @Override
             public List<?> newListOfType() {
                 return new List<Double>(this);
@@ -232,9 +289,12 @@ public class Tag {
             public void write(Object o, DataOutputStream stream) throws IOException {
                 byte[] arr = (byte[]) o;
                 stream.writeInt(arr.length);
-                for (byte b : arr) {
-                    stream.writeByte(b);
-                }
+                stream.write(arr);
+            }
+
+            @Override
+            public void skip(DataInputStream stream) throws IOException {
+                skipFully(stream, stream.readInt());
             }
 
             @Override
@@ -255,9 +315,12 @@ public class Tag {
             public void write(Object o, DataOutputStream stream) throws IOException {
                 byte[] arr = ((String) o).getBytes(UTF_8);
                 stream.writeShort(arr.length);
-                for (byte b : arr) {
-                    stream.writeByte(b);
-                }
+                stream.write(arr);
+            }
+
+            @Override
+            public void skip(DataInputStream stream) throws IOException {
+                skipFully(stream, stream.readUnsignedShort());
             }
 
             @Override
@@ -294,6 +357,15 @@ public class Tag {
                 }
             }
 
+            @Override
+            public void skip(DataInputStream stream) throws IOException {
+                Type t = fromId(stream.readByte());
+                int len = stream.readInt();
+                for (int i = 0; i < len; i++) {
+                    t.skip(stream);
+                }
+            }
+
             @Override
             public List<?> newListOfType() {
                 return new List<List<?>>(this);
@@ -316,14 +388,24 @@ public class Tag {
             }
 
             @Override
-            public void write(Object o, DataOutputStream stream) {
-                Compound compound = (Compound) o;
-                for (Map.Entry<String, Tag> entry : compound.getEntries().entrySet()) {
-                    entry.getValue().getType().writeFully(entry.getKey(), entry.getValue().getObject(), stream);
-                }
+            public void write(Object o, DataOutputStream stream) throws IOException {
+                ((Compound) o).writeEntries(stream);
                 END.writeFully("", null, stream);
             }
 
+            @Override
+            public void skip(DataInputStream stream) throws IOException {
+                while (true) {
+                    Type t = fromId(stream.readByte());
+                    if (t == END) {
+                        break;
+                    }
+
+                    skipFully(stream, stream.readUnsignedShort());
+                    t.skip(stream);
+                }
+            }
+
             @Override
             public List<?> newListOfType() {
                 return new List<Compound>(this);
@@ -345,9 +427,17 @@ public class Tag {
             public void write(Object o, DataOutputStream stream) throws IOException {
                 int[] arr = (int[]) o;
                 stream.writeInt(arr.length);
-                for (int i : arr) {
-                    stream.writeInt(i);
-                }
+
+                // Convert to bytes in bulk, writeInt() costs
+                // 4 single byte writes per element
+                ByteBuffer buf = ByteBuffer.allocate(arr.length << 2);
+                buf.asIntBuffer().put(arr);
+                stream.write(buf.array());
+            }
+
+            @Override
+            public void skip(DataInputStream stream) throws IOException {
+                skipFully(stream, 4L * stream.readInt());
             }
 
             @Override
@@ -385,6 +475,25 @@ public class Tag {
             }
         }
 
+        /**
+         * Obtains the type with the given id. Unlike
+         * {@link #getMapping()}, which maps unknown ids to
+         * {@link #END}, this fails on them, so that a
+         * stream is never read past a tag it cannot skip.
+         *
+         * @param id the type id
+         * @return the type
+         * @throws IOException if no type has the given id
+         */
+        public static Type fromId(int id) throws IOException {
+            Type type = mapping.get(id);
+            if (type == END && id != 0) {
+                throw new IOException("Unknown NBT tag type " + id);
+            }
+
+            return type;
+        }
+
         /**
          * Writes the header plus the payload for the given
          * tag object and name.
@@ -402,9 +511,7 @@ public class Tag {
 
                 byte[] arr = name.getBytes(UTF_8);
                 stream.writeShort(arr.length);
-                for (byte b : arr) {
-                    stream.writeByte(b);
-                }
+                stream.write(arr);
                 this.write(o, stream);
             } catch (IOException e) {
                 throw new RuntimeException(e);
@@ -432,6 +539,15 @@ public class Tag {
          */
         public abstract void write(Object o, DataOutputStream stream) throws IOException;
 
+        /**
+         * Advances the given stream past the non-header
+         * portion of this type without decoding it.
+         *
+         * @param stream the stream to skip
+         * @throws IOException if the stream ends early
+         */
+        public abstract void skip(DataInputStream stream) throws IOException;
+
         /**
          * Create a new list with the elements of this
          * specified type.
@@ -472,7 +588,7 @@ public class Tag {
          */
         @Nullable
         public <T> T get(String key) {
-            Tag tag = this.entries.get(key);
+            Tag tag = this.entriesFor(key).get(key);
             if (tag == null) {
                 return null;
             }
@@ -493,7 +609,7 @@ public class Tag {
          * if it cannot be {@code null}
          */
         public byte getByte(String key) {
-            Tag tag = this.entries.get(key);
+            Tag tag = this.entriesFor(key).get(key);
             if (tag == null) {
                 throw new IllegalArgumentException("No key found for: " + key);
             }
@@ -514,7 +630,7 @@ public class Tag {
          * if it cannot be {@code null}
          */
         public short getShort(String key) {
-            Tag tag = this.entries.get(key);
+            Tag tag = this.entriesFor(key).get(key);
             if (tag == null) {
                 throw new IllegalArgumentException("No key found for: " + key);
             }
@@ -535,7 +651,7 @@ public class Tag {
          * if it cannot be {@code null}
          */
         public int getInt(String key) {
-            Tag tag = this.entries.get(key);
+            Tag tag = this.entriesFor(key).get(key);
             if (tag == null) {
                 throw new IllegalArgumentException("No key found for: " + key);
             }
@@ -556,7 +672,7 @@ public class Tag {
          * if it cannot be {@code null}
          */
         public long getLong(String key) {
-            Tag tag = this.entries.get(key);
+            Tag tag = this.entriesFor(key).get(key);
             if (tag == null) {
                 throw new IllegalArgumentException("No key found for: " + key);
             }
@@ -577,7 +693,7 @@ public class Tag {
          * if it cannot be {@code null}
          */
         public float getFloat(String key) {
-            Tag tag = this.entries.get(key);
+            Tag tag = this.entriesFor(key).get(key);
             if (tag == null) {
                 throw new IllegalArgumentException("No key found for: " + key);
             }
@@ -597,7 +713,7 @@ public class Tag {
          * if it cannot be {@code null}
          */
         public double getDouble(String key) {
-            Tag tag = this.entries.get(key);
+            Tag tag = this.entriesFor(key).get(key);
             if (tag == null) {
                 throw new IllegalArgumentException("No key found for: " + key);
             }
@@ -618,7 +734,7 @@ public class Tag {
          * if it cannot be {@code null}
          */
         public byte[] getByteArray(String key) {
-            Tag tag = this.entries.get(key);
+            Tag tag = this.entriesFor(key).get(key);
             if (tag == null) {
                 throw new IllegalArgumentException("No key found for: " + key);
             }
@@ -639,7 +755,7 @@ public class Tag {
          * if it cannot be {@code null}
          */
         public String getString(String key) {
-            Tag tag = this.entries.get(key);
+            Tag tag = this.entriesFor(key).get(key);
             if (tag == null) {
                 throw new IllegalArgumentException("No key found for: " + key);
             }
@@ -661,7 +777,7 @@ public class Tag {
          * if it cannot be {@code null}
          */
         public <T> List<T> getList(String key) {
-            Tag tag = this.entries.get(key);
+            Tag tag = this.entriesFor(key).get(key);
             if (tag == null) {
                 throw new IllegalArgumentException("No key found for: " + key);
             }
@@ -682,7 +798,7 @@ public class Tag {
          * if it cannot be {@code null}
          */
         public Compound getCompound(String key) {
-            Tag tag = this.entries.get(key);
+            Tag tag = this.entriesFor(key).get(key);
             if (tag == null) {
                 throw new IllegalArgumentException("No key found for: " + key);
             }
@@ -703,7 +819,7 @@ public class Tag {
          * if it cannot be {@code null}
          */
         public int[] getIntArray(String key) {
-            Tag tag = this.entries.get(key);
+            Tag tag = this.entriesFor(key).get(key);
             if (tag == null) {
                 throw new IllegalArgumentException("No key found for: " + key);
             }
@@ -722,7 +838,7 @@ public class Tag {
          * @param i the new tag value
          */
         public void putByte(String key, byte i) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.BYTE, i);
                 } else {
@@ -743,7 +859,7 @@ public class Tag {
          * @param i the new tag value
          */
         public void putShort(String key, short i) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.SHORT, i);
                 } else {
@@ -764,7 +880,7 @@ public class Tag {
          * @param i the new tag value
          */
         public void putInt(String key, int i) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.INT, i);
                 } else {
@@ -785,7 +901,7 @@ public class Tag {
          * @param i the new tag value
          */
         public void putLong(String key, long i) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.LONG, i);
                 } else {
@@ -806,7 +922,7 @@ public class Tag {
          * @param i the new tag value
          */
         public void putFloat(String key, float i) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.FLOAT, i);
                 } else {
@@ -827,7 +943,7 @@ public class Tag {
          * @param i the new tag value
          */
         public void putDouble(String key, double i) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.DOUBLE, i);
                 } else {
@@ -848,7 +964,7 @@ public class Tag {
          * @param i the new tag value
          */
         public void putByteArray(String key, byte[] i) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.BYTE_ARRAY, i);
                 } else {
@@ -869,7 +985,7 @@ public class Tag {
          * @param i the new tag value
          */
         public void putString(String key, String i) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.STRING, i);
                 } else {
@@ -890,7 +1006,7 @@ public class Tag {
          * @param i the new tag value
          */
         public void putList(String key, List i) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.LIST, i);
                 } else {
@@ -910,7 +1026,7 @@ public class Tag {
          * @param i the new tag value
          */
         public void putCompound(Compound i) {
-            this.entries.compute(i.getName(), (k, v) -> {
+            this.entriesFor(i.getName()).compute(i.getName(), (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.COMPOUND, i);
                 } else {
@@ -931,7 +1047,7 @@ public class Tag {
          * @param i the new tag value
          */
         public void putIntArray(String key, int[] i) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.INT_ARRAY, i);
                 } else {
@@ -959,7 +1075,7 @@ public class Tag {
          * new tag value
          */
         public void computeByte(String key, BiFunction<String, Byte, Byte> func) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.BYTE, func.apply(k, null));
                 } else {
@@ -987,7 +1103,7 @@ public class Tag {
          * new tag value
          */
         public void computeShort(String key, BiFunction<String, Short, Short> func) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.SHORT, func.apply(k, null));
                 } else {
@@ -1015,7 +1131,7 @@ public class Tag {
          * new tag value
          */
         public void computerInt(String key, BiFunction<String, Integer, Integer> func) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.INT, func.apply(k, null));
                 } else {
@@ -1043,7 +1159,7 @@ public class Tag {
          * new tag value
          */
         public void computeLong(String key, BiFunction<String, Long, Long> func) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.LONG, func.apply(k, null));
                 } else {
@@ -1071,7 +1187,7 @@ public class Tag {
          * new tag value
          */
         public void computeFloat(String key, BiFunction<String, Float, Float> func) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.FLOAT, func.apply(k, null));
                 } else {
@@ -1099,7 +1215,7 @@ public class Tag {
          * new tag value
          */
         public void computeDouble(String key, BiFunction<String, Double, Double> func) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.DOUBLE, func.apply(k, null));
                 } else {
@@ -1127,7 +1243,7 @@ public class Tag {
          * new tag value
          */
         public void computeByteArray(String key, BiFunction<String, byte[], byte[]> func) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.BYTE_ARRAY, func.apply(k, null));
                 } else {
@@ -1155,7 +1271,7 @@ public class Tag {
          * new tag value
          */
         public void computeString(String key, BiFunction<String, String, String> func) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.STRING, func.apply(k, null));
                 } else {
@@ -1183,7 +1299,7 @@ public class Tag {
          * new tag value
          */
         public void computeList(String key, BiFunction<String, List, List> func) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.LIST, func.apply(k, null));
                 } else {
@@ -1211,7 +1327,7 @@ public class Tag {
          * new tag value
          */
         public void computeCompound(String key, BiFunction<String, Compound, Compound> func) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.INT, func.apply(k, null));
                 } else {
@@ -1239,7 +1355,7 @@ public class Tag {
          * new tag value
          */
         public void computeIntArray(String key, BiFunction<String, int[], int[]> func) {
-            this.entries.compute(key, (k, v) -> {
+            this.entriesFor(key).compute(key, (k, v) -> {
                 if (v == null) {
                     return new Tag(Type.INT_ARRAY, func.apply(k, null));
                 } else {
@@ -1271,6 +1387,49 @@ public class Tag {
             Type.COMPOUND.writeFully(this.name, this, stream);
         }
 
+        /**
+         * Writes the headers and payloads of the entries in
+         * this compound to the given stream, not including
+         * the terminating end tag.
+         *
+         * @param stream the stream to write to
+         * @throws IOException if the stream could not be
+         * written to
+         */
+        protected void writeEntries(DataOutputStream stream) throws IOException {
+            for (Map.Entry<String, Tag> entry : this.entries.entrySet()) {
+                entry.getValue().getType().writeFully(entry.getKey(), entry.getValue().getObject(), stream);
+            }
+        }
+
+        /**
+         * Writes the headers and payloads of the entries in
+         * this compound to the given writer, not including
+         * the terminating end tag.
+         *
+         * @param writer the writer to write to
+         */
+        protected void writeEntries(TagWriter writer) {
+            for (Map.Entry<String, Tag> entry : this.entries.entrySet()) {
+                Tag tag = entry.getValue();
+                writer.writeHeader(tag.getType(), entry.getKey());
+                writer.writePayload(tag.getType(), tag.getObject());
+            }
+        }
+
+        /**
+         * Obtains the map which holds the entry for the
+         * given key. Subclasses which do not keep all of
+         * their entries decoded use this to load the entry
+         * before it is accessed.
+         *
+         * @param key the key which is about to be accessed
+         * @return the map of entries
+         */
+        protected Map<String, Tag> entriesFor(String key) {
+            return this.entries;
+        }
+
         /**
          * Adds the given parsed entry to the compound tag.
          *
@@ -1279,6 +1438,11 @@ public class Tag {
         protected void add(Map.Entry<String, Tag> entry) {
             this.entries.put(entry.getKey(), entry.getValue());
         }
+
+        @Override
+        public String toString() {
+            return Snbt.toString(this);
+        }
     }
 
     /**
@@ -0,0 +1,160 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.AbstractMap;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Visitor which rebuilds the tags that it is passed into
+ * regular tag objects, starting from whichever tag it is
+ * first passed.
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@NotThreadSafe
+final class TagBuilder implements TagVisitor {
+    /**
+     * The compounds and lists currently being read
+     */
+    private final Deque<Object> containers = new ArrayDeque<>();
+    /**
+     * The first tag which was visited
+     */
+    private Object root;
+
+    /**
+     * Obtains the tag which was built.
+     *
+     * @return the built tag
+     */
+    Object getRoot() {
+        return this.root;
+    }
+
+    /**
+     * Checks whether the first tag has been fully read.
+     *
+     * @return {@code true} if the tag is complete
+     */
+    boolean isDone() {
+        return this.root != null && this.containers.isEmpty();
+    }
+
+    @Override
+    public boolean visitCompound(String name) {
+        Tag.Compound compound = new Tag.Compound(name);
+        this.attach(name, Tag.Type.COMPOUND, compound);
+        this.containers.push(compound);
+        return true;
+    }
+
+    @Override
+    public void visitCompoundEnd(String name) {
+        this.containers.pop();
+    }
+
+    @Override
+    public boolean visitList(String name, Tag.Type type, int length) {
+        Tag.List<?> list = type.newListOfType();
+        this.attach(name, Tag.Type.LIST, list);
+        this.containers.push(list);
+        return true;
+    }
+
+    @Override
+    public void visitListEnd(String name) {
+        this.containers.pop();
+    }
+
+    @Override
+    public void visitByte(String name, byte value) {
+        this.attach(name, Tag.Type.BYTE, value);
+    }
+
+    @Override
+    public void visitShort(String name, short value) {
+        this.attach(name, Tag.Type.SHORT, value);
+    }
+
+    @Override
+    public void visitInt(String name, int value) {
+        this.attach(name, Tag.Type.INT, value);
+    }
+
+    @Override
+    public void visitLong(String name, long value) {
+        this.attach(name, Tag.Type.LONG, value);
+    }
+
+    @Override
+    public void visitFloat(String name, float value) {
+        this.attach(name, Tag.Type.FLOAT, value);
+    }
+
+    @Override
+    public void visitDouble(String name, double value) {
+        this.attach(name, Tag.Type.DOUBLE, value);
+    }
+
+    @Override
+    public void visitString(String name, String value) {
+        this.attach(name, Tag.Type.STRING, value);
+    }
+
+    @Override
+    public boolean visitByteArrayLength(String name, int length) {
+        return true;
+    }
+
+    @Override
+    public void visitByteArray(String name, byte[] value) {
+        this.attach(name, Tag.Type.BYTE_ARRAY, value);
+    }
+
+    @Override
+    public boolean visitIntArrayLength(String name, int length) {
+        return true;
+    }
+
+    @Override
+    public void visitIntArray(String name, int[] value) {
+        this.attach(name, Tag.Type.INT_ARRAY, value);
+    }
+
+    /**
+     * Adds the given value to the container currently
+     * being read.
+     *
+     * @param name the name of the value
+     * @param type the type of the value
+     * @param value the value
+     */
+    private void attach(String name, Tag.Type type, Object value) {
+        Object top = this.containers.peek();
+        if (top == null) {
+            this.root = value;
+        } else if (top instanceof Tag.List) {
+            ((Tag.List<Object>) top).add(value);
+        } else {
+            ((Tag.Compound) top).add(new AbstractMap.SimpleEntry<>(name, new Tag(type, value)));
+        }
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import javax.annotation.concurrent.Immutable;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Computes 64-bit fingerprints of the contents of compound
+ * tags, which are stable across runs and independent of
+ * the order of the entries.
+ *
+ * <p>The fingerprint of a compound is the sum of the
+ * fingerprints of its entries, so it can be kept up to date
+ * as entries are added and removed by adding and
+ * subtracting {@link #entry(String, Tag.Type, Object)}, as
+ * {@link ImmutableCompound} does. The name of a compound is
+ * not part of its fingerprint.</p>
+ *
+ * <p>Equal compounds always have equal fingerprints, but
+ * equal fingerprints should be confirmed with
+ * {@link #contentEquals(Tag.Compound, Tag.Compound)}.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@Immutable
+public final class TagFingerprint {
+    // Prevent instantiation
+    private TagFingerprint() {
+    }
+
+    /**
+     * Computes the fingerprint of the entries of the given
+     * compound.
+     *
+     * @param compound the compound
+     * @return the fingerprint
+     */
+    public static long of(Tag.Compound compound) {
+        if (compound instanceof ImmutableCompound) {
+            return ((ImmutableCompound) compound).fingerprint();
+        }
+
+        long h = 0;
+        for (Map.Entry<String, Tag> entry : compound.getEntries().entrySet()) {
+            Tag tag = entry.getValue();
+            h += entry(entry.getKey(), tag.getType(), tag.getObject());
+        }
+        return h;
+    }
+
+    /**
+     * Computes the fingerprint of a single compound entry.
+     *
+     * @param key the entry key
+     * @param type the type of the value
+     * @param value the value
+     * @return the entry fingerprint
+     */
+    public static long entry(String key, Tag.Type type, Object value) {
+        return mix(string(key) * 0x9E3779B97F4A7C15L + value(type, value));
+    }
+
+    /**
+     * Checks whether the entries of the given compounds are
+     * deeply equal, comparing arrays by content.
+     *
+     * @param a the first compound
+     * @param b the second compound
+     * @return {@code true} if the contents are equal
+     */
+    public static boolean contentEquals(Tag.Compound a, Tag.Compound b) {
+        if (a == b) {
+            return true;
+        }
+
+        Map<String, Tag> x = a.getEntries();
+        Map<String, Tag> y = b.getEntries();
+        if (x.size() != y.size()) {
+            return false;
+        }
+
+        for (Map.Entry<String, Tag> entry : x.entrySet()) {
+            Tag t = entry.getValue();
+            Tag u = y.get(entry.getKey());
+            if (u == null || t.getType() != u.getType() || !valueEquals(t.getType(), t.getObject(), u.getObject())) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean valueEquals(Tag.Type type, Object a, Object b) {
+        switch (type) {
+            case BYTE_ARRAY:
+                return Arrays.equals((byte[]) a, (byte[]) b);
+            case INT_ARRAY:
+                return Arrays.equals((int[]) a, (int[]) b);
+            case COMPOUND:
+                return contentEquals((Tag.Compound) a, (Tag.Compound) b);
+            case LIST: {
+                Tag.List<?> x = (Tag.List<?>) a;
+                Tag.List<?> y = (Tag.List<?>) b;
+                if (x.size() != y.size() || x.getType() != y.getType()) {
+                    return false;
+                }
+
+                for (int i = 0; i < x.size(); i++) {
+                    if (!valueEquals(x.getType(), x.get(i), y.get(i))) {
+                        return false;
+                    }
+                }
+                return true;
+            }
+            default:
+                return Objects.equals(a, b);
+        }
+    }
+
+    private static long value(Tag.Type type, Object o) {
+        long h = type.ordinal();
+        switch (type) {
+            case BYTE:
+                return mix(h << 56 ^ (byte) o);
+            case SHORT:
+                return mix(h << 56 ^ (short) o);
+            case INT:
+                return mix(h << 56 ^ (int) o);
+            case LONG:
+                return mix(h ^ mix((long) o));
+            case FLOAT:
+                return mix(h << 56 ^ Float.floatToIntBits((float) o));
+            case DOUBLE:
+                return mix(h ^ mix(Double.doubleToLongBits((double) o)));
+            case BYTE_ARRAY: {
+                byte[] arr = (byte[]) o;
+                h = h * 31 + arr.length;
+                for (byte b : arr) {
+                    h = h * 0x100000001B3L + b;
+                }
+                return mix(h);
+            }
+            case STRING:
+                return mix(h ^ string((String) o));
+            case LIST: {
+                Tag.List<?> list = (Tag.List<?>) o;
+                Tag.Type t = list.getType();
+                h = h * 31 + t.ordinal();
+                for (Object e : list) {
+                    h = h * 0x9E3779B97F4A7C15L + value(t, e);
+                }
+                return mix(h);
+            }
+            case COMPOUND:
+                return mix(h ^ of((Tag.Compound) o));
+            case INT_ARRAY: {
+                int[] arr = (int[]) o;
+                h = h * 31 + arr.length;
+                for (int i : arr) {
+                    h = h * 0x100000001B3L + i;
+                }
+                return mix(h);
+            }
+            default:
+                return h;
+        }
+    }
+
+    private static long string(String s) {
+        long h = 0xCBF29CE484222325L;
+        for (int i = 0; i < s.length(); i++) {
+            h = (h ^ s.charAt(i)) * 0x100000001B3L;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Finalization step of MurmurHash3, which spreads every
+     * input bit over the whole result.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xFF51AFD7ED558CCDL;
+        z = (z ^ (z >>> 33)) * 0xC4CEB9FE1A85EC53L;
+        return z ^ (z >>> 33);
+    }
+}
@@ -0,0 +1,35 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+/**
+ * Thrown when encoded NBT data exceeds one of the bounds
+ * placed on it by a {@link TagLimits}.
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+public class TagLimitException extends RuntimeException {
+    /**
+     * Creates a new exception with the given message.
+     *
+     * @param msg the description of the exceeded limit
+     */
+    public TagLimitException(String msg) {
+        super(msg);
+    }
+}
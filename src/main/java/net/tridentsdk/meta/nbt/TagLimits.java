@@ -0,0 +1,427 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.AbstractMap;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Bounds placed on NBT data read from an untrusted source,
+ * along with the decoder which enforces them.
+ *
+ * <p>Unlike {@link Tag#decode(DataInputStream)}, which
+ * trusts every length that it reads, decoding with limits
+ * checks lengths before anything is allocated, so a
+ * malicious payload fails with a {@link TagLimitException}
+ * instead of exhausting the heap or the stack. Entries at
+ * paths that have been marked as skipped are passed over
+ * without being decoded, so they cost no memory at
+ * all.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@Immutable
+public final class TagLimits {
+    /**
+     * Limits suitable for data received from clients, using
+     * the same depth and size bounds as the vanilla
+     * server
+     */
+    public static final TagLimits DEFAULT = new TagLimits(512, 2097152L, 1 << 20, 1 << 16,
+            Collections.emptySet());
+    /**
+     * Limits which allow anything that can be encoded
+     */
+    public static final TagLimits UNLIMITED = new TagLimits(Integer.MAX_VALUE, Long.MAX_VALUE,
+            Integer.MAX_VALUE, Integer.MAX_VALUE, Collections.emptySet());
+    /**
+     * The tag types, indexed by id
+     */
+    private static final Tag.Type[] TYPES = Tag.Type.values();
+
+    /**
+     * The maximum nesting of compounds and lists
+     */
+    private final int maxDepth;
+    /**
+     * The maximum amount of bytes which are decoded
+     */
+    private final long maxBytes;
+    /**
+     * The maximum length of byte and int arrays
+     */
+    private final int maxArrayLength;
+    /**
+     * The maximum length of lists
+     */
+    private final int maxListLength;
+    /**
+     * The dotted paths of entries which are skipped
+     */
+    private final Set<String> skipped;
+
+    private TagLimits(int maxDepth, long maxBytes, int maxArrayLength, int maxListLength, Set<String> skipped) {
+        this.maxDepth = maxDepth;
+        this.maxBytes = maxBytes;
+        this.maxArrayLength = maxArrayLength;
+        this.maxListLength = maxListLength;
+        this.skipped = skipped;
+    }
+
+    /**
+     * Obtains limits which allow compounds and lists to be
+     * nested at most the given amount of levels, counting
+     * the root compound.
+     *
+     * @param maxDepth the maximum depth
+     * @return the new limits
+     */
+    public TagLimits withMaxDepth(int maxDepth) {
+        return new TagLimits(maxDepth, this.maxBytes, this.maxArrayLength, this.maxListLength, this.skipped);
+    }
+
+    /**
+     * Obtains limits which decode at most the given amount
+     * of bytes. Entries which are skipped do not count
+     * towards this limit.
+     *
+     * @param maxBytes the maximum amount of bytes
+     * @return the new limits
+     */
+    public TagLimits withMaxBytes(long maxBytes) {
+        return new TagLimits(this.maxDepth, maxBytes, this.maxArrayLength, this.maxListLength, this.skipped);
+    }
+
+    /**
+     * Obtains limits which allow byte and int arrays of at
+     * most the given amount of elements.
+     *
+     * @param maxArrayLength the maximum array length
+     * @return the new limits
+     */
+    public TagLimits withMaxArrayLength(int maxArrayLength) {
+        return new TagLimits(this.maxDepth, this.maxBytes, maxArrayLength, this.maxListLength, this.skipped);
+    }
+
+    /**
+     * Obtains limits which allow lists of at most the given
+     * amount of elements.
+     *
+     * @param maxListLength the maximum list length
+     * @return the new limits
+     */
+    public TagLimits withMaxListLength(int maxListLength) {
+        return new TagLimits(this.maxDepth, this.maxBytes, this.maxArrayLength, maxListLength, this.skipped);
+    }
+
+    /**
+     * Obtains limits which additionally skip the entries at
+     * the given paths.
+     *
+     * <p>Paths are keys from the root compound separated by
+     * {@code .}; lists are passed through without a key, so
+     * {@code Level.Sections.Blocks} skips the blocks of
+     * every section in a chunk.</p>
+     *
+     * @param paths the paths to skip
+     * @return the new limits
+     */
+    public TagLimits skipping(String... paths) {
+        Set<String> skipped = new HashSet<>(this.skipped);
+        skipped.addAll(Arrays.asList(paths));
+        return new TagLimits(this.maxDepth, this.maxBytes, this.maxArrayLength, this.maxListLength,
+                Collections.unmodifiableSet(skipped));
+    }
+
+    /**
+     * Reads the root compound from the given stream.
+     *
+     * @param stream the stream to read
+     * @return the root compound
+     * @throws TagLimitException if the data exceeds these
+     * limits or is malformed
+     */
+    public Tag.Compound decode(DataInputStream stream) {
+        try {
+            return new Decoder(stream).root();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the root compound from the given buffer,
+     * leaving its position unchanged.
+     *
+     * @param buffer the buffer to read
+     * @return the root compound
+     * @throws TagLimitException if the data exceeds these
+     * limits or is malformed
+     */
+    public Tag.Compound decode(ByteBuffer buffer) {
+        return this.decode(new DataInputStream(new BufferInputStream(buffer.duplicate())));
+    }
+
+    @Override
+    public String toString() {
+        return "TagLimits{maxDepth=" + this.maxDepth + ", maxBytes=" + this.maxBytes +
+                ", maxArrayLength=" + this.maxArrayLength + ", maxListLength=" + this.maxListLength +
+                ", skipped=" + this.skipped + '}';
+    }
+
+    /**
+     * A single decoding pass, which keeps track of how much
+     * has been read.
+     */
+    @NotThreadSafe
+    private final class Decoder {
+        private final DataInputStream in;
+        private long bytes;
+
+        Decoder(DataInputStream in) {
+            this.in = in;
+        }
+
+        Tag.Compound root() throws IOException {
+            this.count(1);
+            Tag.Type type = this.readType();
+            if (type != Tag.Type.COMPOUND) {
+                throw new TagLimitException("Root tag is not a compound: " + type);
+            }
+
+            return this.readCompound(this.readName(), "", 1);
+        }
+
+        /**
+         * Reads and checks a tag type id.
+         *
+         * @return the tag type
+         */
+        private Tag.Type readType() throws IOException {
+            return this.type(this.in.readByte());
+        }
+
+        /**
+         * Checks a tag type id, which unlike
+         * {@link Tag.Type#getMapping()} does not read
+         * unknown ids as {@link Tag.Type#END}.
+         *
+         * @return the tag type
+         */
+        private Tag.Type type(int id) {
+            if (id < 0 || id >= TYPES.length) {
+                throw new TagLimitException("Unknown NBT tag type " + id);
+            }
+            return TYPES[id];
+        }
+
+        private void count(long len) {
+            this.bytes += len;
+            if (this.bytes > TagLimits.this.maxBytes) {
+                throw new TagLimitException("NBT data exceeds " + TagLimits.this.maxBytes + " bytes");
+            }
+        }
+
+        private void checkDepth(int depth) {
+            if (depth > TagLimits.this.maxDepth) {
+                throw new TagLimitException("NBT data nested deeper than " + TagLimits.this.maxDepth);
+            }
+        }
+
+        private int arrayLength(int elemSize) throws IOException {
+            this.count(4);
+            int len = this.in.readInt();
+            if (len < 0 || len > TagLimits.this.maxArrayLength) {
+                throw new TagLimitException("NBT array length " + len + " exceeds " +
+                        TagLimits.this.maxArrayLength);
+            }
+
+            this.count((long) len * elemSize);
+            return len;
+        }
+
+        private String readName() throws IOException {
+            this.count(2);
+            int len = this.in.readUnsignedShort();
+            if (len == 0) {
+                return "";
+            }
+
+            this.count(len);
+            byte[] arr = new byte[len];
+            this.in.readFully(arr);
+            return new String(arr, Tag.Type.UTF_8);
+        }
+
+        private Tag.Compound readCompound(String name, String path, int depth) throws IOException {
+            this.checkDepth(depth);
+            Tag.Compound compound = new Tag.Compound(name);
+            boolean skipping = !TagLimits.this.skipped.isEmpty();
+            while (true) {
+                this.count(1);
+                Tag.Type type = this.readType();
+                if (type == Tag.Type.END) {
+                    return compound;
+                }
+
+                String key = this.readName();
+                String child = skipping ? path.isEmpty() ? key : path + '.' + key : null;
+                if (skipping && TagLimits.this.skipped.contains(child)) {
+                    this.skip(type, depth + 1);
+                    continue;
+                }
+
+                Object o = this.read(type, key, child, depth + 1);
+                compound.add(new AbstractMap.SimpleEntry<>(key, new Tag(type, o)));
+            }
+        }
+
+        private Object read(Tag.Type type, String name, String path, int depth) throws IOException {
+            switch (type) {
+                case BYTE:
+                    this.count(1);
+                    return this.in.readByte();
+                case SHORT:
+                    this.count(2);
+                    return this.in.readShort();
+                case INT:
+                    this.count(4);
+                    return this.in.readInt();
+                case LONG:
+                    this.count(8);
+                    return this.in.readLong();
+                case FLOAT:
+                    this.count(4);
+                    return this.in.readFloat();
+                case DOUBLE:
+                    this.count(8);
+                    return this.in.readDouble();
+                case BYTE_ARRAY: {
+                    byte[] arr = new byte[this.arrayLength(1)];
+                    this.in.readFully(arr);
+                    return arr;
+                }
+                case STRING:
+                    return this.readName();
+                case LIST: {
+                    this.checkDepth(depth);
+                    int[] header = this.listHeader();
+                    Tag.Type t = this.type(header[0]);
+                    Tag.List<Object> list = (Tag.List<Object>) t.newListOfType();
+                    for (int i = 0; i < header[1]; i++) {
+                        list.add(this.read(t, "", path, depth + 1));
+                    }
+                    return list;
+                }
+                case COMPOUND:
+                    return this.readCompound(name, path, depth);
+                case INT_ARRAY: {
+                    int[] arr = new int[this.arrayLength(4)];
+                    for (int i = 0; i < arr.length; i++) {
+                        arr[i] = this.in.readInt();
+                    }
+                    return arr;
+                }
+                default:
+                    throw new TagLimitException("Unexpected " + type + " tag");
+            }
+        }
+
+        /**
+         * Reads and checks the element type and length of a
+         * list.
+         *
+         * @return the element type id and the length
+         */
+        private int[] listHeader() throws IOException {
+            this.count(5);
+            int type = this.in.readByte();
+            int len = this.in.readInt();
+            if (len < 0 || len > TagLimits.this.maxListLength) {
+                throw new TagLimitException("NBT list length " + len + " exceeds " + TagLimits.this.maxListLength);
+            }
+
+            if (len > 0 && this.type(type) == Tag.Type.END) {
+                throw new TagLimitException("NBT list of " + len + " end tags");
+            }
+
+            return new int[] { type, len };
+        }
+
+        /**
+         * Skips the payload of a tag by seeking past it,
+         * which unlike {@link Tag.Type#skip(DataInputStream)}
+         * is bounded by the depth limit.
+         */
+        private void skip(Tag.Type type, int depth) throws IOException {
+            switch (type) {
+                case BYTE_ARRAY:
+                    Tag.skipFully(this.in, this.skipLength());
+                    break;
+                case INT_ARRAY:
+                    Tag.skipFully(this.in, 4L * this.skipLength());
+                    break;
+                case LIST: {
+                    this.checkDepth(depth);
+                    Tag.Type t = this.readType();
+                    int len = this.skipLength();
+                    if (len > 0 && t == Tag.Type.END) {
+                        throw new TagLimitException("NBT list of " + len + " end tags");
+                    }
+
+                    for (int i = 0; i < len; i++) {
+                        this.skip(t, depth + 1);
+                    }
+                    break;
+                }
+                case COMPOUND:
+                    this.checkDepth(depth);
+                    while (true) {
+                        Tag.Type t = this.readType();
+                        if (t == Tag.Type.END) {
+                            break;
+                        }
+
+                        Tag.skipFully(this.in, this.in.readUnsignedShort());
+                        this.skip(t, depth + 1);
+                    }
+                    break;
+                default:
+                    type.skip(this.in);
+                    break;
+            }
+        }
+
+        private int skipLength() throws IOException {
+            int len = this.in.readInt();
+            if (len < 0) {
+                throw new TagLimitException("Negative NBT length " + len);
+            }
+
+            return len;
+        }
+    }
+}
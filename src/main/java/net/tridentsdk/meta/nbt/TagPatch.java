@@ -0,0 +1,583 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.*;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * A compact binary description of the changes between two
+ * compound tags, which can be applied to the first compound
+ * in order to turn it into the second.
+ *
+ * <p>Patches are structural: unchanged entries are left
+ * out, nested compounds (including those inside of lists)
+ * are patched entry by entry, and byte and int arrays are
+ * patched by the ranges that differ. This makes a patch for
+ * a small change small no matter how large the compound is,
+ * which allows saves to be journaled as a sequence of
+ * patches using {@link #write(DataOutputStream)} and
+ * {@link #replay(Tag.Compound, DataInputStream)}.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@Immutable
+public final class TagPatch {
+    /**
+     * Terminates a sequence of operations
+     */
+    private static final byte END = 0;
+    /**
+     * Sets an entry to a new tag
+     */
+    private static final byte PUT = 1;
+    /**
+     * Removes an entry
+     */
+    private static final byte REMOVE = 2;
+    /**
+     * Patches the entries of a nested compound
+     */
+    private static final byte COMPOUND = 3;
+    /**
+     * Patches ranges of a byte array
+     */
+    private static final byte BYTES = 4;
+    /**
+     * Patches ranges of an int array
+     */
+    private static final byte INTS = 5;
+    /**
+     * Patches the elements of a list
+     */
+    private static final byte LIST = 6;
+
+    /**
+     * The amount of equal elements between two changed
+     * array ranges below which the ranges are merged
+     */
+    private static final int RUN_GAP = 8;
+
+    /**
+     * The encoded operations
+     */
+    private final byte[] data;
+
+    private TagPatch(byte[] data) {
+        this.data = data;
+    }
+
+    /**
+     * Computes the patch which turns the first compound
+     * into the second.
+     *
+     * @param from the old compound
+     * @param to the new compound
+     * @return the patch
+     */
+    public static TagPatch diff(Tag.Compound from, Tag.Compound to) {
+        Buffer buf = new Buffer();
+        try {
+            diffCompound(from, to, buf);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+        return new TagPatch(buf.toByteArray());
+    }
+
+    /**
+     * Reads a patch previously written with
+     * {@link #write(DataOutputStream)}.
+     *
+     * @param stream the stream to read
+     * @return the patch
+     */
+    public static TagPatch read(DataInputStream stream) {
+        try {
+            byte[] data = new byte[stream.readInt()];
+            stream.readFully(data);
+            return new TagPatch(data);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Applies every patch in the given journal, in the order
+     * that they were written, to the given compound.
+     *
+     * @param target the compound to patch
+     * @param journal the stream of patches, which is read
+     * until it ends
+     * @return the amount of patches applied
+     */
+    public static int replay(Tag.Compound target, DataInputStream journal) {
+        int count = 0;
+        try {
+            while (true) {
+                int b0 = journal.read();
+                if (b0 < 0) {
+                    return count;
+                }
+
+                int len = (b0 << 24) | (journal.readUnsignedByte() << 16) |
+                        (journal.readUnsignedByte() << 8) | journal.readUnsignedByte();
+                byte[] data = new byte[len];
+                journal.readFully(data);
+                new TagPatch(data).apply(target);
+                count++;
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Checks whether this patch makes no changes.
+     *
+     * @return {@code true} if applying this patch has no
+     * effect
+     */
+    public boolean isEmpty() {
+        return this.data.length == 1;
+    }
+
+    /**
+     * Obtains the size of the encoded operations.
+     *
+     * @return the amount of bytes in this patch
+     */
+    public int size() {
+        return this.data.length;
+    }
+
+    /**
+     * Writes this patch, prefixed with its length, to the
+     * given stream. Patches written one after another can
+     * be read back with
+     * {@link #replay(Tag.Compound, DataInputStream)}.
+     *
+     * @param stream the stream to write to
+     */
+    public void write(DataOutputStream stream) {
+        try {
+            stream.writeInt(this.data.length);
+            stream.write(this.data);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Applies this patch to the given compound.
+     *
+     * <p>Changes are made through the public mutators of
+     * the compound. Patched arrays and lists are copied
+     * rather than edited in place, as they may be shared
+     * with other compounds.</p>
+     *
+     * @param target the compound to patch
+     * @throws IllegalStateException if the compound does
+     * not have the structure that the patch expects
+     * @throws UnsupportedOperationException if the compound
+     * or a nested compound which is patched is an
+     * {@link ImmutableCompound}
+     */
+    public void apply(Tag.Compound target) {
+        DataInputStream stream = new DataInputStream(new ByteArrayInputStream(this.data));
+        try {
+            applyCompound(target, stream);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof TagPatch && Arrays.equals(((TagPatch) obj).data, this.data);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(this.data);
+    }
+
+    ////////////////////////////////////////////////////////
+    // DIFF ////////////////////////////////////////////////
+    ////////////////////////////////////////////////////////
+
+    private static void diffCompound(Tag.Compound from, Tag.Compound to, Buffer buf) throws IOException {
+        DataOutputStream out = new DataOutputStream(buf);
+        Map<String, Tag> old = from.getEntries();
+        Map<String, Tag> cur = to.getEntries();
+        for (String key : old.keySet()) {
+            if (!cur.containsKey(key)) {
+                out.writeByte(REMOVE);
+                writeKey(key, out);
+            }
+        }
+
+        for (Map.Entry<String, Tag> entry : cur.entrySet()) {
+            String key = entry.getKey();
+            Tag tag = entry.getValue();
+            Tag prev = old.get(key);
+            Tag.Type type = tag.getType();
+            if (prev == null || prev.getType() != type) {
+                writePut(key, type, tag.getObject(), out);
+                continue;
+            }
+
+            Object a = prev.getObject();
+            Object b = tag.getObject();
+            switch (type) {
+                case COMPOUND: {
+                    int mark = buf.size();
+                    out.writeByte(COMPOUND);
+                    writeKey(key, out);
+                    int start = buf.size();
+                    diffCompound((Tag.Compound) a, (Tag.Compound) b, buf);
+                    if (buf.size() == start + 1) {
+                        buf.truncate(mark);
+                    }
+                    break;
+                }
+                case BYTE_ARRAY: {
+                    byte[] x = (byte[]) a;
+                    byte[] y = (byte[]) b;
+                    if (!Arrays.equals(x, y)) {
+                        diffBytes(key, x, y, out);
+                    }
+                    break;
+                }
+                case INT_ARRAY: {
+                    int[] x = (int[]) a;
+                    int[] y = (int[]) b;
+                    if (!Arrays.equals(x, y)) {
+                        diffInts(key, x, y, out);
+                    }
+                    break;
+                }
+                case LIST:
+                    diffList(key, (java.util.List<?>) a, (java.util.List<?>) b, out);
+                    break;
+                default:
+                    if (!Objects.equals(a, b)) {
+                        writePut(key, type, b, out);
+                    }
+                    break;
+            }
+        }
+
+        out.writeByte(END);
+    }
+
+    private static void diffBytes(String key, byte[] x, byte[] y, DataOutputStream out) throws IOException {
+        Buffer runs = new Buffer();
+        DataOutputStream rs = new DataOutputStream(runs);
+        int common = Math.min(x.length, y.length);
+        int i = 0;
+        while (i < y.length) {
+            if (i < common && x[i] == y[i]) {
+                i++;
+                continue;
+            }
+
+            int start = i;
+            int end = i + 1;
+            for (int j = end; j < y.length && j - end < RUN_GAP; j++) {
+                if (j >= common || x[j] != y[j]) {
+                    end = j + 1;
+                }
+            }
+
+            rs.writeInt(start);
+            rs.writeInt(end - start);
+            rs.write(y, start, end - start);
+            i = end;
+        }
+
+        if (runs.size() >= y.length) {
+            writePut(key, Tag.Type.BYTE_ARRAY, y, out);
+            return;
+        }
+
+        out.writeByte(BYTES);
+        writeKey(key, out);
+        out.writeInt(y.length);
+        runs.writeTo(out);
+        out.writeInt(-1);
+    }
+
+    private static void diffInts(String key, int[] x, int[] y, DataOutputStream out) throws IOException {
+        Buffer runs = new Buffer();
+        DataOutputStream rs = new DataOutputStream(runs);
+        int common = Math.min(x.length, y.length);
+        int i = 0;
+        while (i < y.length) {
+            if (i < common && x[i] == y[i]) {
+                i++;
+                continue;
+            }
+
+            int start = i;
+            int end = i + 1;
+            for (int j = end; j < y.length && j - end < RUN_GAP; j++) {
+                if (j >= common || x[j] != y[j]) {
+                    end = j + 1;
+                }
+            }
+
+            rs.writeInt(start);
+            rs.writeInt(end - start);
+            for (int k = start; k < end; k++) {
+                rs.writeInt(y[k]);
+            }
+            i = end;
+        }
+
+        if (runs.size() >= 4 * y.length) {
+            writePut(key, Tag.Type.INT_ARRAY, y, out);
+            return;
+        }
+
+        out.writeByte(INTS);
+        writeKey(key, out);
+        out.writeInt(y.length);
+        runs.writeTo(out);
+        out.writeInt(-1);
+    }
+
+    private static void diffList(String key, java.util.List<?> x, java.util.List<?> y,
+                                 DataOutputStream out) throws IOException {
+        Tag.Type type = ((Tag.List<?>) y).getType();
+        if (!(x instanceof Tag.List) || ((Tag.List<?>) x).getType() != type) {
+            writePut(key, Tag.Type.LIST, y, out);
+            return;
+        }
+
+        Buffer elems = new Buffer();
+        DataOutputStream es = new DataOutputStream(elems);
+        int common = Math.min(x.size(), y.size());
+        for (int i = 0; i < y.size(); i++) {
+            Object b = y.get(i);
+            if (i >= common) {
+                es.writeInt(i);
+                es.writeByte(PUT);
+                type.write(b, es);
+                continue;
+            }
+
+            Object a = x.get(i);
+            if (type == Tag.Type.COMPOUND) {
+                int mark = elems.size();
+                es.writeInt(i);
+                es.writeByte(COMPOUND);
+                int start = elems.size();
+                diffCompound((Tag.Compound) a, (Tag.Compound) b, elems);
+                if (elems.size() == start + 1) {
+                    elems.truncate(mark);
+                }
+            } else if (!elementEquals(a, b)) {
+                es.writeInt(i);
+                es.writeByte(PUT);
+                type.write(b, es);
+            }
+        }
+
+        if (elems.size() == 0 && x.size() == y.size()) {
+            return;
+        }
+
+        out.writeByte(LIST);
+        writeKey(key, out);
+        out.writeInt(y.size());
+        elems.writeTo(out);
+        out.writeInt(-1);
+    }
+
+    private static boolean elementEquals(Object a, Object b) {
+        if (a instanceof byte[] && b instanceof byte[]) {
+            return Arrays.equals((byte[]) a, (byte[]) b);
+        }
+
+        if (a instanceof int[] && b instanceof int[]) {
+            return Arrays.equals((int[]) a, (int[]) b);
+        }
+
+        return Objects.equals(a, b);
+    }
+
+    private static void writePut(String key, Tag.Type type, Object o, DataOutputStream out) throws IOException {
+        out.writeByte(PUT);
+        writeKey(key, out);
+        out.writeByte(type.ordinal());
+        type.write(o, out);
+    }
+
+    private static void writeKey(String key, DataOutputStream out) throws IOException {
+        byte[] arr = key.getBytes(Tag.Type.UTF_8);
+        out.writeShort(arr.length);
+        out.write(arr);
+    }
+
+    ////////////////////////////////////////////////////////
+    // APPLY ///////////////////////////////////////////////
+    ////////////////////////////////////////////////////////
+
+    private static void applyCompound(Tag.Compound target, DataInputStream in) throws IOException {
+        if (target instanceof ImmutableCompound) {
+            throw new UnsupportedOperationException("Immutable compound");
+        }
+
+        while (true) {
+            byte op = in.readByte();
+            if (op == END) {
+                return;
+            }
+
+            String key = TagReader.readName(in);
+            switch (op) {
+                case PUT: {
+                    Tag.Type type = Tag.Type.getMapping().get((int) in.readByte());
+                    put(target, key, type, type.read(key, in));
+                    break;
+                }
+                case REMOVE:
+                    target.remove(key);
+                    break;
+                case COMPOUND:
+                    applyCompound(expect(target, key, Tag.Compound.class), in);
+                    break;
+                case BYTES: {
+                    byte[] arr = expect(target, key, byte[].class);
+                    int len = in.readInt();
+                    byte[] res = Arrays.copyOf(arr, len);
+                    for (int off = in.readInt(); off >= 0; off = in.readInt()) {
+                        in.readFully(res, off, in.readInt());
+                    }
+                    target.putByteArray(key, res);
+                    break;
+                }
+                case INTS: {
+                    int[] arr = expect(target, key, int[].class);
+                    int len = in.readInt();
+                    int[] res = Arrays.copyOf(arr, len);
+                    for (int off = in.readInt(); off >= 0; off = in.readInt()) {
+                        for (int i = off, end = off + in.readInt(); i < end; i++) {
+                            res[i] = in.readInt();
+                        }
+                    }
+                    target.putIntArray(key, res);
+                    break;
+                }
+                case LIST: {
+                    Tag.List<Object> old = expect(target, key, Tag.List.class);
+                    int len = in.readInt();
+                    Tag.List<Object> list = new Tag.List<>(old.getType());
+                    list.addAll(old.size() > len ? old.subList(0, len) : old);
+
+                    for (int idx = in.readInt(); idx >= 0; idx = in.readInt()) {
+                        byte kind = in.readByte();
+                        if (kind == COMPOUND) {
+                            if (idx >= list.size() || !(list.get(idx) instanceof Tag.Compound)) {
+                                throw new IllegalStateException("Patch does not match element " + idx + " of " + key);
+                            }
+                            applyCompound((Tag.Compound) list.get(idx), in);
+                        } else {
+                            Object o = list.getType().read("", in);
+                            if (idx < list.size()) {
+                                list.set(idx, o);
+                            } else {
+                                list.add(o);
+                            }
+                        }
+                    }
+                    target.putList(key, list);
+                    break;
+                }
+                default:
+                    throw new IllegalStateException("Unknown patch operation " + op);
+            }
+        }
+    }
+
+    private static void put(Tag.Compound target, String key, Tag.Type type, Object o) {
+        // The put methods keep the type of an existing tag
+        target.remove(key);
+        switch (type) {
+            case BYTE:
+                target.putByte(key, (byte) o);
+                break;
+            case SHORT:
+                target.putShort(key, (short) o);
+                break;
+            case INT:
+                target.putInt(key, (int) o);
+                break;
+            case LONG:
+                target.putLong(key, (long) o);
+                break;
+            case FLOAT:
+                target.putFloat(key, (float) o);
+                break;
+            case DOUBLE:
+                target.putDouble(key, (double) o);
+                break;
+            case BYTE_ARRAY:
+                target.putByteArray(key, (byte[]) o);
+                break;
+            case STRING:
+                target.putString(key, (String) o);
+                break;
+            case LIST:
+                target.putList(key, (Tag.List) o);
+                break;
+            case COMPOUND:
+                // Read with the key as its name
+                target.putCompound((Tag.Compound) o);
+                break;
+            case INT_ARRAY:
+                target.putIntArray(key, (int[]) o);
+                break;
+            default:
+                throw new IllegalStateException("Patch puts " + type + " tag at " + key);
+        }
+    }
+
+    private static <T> T expect(Tag.Compound target, String key, Class<? super T> cls) {
+        Object o = target.get(key);
+        if (!cls.isInstance(o)) {
+            throw new IllegalStateException("Patch does not match " + key + ", found " + o);
+        }
+
+        return (T) o;
+    }
+
+    /**
+     * Output buffer that can be cut back to an earlier size
+     * in order to drop an empty nested patch.
+     */
+    private static final class Buffer extends ByteArrayOutputStream {
+        void truncate(int size) {
+            this.count = size;
+        }
+    }
+}
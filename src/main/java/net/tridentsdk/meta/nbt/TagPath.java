@@ -0,0 +1,600 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.DataInputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * A path into a compound tag which has been compiled once
+ * so that it can be evaluated against any number of
+ * compounds.
+ *
+ * <p>Paths are made up of keys separated by {@code .}. A
+ * key may be followed by {@code []} to select every element
+ * of the list found at that key, or by {@code [n]} to select
+ * only the element at index {@code n}. For example,
+ * {@code Level.Sections[].Y} selects the {@code Y} value of
+ * every section in a chunk.</p>
+ *
+ * <p>Paths can be evaluated against a decoded
+ * {@link Tag.Compound}, in which case only the keys along
+ * the path are looked up (so a {@link LazyCompound} only
+ * decodes those keys), or directly against encoded data, in
+ * which case every subtree off of the path is skipped
+ * without being decoded.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@Immutable
+public final class TagPath {
+    /**
+     * Index marker for a step that selects the value itself
+     */
+    private static final int NO_INDEX = -2;
+    /**
+     * Index marker for a step that selects every element
+     */
+    private static final int ALL = -1;
+
+    /**
+     * Match result for a value that is not on the path
+     */
+    private static final int NONE = -1;
+    /**
+     * Match result for the root tag
+     */
+    private static final int ROOT = -2;
+    /**
+     * Match result for a list whose elements are selected
+     */
+    private static final int LIST = -3;
+
+    /**
+     * The path which was compiled
+     */
+    private final String source;
+    /**
+     * The key looked up by each step
+     */
+    private final String[] keys;
+    /**
+     * The list index selected by each step
+     */
+    private final int[] indices;
+
+    private TagPath(String source, String[] keys, int[] indices) {
+        this.source = source;
+        this.keys = keys;
+        this.indices = indices;
+    }
+
+    /**
+     * Compiles the given path.
+     *
+     * @param path the path to compile
+     * @return the compiled path
+     * @throws IllegalArgumentException if the path is
+     * malformed
+     */
+    public static TagPath compile(String path) {
+        if (path.isEmpty()) {
+            throw new IllegalArgumentException("Empty path");
+        }
+
+        String[] segments = path.split("\\.", -1);
+        String[] keys = new String[segments.length];
+        int[] indices = new int[segments.length];
+        for (int i = 0; i < segments.length; i++) {
+            String segment = segments[i];
+            int idx = NO_INDEX;
+            if (segment.endsWith("]")) {
+                int open = segment.indexOf('[');
+                if (open < 0) {
+                    throw new IllegalArgumentException("Unmatched ] in " + path);
+                }
+
+                String inner = segment.substring(open + 1, segment.length() - 1);
+                if (inner.isEmpty()) {
+                    idx = ALL;
+                } else {
+                    try {
+                        idx = Integer.parseInt(inner);
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("Bad index " + inner + " in " + path);
+                    }
+
+                    if (idx < 0) {
+                        throw new IllegalArgumentException("Negative index " + inner + " in " + path);
+                    }
+                }
+
+                segment = segment.substring(0, open);
+            }
+
+            if (segment.isEmpty() || segment.indexOf('[') >= 0 || segment.indexOf(']') >= 0) {
+                throw new IllegalArgumentException("Bad key " + segments[i] + " in " + path);
+            }
+
+            keys[i] = segment;
+            indices[i] = idx;
+        }
+
+        return new TagPath(path, keys, indices);
+    }
+
+    /**
+     * Passes every value selected by this path from the
+     * given compound to the given action.
+     *
+     * @param root the compound to evaluate against
+     * @param action the action which receives the values
+     */
+    public void forEach(Tag.Compound root, Consumer<Object> action) {
+        this.walk(root, 0, o -> {
+            action.accept(o);
+            return true;
+        });
+    }
+
+    /**
+     * Collects every value selected by this path from the
+     * given compound.
+     *
+     * @param root the compound to evaluate against
+     * @return the selected values
+     */
+    public List<Object> select(Tag.Compound root) {
+        List<Object> list = new ArrayList<>();
+        this.forEach(root, list::add);
+        return list;
+    }
+
+    /**
+     * Obtains the first value selected by this path from
+     * the given compound.
+     *
+     * @param root the compound to evaluate against
+     * @param <T> the value type
+     * @return the first value, or {@code null} if there is
+     * none
+     */
+    @Nullable
+    public <T> T first(Tag.Compound root) {
+        Object[] found = new Object[1];
+        this.walk(root, 0, o -> {
+            found[0] = o;
+            return false;
+        });
+        return (T) found[0];
+    }
+
+    /**
+     * Passes every value selected by this path from the
+     * encoded tag in the given stream to the given action.
+     *
+     * <p>Compounds and lists are passed as newly decoded
+     * tags, everything else is passed as it would be by
+     * {@link Tag.Compound#get(String)}.</p>
+     *
+     * @param stream the stream containing the root tag
+     * @param action the action which receives the values
+     */
+    public void forEach(DataInputStream stream, Consumer<Object> action) {
+        TagReader.read(stream, new Matcher(action, false));
+    }
+
+    /**
+     * Passes every value selected by this path from the
+     * encoded tag in the given buffer to the given action.
+     *
+     * <p>The position of the buffer is not changed.</p>
+     *
+     * @param buffer the buffer containing the root tag
+     * @param action the action which receives the values
+     */
+    public void forEach(ByteBuffer buffer, Consumer<Object> action) {
+        this.forEach(new DataInputStream(new BufferInputStream(buffer.duplicate())), action);
+    }
+
+    /**
+     * Collects every value selected by this path from the
+     * encoded tag in the given buffer.
+     *
+     * @param buffer the buffer containing the root tag
+     * @return the selected values
+     */
+    public List<Object> select(ByteBuffer buffer) {
+        List<Object> list = new ArrayList<>();
+        this.forEach(buffer, list::add);
+        return list;
+    }
+
+    /**
+     * Obtains the first value selected by this path from
+     * the encoded tag in the given stream, reading no
+     * further than that value.
+     *
+     * @param stream the stream containing the root tag
+     * @param <T> the value type
+     * @return the first value, or {@code null} if there is
+     * none
+     */
+    @Nullable
+    public <T> T first(DataInputStream stream) {
+        Object[] found = new Object[1];
+        TagReader.read(stream, new Matcher(o -> found[0] = o, true));
+        return (T) found[0];
+    }
+
+    /**
+     * Obtains the first value selected by this path from
+     * the encoded tag in the given buffer.
+     *
+     * <p>The position of the buffer is not changed.</p>
+     *
+     * @param buffer the buffer containing the root tag
+     * @param <T> the value type
+     * @return the first value, or {@code null} if there is
+     * none
+     */
+    @Nullable
+    public <T> T first(ByteBuffer buffer) {
+        return this.first(new DataInputStream(new BufferInputStream(buffer.duplicate())));
+    }
+
+    /**
+     * Evaluates the given step against a compound.
+     *
+     * @param compound the compound holding the step key
+     * @param step the step to evaluate
+     * @param action the action, returning {@code false} to
+     * stop
+     * @return {@code false} if the action stopped the walk
+     */
+    private boolean walk(Tag.Compound compound, int step, Predicate<Object> action) {
+        Object value = compound.get(this.keys[step]);
+        if (value == null) {
+            return true;
+        }
+
+        int idx = this.indices[step];
+        if (idx == NO_INDEX) {
+            return this.next(value, step, action);
+        }
+
+        if (!(value instanceof List)) {
+            return true;
+        }
+
+        List<?> list = (List<?>) value;
+        if (idx == ALL) {
+            for (Object o : list) {
+                if (!this.next(o, step, action)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        return idx >= list.size() || this.next(list.get(idx), step, action);
+    }
+
+    /**
+     * Passes the result of a step on to the next step, or
+     * to the action if it was the last one.
+     */
+    private boolean next(Object value, int step, Predicate<Object> action) {
+        if (step == this.keys.length - 1) {
+            return action.test(value);
+        }
+
+        return !(value instanceof Tag.Compound) || this.walk((Tag.Compound) value, step + 1, action);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        return obj instanceof TagPath && ((TagPath) obj).source.equals(this.source);
+    }
+
+    @Override
+    public int hashCode() {
+        return this.source.hashCode();
+    }
+
+    @Override
+    public String toString() {
+        return this.source;
+    }
+
+    /**
+     * A container entered while matching encoded data.
+     */
+    private static final class Frame {
+        /**
+         * Whether the container is a list
+         */
+        private final boolean list;
+        /**
+         * For compounds, the step whose key is expected; for
+         * lists, the step whose index is applied
+         */
+        private final int step;
+        /**
+         * The amount of list elements seen so far
+         */
+        private int count;
+
+        Frame(boolean list, int step) {
+            this.list = list;
+            this.step = step;
+        }
+    }
+
+    /**
+     * Visitor that matches this path against encoded data,
+     * declining every tag that is off of the path.
+     */
+    @NotThreadSafe
+    private final class Matcher implements TagVisitor {
+        private final Consumer<Object> action;
+        private final boolean once;
+        private final Deque<Frame> frames = new ArrayDeque<>();
+        /**
+         * Builder for a selected compound or list that is
+         * being read, or {@code null}
+         */
+        private TagBuilder capture;
+        private boolean done;
+
+        Matcher(Consumer<Object> action, boolean once) {
+            this.action = action;
+            this.once = once;
+        }
+
+        /**
+         * Determines where the tag with the given name falls
+         * on the path, counting it if it is a list element.
+         *
+         * @param name the tag name
+         * @return the step completed by the tag, or one of
+         * {@link #NONE}, {@link #ROOT} or {@link #LIST}
+         */
+        private int match(String name) {
+            Frame top = this.frames.peek();
+            if (top == null) {
+                return ROOT;
+            }
+
+            int step = top.step;
+            if (top.list) {
+                int idx = TagPath.this.indices[step];
+                int e = top.count++;
+                return idx == ALL || idx == e ? step : NONE;
+            }
+
+            if (!TagPath.this.keys[step].equals(name)) {
+                return NONE;
+            }
+
+            return TagPath.this.indices[step] == NO_INDEX ? step : LIST;
+        }
+
+        private boolean isLast(int step) {
+            return step == TagPath.this.keys.length - 1;
+        }
+
+        private void emit(Object value) {
+            this.action.accept(value);
+            if (this.once) {
+                this.done = true;
+            }
+        }
+
+        private void endCapture() {
+            if (this.capture.isDone()) {
+                this.emit(this.capture.getRoot());
+                this.capture = null;
+            }
+        }
+
+        @Override
+        public boolean visitCompound(String name) {
+            if (this.capture != null) {
+                return this.capture.visitCompound(name);
+            }
+
+            int m = this.match(name);
+            if (m == ROOT) {
+                this.frames.push(new Frame(false, 0));
+                return true;
+            }
+
+            if (m < 0) {
+                return false;
+            }
+
+            if (this.isLast(m)) {
+                this.capture = new TagBuilder();
+                return this.capture.visitCompound(name);
+            }
+
+            this.frames.push(new Frame(false, m + 1));
+            return true;
+        }
+
+        @Override
+        public void visitCompoundEnd(String name) {
+            if (this.capture != null) {
+                this.capture.visitCompoundEnd(name);
+                this.endCapture();
+                return;
+            }
+
+            this.frames.pop();
+        }
+
+        @Override
+        public boolean visitList(String name, Tag.Type type, int length) {
+            if (this.capture != null) {
+                return this.capture.visitList(name, type, length);
+            }
+
+            int step = this.frames.isEmpty() ? 0 : this.frames.peek().step;
+            int m = this.match(name);
+            if (m == LIST) {
+                this.frames.push(new Frame(true, step));
+                return true;
+            }
+
+            if (m >= 0 && this.isLast(m)) {
+                this.capture = new TagBuilder();
+                return this.capture.visitList(name, type, length);
+            }
+
+            return false;
+        }
+
+        @Override
+        public void visitListEnd(String name) {
+            if (this.capture != null) {
+                this.capture.visitListEnd(name);
+                this.endCapture();
+                return;
+            }
+
+            this.frames.pop();
+        }
+
+        /**
+         * Handles a tag which has no children.
+         *
+         * @return {@code true} if the value should be
+         * emitted
+         */
+        private boolean leaf(String name) {
+            int m = this.match(name);
+            return m >= 0 && this.isLast(m);
+        }
+
+        @Override
+        public void visitByte(String name, byte value) {
+            if (this.capture != null) {
+                this.capture.visitByte(name, value);
+            } else if (this.leaf(name)) {
+                this.emit(value);
+            }
+        }
+
+        @Override
+        public void visitShort(String name, short value) {
+            if (this.capture != null) {
+                this.capture.visitShort(name, value);
+            } else if (this.leaf(name)) {
+                this.emit(value);
+            }
+        }
+
+        @Override
+        public void visitInt(String name, int value) {
+            if (this.capture != null) {
+                this.capture.visitInt(name, value);
+            } else if (this.leaf(name)) {
+                this.emit(value);
+            }
+        }
+
+        @Override
+        public void visitLong(String name, long value) {
+            if (this.capture != null) {
+                this.capture.visitLong(name, value);
+            } else if (this.leaf(name)) {
+                this.emit(value);
+            }
+        }
+
+        @Override
+        public void visitFloat(String name, float value) {
+            if (this.capture != null) {
+                this.capture.visitFloat(name, value);
+            } else if (this.leaf(name)) {
+                this.emit(value);
+            }
+        }
+
+        @Override
+        public void visitDouble(String name, double value) {
+            if (this.capture != null) {
+                this.capture.visitDouble(name, value);
+            } else if (this.leaf(name)) {
+                this.emit(value);
+            }
+        }
+
+        @Override
+        public void visitString(String name, String value) {
+            if (this.capture != null) {
+                this.capture.visitString(name, value);
+            } else if (this.leaf(name)) {
+                this.emit(value);
+            }
+        }
+
+        @Override
+        public boolean visitByteArrayLength(String name, int length) {
+            return this.capture != null || this.leaf(name);
+        }
+
+        @Override
+        public void visitByteArray(String name, byte[] value) {
+            if (this.capture != null) {
+                this.capture.visitByteArray(name, value);
+            } else {
+                this.emit(value);
+            }
+        }
+
+        @Override
+        public boolean visitIntArrayLength(String name, int length) {
+            return this.capture != null || this.leaf(name);
+        }
+
+        @Override
+        public void visitIntArray(String name, int[] value) {
+            if (this.capture != null) {
+                this.capture.visitIntArray(name, value);
+            } else {
+                this.emit(value);
+            }
+        }
+
+        @Override
+        public boolean isComplete() {
+            return this.done;
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import javax.annotation.concurrent.Immutable;
+import java.io.DataInputStream;
+import java.io.IOException;
+
+/**
+ * Streaming reader for NBT data which, unlike
+ * {@link Tag#decode(DataInputStream)}, does not build a tree
+ * of tags but instead reports what it finds to a
+ * {@link TagVisitor}.
+ *
+ * <p>Subtrees that the visitor declines are skipped over
+ * using {@link Tag.Type#skip(DataInputStream)}, so reading a
+ * few values out of a large compound costs no more memory
+ * than the values themselves.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@Immutable
+public final class TagReader {
+    // Prevent instantiation
+    private TagReader() {
+    }
+
+    /**
+     * Reads the root tag from the given stream, passing
+     * each value to the given visitor.
+     *
+     * <p>If the visitor completes early, the stream is left
+     * positioned directly after the last visited tag.</p>
+     *
+     * @param stream the stream to read
+     * @param visitor the visitor which receives the tags
+     */
+    public static void read(DataInputStream stream, TagVisitor visitor) {
+        try {
+            Tag.Type type = Tag.Type.getMapping().get((int) stream.readByte());
+            if (type == Tag.Type.END) {
+                return;
+            }
+
+            readPayload(type, readName(stream), stream, visitor);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Reads the name portion of a tag header.
+     *
+     * @param stream the stream to read
+     * @return the tag name
+     * @throws IOException if the stream ends early
+     */
+    static String readName(DataInputStream stream) throws IOException {
+        int len = stream.readUnsignedShort();
+        if (len == 0) {
+            return "";
+        }
+
+        byte[] arr = new byte[len];
+        stream.readFully(arr);
+        return new String(arr, Tag.Type.UTF_8);
+    }
+
+    /**
+     * Reads the payload of a tag with the given type and
+     * name.
+     *
+     * @param type the type of the tag
+     * @param name the name of the tag
+     * @param stream the stream to read
+     * @param visitor the visitor to pass the tag to
+     * @return {@code true} to continue reading, {@code false}
+     * if the visitor has completed
+     * @throws IOException if the stream ends early
+     */
+    private static boolean readPayload(Tag.Type type, String name, DataInputStream stream,
+                                       TagVisitor visitor) throws IOException {
+        switch (type) {
+            case BYTE:
+                visitor.visitByte(name, stream.readByte());
+                break;
+            case SHORT:
+                visitor.visitShort(name, stream.readShort());
+                break;
+            case INT:
+                visitor.visitInt(name, stream.readInt());
+                break;
+            case LONG:
+                visitor.visitLong(name, stream.readLong());
+                break;
+            case FLOAT:
+                visitor.visitFloat(name, stream.readFloat());
+                break;
+            case DOUBLE:
+                visitor.visitDouble(name, stream.readDouble());
+                break;
+            case BYTE_ARRAY: {
+                int len = stream.readInt();
+                if (visitor.visitByteArrayLength(name, len)) {
+                    byte[] arr = new byte[len];
+                    stream.readFully(arr);
+                    visitor.visitByteArray(name, arr);
+                } else {
+                    Tag.skipFully(stream, len);
+                }
+                break;
+            }
+            case STRING:
+                visitor.visitString(name, readName(stream));
+                break;
+            case LIST: {
+                Tag.Type t = Tag.Type.getMapping().get((int) stream.readByte());
+                int len = stream.readInt();
+                if (visitor.visitList(name, t, len)) {
+                    for (int i = 0; i < len; i++) {
+                        if (!readPayload(t, "", stream, visitor)) {
+                            return false;
+                        }
+                    }
+                    visitor.visitListEnd(name);
+                } else {
+                    for (int i = 0; i < len; i++) {
+                        t.skip(stream);
+                    }
+                }
+                break;
+            }
+            case COMPOUND:
+                if (visitor.visitCompound(name)) {
+                    while (true) {
+                        Tag.Type t = Tag.Type.getMapping().get((int) stream.readByte());
+                        if (t == Tag.Type.END) {
+                            break;
+                        }
+
+                        if (!readPayload(t, readName(stream), stream, visitor)) {
+                            return false;
+                        }
+                    }
+                    visitor.visitCompoundEnd(name);
+                } else {
+                    Tag.Type.COMPOUND.skip(stream);
+                }
+                break;
+            case INT_ARRAY: {
+                int len = stream.readInt();
+                if (visitor.visitIntArrayLength(name, len)) {
+                    int[] arr = new int[len];
+                    for (int i = 0; i < len; i++) {
+                        arr[i] = stream.readInt();
+                    }
+                    visitor.visitIntArray(name, arr);
+                } else {
+                    Tag.skipFully(stream, 4L * len);
+                }
+                break;
+            }
+            default:
+                break;
+        }
+
+        return !visitor.isComplete();
+    }
+}
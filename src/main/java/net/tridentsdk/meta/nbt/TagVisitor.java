@@ -0,0 +1,202 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Receives the events produced by a {@link TagReader} as it
+ * walks over encoded NBT data.
+ *
+ * <p>Every method has an empty default, so visitors only
+ * need to override the events that they care about. Tags
+ * that are elements of a list are visited with an empty
+ * name.</p>
+ *
+ * <p>Returning {@code false} from any of the methods that
+ * return a {@code boolean} causes the reader to skip over
+ * the payload of that tag without decoding it.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@NotThreadSafe
+public interface TagVisitor {
+    /**
+     * Called when a compound tag is entered.
+     *
+     * @param name the name of the compound
+     * @return {@code true} to visit the entries of the
+     * compound, {@code false} to skip it entirely
+     */
+    default boolean visitCompound(String name) {
+        return true;
+    }
+
+    /**
+     * Called after the last entry of a visited compound
+     * has been read.
+     *
+     * @param name the name of the compound
+     */
+    default void visitCompoundEnd(String name) {
+    }
+
+    /**
+     * Called when a list tag is entered.
+     *
+     * @param name the name of the list
+     * @param type the type of the list elements
+     * @param length the amount of elements in the list
+     * @return {@code true} to visit the elements of the
+     * list, {@code false} to skip it entirely
+     */
+    default boolean visitList(String name, Tag.Type type, int length) {
+        return true;
+    }
+
+    /**
+     * Called after the last element of a visited list has
+     * been read.
+     *
+     * @param name the name of the list
+     */
+    default void visitListEnd(String name) {
+    }
+
+    /**
+     * Called when a byte tag is read.
+     *
+     * @param name the name of the tag
+     * @param value the tag value
+     */
+    default void visitByte(String name, byte value) {
+    }
+
+    /**
+     * Called when a short tag is read.
+     *
+     * @param name the name of the tag
+     * @param value the tag value
+     */
+    default void visitShort(String name, short value) {
+    }
+
+    /**
+     * Called when an int tag is read.
+     *
+     * @param name the name of the tag
+     * @param value the tag value
+     */
+    default void visitInt(String name, int value) {
+    }
+
+    /**
+     * Called when a long tag is read.
+     *
+     * @param name the name of the tag
+     * @param value the tag value
+     */
+    default void visitLong(String name, long value) {
+    }
+
+    /**
+     * Called when a float tag is read.
+     *
+     * @param name the name of the tag
+     * @param value the tag value
+     */
+    default void visitFloat(String name, float value) {
+    }
+
+    /**
+     * Called when a double tag is read.
+     *
+     * @param name the name of the tag
+     * @param value the tag value
+     */
+    default void visitDouble(String name, double value) {
+    }
+
+    /**
+     * Called when a string tag is read.
+     *
+     * @param name the name of the tag
+     * @param value the tag value
+     */
+    default void visitString(String name, String value) {
+    }
+
+    /**
+     * Called when the length of a byte array tag has been
+     * read, but before its contents are.
+     *
+     * @param name the name of the tag
+     * @param length the length of the array
+     * @return {@code true} to read the array and pass it to
+     * {@link #visitByteArray(String, byte[])}, {@code false}
+     * to skip it
+     */
+    default boolean visitByteArrayLength(String name, int length) {
+        return false;
+    }
+
+    /**
+     * Called when the contents of a byte array tag have
+     * been read.
+     *
+     * @param name the name of the tag
+     * @param value the array contents
+     */
+    default void visitByteArray(String name, byte[] value) {
+    }
+
+    /**
+     * Called when the length of an int array tag has been
+     * read, but before its contents are.
+     *
+     * @param name the name of the tag
+     * @param length the length of the array
+     * @return {@code true} to read the array and pass it to
+     * {@link #visitIntArray(String, int[])}, {@code false}
+     * to skip it
+     */
+    default boolean visitIntArrayLength(String name, int length) {
+        return false;
+    }
+
+    /**
+     * Called when the contents of an int array tag have
+     * been read.
+     *
+     * @param name the name of the tag
+     * @param value the array contents
+     */
+    default void visitIntArray(String name, int[] value) {
+    }
+
+    /**
+     * Checks whether this visitor has found everything that
+     * it was looking for, in which case the reader stops
+     * without consuming the rest of the stream.
+     *
+     * @return {@code true} to stop reading
+     */
+    default boolean isComplete() {
+        return false;
+    }
+}
@@ -0,0 +1,294 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Encodes compound tags into a growable {@link ByteBuffer}
+ * using bulk transfers, which avoids the per-value virtual
+ * calls made when writing through a
+ * {@link java.io.DataOutputStream}.
+ *
+ * <p>A writer may be reused for any number of compounds,
+ * the buffer is only reallocated when it needs to grow.
+ * </p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@NotThreadSafe
+public class TagWriter {
+    /**
+     * The default initial capacity of the buffer
+     */
+    private static final int DEFAULT_CAPACITY = 8192;
+
+    /**
+     * The buffer which is written to
+     */
+    private ByteBuffer buf;
+
+    /**
+     * Creates a new writer with a heap buffer of the
+     * default capacity.
+     */
+    public TagWriter() {
+        this(ByteBuffer.allocate(DEFAULT_CAPACITY));
+    }
+
+    /**
+     * Creates a new writer which starts writing at the
+     * position of the given buffer. If the buffer needs to
+     * grow, it is replaced with a larger buffer that is
+     * direct if the given buffer is direct.
+     *
+     * @param buf the buffer to write to
+     */
+    public TagWriter(ByteBuffer buf) {
+        this.buf = buf.order(ByteOrder.BIG_ENDIAN);
+    }
+
+    /**
+     * Writes the given compound tag as the root tag,
+     * including its header.
+     *
+     * @param compound the compound to write
+     * @return this writer
+     */
+    public TagWriter write(Tag.Compound compound) {
+        this.writeHeader(Tag.Type.COMPOUND, compound.getName());
+        this.writePayload(Tag.Type.COMPOUND, compound);
+        return this;
+    }
+
+    /**
+     * Obtains the amount of bytes which have been written
+     * and not yet flushed.
+     *
+     * @return the amount of written bytes
+     */
+    public int size() {
+        return this.buf.position();
+    }
+
+    /**
+     * Obtains a read-only view of the bytes which have been
+     * written and not yet flushed.
+     *
+     * @return the written bytes
+     */
+    public ByteBuffer getBuffer() {
+        ByteBuffer buf = this.buf.asReadOnlyBuffer();
+        buf.flip();
+        return buf;
+    }
+
+    /**
+     * Copies the bytes which have been written and not yet
+     * flushed into a new array.
+     *
+     * @return the written bytes
+     */
+    public byte[] toByteArray() {
+        byte[] arr = new byte[this.buf.position()];
+        this.getBuffer().get(arr);
+        return arr;
+    }
+
+    /**
+     * Writes all of the written bytes to the given channel
+     * and then resets this writer.
+     *
+     * @param channel the channel to write to
+     * @throws IOException if the channel could not be
+     * written to
+     */
+    public void flush(WritableByteChannel channel) throws IOException {
+        this.buf.flip();
+        try {
+            while (this.buf.hasRemaining()) {
+                channel.write(this.buf);
+            }
+        } finally {
+            this.buf.clear();
+        }
+    }
+
+    /**
+     * Discards the written bytes, keeping the buffer for
+     * reuse.
+     */
+    public void reset() {
+        this.buf.clear();
+    }
+
+    /**
+     * Writes the header for a tag with the given type and
+     * name.
+     *
+     * @param type the tag type
+     * @param name the tag name
+     */
+    void writeHeader(Tag.Type type, String name) {
+        byte[] arr = name.getBytes(Tag.Type.UTF_8);
+        this.ensure(3 + arr.length);
+        this.buf.put((byte) type.ordinal());
+        this.buf.putShort((short) arr.length);
+        this.buf.put(arr);
+    }
+
+    /**
+     * Writes the payload of a tag with the given type.
+     *
+     * @param type the tag type
+     * @param o the tag value
+     */
+    void writePayload(Tag.Type type, Object o) {
+        switch (type) {
+            case BYTE:
+                this.ensure(1);
+                this.buf.put((byte) o);
+                break;
+            case SHORT:
+                this.ensure(2);
+                this.buf.putShort((short) o);
+                break;
+            case INT:
+                this.ensure(4);
+                this.buf.putInt((int) o);
+                break;
+            case LONG:
+                this.ensure(8);
+                this.buf.putLong((long) o);
+                break;
+            case FLOAT:
+                this.ensure(4);
+                this.buf.putFloat((float) o);
+                break;
+            case DOUBLE:
+                this.ensure(8);
+                this.buf.putDouble((double) o);
+                break;
+            case BYTE_ARRAY: {
+                byte[] arr = (byte[]) o;
+                this.ensure(4 + arr.length);
+                this.buf.putInt(arr.length);
+                this.buf.put(arr);
+                break;
+            }
+            case STRING: {
+                byte[] arr = ((String) o).getBytes(Tag.Type.UTF_8);
+                this.ensure(2 + arr.length);
+                this.buf.putShort((short) arr.length);
+                this.buf.put(arr);
+                break;
+            }
+            case LIST: {
+                Tag.List<?> list = (Tag.List<?>) o;
+                Tag.Type t = list.getType();
+                this.ensure(5);
+                this.buf.put((byte) t.ordinal());
+                this.buf.putInt(list.size());
+                for (Object element : list) {
+                    this.writePayload(t, element);
+                }
+                break;
+            }
+            case COMPOUND:
+                ((Tag.Compound) o).writeEntries(this);
+                this.ensure(1);
+                this.buf.put((byte) Tag.Type.END.ordinal());
+                break;
+            case INT_ARRAY: {
+                int[] arr = (int[]) o;
+                int len = arr.length << 2;
+                this.ensure(4 + len);
+                this.buf.putInt(arr.length);
+                this.buf.asIntBuffer().put(arr);
+                this.buf.position(this.buf.position() + len);
+                break;
+            }
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Writes the payload of a numeric tag given the raw
+     * bits of its value, without boxing.
+     *
+     * @param type the numeric tag type
+     * @param bits the value, or the raw bits of the value
+     * for floating point types
+     */
+    void writeNumeric(Tag.Type type, long bits) {
+        this.ensure(8);
+        switch (type) {
+            case BYTE:
+                this.buf.put((byte) bits);
+                break;
+            case SHORT:
+                this.buf.putShort((short) bits);
+                break;
+            case INT:
+            case FLOAT:
+                this.buf.putInt((int) bits);
+                break;
+            case LONG:
+            case DOUBLE:
+                this.buf.putLong(bits);
+                break;
+            default:
+                throw new IllegalArgumentException("Not a numeric type: " + type);
+        }
+    }
+
+    /**
+     * Copies the remaining bytes of the given buffer, which
+     * must already be encoded, into this writer.
+     *
+     * @param src the encoded bytes
+     */
+    void writeRaw(ByteBuffer src) {
+        this.ensure(src.remaining());
+        this.buf.put(src);
+    }
+
+    /**
+     * Grows the buffer if it cannot fit the given amount
+     * of bytes.
+     *
+     * @param len the amount of bytes about to be written
+     */
+    private void ensure(int len) {
+        ByteBuffer buf = this.buf;
+        if (buf.remaining() >= len) {
+            return;
+        }
+
+        int cap = Math.max(buf.capacity() << 1, buf.position() + len);
+        ByteBuffer grown = buf.isDirect() ? ByteBuffer.allocateDirect(cap) : ByteBuffer.allocate(cap);
+        buf.flip();
+        grown.put(buf);
+        this.buf = grown;
+    }
+}
@@ -0,0 +1,413 @@
+/*
+ * Copyright (C) 2002-2016 Sebastiano Vigna
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.util;
+
+import net.tridentsdk.doc.Policy;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.function.LongFunction;
+
+import static net.tridentsdk.util.Int2ReferenceOpenHashMap.arraySize;
+import static net.tridentsdk.util.Int2ReferenceOpenHashMap.maxFill;
+
+/**
+ * Minimal class of the one included in fastutil, trimmed
+ * the same way as {@link Int2ReferenceOpenHashMap} and
+ * intended for packed coordinate keys such as those made
+ * by {@link net.tridentsdk.world.IntPair#pack(int, int)}.
+ *
+ * Summary of changes made:
+ * - Same as Int2ReferenceOpenHashMap
+ * - Hashing multiplies and folds the key, then uses
+ *   Int2ReferenceOpenHashMap#mix
+ * - Added size, containsKey, computeIfAbsent, clear and forEach
+ * - This class isn't ours! Check the license header
+ */
+@Policy("license change")
+@NotThreadSafe
+public class Long2ReferenceOpenHashMap<V> {
+    /**
+     * 2<sup>64</sup> &middot; &phi;, &phi; = (&#x221A;5
+     * &minus; 1)/2.
+     */
+    private static final long LONG_PHI = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Spreads the given key, multiplying it so that both
+     * halves affect the high bits, then folding it before
+     * mixing it as an {@code int}. A plain xor fold would
+     * map {@code (x, z)} and {@code (z, x)} to the same
+     * slot.
+     *
+     * @param x the key
+     * @return the mixed hash
+     */
+    public final static int mix(final long x) {
+        final long h = x * LONG_PHI;
+        return Int2ReferenceOpenHashMap.mix((int) (h ^ (h >>> 32)));
+    }
+
+    /**
+     * Receives the entries of a map without boxing the
+     * keys.
+     *
+     * @param <V> the value type
+     */
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    /**
+     * The initial default size of a hash table.
+     */
+    private static int DEFAULT_INITIAL_SIZE = 16;
+    /**
+     * The default load factor of a hash table.
+     */
+    private static float DEFAULT_LOAD_FACTOR = .75f;
+
+    /**
+     * The array of keys.
+     */
+    protected transient long[] key;
+    /**
+     * The array of values.
+     */
+    protected transient V[] value;
+    /**
+     * The mask for wrapping a position counter.
+     */
+    protected transient int mask;
+    /**
+     * Whether this set contains the key zero.
+     */
+    protected transient boolean containsNullKey;
+    /**
+     * The current table size.
+     */
+    protected transient int n;
+    /**
+     * Threshold after which we rehash. It must be the table
+     * size times
+     * {@link #f}.
+     */
+    protected transient int maxFill;
+    /**
+     * Number of entries in the set (including the key zero,
+     * if present).
+     */
+    protected int size;
+    /**
+     * The acceptable load factor.
+     */
+    protected final float f;
+
+    /**
+     * Creates a new hash map.
+     *
+     * <p>
+     * The actual table size will be the least power of two
+     * greater than
+     * <code>expected</code>/<code>f</code>.
+     *
+     * @param expected the expected number of elements in
+     * the hash set.
+     * @param f the load factor.
+     */
+    @SuppressWarnings("unchecked")
+    public Long2ReferenceOpenHashMap(final int expected, final float f) {
+        if (f <= 0 || f > 1)
+            throw new IllegalArgumentException(
+                    "Load factor must be greater than 0 and smaller than or equal to 1");
+        if (expected < 0)
+            throw new IllegalArgumentException(
+                    "The expected number of elements must be nonnegative");
+        this.f = f;
+        this.n = arraySize(expected, f);
+        this.mask = this.n - 1;
+        this.maxFill = maxFill(this.n, f);
+        this.key = new long[this.n + 1];
+        this.value = (V[]) new Object[this.n + 1];
+    }
+
+    public Long2ReferenceOpenHashMap() {
+        this(DEFAULT_INITIAL_SIZE, DEFAULT_LOAD_FACTOR);
+    }
+
+    private int realSize() {
+        return this.containsNullKey ? this.size - 1 : this.size;
+    }
+
+    private V removeEntry(final int pos) {
+        final V oldValue = this.value[pos];
+        this.value[pos] = null;
+        this.size--;
+        this.shiftKeys(pos);
+        if (this.size < this.maxFill / 4 && this.n > DEFAULT_INITIAL_SIZE)
+            this.rehash(this.n / 2);
+        return oldValue;
+    }
+
+    private V removeNullEntry() {
+        this.containsNullKey = false;
+        final V oldValue = this.value[this.n];
+        this.value[this.n] = null;
+        this.size--;
+        if (this.size < this.maxFill / 4 && this.n > DEFAULT_INITIAL_SIZE)
+            this.rehash(this.n / 2);
+        return oldValue;
+    }
+
+    private int insert(final long k, final V v) {
+        int pos;
+        if (((k) == (0))) {
+            if (this.containsNullKey)
+                return this.n;
+            this.containsNullKey = true;
+            pos = this.n;
+        } else {
+            long curr;
+            final long[] key = this.key;
+            // The starting point.
+            if (!((curr = key[pos = (mix((k)))
+                    & this.mask]) == (0))) {
+                if (((curr) == (k)))
+                    return pos;
+                while (!((curr = key[pos = (pos + 1) & this.mask]) == (0)))
+                    if (((curr) == (k)))
+                        return pos;
+            }
+        }
+        this.key[pos] = k;
+        this.value[pos] = v;
+        if (this.size++ >= this.maxFill)
+            this.rehash(arraySize(this.size + 1, this.f));
+        return -1;
+    }
+
+    public V put(final long k, final V v) {
+        final int pos = this.insert(k, v);
+        if (pos < 0)
+            return null;
+        final V oldValue = this.value[pos];
+        this.value[pos] = v;
+        return oldValue;
+    }
+
+    /**
+     * Shifts left entries with the specified hash code,
+     * starting at the
+     * specified position, and empties the resulting free
+     * entry.
+     *
+     * @param pos a starting position.
+     */
+    protected final void shiftKeys(int pos) {
+        // Shift entries with the same hash.
+        int last, slot;
+        long curr;
+        final long[] key = this.key;
+        for (; ; ) {
+            pos = ((last = pos) + 1) & this.mask;
+            for (; ; ) {
+                if (((curr = key[pos]) == (0))) {
+                    key[last] = (0);
+                    this.value[last] = null;
+                    return;
+                }
+                slot = (mix((curr))) & this.mask;
+                if (last <= pos ? last >= slot || slot > pos : last >= slot
+                        && slot > pos)
+                    break;
+                pos = (pos + 1) & this.mask;
+            }
+            key[last] = curr;
+            this.value[last] = this.value[pos];
+        }
+    }
+
+    public V remove(final long k) {
+        if (((k) == (0))) {
+            if (this.containsNullKey)
+                return this.removeNullEntry();
+            return null;
+        }
+        long curr;
+        final long[] key = this.key;
+        int pos;
+        // The starting point.
+        if (((curr = key[pos = (mix((k)))
+                & this.mask]) == (0)))
+            return null;
+        if (((k) == (curr)))
+            return this.removeEntry(pos);
+        while (true) {
+            if (((curr = key[pos = (pos + 1) & this.mask]) == (0)))
+                return null;
+            if (((k) == (curr)))
+                return this.removeEntry(pos);
+        }
+    }
+
+    public V get(final long k) {
+        if (((k) == (0)))
+            return this.containsNullKey ? this.value[this.n] : null;
+        long curr;
+        final long[] key = this.key;
+        int pos;
+        // The starting point.
+        if (((curr = key[pos = (mix((k)))
+                & this.mask]) == (0)))
+            return null;
+        if (((k) == (curr)))
+            return this.value[pos];
+        // There's always an unused entry.
+        while (true) {
+            if (((curr = key[pos = (pos + 1) & this.mask]) == (0)))
+                return null;
+            if (((k) == (curr)))
+                return this.value[pos];
+        }
+    }
+
+    public boolean containsKey(final long k) {
+        if (((k) == (0)))
+            return this.containsNullKey;
+        long curr;
+        final long[] key = this.key;
+        int pos;
+        // The starting point.
+        if (((curr = key[pos = (mix((k)))
+                & this.mask]) == (0)))
+            return false;
+        if (((k) == (curr)))
+            return true;
+        // There's always an unused entry.
+        while (true) {
+            if (((curr = key[pos = (pos + 1) & this.mask]) == (0)))
+                return false;
+            if (((k) == (curr)))
+                return true;
+        }
+    }
+
+    /**
+     * Obtains the value mapped to the given key, computing
+     * and inserting it if there is none. A {@code null}
+     * computed value is not inserted.
+     *
+     * @param k the key
+     * @param mappingFunction the function computing the
+     * value
+     * @return the current or computed value
+     */
+    public V computeIfAbsent(final long k, final LongFunction<? extends V> mappingFunction) {
+        final V v = this.get(k);
+        if (v != null)
+            return v;
+        final V newValue = mappingFunction.apply(k);
+        if (newValue != null)
+            this.insert(k, newValue);
+        return newValue;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public void clear() {
+        if (this.size == 0)
+            return;
+        this.size = 0;
+        this.containsNullKey = false;
+        java.util.Arrays.fill(this.key, (0));
+        java.util.Arrays.fill(this.value, null);
+    }
+
+    /**
+     * Passes every entry in this map to the given consumer.
+     * The map must not be modified while iterating.
+     *
+     * @param consumer the consumer of the entries
+     */
+    public void forEach(final EntryConsumer<? super V> consumer) {
+        if (this.containsNullKey)
+            consumer.accept(0, this.value[this.n]);
+        final long[] key = this.key;
+        final V[] value = this.value;
+        for (int i = this.n; i-- != 0; )
+            if (!((key[i]) == (0)))
+                consumer.accept(key[i], value[i]);
+    }
+
+    public boolean trim() {
+        final int l = arraySize(this.size, this.f);
+        if (l >= this.n || this.size > maxFill(l, this.f))
+            return true;
+        try {
+            this.rehash(l);
+        } catch (OutOfMemoryError cantDoIt) {
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Rehashes the map.
+     *
+     * <P>
+     * This method implements the basic rehashing strategy,
+     * and may be overriden
+     * by subclasses implementing different rehashing
+     * strategies (e.g.,
+     * disk-based rehashing). However, you should not
+     * override this method
+     * unless you understand the internal workings of this
+     * class.
+     *
+     * @param newN the new size
+     */
+    @SuppressWarnings("unchecked")
+    protected void rehash(final int newN) {
+        final long key[] = this.key;
+        final V value[] = this.value;
+        final int mask = newN - 1; // Note that this is used by the hashing
+        // macro
+        final long newKey[] = new long[newN + 1];
+        final V newValue[] = (V[]) new Object[newN + 1];
+        int i = this.n, pos;
+        for (int j = this.realSize(); j-- != 0; ) {
+            while (((key[--i]) == (0))) ;
+            if (!((newKey[pos = (mix((key[i])))
+                    & mask]) == (0)))
+                while (!((newKey[pos = (pos + 1) & mask]) == (0)))
+                    ;
+            newKey[pos] = key[i];
+            newValue[pos] = value[i];
+        }
+        newValue[newN] = value[this.n];
+        this.n = newN;
+        this.mask = mask;
+        this.maxFill = maxFill(this.n, this.f);
+        this.key = newKey;
+        this.value = newValue;
+    }
+}
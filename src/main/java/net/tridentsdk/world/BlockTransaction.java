@@ -0,0 +1,289 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Substance;
+import net.tridentsdk.util.Long2ReferenceOpenHashMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A batch of block changes which is staged in memory and
+ * applied all at once, so that the work following a block
+ * change is done once per section or chunk rather than once
+ * per block.
+ *
+ * <p>Changes are buffered per chunk section. On
+ * {@link #commit(ObjIntConsumer) commit}, chunks are
+ * visited in order of their x then z coordinates, each
+ * staged section is written under a single lock, the height
+ * maps are updated once per changed column, and the
+ * listener is notified once per changed chunk with a mask
+ * of its changed sections, which is where implementations
+ * should send a single multi block change to the chunk's
+ * viewers. The changed blocks are marked in the world's
+ * {@link LightEngine}, which relights them together on its
+ * next update.</p>
+ *
+ * <p>Until then, nothing in the world changes, and the
+ * transaction may be {@link #rollback() rolled back}. A
+ * transaction is empty again after it is committed or
+ * rolled back, and may be reused. If a commit fails part
+ * way, every change stays staged, so that committing again
+ * finishes it.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@NotThreadSafe
+public class BlockTransaction {
+    /**
+     * Marks a staged entry which leaves its block unchanged
+     */
+    private static final int UNCHANGED = -1;
+
+    /**
+     * The staged changes to a single chunk.
+     */
+    private static final class Staged {
+        private final int x;
+        private final int z;
+        private final int[][] sections = new int[16][];
+
+        Staged(int x, int z) {
+            this.x = x;
+            this.z = z;
+        }
+    }
+
+    private final World world;
+    private final Long2ReferenceOpenHashMap<Staged> staged = new Long2ReferenceOpenHashMap<>();
+    private int size;
+
+    /**
+     * Creates a new transaction for the given world.
+     *
+     * @param world the world which the changes apply to
+     */
+    public BlockTransaction(World world) {
+        this.world = world;
+    }
+
+    /**
+     * Obtains the world which this transaction changes.
+     *
+     * @return the world
+     */
+    public World getWorld() {
+        return this.world;
+    }
+
+    /**
+     * Stages a change of the block at the given coordinates
+     * to the given state, replacing any change already
+     * staged for it.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @param state the new state id
+     * @return this transaction
+     */
+    public BlockTransaction set(int x, int y, int z, int state) {
+        if (y < 0 || y > 255) {
+            throw new IllegalArgumentException("y out of range: " + y);
+        }
+        if (state < 0 || state >= 1 << ChunkSection.GLOBAL_BITS) {
+            throw new IllegalArgumentException("Invalid state id " + state);
+        }
+
+        int cx = x >> 4;
+        int cz = z >> 4;
+        long key = IntPair.pack(cx, cz);
+        Staged chunk = this.staged.get(key);
+        if (chunk == null) {
+            chunk = new Staged(cx, cz);
+            this.staged.put(key, chunk);
+        }
+
+        int[] section = chunk.sections[y >> 4];
+        if (section == null) {
+            section = new int[ChunkSection.VOLUME];
+            Arrays.fill(section, UNCHANGED);
+            chunk.sections[y >> 4] = section;
+        }
+
+        int index = ChunkSection.index(x & 15, y & 15, z & 15);
+        if (section[index] == UNCHANGED) {
+            this.size++;
+        }
+        section[index] = state;
+        return this;
+    }
+
+    /**
+     * Stages a change of the block at the given coordinates
+     * to the given substance and data.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @param substance the new substance
+     * @param data the new data
+     * @return this transaction
+     */
+    public BlockTransaction set(int x, int y, int z, Substance substance, byte data) {
+        return this.set(x, y, z, ChunkSection.stateId(substance, data));
+    }
+
+    /**
+     * Obtains the state of the block at the given
+     * coordinates as it will be once this transaction is
+     * committed.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return the staged state id, or the current one if no
+     * change is staged
+     */
+    public int getStateId(int x, int y, int z) {
+        if (y < 0 || y > 255) {
+            throw new IllegalArgumentException("y out of range: " + y);
+        }
+
+        Staged chunk = this.staged.get(IntPair.pack(x >> 4, z >> 4));
+        if (chunk != null) {
+            int[] section = chunk.sections[y >> 4];
+            if (section != null) {
+                int state = section[ChunkSection.index(x & 15, y & 15, z & 15)];
+                if (state != UNCHANGED) {
+                    return state;
+                }
+            }
+        }
+        return this.world.getStateIdAt(x, y, z);
+    }
+
+    /**
+     * Obtains the number of blocks with a staged change.
+     *
+     * @return the number of staged blocks
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Discards every staged change.
+     */
+    public void rollback() {
+        this.staged.clear();
+        this.size = 0;
+    }
+
+    /**
+     * Applies every staged change.
+     */
+    public void commit() {
+        this.commit(null);
+    }
+
+    /**
+     * Applies every staged change, then notifies the given
+     * listener once for every chunk which has changed, along
+     * with a mask of its changed sections.
+     *
+     * @param listener the listener to notify after each
+     * chunk is written, or {@code null}
+     */
+    public void commit(@Nullable ObjIntConsumer<Chunk> listener) {
+        Staged[] chunks = new Staged[this.staged.size()];
+        int[] count = new int[1];
+        this.staged.forEach((k, v) -> chunks[count[0]++] = v);
+        Arrays.sort(chunks, (a, b) -> a.x != b.x ? Integer.compare(a.x, b.x) : Integer.compare(a.z, b.z));
+
+        LightEngine light = this.world.getLightEngine();
+        boolean[] columns = new boolean[256];
+        for (Staged staged : chunks) {
+            Chunk chunk = this.world.getChunkAt(staged.x, staged.z);
+            int mask = 0;
+            for (int sy = 0; sy < 16; sy++) {
+                int[] states = staged.sections[sy];
+                if (states == null) {
+                    continue;
+                }
+
+                ChunkSection section = chunk.getSection(sy);
+                if (section == null) {
+                    // Goes through setStateAt, which keeps the
+                    // height maps up to date
+                    for (int i = 0; i < ChunkSection.VOLUME; i++) {
+                        int state = states[i];
+                        if (state != UNCHANGED) {
+                            int x = i & 15;
+                            int y = sy << 4 | i >> 8;
+                            int z = i >> 4 & 15;
+                            if (chunk.getStateIdAt(x, y, z) != state) {
+                                chunk.setStateAt(x, y, z, state);
+                                mask |= 1 << sy;
+                                if (light != null) {
+                                    light.markChanged(staged.x << 4 | x, y, staged.z << 4 | z);
+                                }
+                            }
+                        }
+                    }
+                    continue;
+                }
+
+                if (section.setStateIds(states)) {
+                    mask |= 1 << sy;
+                    Arrays.fill(columns, false);
+                    for (int i = 0; i < ChunkSection.VOLUME; i++) {
+                        if (states[i] != UNCHANGED) {
+                            columns[i & 255] = true;
+                            if (light != null) {
+                                light.markChanged(staged.x << 4 | i & 15, sy << 4 | i >> 8,
+                                        staged.z << 4 | i >> 4 & 15);
+                            }
+                        }
+                    }
+
+                    for (HeightMap.Type type : HeightMap.Type.values()) {
+                        HeightMap map = chunk.getHeightMap(type);
+                        if (map != null) {
+                            for (int c = 0; c < 256; c++) {
+                                if (columns[c]) {
+                                    map.updateColumn(chunk, c & 15, c >> 4, sy << 4, sy << 4 | 15);
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+
+            if (mask != 0 && listener != null) {
+                listener.accept(chunk, mask);
+            }
+        }
+
+        this.rollback();
+    }
+}
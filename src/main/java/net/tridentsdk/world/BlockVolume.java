@@ -0,0 +1,358 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * A cuboid of blocks in a world which can be read and
+ * written in bulk as packed state ids, as defined by
+ * {@link ChunkSection#stateId(net.tridentsdk.base.Substance, byte)}.
+ *
+ * <p>State arrays are laid out in YZX order, the state of
+ * the block at {@code (x, y, z)} being at
+ * {@link #indexOf(int, int, int)}. Bulk operations visit
+ * each chunk covered by the volume once, and each chunk
+ * section within it once, so that locks are taken once
+ * per section rather than once per block.</p>
+ *
+ * <p>Operations on a volume are not atomic as a whole;
+ * each chunk is updated on its own. The blocks of every
+ * changed section are marked in the world's
+ * {@link LightEngine}, which relights them on its next
+ * update.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@Immutable
+public final class BlockVolume {
+    /**
+     * The world containing this volume
+     */
+    private final World world;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+
+    /**
+     * Creates a new volume between the two given corners,
+     * inclusive. The y coordinates are clamped to the
+     * height of the world.
+     *
+     * @param world the world containing the blocks
+     * @param x1 the x coordinate of the first corner
+     * @param y1 the y coordinate of the first corner
+     * @param z1 the z coordinate of the first corner
+     * @param x2 the x coordinate of the second corner
+     * @param y2 the y coordinate of the second corner
+     * @param z2 the z coordinate of the second corner
+     */
+    public BlockVolume(World world, int x1, int y1, int z1, int x2, int y2, int z2) {
+        this.world = world;
+        this.minX = Math.min(x1, x2);
+        this.minY = Math.max(0, Math.min(y1, y2));
+        this.minZ = Math.min(z1, z2);
+        this.maxX = Math.max(x1, x2);
+        this.maxY = Math.min(255, Math.max(y1, y2));
+        this.maxZ = Math.max(z1, z2);
+        if (this.minY > this.maxY) {
+            throw new IllegalArgumentException("Volume lies outside of the world height");
+        }
+    }
+
+    /**
+     * Obtains the world containing this volume.
+     *
+     * @return the world
+     */
+    public World getWorld() {
+        return this.world;
+    }
+
+    /**
+     * Obtains the smallest x coordinate of this volume, inclusive.
+     *
+     * @return the smallest x coordinate
+     */
+    public int getMinX() {
+        return this.minX;
+    }
+
+    /**
+     * Obtains the smallest y coordinate of this volume, inclusive.
+     *
+     * @return the smallest y coordinate
+     */
+    public int getMinY() {
+        return this.minY;
+    }
+
+    /**
+     * Obtains the smallest z coordinate of this volume, inclusive.
+     *
+     * @return the smallest z coordinate
+     */
+    public int getMinZ() {
+        return this.minZ;
+    }
+
+    /**
+     * Obtains the largest x coordinate of this volume, inclusive.
+     *
+     * @return the largest x coordinate
+     */
+    public int getMaxX() {
+        return this.maxX;
+    }
+
+    /**
+     * Obtains the largest y coordinate of this volume, inclusive.
+     *
+     * @return the largest y coordinate
+     */
+    public int getMaxY() {
+        return this.maxY;
+    }
+
+    /**
+     * Obtains the largest z coordinate of this volume, inclusive.
+     *
+     * @return the largest z coordinate
+     */
+    public int getMaxZ() {
+        return this.maxZ;
+    }
+
+    /**
+     * Obtains the length along the x axis of this volume.
+     *
+     * @return the length
+     */
+    public int getSizeX() {
+        return this.maxX - this.minX + 1;
+    }
+
+    /**
+     * Obtains the height of this volume.
+     *
+     * @return the height
+     */
+    public int getSizeY() {
+        return this.maxY - this.minY + 1;
+    }
+
+    /**
+     * Obtains the length along the z axis of this volume.
+     *
+     * @return the length
+     */
+    public int getSizeZ() {
+        return this.maxZ - this.minZ + 1;
+    }
+
+    /**
+     * Obtains the number of blocks in this volume, which is
+     * the length of its state arrays.
+     *
+     * @return the number of blocks
+     */
+    public int getVolume() {
+        long volume = (long) this.getSizeX() * this.getSizeY() * this.getSizeZ();
+        if (volume > Integer.MAX_VALUE) {
+            throw new IllegalStateException("Volume is too large: " + volume);
+        }
+        return (int) volume;
+    }
+
+    /**
+     * Obtains the index in a state array of the block at the
+     * given world coordinates.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return the index of the block
+     */
+    public int indexOf(int x, int y, int z) {
+        return ((y - this.minY) * this.getSizeZ() + z - this.minZ) * this.getSizeX() + x - this.minX;
+    }
+
+    /**
+     * Determines whether the given coordinates lie in this
+     * volume.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return {@code true} if the block is in this volume
+     */
+    public boolean contains(int x, int y, int z) {
+        return x >= this.minX && x <= this.maxX &&
+                y >= this.minY && y <= this.maxY &&
+                z >= this.minZ && z <= this.maxZ;
+    }
+
+    /**
+     * Reads the states of every block in this volume into a
+     * new array.
+     *
+     * @return the states of the blocks
+     */
+    public int[] read() {
+        int[] states = new int[this.getVolume()];
+        this.read(states);
+        return states;
+    }
+
+    /**
+     * Reads the states of every block in this volume into
+     * the given array, so that it may be reused.
+     *
+     * @param states the array to read into, at least
+     * {@link #getVolume()} long
+     */
+    public void read(int[] states) {
+        this.checkLength(states);
+        int strideZ = this.getSizeX();
+        int strideY = strideZ * this.getSizeZ();
+        for (int cx = this.minX >> 4; cx <= this.maxX >> 4; cx++) {
+            int x0 = Math.max(this.minX, cx << 4);
+            int x1 = Math.min(this.maxX, (cx << 4) + 15);
+            for (int cz = this.minZ >> 4; cz <= this.maxZ >> 4; cz++) {
+                int z0 = Math.max(this.minZ, cz << 4);
+                int z1 = Math.min(this.maxZ, (cz << 4) + 15);
+
+                Chunk chunk = this.world.getChunkAt(cx, cz);
+                chunk.readStates(x0 & 15, this.minY, z0 & 15, x1 & 15, this.maxY, z1 & 15,
+                        states, this.indexOf(x0, this.minY, z0), strideY, strideZ);
+            }
+        }
+    }
+
+    /**
+     * Sets the states of every block in this volume.
+     *
+     * @param states the new states of the blocks
+     */
+    public void write(int[] states) {
+        this.write(states, null);
+    }
+
+    /**
+     * Sets the states of every block in this volume, then
+     * notifies the given listener once for every chunk which
+     * has changed, along with a mask of its changed
+     * sections.
+     *
+     * @param states the new states of the blocks
+     * @param listener the listener to notify after every
+     * chunk is written, or {@code null}
+     */
+    public void write(int[] states, @Nullable ObjIntConsumer<Chunk> listener) {
+        this.checkLength(states);
+        this.apply(states, 0, listener);
+    }
+
+    /**
+     * Sets every block in this volume to the given state.
+     *
+     * @param state the new state id
+     */
+    public void fill(int state) {
+        this.fill(state, null);
+    }
+
+    /**
+     * Sets every block in this volume to the given state,
+     * then notifies the given listener once for every chunk
+     * which has changed, along with a mask of its changed
+     * sections.
+     *
+     * @param state the new state id
+     * @param listener the listener to notify after every
+     * chunk is written, or {@code null}
+     */
+    public void fill(int state, @Nullable ObjIntConsumer<Chunk> listener) {
+        this.apply(null, state, listener);
+    }
+
+    /**
+     * Writes either the given states or the given fill
+     * state to each chunk in turn, deferring notification
+     * until every chunk has been written.
+     */
+    private void apply(@Nullable int[] states, int state, @Nullable ObjIntConsumer<Chunk> listener) {
+        int strideZ = this.getSizeX();
+        int strideY = strideZ * this.getSizeZ();
+        int chunksX = (this.maxX >> 4) - (this.minX >> 4) + 1;
+        int chunksZ = (this.maxZ >> 4) - (this.minZ >> 4) + 1;
+        Chunk[] chunks = listener == null ? null : new Chunk[chunksX * chunksZ];
+        int[] masks = listener == null ? null : new int[chunksX * chunksZ];
+        int count = 0;
+        LightEngine light = this.world.getLightEngine();
+
+        for (int cx = this.minX >> 4; cx <= this.maxX >> 4; cx++) {
+            int x0 = Math.max(this.minX, cx << 4);
+            int x1 = Math.min(this.maxX, (cx << 4) + 15);
+            for (int cz = this.minZ >> 4; cz <= this.maxZ >> 4; cz++) {
+                int z0 = Math.max(this.minZ, cz << 4);
+                int z1 = Math.min(this.maxZ, (cz << 4) + 15);
+
+                Chunk chunk = this.world.getChunkAt(cx, cz);
+                int mask = states == null ?
+                        chunk.fillStates(x0 & 15, this.minY, z0 & 15, x1 & 15, this.maxY, z1 & 15, state) :
+                        chunk.writeStates(x0 & 15, this.minY, z0 & 15, x1 & 15, this.maxY, z1 & 15,
+                                states, this.indexOf(x0, this.minY, z0), strideY, strideZ);
+                if (mask != 0 && light != null) {
+                    for (int sy = 0; sy < 16; sy++) {
+                        if ((mask & 1 << sy) != 0) {
+                            light.markChanged(x0, Math.max(this.minY, sy << 4), z0,
+                                    x1, Math.min(this.maxY, sy << 4 | 15), z1);
+                        }
+                    }
+                }
+                if (mask != 0 && listener != null) {
+                    chunks[count] = chunk;
+                    masks[count++] = mask;
+                }
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            listener.accept(chunks[i], masks[i]);
+        }
+    }
+
+    private void checkLength(int[] states) {
+        if (states.length < this.getVolume()) {
+            throw new IllegalArgumentException("Array of length " + states.length +
+                    " is too short for volume " + this.getVolume());
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "BlockVolume{" + this.minX + "," + this.minY + "," + this.minZ + " -> " +
+                this.maxX + "," + this.maxY + "," + this.maxZ + "}";
+    }
+}
@@ -17,10 +17,12 @@
 package net.tridentsdk.world;
 
 import net.tridentsdk.base.Block;
+import net.tridentsdk.base.Substance;
 import net.tridentsdk.entity.Entity;
 import net.tridentsdk.entity.living.Player;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Set;
 import java.util.stream.Stream;
 
@@ -61,6 +63,355 @@ public interface Chunk {
     @Nonnull
     Block getBlockAt(int x, int y, int z);
 
+    /**
+     * Obtains the state id, as defined by
+     * {@link ChunkSection#stateId(Substance, byte)}, of the
+     * block at the given relative coordinates without
+     * creating a {@link Block} object.
+     *
+     * <p>The default implementation goes through
+     * {@link #getBlockAt(int, int, int)}, implementations
+     * should override it to read their block storage
+     * directly.</p>
+     *
+     * @param x the relative x coordinate
+     * @param y the relative y coordinate
+     * @param z the relative z coordinate
+     * @return the state id of the block
+     */
+    default int getStateIdAt(int x, int y, int z) {
+        Block block = this.getBlockAt(x, y, z);
+        return ChunkSection.stateId(block.getSubstance(), block.getData());
+    }
+
+    /**
+     * Obtains the substance of the block at the given
+     * relative coordinates without creating a
+     * {@link Block} object.
+     *
+     * @param x the relative x coordinate
+     * @param y the relative y coordinate
+     * @param z the relative z coordinate
+     * @return the substance of the block
+     */
+    default Substance getSubstanceAt(int x, int y, int z) {
+        return ChunkSection.substanceOf(this.getStateIdAt(x, y, z));
+    }
+
+    /**
+     * Obtains the data of the block at the given relative
+     * coordinates without creating a {@link Block} object.
+     *
+     * @param x the relative x coordinate
+     * @param y the relative y coordinate
+     * @param z the relative z coordinate
+     * @return the data of the block
+     */
+    default byte getDataAt(int x, int y, int z) {
+        return ChunkSection.dataOf(this.getStateIdAt(x, y, z));
+    }
+
+    /**
+     * Sets the state id of the block at the given relative
+     * coordinates without creating a {@link Block} object.
+     *
+     * <p>The default implementation goes through
+     * {@link #getBlockAt(int, int, int)} and then updates
+     * the {@link #getHeightMap(HeightMap.Type) height maps},
+     * implementations should override it to write their
+     * block storage directly.</p>
+     *
+     * @param x the relative x coordinate
+     * @param y the relative y coordinate
+     * @param z the relative z coordinate
+     * @param state the new state id
+     */
+    default void setStateAt(int x, int y, int z, int state) {
+        this.getBlockAt(x, y, z).setSubstanceData(ChunkSection.substanceOf(state), ChunkSection.dataOf(state));
+        for (HeightMap.Type type : HeightMap.Type.values()) {
+            HeightMap map = this.getHeightMap(type);
+            if (map != null) {
+                map.update(this, x, y, z, state);
+            }
+        }
+    }
+
+    /**
+     * Obtains the section of this chunk which holds the
+     * blocks with y coordinates from {@code sectionY * 16}
+     * to {@code sectionY * 16 + 15}.
+     *
+     * <p>The default implementation returns {@code null},
+     * in which case the bulk methods of this chunk fall back
+     * to accessing blocks one by one.</p>
+     *
+     * @param sectionY the section index, from 0 to 15
+     * @return the section, or {@code null} if this chunk is
+     * not backed by {@link ChunkSection}s
+     */
+    @Nullable
+    default ChunkSection getSection(int sectionY) {
+        return null;
+    }
+
+    /**
+     * Copies the state ids of the blocks in the given box
+     * of relative coordinates into the given array. The
+     * block at {@code (x, y, z)} is copied to index
+     * {@code offset + (y - y0) * strideY + (z - z0) * strideZ + (x - x0)}.
+     *
+     * <p>The default implementation reads every section
+     * under a single lock acquisition if
+     * {@link #getSection(int)} is available.</p>
+     *
+     * @param x0 the smallest relative x coordinate
+     * @param y0 the smallest y coordinate
+     * @param z0 the smallest relative z coordinate
+     * @param x1 the largest relative x coordinate, inclusive
+     * @param y1 the largest y coordinate, inclusive
+     * @param z1 the largest relative z coordinate, inclusive
+     * @param out the array to copy to
+     * @param offset the index of the first block
+     * @param strideY the distance between two y levels
+     * @param strideZ the distance between two z rows
+     */
+    default void readStates(int x0, int y0, int z0, int x1, int y1, int z1,
+                            int[] out, int offset, int strideY, int strideZ) {
+        for (int sy = y0 >> 4; sy <= y1 >> 4; sy++) {
+            int lo = Math.max(y0, sy << 4);
+            int hi = Math.min(y1, (sy << 4) + 15);
+            int base = offset + (lo - y0) * strideY;
+
+            ChunkSection section = this.getSection(sy);
+            if (section != null) {
+                section.getStateIds(x0, lo & 15, z0, x1, hi & 15, z1, out, base, strideY, strideZ);
+                continue;
+            }
+
+            for (int y = lo; y <= hi; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    int idx = base + (y - lo) * strideY + (z - z0) * strideZ;
+                    for (int x = x0; x <= x1; x++) {
+                        out[idx++] = this.getStateIdAt(x, y, z);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Sets the state ids of the blocks in the given box of
+     * relative coordinates from the given array, laid out as
+     * described by
+     * {@link #readStates(int, int, int, int, int, int, int[], int, int, int)}.
+     *
+     * <p>Implementations should send the changes to the
+     * players in this chunk once per call rather than once
+     * per block. The default implementation updates the
+     * height maps once per column after writing.</p>
+     *
+     * @param x0 the smallest relative x coordinate
+     * @param y0 the smallest y coordinate
+     * @param z0 the smallest relative z coordinate
+     * @param x1 the largest relative x coordinate, inclusive
+     * @param y1 the largest y coordinate, inclusive
+     * @param z1 the largest relative z coordinate, inclusive
+     * @param in the array of new states
+     * @param offset the index of the first block
+     * @param strideY the distance between two y levels
+     * @param strideZ the distance between two z rows
+     * @return a mask with bit {@code n} set if section
+     * {@code n} has changed
+     */
+    default int writeStates(int x0, int y0, int z0, int x1, int y1, int z1,
+                            int[] in, int offset, int strideY, int strideZ) {
+        int changed = 0;
+        for (int sy = y0 >> 4; sy <= y1 >> 4; sy++) {
+            int lo = Math.max(y0, sy << 4);
+            int hi = Math.min(y1, (sy << 4) + 15);
+            int base = offset + (lo - y0) * strideY;
+
+            ChunkSection section = this.getSection(sy);
+            if (section != null) {
+                if (section.setStateIds(x0, lo & 15, z0, x1, hi & 15, z1, in, base, strideY, strideZ)) {
+                    changed |= 1 << sy;
+                }
+                continue;
+            }
+
+            for (int y = lo; y <= hi; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    int idx = base + (y - lo) * strideY + (z - z0) * strideZ;
+                    for (int x = x0; x <= x1; x++) {
+                        int state = in[idx++];
+                        if (this.getStateIdAt(x, y, z) != state) {
+                            this.setStateAt(x, y, z, state);
+                            changed |= 1 << sy;
+                        }
+                    }
+                }
+            }
+        }
+        if (changed != 0) {
+            for (HeightMap.Type type : HeightMap.Type.values()) {
+                HeightMap map = this.getHeightMap(type);
+                if (map != null) {
+                    for (int z = z0; z <= z1; z++) {
+                        for (int x = x0; x <= x1; x++) {
+                            map.updateColumn(this, x, z, y0, y1);
+                        }
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Sets every block in the given box of relative
+     * coordinates to the given state id.
+     *
+     * @param x0 the smallest relative x coordinate
+     * @param y0 the smallest y coordinate
+     * @param z0 the smallest relative z coordinate
+     * @param x1 the largest relative x coordinate, inclusive
+     * @param y1 the largest y coordinate, inclusive
+     * @param z1 the largest relative z coordinate, inclusive
+     * @param state the new state id
+     * @return a mask with bit {@code n} set if section
+     * {@code n} has changed
+     */
+    default int fillStates(int x0, int y0, int z0, int x1, int y1, int z1, int state) {
+        int changed = 0;
+        for (int sy = y0 >> 4; sy <= y1 >> 4; sy++) {
+            int lo = Math.max(y0, sy << 4);
+            int hi = Math.min(y1, (sy << 4) + 15);
+
+            ChunkSection section = this.getSection(sy);
+            if (section != null) {
+                if (section.fill(x0, lo & 15, z0, x1, hi & 15, z1, state)) {
+                    changed |= 1 << sy;
+                }
+                continue;
+            }
+
+            for (int y = lo; y <= hi; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    for (int x = x0; x <= x1; x++) {
+                        if (this.getStateIdAt(x, y, z) != state) {
+                            this.setStateAt(x, y, z, state);
+                            changed |= 1 << sy;
+                        }
+                    }
+                }
+            }
+        }
+        if (changed != 0) {
+            for (HeightMap.Type type : HeightMap.Type.values()) {
+                HeightMap map = this.getHeightMap(type);
+                if (map != null) {
+                    for (int z = z0; z <= z1; z++) {
+                        for (int x = x0; x <= x1; x++) {
+                            map.updateColumn(this, x, z, y0, y1);
+                        }
+                    }
+                }
+            }
+        }
+        return changed;
+    }
+
+    /**
+     * Obtains the height map of the given type kept by this
+     * chunk.
+     *
+     * <p>The default implementation returns {@code null},
+     * in which case heights are found by scanning the
+     * column.</p>
+     *
+     * @param type the type of height map
+     * @return the height map, or {@code null} if this chunk
+     * does not keep one of the given type
+     */
+    @Nullable
+    default HeightMap getHeightMap(HeightMap.Type type) {
+        return null;
+    }
+
+    /**
+     * Obtains the y coordinate of the highest block in the
+     * given column which counts for the given type of height
+     * map, in constant time if this chunk keeps that map.
+     *
+     * @param x the relative x coordinate
+     * @param z the relative z coordinate
+     * @param type the type of height map
+     * @return the highest y, or {@code -1} if no block in
+     * the column counts
+     */
+    default int getHighestY(int x, int z, HeightMap.Type type) {
+        HeightMap map = this.getHeightMap(type);
+        if (map != null) {
+            return map.getHighestY(x, z);
+        }
+
+        for (int y = 255; y >= 0; y--) {
+            if (type.counts(this.getStateIdAt(x, y, z))) {
+                return y;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Checks whether this chunk has changed since it was
+     * last saved.
+     *
+     * <p>The default implementation checks the dirty flags
+     * of the {@link #getSection(int) sections}, and assumes
+     * the chunk is dirty if it has none. Implementations
+     * which also track entity and metadata changes should
+     * override it.</p>
+     *
+     * @return {@code true} if this chunk needs saving
+     */
+    default boolean isDirty() {
+        for (int sy = 0; sy < 16; sy++) {
+            ChunkSection section = this.getSection(sy);
+            if (section == null || section.isDirty()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Marks this chunk as needing to be saved, for example
+     * after a save of it has failed.
+     */
+    default void markDirty() {
+        for (int sy = 0; sy < 16; sy++) {
+            ChunkSection section = this.getSection(sy);
+            if (section != null) {
+                section.markDirty();
+            }
+        }
+    }
+
+    /**
+     * Marks this chunk as saved. This is called before the
+     * chunk is copied for saving, so that any change made
+     * while copying marks it dirty again.
+     */
+    default void clearDirty() {
+        for (int sy = 0; sy < 16; sy++) {
+            ChunkSection section = this.getSection(sy);
+            if (section != null) {
+                section.clearDirty();
+            }
+        }
+    }
+
     /**
      * Obtains the world which contains this chunk.
      *
@@ -0,0 +1,376 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.util.Long2ReferenceOpenHashMap;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.IntBinaryOperator;
+
+/**
+ * A queue of chunks waiting to be loaded or generated by a
+ * pool of I/O threads, which backs
+ * {@link World#getChunkAtAsync(int, int, boolean, Priority)}.
+ *
+ * <p>Requests are ordered first by their {@link Priority},
+ * then by their distance as given by the
+ * {@link #setDistanceFunction(IntBinaryOperator) distance
+ * function}, then by the order in which they were made.
+ * Requesting a chunk which is already queued does not load
+ * it twice, but moves the pending request ahead if the new
+ * request is more urgent.</p>
+ *
+ * <p>Each call returns its own future. Cancelling it only
+ * drops the request once every caller waiting on that chunk
+ * has cancelled and the chunk has not begun loading.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@ThreadSafe
+public class ChunkLoadQueue {
+    /**
+     * The urgency of a chunk load request, from most to
+     * least urgent.
+     */
+    public enum Priority {
+        /**
+         * A chunk which a player is waiting on, such as the
+         * destination of a teleport
+         */
+        URGENT,
+        /**
+         * A chunk which is about to be needed
+         */
+        HIGH,
+        /**
+         * A chunk with no particular urgency
+         */
+        NORMAL,
+        /**
+         * A chunk which may be needed in the future, such as
+         * one which is being prefetched
+         */
+        LOW
+    }
+
+    /**
+     * Loads a chunk synchronously on an I/O thread.
+     */
+    @FunctionalInterface
+    public interface Loader {
+        /**
+         * Loads the chunk at the given coordinates.
+         *
+         * @param x the chunk x coordinate
+         * @param z the chunk z coordinate
+         * @param gen {@code true} to generate the chunk if it
+         * doesn't exist
+         * @return the chunk, or {@code null} if {@code gen}
+         * is {@code false} and no chunk is found
+         */
+        @Nullable
+        Chunk load(int x, int z, boolean gen);
+    }
+
+    /**
+     * The default number of I/O threads
+     */
+    public static final int DEFAULT_THREADS = Math.max(1, Runtime.getRuntime().availableProcessors() / 2);
+
+    private final Loader loader;
+    private final ThreadPoolExecutor executor;
+    private final AtomicLong sequence = new AtomicLong();
+    private volatile IntBinaryOperator distance = (x, z) -> 0;
+
+    private final Object lock = new Object();
+    @GuardedBy("lock")
+    private final Long2ReferenceOpenHashMap<Request> pending = new Long2ReferenceOpenHashMap<>();
+
+    /**
+     * Creates a new load queue using the default number of
+     * daemon I/O threads.
+     *
+     * @param loader the synchronous chunk loader
+     */
+    public ChunkLoadQueue(Loader loader) {
+        this(loader, DEFAULT_THREADS);
+    }
+
+    /**
+     * Creates a new load queue using the given number of
+     * daemon I/O threads.
+     *
+     * @param loader the synchronous chunk loader
+     * @param threads the number of I/O threads
+     */
+    public ChunkLoadQueue(Loader loader, int threads) {
+        this(loader, threads, new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(@Nonnull Runnable r) {
+                Thread thread = new Thread(r, "Trident - Chunk IO #" + this.count.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * Creates a new load queue using the given number of
+     * I/O threads, created by the given factory. Threads are
+     * started when needed and stop after a minute without
+     * any work.
+     *
+     * @param loader the synchronous chunk loader
+     * @param threads the number of I/O threads
+     * @param factory the factory creating the I/O threads
+     */
+    public ChunkLoadQueue(Loader loader, int threads, ThreadFactory factory) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("At least one I/O thread is required");
+        }
+
+        this.loader = loader;
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new PriorityBlockingQueue<>(), factory);
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Sets the function used to order requests of the same
+     * priority, given the coordinates of a chunk, such as
+     * the squared distance to the nearest player. Smaller
+     * values are loaded first. The distance of a request is
+     * computed when it is made.
+     *
+     * @param distance the distance function
+     */
+    public void setDistanceFunction(IntBinaryOperator distance) {
+        this.distance = distance;
+    }
+
+    /**
+     * Requests the chunk at the given coordinates to be
+     * loaded.
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     * @param gen {@code true} to generate the chunk if it
+     * doesn't exist
+     * @param priority the urgency of the request
+     * @return a future completed with the chunk, or with
+     * {@code null} if {@code gen} is {@code false} and no
+     * chunk is found
+     */
+    public CompletableFuture<Chunk> submit(int x, int z, boolean gen, Priority priority) {
+        CompletableFuture<Chunk> future = new CompletableFuture<>();
+        long key = IntPair.pack(x, z);
+        int distance = this.distance.applyAsInt(x, z);
+
+        Request request;
+        synchronized (this.lock) {
+            if (this.executor.isShutdown()) {
+                throw new RejectedExecutionException("Chunk load queue has been shut down");
+            }
+
+            request = this.pending.get(key);
+            if (request == null) {
+                request = new Request(x, z, key, gen, priority, distance, this.sequence.getAndIncrement());
+                request.waiters.add(future);
+                this.pending.put(key, request);
+                this.executor.execute(request);
+            } else {
+                request.waiters.add(future);
+                if (request.started) {
+                    request.upgrade |= gen && !request.gen;
+                } else {
+                    request.gen |= gen;
+                    if (priority.compareTo(request.priority) < 0 || distance < request.distance) {
+                        // Only re-order if still queued; a worker
+                        // may already have taken it
+                        if (this.executor.getQueue().remove(request)) {
+                            request.priority = priority.compareTo(request.priority) < 0 ? priority : request.priority;
+                            request.distance = Math.min(distance, request.distance);
+                            this.executor.execute(request);
+                        }
+                    }
+                }
+            }
+        }
+
+        Request r = request;
+        future.whenComplete((c, t) -> {
+            if (future.isCancelled()) {
+                this.cancel(r, future);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Obtains the number of chunks which are waiting to be
+     * loaded or are being loaded.
+     *
+     * @return the number of pending chunks
+     */
+    public int getPendingCount() {
+        synchronized (this.lock) {
+            return this.pending.size();
+        }
+    }
+
+    /**
+     * Stops the I/O threads, cancelling every request which
+     * has not begun loading.
+     */
+    public void shutdown() {
+        List<Runnable> dropped;
+        synchronized (this.lock) {
+            dropped = this.executor.shutdownNow();
+        }
+
+        for (Runnable runnable : dropped) {
+            Request request = (Request) runnable;
+            List<CompletableFuture<Chunk>> waiters;
+            synchronized (this.lock) {
+                this.pending.remove(request.key);
+                waiters = new ArrayList<>(request.waiters);
+            }
+
+            for (CompletableFuture<Chunk> waiter : waiters) {
+                waiter.cancel(false);
+            }
+        }
+    }
+
+    /**
+     * Removes a cancelled waiter, dropping the request if
+     * nobody else is waiting on it and it has not started.
+     */
+    private void cancel(Request request, CompletableFuture<Chunk> future) {
+        synchronized (this.lock) {
+            request.waiters.remove(future);
+            if (request.waiters.isEmpty() && !request.started) {
+                this.executor.getQueue().remove(request);
+                if (this.pending.get(request.key) == request) {
+                    this.pending.remove(request.key);
+                }
+            }
+        }
+    }
+
+    /**
+     * A pending load of a single chunk, shared by every
+     * caller requesting it.
+     */
+    private final class Request implements Runnable, Comparable<Request> {
+        private final int x;
+        private final int z;
+        private final long key;
+        private final long sequence;
+        @GuardedBy("lock")
+        private final List<CompletableFuture<Chunk>> waiters = new ArrayList<>(1);
+        @GuardedBy("lock")
+        private boolean gen;
+        @GuardedBy("lock")
+        private boolean started;
+        @GuardedBy("lock")
+        private boolean upgrade;
+        // Only modified while not in the executor queue
+        private Priority priority;
+        private int distance;
+
+        Request(int x, int z, long key, boolean gen, Priority priority, int distance, long sequence) {
+            this.x = x;
+            this.z = z;
+            this.key = key;
+            this.gen = gen;
+            this.priority = priority;
+            this.distance = distance;
+            this.sequence = sequence;
+        }
+
+        @Override
+        public void run() {
+            ChunkLoadQueue queue = ChunkLoadQueue.this;
+            boolean gen;
+            synchronized (queue.lock) {
+                if (this.waiters.isEmpty()) {
+                    return;
+                }
+
+                this.started = true;
+                gen = this.gen;
+            }
+
+            Chunk chunk = null;
+            Throwable error = null;
+            try {
+                chunk = queue.loader.load(this.x, this.z, gen);
+            } catch (Throwable t) {
+                error = t;
+            }
+
+            List<CompletableFuture<Chunk>> waiters;
+            synchronized (queue.lock) {
+                if (chunk == null && error == null && this.upgrade && !queue.executor.isShutdown()) {
+                    // Someone asked for generation after the
+                    // load began, so try again
+                    this.gen = true;
+                    this.upgrade = false;
+                    this.started = false;
+                    queue.executor.execute(this);
+                    return;
+                }
+
+                if (queue.pending.get(this.key) == this) {
+                    queue.pending.remove(this.key);
+                }
+                waiters = new ArrayList<>(this.waiters);
+            }
+
+            for (CompletableFuture<Chunk> waiter : waiters) {
+                if (error == null) {
+                    waiter.complete(chunk);
+                } else {
+                    waiter.completeExceptionally(error);
+                }
+            }
+        }
+
+        @Override
+        public int compareTo(@Nonnull Request o) {
+            int c = this.priority.compareTo(o.priority);
+            if (c != 0) {
+                return c;
+            }
+
+            c = Integer.compare(this.distance, o.distance);
+            return c != 0 ? c : Long.compare(this.sequence, o.sequence);
+        }
+    }
+}
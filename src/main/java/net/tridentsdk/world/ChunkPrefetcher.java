@@ -0,0 +1,291 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Position;
+import net.tridentsdk.entity.Entity;
+import net.tridentsdk.util.Long2ReferenceOpenHashMap;
+import net.tridentsdk.world.ChunkLoadQueue.Priority;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Loads the chunks ahead of fast moving players, such as
+ * those flying with elytra or riding minecarts, before they
+ * come into view.
+ *
+ * <p>The velocity of each tracked entity is estimated from
+ * its position every time it is {@link #update(Entity)
+ * updated}, which should happen once per tick. When it moves
+ * faster than the minimum speed, the chunks in a cone along
+ * its heading, from the edge of the view distance up to the
+ * distance it is predicted to travel during the look ahead
+ * time, are submitted to a {@link ChunkLoadQueue} at
+ * {@link Priority#LOW}, nearest first. Requests which leave
+ * the cone because the entity turned or slowed down are
+ * cancelled.</p>
+ *
+ * <p>A prefetcher serves a single world, as the queue
+ * loads chunks from that world only. An entity which moves
+ * into another world stops being tracked, along with its
+ * requests. A move faster than any entity can travel in a
+ * tick is taken to be a teleport: the requests are
+ * cancelled and the velocity estimate starts over from the
+ * new position.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@ThreadSafe
+public class ChunkPrefetcher {
+    /**
+     * The weight of the latest movement in the velocity
+     * estimate
+     */
+    private static final double SMOOTHING = 0.5;
+    /**
+     * The tangent of the half angle of the cone, about 30
+     * degrees
+     */
+    private static final double SPREAD = 0.58;
+    /**
+     * The largest distance in blocks that an entity can
+     * move in a tick, the same limit past which the server
+     * rejects player movement as moving too quickly
+     */
+    private static final double MAX_SPEED = 10;
+
+    private final World world;
+    private final ChunkLoadQueue queue;
+    private final int viewDistance;
+    private final int lookahead;
+    private final int maxAhead;
+    private final double minSpeed;
+    private final boolean generate;
+    private final ConcurrentHashMap<Integer, Track> tracks = new ConcurrentHashMap<>();
+
+    /**
+     * Creates a new prefetcher which generates missing
+     * chunks, starts prefetching at sprinting speed, and
+     * looks ahead 5 seconds up to 16 chunks past the view
+     * distance.
+     *
+     * @param world the world which the queue loads from
+     * @param queue the queue to submit loads to
+     * @param viewDistance the view distance in chunks
+     */
+    public ChunkPrefetcher(World world, ChunkLoadQueue queue, int viewDistance) {
+        this(world, queue, viewDistance, 100, 16, 0.3, true);
+    }
+
+    /**
+     * Creates a new prefetcher.
+     *
+     * @param world the world which the queue loads from
+     * @param queue the queue to submit loads to
+     * @param viewDistance the view distance in chunks
+     * @param lookahead the number of ticks of movement to
+     * predict
+     * @param maxAhead the largest number of chunks past the
+     * view distance to prefetch
+     * @param minSpeed the speed in blocks per tick below
+     * which nothing is prefetched
+     * @param generate {@code true} to generate missing
+     * chunks rather than only load them
+     */
+    public ChunkPrefetcher(World world, ChunkLoadQueue queue, int viewDistance, int lookahead, int maxAhead,
+                           double minSpeed, boolean generate) {
+        this.world = world;
+        this.queue = queue;
+        this.viewDistance = viewDistance;
+        this.lookahead = lookahead;
+        this.maxAhead = maxAhead;
+        this.minSpeed = minSpeed;
+        this.generate = generate;
+    }
+
+    /**
+     * Obtains the world which this prefetcher loads chunks
+     * from.
+     *
+     * @return the world
+     */
+    public World getWorld() {
+        return this.world;
+    }
+
+    /**
+     * Samples the position of the given entity and updates
+     * the chunks prefetched for it. An entity which is not
+     * in the world of this prefetcher is
+     * {@link #remove(int) removed}.
+     *
+     * @param entity the entity to update
+     */
+    public void update(Entity entity) {
+        Position position = entity.getPosition();
+        if (position.getWorld() != this.world) {
+            this.remove(entity.getId());
+            return;
+        }
+
+        this.update(entity.getId(), position.getX(), position.getZ());
+    }
+
+    /**
+     * Samples the given position of the entity with the
+     * given id, which must be in the world of this
+     * prefetcher, and updates the chunks prefetched for it.
+     *
+     * @param id the entity id
+     * @param x the block x coordinate of the entity
+     * @param z the block z coordinate of the entity
+     */
+    public void update(int id, double x, double z) {
+        Track track = this.tracks.computeIfAbsent(id, k -> new Track(x, z));
+        synchronized (track) {
+            double vx = x - track.x;
+            double vz = z - track.z;
+            if (vx * vx + vz * vz > MAX_SPEED * MAX_SPEED) {
+                track.cancel();
+                track.x = x;
+                track.z = z;
+                track.vx = 0;
+                track.vz = 0;
+                return;
+            }
+
+            track.vx += (vx - track.vx) * SMOOTHING;
+            track.vz += (vz - track.vz) * SMOOTHING;
+            track.x = x;
+            track.z = z;
+
+            double speed = Math.sqrt(track.vx * track.vx + track.vz * track.vz);
+            if (speed < this.minSpeed) {
+                track.cancel();
+                return;
+            }
+
+            int ahead = Math.min(this.maxAhead, (int) Math.ceil(speed * this.lookahead / 16));
+            Long2ReferenceOpenHashMap<CompletableFuture<Chunk>> wanted = new Long2ReferenceOpenHashMap<>();
+            double dx = track.vx / speed;
+            double dz = track.vz / speed;
+            int cx = (int) Math.floor(x) >> 4;
+            int cz = (int) Math.floor(z) >> 4;
+
+            // Walk the axis of the cone one chunk at a time,
+            // widening the slice further away
+            for (int step = this.viewDistance + 1; step <= this.viewDistance + ahead; step++) {
+                double ax = dx * step;
+                double az = dz * step;
+                int half = (int) (step * SPREAD);
+                for (int side = 0; side <= half; side++) {
+                    for (int sign = side == 0 ? 1 : -1; sign <= 1; sign += 2) {
+                        int px = cx + (int) Math.round(ax - dz * side * sign);
+                        int pz = cz + (int) Math.round(az + dx * side * sign);
+                        long key = IntPair.pack(px, pz);
+                        if (wanted.containsKey(key)) {
+                            continue;
+                        }
+
+                        CompletableFuture<Chunk> future = track.requests.remove(key);
+                        if (future == null) {
+                            future = this.queue.submit(px, pz, this.generate, Priority.LOW);
+                        }
+                        wanted.put(key, future);
+                    }
+                }
+            }
+
+            // Whatever is left is no longer ahead
+            track.cancel();
+            track.requests = wanted;
+        }
+    }
+
+    /**
+     * Stops tracking the entity with the given id,
+     * cancelling its pending requests.
+     *
+     * @param id the entity id
+     */
+    public void remove(int id) {
+        Track track = this.tracks.remove(id);
+        if (track != null) {
+            synchronized (track) {
+                track.cancel();
+            }
+        }
+    }
+
+    /**
+     * Obtains the number of chunks which are being
+     * prefetched for the entity with the given id.
+     *
+     * @param id the entity id
+     * @return the number of unfinished requests
+     */
+    public int getPendingCount(int id) {
+        Track track = this.tracks.get(id);
+        if (track == null) {
+            return 0;
+        }
+
+        synchronized (track) {
+            int[] count = new int[1];
+            track.requests.forEach((k, f) -> {
+                if (!f.isDone()) {
+                    count[0]++;
+                }
+            });
+            return count[0];
+        }
+    }
+
+    /**
+     * The movement and requests of a single entity.
+     */
+    private static final class Track {
+        @GuardedBy("this")
+        private double x;
+        @GuardedBy("this")
+        private double z;
+        @GuardedBy("this")
+        private double vx;
+        @GuardedBy("this")
+        private double vz;
+        @GuardedBy("this")
+        private Long2ReferenceOpenHashMap<CompletableFuture<Chunk>> requests = new Long2ReferenceOpenHashMap<>();
+
+        Track(double x, double z) {
+            this.x = x;
+            this.z = z;
+        }
+
+        /**
+         * Cancels and forgets every request.
+         */
+        @GuardedBy("this")
+        void cancel() {
+            this.requests.forEach((key, future) -> future.cancel(false));
+            this.requests.clear();
+        }
+    }
+}
@@ -0,0 +1,849 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Substance;
+import net.tridentsdk.util.Int2ReferenceOpenHashMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.Arrays;
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * A 16x16x16 cube of blocks, which is the unit in which
+ * chunk columns store their blocks.
+ *
+ * <p>Blocks are stored as state ids, which combine the
+ * substance and data of a block as
+ * {@code substanceId << 4 | data}. Each section keeps a
+ * palette of the states that it contains, and stores every
+ * block as an index into that palette, packed into a
+ * {@code long[]} using as few bits as the palette needs.
+ * Once the palette grows past 256 states, state ids are
+ * stored directly instead. The packing is the same as the
+ * one used by the network protocol, so the palette and
+ * packed data can be sent as they are.</p>
+ *
+ * <p>Reads do not lock, they are validated against
+ * concurrent writes instead.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@ThreadSafe
+public class ChunkSection {
+    /**
+     * The length of each side of a section
+     */
+    public static final int WIDTH = 16;
+    /**
+     * The amount of blocks in a section
+     */
+    public static final int VOLUME = WIDTH * WIDTH * WIDTH;
+    /**
+     * The smallest amount of bits used per block
+     */
+    public static final int MIN_BITS = 4;
+    /**
+     * The largest amount of bits used per block while a
+     * palette is used
+     */
+    public static final int MAX_PALETTE_BITS = 8;
+    /**
+     * The amount of bits used per block when state ids are
+     * stored directly
+     */
+    public static final int GLOBAL_BITS = 13;
+    /**
+     * The state id of air
+     */
+    public static final int AIR = 0;
+
+    /**
+     * Lock guarding the storage
+     */
+    private final StampedLock lock = new StampedLock();
+    /**
+     * The current storage, which is replaced when its width
+     * changes
+     */
+    @GuardedBy("lock")
+    private Storage storage;
+    /**
+     * The amount of blocks which are not air
+     */
+    @GuardedBy("lock")
+    private int nonAir;
+    /**
+     * Whether a block changed since the last save
+     */
+    private volatile boolean dirty;
+    /**
+     * The light emitted by blocks, maintained by the
+     * {@link LightEngine}
+     */
+    private final NibbleArray blockLight = new NibbleArray();
+    /**
+     * The light from the sky, maintained by the
+     * {@link LightEngine}
+     */
+    private final NibbleArray skyLight = new NibbleArray();
+
+    /**
+     * Creates a new section filled with air.
+     */
+    public ChunkSection() {
+        this.storage = new Storage(MIN_BITS, true);
+        this.storage.add(AIR);
+    }
+
+    /**
+     * Combines the given substance and data into a state
+     * id.
+     *
+     * @param substance the block substance
+     * @param data the block data
+     * @return the state id
+     */
+    public static int stateId(Substance substance, byte data) {
+        return substance.getId() << 4 | data & 0xF;
+    }
+
+    /**
+     * Obtains the substance of the given state id.
+     *
+     * @param state the state id
+     * @return the substance
+     */
+    public static Substance substanceOf(int state) {
+        return Substance.fromNumericId(state >>> 4);
+    }
+
+    /**
+     * Obtains the data of the given state id.
+     *
+     * @param state the state id
+     * @return the data
+     */
+    public static byte dataOf(int state) {
+        return (byte) (state & 0xF);
+    }
+
+    /**
+     * Obtains the index of the given section relative
+     * coordinates, in the YZX order used by chunk data.
+     *
+     * @param x the x coordinate, 0-15
+     * @param y the y coordinate, 0-15
+     * @param z the z coordinate, 0-15
+     * @return the block index
+     */
+    public static int index(int x, int y, int z) {
+        return y << 8 | z << 4 | x;
+    }
+
+    /**
+     * Creates a section from the arrays used by the Anvil
+     * format.
+     *
+     * @param blocks the lower 8 bits of each substance id
+     * @param add the upper 4 bits of each substance id as
+     * nibbles, or {@code null} if they are all 0
+     * @param data the data of each block as nibbles
+     * @return the new section
+     */
+    public static ChunkSection fromLegacy(byte[] blocks, @Nullable byte[] add, byte[] data) {
+        ChunkSection section = new ChunkSection();
+        for (int i = 0; i < VOLUME; i++) {
+            int id = blocks[i] & 0xFF;
+            if (add != null) {
+                id |= nibble(add, i) << 8;
+            }
+
+            int state = id << 4 | nibble(data, i);
+            if (state != AIR) {
+                section.setStateId(i, state);
+            }
+        }
+        return section;
+    }
+
+    /**
+     * Writes the blocks of this section into the arrays
+     * used by the Anvil format.
+     *
+     * @param blocks the array receiving the lower 8 bits of
+     * each substance id
+     * @param add the array receiving the upper 4 bits of
+     * each substance id as nibbles, or {@code null} if they
+     * are not needed
+     * @param data the array receiving the data of each block
+     * as nibbles
+     */
+    public void toLegacy(byte[] blocks, @Nullable byte[] add, byte[] data) {
+        int[] states = new int[VOLUME];
+        this.getStateIds(states, 0);
+        Arrays.fill(data, (byte) 0);
+        if (add != null) {
+            Arrays.fill(add, (byte) 0);
+        }
+
+        for (int i = 0; i < VOLUME; i++) {
+            int state = states[i];
+            int id = state >>> 4;
+            blocks[i] = (byte) id;
+            if (add != null) {
+                add[i >> 1] |= (id >>> 8 & 0xF) << ((i & 1) << 2);
+            }
+            data[i >> 1] |= (state & 0xF) << ((i & 1) << 2);
+        }
+    }
+
+    /**
+     * Obtains the state id of the block at the given
+     * coordinates.
+     *
+     * @param x the x coordinate, 0-15
+     * @param y the y coordinate, 0-15
+     * @param z the z coordinate, 0-15
+     * @return the state id
+     */
+    public int getStateId(int x, int y, int z) {
+        return this.getStateId(index(x, y, z));
+    }
+
+    /**
+     * Obtains the state id of the block at the given
+     * index.
+     *
+     * @param index the block index
+     * @return the state id
+     */
+    public int getStateId(int index) {
+        long stamp = this.lock.tryOptimisticRead();
+        int state = this.storage.get(index);
+        if (this.lock.validate(stamp)) {
+            return state;
+        }
+
+        stamp = this.lock.readLock();
+        try {
+            return this.storage.get(index);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Copies the state ids of every block in this section
+     * into the given array, in block index order.
+     *
+     * @param out the array to copy to
+     * @param offset the index at which to start copying
+     */
+    public void getStateIds(int[] out, int offset) {
+        long stamp = this.lock.readLock();
+        try {
+            Storage s = this.storage;
+            for (int i = 0; i < VOLUME; i++) {
+                out[offset + i] = s.get(i);
+            }
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Obtains the substance of the block at the given
+     * coordinates.
+     *
+     * @param x the x coordinate, 0-15
+     * @param y the y coordinate, 0-15
+     * @param z the z coordinate, 0-15
+     * @return the substance
+     */
+    public Substance getSubstance(int x, int y, int z) {
+        return substanceOf(this.getStateId(index(x, y, z)));
+    }
+
+    /**
+     * Obtains the data of the block at the given
+     * coordinates.
+     *
+     * @param x the x coordinate, 0-15
+     * @param y the y coordinate, 0-15
+     * @param z the z coordinate, 0-15
+     * @return the data
+     */
+    public byte getData(int x, int y, int z) {
+        return dataOf(this.getStateId(index(x, y, z)));
+    }
+
+    /**
+     * Sets the state id of the block at the given
+     * coordinates.
+     *
+     * @param x the x coordinate, 0-15
+     * @param y the y coordinate, 0-15
+     * @param z the z coordinate, 0-15
+     * @param state the new state id
+     * @return the previous state id
+     */
+    public int setStateId(int x, int y, int z, int state) {
+        return this.setStateId(index(x, y, z), state);
+    }
+
+    /**
+     * Sets the state id of the block at the given index.
+     *
+     * @param index the block index
+     * @param state the new state id
+     * @return the previous state id
+     */
+    public int setStateId(int index, int state) {
+        checkState(state);
+
+        long stamp = this.lock.writeLock();
+        try {
+            return this.setLocked(index, state);
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sets the substance and data of the block at the given
+     * coordinates.
+     *
+     * @param x the x coordinate, 0-15
+     * @param y the y coordinate, 0-15
+     * @param z the z coordinate, 0-15
+     * @param substance the new substance
+     * @param data the new data
+     */
+    public void set(int x, int y, int z, Substance substance, byte data) {
+        this.setStateId(index(x, y, z), stateId(substance, data));
+    }
+
+    /**
+     * Copies the states of the blocks in the given box into
+     * the given array, taking the lock only once. The block
+     * at {@code (x, y, z)} is copied to index
+     * {@code offset + (y - y0) * strideY + (z - z0) * strideZ + (x - x0)}.
+     *
+     * @param x0 the smallest x coordinate, inclusive
+     * @param y0 the smallest y coordinate, inclusive
+     * @param z0 the smallest z coordinate, inclusive
+     * @param x1 the largest x coordinate, inclusive
+     * @param y1 the largest y coordinate, inclusive
+     * @param z1 the largest z coordinate, inclusive
+     * @param out the array to copy to
+     * @param offset the index of the first block
+     * @param strideY the distance between two y levels
+     * @param strideZ the distance between two z rows
+     */
+    public void getStateIds(int x0, int y0, int z0, int x1, int y1, int z1,
+                            int[] out, int offset, int strideY, int strideZ) {
+        long stamp = this.lock.readLock();
+        try {
+            Storage s = this.storage;
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    int idx = offset + (y - y0) * strideY + (z - z0) * strideZ;
+                    for (int x = x0, i = index(x0, y, z); x <= x1; x++, i++, idx++) {
+                        out[idx] = s.get(i);
+                    }
+                }
+            }
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Sets the states of the blocks in the given box from
+     * the given array, laid out as described by
+     * {@link #getStateIds(int, int, int, int, int, int, int[], int, int, int)},
+     * taking the lock only once.
+     *
+     * @param x0 the smallest x coordinate, inclusive
+     * @param y0 the smallest y coordinate, inclusive
+     * @param z0 the smallest z coordinate, inclusive
+     * @param x1 the largest x coordinate, inclusive
+     * @param y1 the largest y coordinate, inclusive
+     * @param z1 the largest z coordinate, inclusive
+     * @param in the array of new states
+     * @param offset the index of the first block
+     * @param strideY the distance between two y levels
+     * @param strideZ the distance between two z rows
+     * @return {@code true} if any block changed
+     */
+    public boolean setStateIds(int x0, int y0, int z0, int x1, int y1, int z1,
+                               int[] in, int offset, int strideY, int strideZ) {
+        long stamp = this.lock.writeLock();
+        try {
+            boolean changed = false;
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    int idx = offset + (y - y0) * strideY + (z - z0) * strideZ;
+                    for (int x = x0, i = index(x0, y, z); x <= x1; x++, i++, idx++) {
+                        int state = in[idx];
+                        checkState(state);
+                        changed |= this.setLocked(i, state) != state;
+                    }
+                }
+            }
+            return changed;
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sets the states of any blocks in this section from the
+     * given array, indexed as by
+     * {@link #index(int, int, int)}, taking the lock only
+     * once. Negative entries leave their block unchanged.
+     *
+     * @param states the new states, {@link #VOLUME} long
+     * @return {@code true} if any block changed
+     */
+    public boolean setStateIds(int[] states) {
+        if (states.length != VOLUME) {
+            throw new IllegalArgumentException("Expected " + VOLUME + " states, got " + states.length);
+        }
+
+        long stamp = this.lock.writeLock();
+        try {
+            boolean changed = false;
+            for (int i = 0; i < VOLUME; i++) {
+                int state = states[i];
+                if (state >= 0) {
+                    checkState(state);
+                    changed |= this.setLocked(i, state) != state;
+                }
+            }
+            return changed;
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sets every block in the given box to the given state,
+     * taking the lock only once. Filling the whole section
+     * shrinks it to a single palette entry.
+     *
+     * @param x0 the smallest x coordinate, inclusive
+     * @param y0 the smallest y coordinate, inclusive
+     * @param z0 the smallest z coordinate, inclusive
+     * @param x1 the largest x coordinate, inclusive
+     * @param y1 the largest y coordinate, inclusive
+     * @param z1 the largest z coordinate, inclusive
+     * @param state the new state id
+     * @return {@code true} if any block changed
+     */
+    public boolean fill(int x0, int y0, int z0, int x1, int y1, int z1, int state) {
+        checkState(state);
+        boolean whole = x0 == 0 && y0 == 0 && z0 == 0 && x1 == WIDTH - 1 && y1 == WIDTH - 1 && z1 == WIDTH - 1;
+        long stamp = this.lock.writeLock();
+        try {
+            if (whole) {
+                Storage s = this.storage;
+                if (s.palette != null && s.paletteSize == 1 && s.palette[0] == state) {
+                    return false;
+                }
+
+                this.fillLocked(state);
+                return true;
+            }
+
+            boolean changed = false;
+            for (int y = y0; y <= y1; y++) {
+                for (int z = z0; z <= z1; z++) {
+                    for (int x = x0, i = index(x0, y, z); x <= x1; x++, i++) {
+                        changed |= this.setLocked(i, state) != state;
+                    }
+                }
+            }
+            return changed;
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Sets every block in this section to the given state,
+     * shrinking the storage to a single palette entry.
+     *
+     * @param state the state id
+     */
+    public void fill(int state) {
+        checkState(state);
+        long stamp = this.lock.writeLock();
+        try {
+            this.fillLocked(state);
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Rebuilds the palette with only the states that are
+     * still in use, narrowing the storage if possible.
+     */
+    public void trim() {
+        long stamp = this.lock.writeLock();
+        try {
+            this.storage = this.rebuild(0);
+        } finally {
+            this.lock.unlockWrite(stamp);
+        }
+    }
+
+    /**
+     * Obtains the amount of bits used to store each block.
+     *
+     * @return the bits per block
+     */
+    public int getBitsPerBlock() {
+        long stamp = this.lock.readLock();
+        try {
+            return this.storage.bits;
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Obtains a copy of the palette, or {@code null} if
+     * state ids are stored directly.
+     *
+     * @return the palette states
+     */
+    @Nullable
+    public int[] getPalette() {
+        long stamp = this.lock.readLock();
+        try {
+            Storage s = this.storage;
+            return s.palette == null ? null : Arrays.copyOf(s.palette, s.paletteSize);
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Obtains a copy of the packed block data.
+     *
+     * @return the packed data
+     */
+    public long[] getPackedData() {
+        long stamp = this.lock.readLock();
+        try {
+            return this.storage.data.clone();
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Obtains the amount of blocks in this section which
+     * are not air.
+     *
+     * @return the non-air block count
+     */
+    public int getNonAirCount() {
+        long stamp = this.lock.readLock();
+        try {
+            return this.nonAir;
+        } finally {
+            this.lock.unlockRead(stamp);
+        }
+    }
+
+    /**
+     * Checks whether this section only contains air.
+     *
+     * @return {@code true} if every block is air
+     */
+    public boolean isEmpty() {
+        return this.getNonAirCount() == 0;
+    }
+
+    /**
+     * Checks whether any block in this section has changed
+     * since the section was created or
+     * {@link #clearDirty() last saved}.
+     *
+     * @return {@code true} if the section needs saving
+     */
+    public boolean isDirty() {
+        return this.dirty;
+    }
+
+    /**
+     * Marks this section as needing to be saved, for
+     * example after it has been generated.
+     */
+    public void markDirty() {
+        this.dirty = true;
+    }
+
+    /**
+     * Marks this section as saved. This should be called
+     * before the section is copied for saving, so that any
+     * change made while copying marks it dirty again.
+     */
+    public void clearDirty() {
+        this.dirty = false;
+    }
+
+    /**
+     * Obtains the block light levels of this section, which
+     * are written only by the world's {@link LightEngine}.
+     *
+     * @return the block light levels
+     */
+    public NibbleArray getBlockLight() {
+        return this.blockLight;
+    }
+
+    /**
+     * Obtains the sky light levels of this section, which
+     * are written only by the world's {@link LightEngine}.
+     *
+     * @return the sky light levels
+     */
+    public NibbleArray getSkyLight() {
+        return this.skyLight;
+    }
+
+    /**
+     * Replaces the storage with one holding only the given
+     * state while the write lock is held.
+     *
+     * @param state the new state id
+     */
+    @GuardedBy("lock")
+    private void fillLocked(int state) {
+        Storage s = new Storage(MIN_BITS, true);
+        s.add(state);
+        this.storage = s;
+        this.nonAir = state == AIR ? 0 : VOLUME;
+        this.dirty = true;
+    }
+
+    /**
+     * Sets the state of a block while the write lock is
+     * held.
+     *
+     * @param index the block index
+     * @param state the new state id
+     * @return the previous state id
+     */
+    @GuardedBy("lock")
+    private int setLocked(int index, int state) {
+        Storage s = this.storage;
+        int value = s.valueOf(state);
+        if (value < 0) {
+            s = this.grow();
+            value = s.valueOf(state);
+        }
+
+        int old = s.set(index, value);
+        if (old != state) {
+            this.dirty = true;
+        }
+        if (old == AIR && state != AIR) {
+            this.nonAir++;
+        } else if (old != AIR && state == AIR) {
+            this.nonAir--;
+        }
+        return old;
+    }
+
+    /**
+     * Makes room for another palette entry, either by
+     * dropping unused entries or by widening the storage.
+     *
+     * @return the new storage
+     */
+    @GuardedBy("lock")
+    private Storage grow() {
+        return this.storage = this.rebuild(1);
+    }
+
+    /**
+     * Copies the blocks into a new storage with only the
+     * used palette entries and room for the given amount of
+     * new ones.
+     *
+     * @param room the amount of entries to make room for
+     * @return the new storage
+     */
+    @GuardedBy("lock")
+    private Storage rebuild(int room) {
+        Storage s = this.storage;
+        int[] states = new int[VOLUME];
+        for (int i = 0; i < VOLUME; i++) {
+            states[i] = s.get(i);
+        }
+
+        boolean[] seen = new boolean[1 << GLOBAL_BITS];
+        int count = room;
+        for (int state : states) {
+            if (!seen[state]) {
+                seen[state] = true;
+                count++;
+            }
+        }
+
+        int bits = MIN_BITS;
+        while (1 << bits < count) {
+            bits++;
+        }
+
+        Storage n = bits > MAX_PALETTE_BITS ? new Storage(GLOBAL_BITS, false) : new Storage(bits, true);
+        for (int i = 0; i < VOLUME; i++) {
+            n.set(i, n.valueOf(states[i]));
+        }
+        return n;
+    }
+
+    private static void checkState(int state) {
+        if (state < 0 || state >= 1 << GLOBAL_BITS) {
+            throw new IllegalArgumentException("Invalid state id " + state);
+        }
+    }
+
+    private static int nibble(byte[] arr, int i) {
+        return arr[i >> 1] >> ((i & 1) << 2) & 0xF;
+    }
+
+    /**
+     * The packed blocks and the palette they index.
+     */
+    private static final class Storage {
+        private final int bits;
+        private final long mask;
+        private final long[] data;
+        /**
+         * The states of each palette entry, or {@code null}
+         * if states are stored directly
+         */
+        private final int[] palette;
+        /**
+         * Open addressed table mapping states to palette
+         * entries, each slot holding
+         * {@code (state + 1) << 8 | entry}
+         */
+        private final int[] lookup;
+        private int paletteSize;
+
+        Storage(int bits, boolean palette) {
+            this.bits = bits;
+            this.mask = (1L << bits) - 1;
+            this.data = new long[VOLUME * bits / 64];
+            this.palette = palette ? new int[1 << bits] : null;
+            this.lookup = palette ? new int[2 << bits] : null;
+        }
+
+        /**
+         * Obtains the state of the block at the given
+         * index.
+         */
+        int get(int index) {
+            int value = this.read(index);
+            if (this.palette == null) {
+                return value;
+            }
+
+            return this.palette[value];
+        }
+
+        /**
+         * Sets the stored value of the block at the given
+         * index, returning the previous state.
+         */
+        int set(int index, int value) {
+            int old = this.get(index);
+            int bit = index * this.bits;
+            int word = bit >>> 6;
+            int off = bit & 63;
+            long[] data = this.data;
+            data[word] = data[word] & ~(this.mask << off) | ((long) value & this.mask) << off;
+
+            int end = off + this.bits;
+            if (end > 64) {
+                int rem = end - 64;
+                data[word + 1] = data[word + 1] >>> rem << rem | ((long) value & this.mask) >>> (64 - off);
+            }
+            return old;
+        }
+
+        private int read(int index) {
+            int bit = index * this.bits;
+            int word = bit >>> 6;
+            int off = bit & 63;
+            long v = this.data[word] >>> off;
+            if (off + this.bits > 64) {
+                v |= this.data[word + 1] << (64 - off);
+            }
+            return (int) (v & this.mask);
+        }
+
+        /**
+         * Obtains the value to store for the given state,
+         * adding it to the palette if needed.
+         *
+         * @return the value, or {@code -1} if the palette is
+         * full
+         */
+        int valueOf(int state) {
+            if (this.palette == null) {
+                return state;
+            }
+
+            int[] lookup = this.lookup;
+            int m = lookup.length - 1;
+            int key = state + 1;
+            for (int slot = Int2ReferenceOpenHashMap.mix(state) & m; ; slot = slot + 1 & m) {
+                int e = lookup[slot];
+                if (e == 0) {
+                    if (this.paletteSize == this.palette.length) {
+                        return -1;
+                    }
+
+                    int entry = this.paletteSize++;
+                    this.palette[entry] = state;
+                    lookup[slot] = key << 8 | entry;
+                    return entry;
+                }
+
+                if (e >>> 8 == key) {
+                    return e & 0xFF;
+                }
+            }
+        }
+
+        void add(int state) {
+            this.valueOf(state);
+        }
+    }
+}
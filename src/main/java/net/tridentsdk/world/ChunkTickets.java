@@ -0,0 +1,505 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.util.Long2ReferenceOpenHashMap;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Keeps track of why chunks in a world are loaded.
+ *
+ * <p>Tickets of a given {@link TicketType} are attached
+ * around a chunk with a radius and a level. Every chunk
+ * within the radius, measured as the larger of the x and z
+ * distances, holds the ticket and stays loaded. The level
+ * of a chunk is the smallest of its tickets' levels plus
+ * its distance to their centers, so that lower levels mean
+ * more important chunks.</p>
+ *
+ * <p>Only chunks which have been
+ * {@link #markLoaded(int, int) marked as loaded} are ever
+ * idle or unloaded; tickets over chunks which are not
+ * loaded only record their levels. Loaded chunks which lose
+ * their last ticket, or which are loaded without one, enter
+ * a least recently used list. They are
+ * unloaded once they have been idle for the unload delay,
+ * or earlier if there are more idle chunks than the budget
+ * allows. Attaching a ticket to an idle chunk takes it out
+ * of the list, so chunks near ticket borders are not
+ * reloaded over and over.</p>
+ *
+ * <p>Time is measured in ticks, advanced by calling
+ * {@link #tick()}. Unloading happens only in that call,
+ * outside of the lock of this object.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@ThreadSafe
+public class ChunkTickets {
+    /**
+     * The level of chunks which hold no tickets
+     */
+    public static final int NO_LEVEL = Integer.MAX_VALUE;
+
+    /**
+     * Unloads a chunk which has been idle for too long.
+     */
+    @FunctionalInterface
+    public interface Unloader {
+        /**
+         * Unloads the chunk at the given coordinates.
+         *
+         * @param x the chunk x coordinate
+         * @param z the chunk z coordinate
+         */
+        void unload(int x, int z);
+    }
+
+    /**
+     * A request to keep the chunks around a center loaded.
+     */
+    @Immutable
+    public static final class Ticket {
+        private final TicketType type;
+        private final int x;
+        private final int z;
+        private final int radius;
+        private final int level;
+        private final long expiry;
+
+        private Ticket(TicketType type, int x, int z, int radius, int level, long expiry) {
+            this.type = type;
+            this.x = x;
+            this.z = z;
+            this.radius = radius;
+            this.level = level;
+            this.expiry = expiry;
+        }
+
+        /**
+         * Obtains the type of this ticket.
+         *
+         * @return the ticket type
+         */
+        public TicketType getType() {
+            return this.type;
+        }
+
+        /**
+         * Obtains the x coordinate of the center chunk.
+         *
+         * @return the center x coordinate
+         */
+        public int getX() {
+            return this.x;
+        }
+
+        /**
+         * Obtains the z coordinate of the center chunk.
+         *
+         * @return the center z coordinate
+         */
+        public int getZ() {
+            return this.z;
+        }
+
+        /**
+         * Obtains the radius of chunks around the center
+         * which are held by this ticket.
+         *
+         * @return the radius
+         */
+        public int getRadius() {
+            return this.radius;
+        }
+
+        /**
+         * Obtains the level of the center chunk.
+         *
+         * @return the level
+         */
+        public int getLevel() {
+            return this.level;
+        }
+
+        /**
+         * Obtains the level this ticket gives to the chunk
+         * at the given coordinates.
+         *
+         * @param x the chunk x coordinate
+         * @param z the chunk z coordinate
+         * @return the level, or {@link #NO_LEVEL} if the
+         * chunk is outside the radius
+         */
+        public int levelAt(int x, int z) {
+            int distance = Math.max(Math.abs(x - this.x), Math.abs(z - this.z));
+            return distance > this.radius ? NO_LEVEL : this.level + distance;
+        }
+
+        @Override
+        public String toString() {
+            return "Ticket{" + this.type.getName() + " " + this.x + "," + this.z +
+                    " radius=" + this.radius + " level=" + this.level + "}";
+        }
+    }
+
+    /**
+     * The tickets held by a chunk, which is also a node of
+     * the idle list while it holds none.
+     */
+    private static final class Holder {
+        private final long key;
+        private final List<Ticket> tickets = new ArrayList<>(2);
+        private boolean loaded;
+        private Holder prev;
+        private Holder next;
+        private boolean idle;
+        private long idleSince;
+
+        Holder(long key) {
+            this.key = key;
+        }
+    }
+
+    private final Unloader unloader;
+    private final int unloadDelay;
+    private final int idleBudget;
+
+    private final Object lock = new Object();
+    @GuardedBy("lock")
+    private final Long2ReferenceOpenHashMap<Holder> holders = new Long2ReferenceOpenHashMap<>();
+    @GuardedBy("lock")
+    private final List<Ticket> expiring = new ArrayList<>();
+    @GuardedBy("lock")
+    private Holder head;
+    @GuardedBy("lock")
+    private Holder tail;
+    @GuardedBy("lock")
+    private int idleCount;
+    @GuardedBy("lock")
+    private long now;
+
+    /**
+     * Creates a new ticket manager.
+     *
+     * @param unloader the callback unloading idle chunks
+     * @param unloadDelay the number of ticks a chunk stays
+     * idle before it is unloaded
+     * @param idleBudget the largest number of idle chunks
+     * kept loaded, such as a memory budget divided by the
+     * size of a chunk
+     */
+    public ChunkTickets(Unloader unloader, int unloadDelay, int idleBudget) {
+        if (unloadDelay < 0 || idleBudget < 0) {
+            throw new IllegalArgumentException("Unload delay and idle budget must not be negative");
+        }
+
+        this.unloader = unloader;
+        this.unloadDelay = unloadDelay;
+        this.idleBudget = idleBudget;
+    }
+
+    /**
+     * Attaches a new ticket around the given chunk.
+     *
+     * @param type the reason for the ticket
+     * @param x the center chunk x coordinate
+     * @param z the center chunk z coordinate
+     * @param radius the radius of chunks to hold
+     * @param level the level of the center chunk
+     * @return the ticket, to be passed to
+     * {@link #remove(Ticket)}
+     */
+    public Ticket add(TicketType type, int x, int z, int radius, int level) {
+        if (radius < 0 || level < 0) {
+            throw new IllegalArgumentException("Radius and level must not be negative");
+        }
+
+        synchronized (this.lock) {
+            long expiry = type.getLifetime() == 0 ? 0 : this.now + type.getLifetime();
+            Ticket ticket = new Ticket(type, x, z, radius, level, expiry);
+            for (int cx = x - radius; cx <= x + radius; cx++) {
+                for (int cz = z - radius; cz <= z + radius; cz++) {
+                    Holder holder = this.holders.computeIfAbsent(IntPair.pack(cx, cz), Holder::new);
+                    if (holder.idle) {
+                        this.unlink(holder);
+                    }
+                    holder.tickets.add(ticket);
+                }
+            }
+
+            if (expiry != 0) {
+                this.expiring.add(ticket);
+            }
+            return ticket;
+        }
+    }
+
+    /**
+     * Removes the given ticket, making the chunks which
+     * no longer hold any tickets idle.
+     *
+     * @param ticket the ticket to remove
+     * @return {@code true} if the ticket was attached
+     */
+    public boolean remove(Ticket ticket) {
+        synchronized (this.lock) {
+            if (ticket.expiry != 0) {
+                this.expiring.remove(ticket);
+            }
+            return this.detach(ticket);
+        }
+    }
+
+    /**
+     * Determines whether the given chunk holds any tickets.
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     * @return {@code true} if the chunk holds a ticket
+     */
+    public boolean isTicketed(int x, int z) {
+        synchronized (this.lock) {
+            Holder holder = this.holders.get(IntPair.pack(x, z));
+            return holder != null && !holder.tickets.isEmpty();
+        }
+    }
+
+    /**
+     * Obtains the level of the given chunk.
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     * @return the smallest level given by the tickets of
+     * the chunk, or {@link #NO_LEVEL} if it holds none
+     */
+    public int getLevel(int x, int z) {
+        synchronized (this.lock) {
+            Holder holder = this.holders.get(IntPair.pack(x, z));
+            if (holder == null) {
+                return NO_LEVEL;
+            }
+
+            int level = NO_LEVEL;
+            for (Ticket ticket : holder.tickets) {
+                level = Math.min(level, ticket.levelAt(x, z));
+            }
+            return level;
+        }
+    }
+
+    /**
+     * Obtains the tickets held by the given chunk.
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     * @return a copy of the tickets of the chunk
+     */
+    public Collection<Ticket> getTickets(int x, int z) {
+        synchronized (this.lock) {
+            Holder holder = this.holders.get(IntPair.pack(x, z));
+            return holder == null ? Collections.emptyList() : new ArrayList<>(holder.tickets);
+        }
+    }
+
+    /**
+     * Records that the given chunk has been loaded. If it
+     * holds no tickets, it becomes idle.
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     */
+    public void markLoaded(int x, int z) {
+        synchronized (this.lock) {
+            Holder holder = this.holders.computeIfAbsent(IntPair.pack(x, z), Holder::new);
+            holder.loaded = true;
+            if (holder.tickets.isEmpty() && !holder.idle) {
+                this.link(holder);
+            }
+        }
+    }
+
+    /**
+     * Marks the given chunk as used if it is idle, or makes
+     * it idle if it is loaded but not tracked yet, for
+     * example after being loaded without a ticket.
+     * Ticketed chunks are unaffected.
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     */
+    public void idle(int x, int z) {
+        synchronized (this.lock) {
+            Holder holder = this.holders.computeIfAbsent(IntPair.pack(x, z), Holder::new);
+            holder.loaded = true;
+            if (!holder.tickets.isEmpty()) {
+                return;
+            }
+
+            if (holder.idle) {
+                this.unlink(holder);
+            }
+            this.link(holder);
+        }
+    }
+
+    /**
+     * Forgets that the given chunk is loaded, for example
+     * because it was unloaded by other means. A chunk which
+     * still holds tickets keeps them, so that it is ticketed
+     * again once it is reloaded.
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     */
+    public void forget(int x, int z) {
+        synchronized (this.lock) {
+            long key = IntPair.pack(x, z);
+            Holder holder = this.holders.get(key);
+            if (holder == null) {
+                return;
+            }
+
+            if (holder.idle) {
+                this.unlink(holder);
+            }
+            if (holder.tickets.isEmpty()) {
+                this.holders.remove(key);
+            } else {
+                holder.loaded = false;
+            }
+        }
+    }
+
+    /**
+     * Obtains the number of chunks which are idle and
+     * waiting to be unloaded.
+     *
+     * @return the number of idle chunks
+     */
+    public int getIdleCount() {
+        synchronized (this.lock) {
+            return this.idleCount;
+        }
+    }
+
+    /**
+     * Advances time by one tick, removing expired tickets
+     * and unloading the chunks which have been idle for the
+     * unload delay, or the least recently used chunks beyond
+     * the idle budget.
+     */
+    public void tick() {
+        long[] unload;
+        int count = 0;
+        synchronized (this.lock) {
+            long now = ++this.now;
+            if (!this.expiring.isEmpty()) {
+                for (int i = this.expiring.size() - 1; i >= 0; i--) {
+                    Ticket ticket = this.expiring.get(i);
+                    if (ticket.expiry <= now) {
+                        this.expiring.remove(i);
+                        this.detach(ticket);
+                    }
+                }
+            }
+
+            unload = new long[this.idleCount];
+            for (Holder h = this.head; h != null; h = this.head) {
+                if (now - h.idleSince < this.unloadDelay && this.idleCount <= this.idleBudget) {
+                    break;
+                }
+
+                this.unlink(h);
+                this.holders.remove(h.key);
+                unload[count++] = h.key;
+            }
+        }
+
+        for (int i = 0; i < count; i++) {
+            this.unloader.unload(IntPair.unpackX(unload[i]), IntPair.unpackZ(unload[i]));
+        }
+    }
+
+    @GuardedBy("lock")
+    private boolean detach(Ticket ticket) {
+        boolean removed = false;
+        for (int cx = ticket.x - ticket.radius; cx <= ticket.x + ticket.radius; cx++) {
+            for (int cz = ticket.z - ticket.radius; cz <= ticket.z + ticket.radius; cz++) {
+                Holder holder = this.holders.get(IntPair.pack(cx, cz));
+                if (holder != null && holder.tickets.remove(ticket)) {
+                    removed = true;
+                    if (holder.tickets.isEmpty()) {
+                        if (holder.loaded) {
+                            this.link(holder);
+                        } else {
+                            this.holders.remove(holder.key);
+                        }
+                    }
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Appends the given holder as the most recently used
+     * idle chunk.
+     */
+    @GuardedBy("lock")
+    private void link(Holder holder) {
+        holder.idle = true;
+        holder.idleSince = this.now;
+        holder.prev = this.tail;
+        holder.next = null;
+        if (this.tail == null) {
+            this.head = holder;
+        } else {
+            this.tail.next = holder;
+        }
+        this.tail = holder;
+        this.idleCount++;
+    }
+
+    @GuardedBy("lock")
+    private void unlink(Holder holder) {
+        if (holder.prev == null) {
+            this.head = holder.next;
+        } else {
+            holder.prev.next = holder.next;
+        }
+
+        if (holder.next == null) {
+            this.tail = holder.prev;
+        } else {
+            holder.next.prev = holder.prev;
+        }
+
+        holder.prev = null;
+        holder.next = null;
+        holder.idle = false;
+        this.idleCount--;
+    }
+}
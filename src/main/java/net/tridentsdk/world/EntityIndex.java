@@ -0,0 +1,489 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Position;
+import net.tridentsdk.entity.Entity;
+import net.tridentsdk.util.Int2ReferenceOpenHashMap;
+import net.tridentsdk.util.Long2ReferenceOpenHashMap;
+
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A spatial index of the entities in a world, bucketed by
+ * the chunk which contains them, which answers range, box
+ * and nearest neighbour queries by visiting only the
+ * buckets which may hold matches.
+ *
+ * <p>The index does not observe entities; it must be told
+ * when an entity is {@link #add(Entity) added},
+ * {@link #update(Entity) moves} or is
+ * {@link #remove(Entity) removed}. Queries see the
+ * positions as of the last update.</p>
+ *
+ * <p>Any amount of queries may run at the same time.
+ * Updates are exclusive. Visitors must not modify the
+ * index.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@ThreadSafe
+public class EntityIndex {
+    /**
+     * Receives the entities matching a query.
+     *
+     * @param <T> the type of entity
+     */
+    @FunctionalInterface
+    public interface Visitor<T> {
+        /**
+         * Visits an entity matching the query.
+         *
+         * @param entity the entity
+         * @return {@code true} to continue the query,
+         * {@code false} to stop it
+         */
+        boolean visit(T entity);
+    }
+
+    /**
+     * Receives the entities matching a query along with the
+     * position they were last updated with.
+     *
+     * @param <T> the type of entity
+     */
+    @FunctionalInterface
+    public interface PositionVisitor<T> {
+        /**
+         * Visits an entity matching the query.
+         *
+         * @param entity the entity
+         * @param x the x coordinate of the entity
+         * @param y the y coordinate of the entity
+         * @param z the z coordinate of the entity
+         * @return {@code true} to continue the query,
+         * {@code false} to stop it
+         */
+        boolean visit(T entity, double x, double y, double z);
+    }
+
+    /**
+     * An entity and the position it was last updated with.
+     */
+    private static final class Entry {
+        private final Entity entity;
+        private double x;
+        private double y;
+        private double z;
+        private Bucket bucket;
+        private int slot;
+
+        Entry(Entity entity) {
+            this.entity = entity;
+        }
+
+        double distanceSquared(double x, double y, double z) {
+            double dx = this.x - x;
+            double dy = this.y - y;
+            double dz = this.z - z;
+            return dx * dx + dy * dy + dz * dz;
+        }
+    }
+
+    /**
+     * The entities in a single chunk.
+     */
+    private static final class Bucket {
+        private final long key;
+        private Entry[] entries = new Entry[4];
+        private int size;
+
+        Bucket(long key) {
+            this.key = key;
+        }
+
+        void add(Entry entry) {
+            if (this.size == this.entries.length) {
+                this.entries = Arrays.copyOf(this.entries, this.size << 1);
+            }
+            entry.bucket = this;
+            entry.slot = this.size;
+            this.entries[this.size++] = entry;
+        }
+
+        void remove(Entry entry) {
+            Entry last = this.entries[--this.size];
+            this.entries[entry.slot] = last;
+            last.slot = entry.slot;
+            this.entries[this.size] = null;
+            entry.bucket = null;
+        }
+    }
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    @GuardedBy("lock")
+    private final Int2ReferenceOpenHashMap<Entry> byId = new Int2ReferenceOpenHashMap<>();
+    @GuardedBy("lock")
+    private final Long2ReferenceOpenHashMap<Bucket> buckets = new Long2ReferenceOpenHashMap<>();
+
+    /**
+     * Adds the given entity to the index at its current
+     * position, or moves it if it is already indexed.
+     *
+     * @param entity the entity to add
+     */
+    public void add(Entity entity) {
+        this.update(entity);
+    }
+
+    /**
+     * Moves the given entity to its current position,
+     * adding it if it is not indexed yet.
+     *
+     * @param entity the entity which moved
+     */
+    public void update(Entity entity) {
+        Position position = entity.getPosition();
+        this.update(entity, position.getX(), position.getY(), position.getZ());
+    }
+
+    /**
+     * Moves the given entity to the given position, adding
+     * it if it is not indexed yet.
+     *
+     * @param entity the entity which moved
+     * @param x the new x coordinate
+     * @param y the new y coordinate
+     * @param z the new z coordinate
+     */
+    public void update(Entity entity, double x, double y, double z) {
+        long key = IntPair.pack((int) Math.floor(x) >> 4, (int) Math.floor(z) >> 4);
+        this.lock.writeLock().lock();
+        try {
+            Entry entry = this.byId.get(entity.getId());
+            if (entry == null) {
+                entry = new Entry(entity);
+                this.byId.put(entity.getId(), entry);
+            }
+            entry.x = x;
+            entry.y = y;
+            entry.z = z;
+
+            if (entry.bucket != null && entry.bucket.key != key) {
+                this.unbucket(entry);
+            }
+            if (entry.bucket == null) {
+                Bucket bucket = this.buckets.get(key);
+                if (bucket == null) {
+                    bucket = new Bucket(key);
+                    this.buckets.put(key, bucket);
+                }
+                bucket.add(entry);
+            }
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the given entity from the index.
+     *
+     * @param entity the entity to remove
+     * @return {@code true} if the entity was indexed
+     */
+    public boolean remove(Entity entity) {
+        this.lock.writeLock().lock();
+        try {
+            Entry entry = this.byId.remove(entity.getId());
+            if (entry == null) {
+                return false;
+            }
+
+            this.unbucket(entry);
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Visits the entities of the given type within the given
+     * distance of the given point, in no particular order.
+     *
+     * @param x the x coordinate of the center
+     * @param y the y coordinate of the center
+     * @param z the z coordinate of the center
+     * @param radius the largest distance from the center
+     * @param type the type of entity to visit
+     * @param visitor the visitor
+     * @param <T> the type of entity
+     * @return {@code false} if the visitor stopped the query
+     */
+    public <T extends Entity> boolean forEachWithin(double x, double y, double z, double radius,
+                                                    Class<T> type, Visitor<? super T> visitor) {
+        double r2 = radius * radius;
+        this.lock.readLock().lock();
+        try {
+            int cx0 = (int) Math.floor(x - radius) >> 4;
+            int cx1 = (int) Math.floor(x + radius) >> 4;
+            int cz0 = (int) Math.floor(z - radius) >> 4;
+            int cz1 = (int) Math.floor(z + radius) >> 4;
+            for (int cx = cx0; cx <= cx1; cx++) {
+                for (int cz = cz0; cz <= cz1; cz++) {
+                    Bucket bucket = this.buckets.get(IntPair.pack(cx, cz));
+                    if (bucket == null) {
+                        continue;
+                    }
+
+                    for (int i = 0; i < bucket.size; i++) {
+                        Entry entry = bucket.entries[i];
+                        if (entry.distanceSquared(x, y, z) <= r2 && type.isInstance(entry.entity)) {
+                            if (!visitor.visit(type.cast(entry.entity))) {
+                                return false;
+                            }
+                        }
+                    }
+                }
+            }
+            return true;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Visits the entities of the given type inside the given
+     * box, in no particular order.
+     *
+     * @param minX the smallest x coordinate
+     * @param minY the smallest y coordinate
+     * @param minZ the smallest z coordinate
+     * @param maxX the largest x coordinate, inclusive
+     * @param maxY the largest y coordinate, inclusive
+     * @param maxZ the largest z coordinate, inclusive
+     * @param type the type of entity to visit
+     * @param visitor the visitor
+     * @param <T> the type of entity
+     * @return {@code false} if the visitor stopped the query
+     */
+    public <T extends Entity> boolean forEachInBox(double minX, double minY, double minZ,
+                                                   double maxX, double maxY, double maxZ,
+                                                   Class<T> type, Visitor<? super T> visitor) {
+        return this.forEachInBox(minX, minY, minZ, maxX, maxY, maxZ, type, (e, x, y, z) -> visitor.visit(e));
+    }
+
+    /**
+     * Visits the entities of the given type inside the given
+     * box along with their positions, in no particular
+     * order.
+     *
+     * @param minX the smallest x coordinate
+     * @param minY the smallest y coordinate
+     * @param minZ the smallest z coordinate
+     * @param maxX the largest x coordinate, inclusive
+     * @param maxY the largest y coordinate, inclusive
+     * @param maxZ the largest z coordinate, inclusive
+     * @param type the type of entity to visit
+     * @param visitor the visitor
+     * @param <T> the type of entity
+     * @return {@code false} if the visitor stopped the query
+     */
+    public <T extends Entity> boolean forEachInBox(double minX, double minY, double minZ,
+                                                   double maxX, double maxY, double maxZ,
+                                                   Class<T> type, PositionVisitor<? super T> visitor) {
+        this.lock.readLock().lock();
+        try {
+            for (int cx = (int) Math.floor(minX) >> 4; cx <= (int) Math.floor(maxX) >> 4; cx++) {
+                for (int cz = (int) Math.floor(minZ) >> 4; cz <= (int) Math.floor(maxZ) >> 4; cz++) {
+                    Bucket bucket = this.buckets.get(IntPair.pack(cx, cz));
+                    if (bucket == null) {
+                        continue;
+                    }
+
+                    for (int i = 0; i < bucket.size; i++) {
+                        Entry e = bucket.entries[i];
+                        if (e.x >= minX && e.x <= maxX && e.y >= minY && e.y <= maxY &&
+                                e.z >= minZ && e.z <= maxZ && type.isInstance(e.entity)) {
+                            if (!visitor.visit(type.cast(e.entity), e.x, e.y, e.z)) {
+                                return false;
+                            }
+                        }
+                    }
+                }
+            }
+            return true;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtains the entities within the given distance of the
+     * given position.
+     *
+     * @param center the center of the query
+     * @param radius the largest distance from the center
+     * @return the entities in range
+     */
+    public List<Entity> getEntitiesWithin(Position center, double radius) {
+        return this.getEntitiesWithin(center, radius, Entity.class);
+    }
+
+    /**
+     * Obtains the entities of the given type within the
+     * given distance of the given position.
+     *
+     * @param center the center of the query
+     * @param radius the largest distance from the center
+     * @param type the type of entity
+     * @param <T> the type of entity
+     * @return the entities in range
+     */
+    public <T extends Entity> List<T> getEntitiesWithin(Position center, double radius, Class<T> type) {
+        List<T> list = new ArrayList<>();
+        this.forEachWithin(center.getX(), center.getY(), center.getZ(), radius, type, list::add);
+        return list;
+    }
+
+    /**
+     * Obtains the entities of the given type inside the
+     * box between the two given corners.
+     *
+     * @param min the corner with the smallest coordinates
+     * @param max the corner with the largest coordinates
+     * @param type the type of entity
+     * @param <T> the type of entity
+     * @return the entities in the box
+     */
+    public <T extends Entity> List<T> getEntitiesInBox(Position min, Position max, Class<T> type) {
+        List<T> list = new ArrayList<>();
+        this.forEachInBox(min.getX(), min.getY(), min.getZ(), max.getX(), max.getY(), max.getZ(), type,
+                (Visitor<T>) list::add);
+        return list;
+    }
+
+    /**
+     * Obtains the nearest entities of the given type to the
+     * given point, searching rings of chunks outwards until
+     * no closer entity can remain.
+     *
+     * @param x the x coordinate of the center
+     * @param y the y coordinate of the center
+     * @param z the z coordinate of the center
+     * @param k the largest number of entities to find
+     * @param maxRadius the largest distance from the center
+     * @param type the type of entity
+     * @param <T> the type of entity
+     * @return up to {@code k} entities, nearest first
+     */
+    public <T extends Entity> List<T> getNearest(double x, double y, double z, int k, double maxRadius,
+                                                 Class<T> type) {
+        if (k <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Sorted arrays of the best k so far; k is small
+        Entry[] best = new Entry[k];
+        double[] dist = new double[k];
+        int found = 0;
+        double r2 = maxRadius * maxRadius;
+
+        this.lock.readLock().lock();
+        try {
+            int cx = (int) Math.floor(x) >> 4;
+            int cz = (int) Math.floor(z) >> 4;
+            int maxRing = ((int) Math.ceil(maxRadius) >> 4) + 1;
+            for (int ring = 0; ring <= maxRing; ring++) {
+                // The closest any point in this ring can be
+                double near = Math.max(0, (ring - 1) * 16.0);
+                if (near * near > r2 || found == k && near * near > dist[k - 1]) {
+                    break;
+                }
+
+                for (int dx = -ring; dx <= ring; dx++) {
+                    boolean edge = dx == -ring || dx == ring;
+                    for (int dz = -ring; dz <= ring; dz += edge ? 1 : ring * 2) {
+                        Bucket bucket = this.buckets.get(IntPair.pack(cx + dx, cz + dz));
+                        if (bucket != null) {
+                            for (int i = 0; i < bucket.size; i++) {
+                                Entry entry = bucket.entries[i];
+                                double d = entry.distanceSquared(x, y, z);
+                                if (d > r2 || found == k && d >= dist[k - 1] || !type.isInstance(entry.entity)) {
+                                    continue;
+                                }
+
+                                int pos = found == k ? k - 1 : found++;
+                                while (pos > 0 && dist[pos - 1] > d) {
+                                    best[pos] = best[pos - 1];
+                                    dist[pos] = dist[pos - 1];
+                                    pos--;
+                                }
+                                best[pos] = entry;
+                                dist[pos] = d;
+                            }
+                        }
+
+                        if (ring == 0) {
+                            break;
+                        }
+                    }
+                }
+            }
+        } finally {
+            this.lock.readLock().unlock();
+        }
+
+        List<T> list = new ArrayList<>(found);
+        for (int i = 0; i < found; i++) {
+            list.add(type.cast(best[i].entity));
+        }
+        return list;
+    }
+
+    /**
+     * Obtains the number of indexed entities.
+     *
+     * @return the number of entities
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            int[] count = new int[1];
+            this.buckets.forEach((k, b) -> count[0] += b.size);
+            return count[0];
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @GuardedBy("lock")
+    private void unbucket(Entry entry) {
+        Bucket bucket = entry.bucket;
+        bucket.remove(entry);
+        if (bucket.size == 0) {
+            this.buckets.remove(bucket.key);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Substance;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The height of the highest block of each column in a
+ * chunk which counts for a given {@link Type}, kept up to
+ * date as blocks change so that height lookups do not scan
+ * the column.
+ *
+ * <p>Heights are stored as the y coordinate above the
+ * highest counting block, from 0 for an empty column to
+ * 256, packed at 9 bits per column, 7 columns per
+ * {@code long}. Reads do not lock; updates are serialized
+ * on this object.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@ThreadSafe
+public class HeightMap {
+    /**
+     * The blocks which are counted by a height map.
+     */
+    public enum Type {
+        /**
+         * Any block which is not air
+         */
+        WORLD_SURFACE {
+            @Override
+            public boolean counts(int state) {
+                return state >>> 4 != 0;
+            }
+        },
+        /**
+         * Any block which stops movement, or any fluid, which
+         * leaves out plants, torches, rails and the like
+         */
+        MOTION_BLOCKING {
+            @Override
+            public boolean counts(int state) {
+                return !PASSABLE[state >>> 4];
+            }
+        };
+
+        /**
+         * Determines whether the block with the given state
+         * id counts for this type.
+         *
+         * @param state the state id
+         * @return {@code true} if the block counts
+         */
+        public abstract boolean counts(int state);
+    }
+
+    /**
+     * The number of bits per column
+     */
+    public static final int BITS = 9;
+    private static final int PER_LONG = 64 / BITS;
+    private static final long MASK = (1L << BITS) - 1;
+
+    /**
+     * The block ids which do not stop movement
+     */
+    private static final boolean[] PASSABLE = new boolean[1 << 9];
+
+    static {
+        Substance[] passable = {
+                Substance.AIR, Substance.SAPLING, Substance.POWERED_RAIL, Substance.DETECTOR_RAIL,
+                Substance.COBWEB, Substance.GRASS, Substance.DEAD_BUSH, Substance.DANDELION, Substance.POPPY,
+                Substance.BROWN_MUSHROOM, Substance.RED_MUSHROOM, Substance.TORCH, Substance.FIRE,
+                Substance.REDSTONE_WIRE, Substance.WHEAT_CROP, Substance.SIGN, Substance.LADDER, Substance.RAIL,
+                Substance.WALL_SIGN, Substance.LEVER, Substance.STONE_PRESSURE_PLATE,
+                Substance.WOODEN_PRESSURE_PLATE, Substance.REDSTONE_TORCH, Substance.LIT_REDSTONE_TORCH,
+                Substance.STONE_BUTTON, Substance.SNOW_LAYER, Substance.SUGAR_CANE, Substance.PORTAL,
+                Substance.PUMPKIN_STEM, Substance.MELON_STEM, Substance.VINES, Substance.NETHER_WART_CROP,
+                Substance.END_PORTAL, Substance.TRIPWIRE_HOOK, Substance.TRIPWIRE, Substance.CARROT_CROP,
+                Substance.POTATO_CROP, Substance.WOODEN_BUTTON, Substance.LIGHT_WEIGHTED_PRESSURE_PLATE,
+                Substance.HEAVY_WEIGHTED_PRESSURE_PLATE, Substance.ACTIVATOR_RAIL, Substance.CARPET,
+                Substance.LARGE_FLOWERS, Substance.BANNER, Substance.WALL_BANNER
+        };
+        for (Substance substance : passable) {
+            PASSABLE[substance.getId()] = true;
+        }
+    }
+
+    /**
+     * Determines whether the given block id does not stop
+     * movement.
+     *
+     * @param id the block id
+     * @return {@code true} if the block is passable
+     */
+    static boolean isPassable(int id) {
+        return PASSABLE[id];
+    }
+
+    /**
+     * The type of block counted by this map
+     */
+    private final Type type;
+    /**
+     * The packed heights, indexed by {@code z << 4 | x}
+     */
+    private final AtomicLongArray data = new AtomicLongArray((256 + PER_LONG - 1) / PER_LONG);
+
+    /**
+     * Creates a new height map with every column empty.
+     *
+     * @param type the blocks counted by the map
+     */
+    public HeightMap(Type type) {
+        this.type = type;
+    }
+
+    /**
+     * Obtains the type of block counted by this map.
+     *
+     * @return the type of the map
+     */
+    public Type getType() {
+        return this.type;
+    }
+
+    /**
+     * Obtains the y coordinate above the highest counting
+     * block in the given column.
+     *
+     * @param x the relative x coordinate
+     * @param z the relative z coordinate
+     * @return the height, 0 if no block counts
+     */
+    public int getHeight(int x, int z) {
+        int i = z << 4 | x;
+        return (int) (this.data.get(i / PER_LONG) >>> (i % PER_LONG * BITS) & MASK);
+    }
+
+    /**
+     * Obtains the y coordinate of the highest counting
+     * block in the given column.
+     *
+     * @param x the relative x coordinate
+     * @param z the relative z coordinate
+     * @return the highest y, or {@code -1} if no block
+     * counts
+     */
+    public int getHighestY(int x, int z) {
+        return this.getHeight(x, z) - 1;
+    }
+
+    /**
+     * Copies the packed heights of this map, for example to
+     * be sent to clients or saved.
+     *
+     * @return the packed heights
+     */
+    public long[] getPackedData() {
+        long[] copy = new long[this.data.length()];
+        for (int i = 0; i < copy.length; i++) {
+            copy[i] = this.data.get(i);
+        }
+        return copy;
+    }
+
+    /**
+     * Recomputes every column of this map from the blocks
+     * of the given chunk, skipping sections which are empty.
+     *
+     * @param chunk the chunk to read
+     */
+    public synchronized void compute(Chunk chunk) {
+        int top = 255;
+        for (int sy = 15; sy >= 0; sy--) {
+            ChunkSection section = chunk.getSection(sy);
+            if (section == null || !section.isEmpty()) {
+                break;
+            }
+            top -= 16;
+        }
+
+        for (int z = 0; z < 16; z++) {
+            for (int x = 0; x < 16; x++) {
+                this.set(x, z, this.scan(chunk, x, z, top, 0));
+            }
+        }
+    }
+
+    /**
+     * Updates the given column after the blocks from
+     * {@code y0} to {@code y1} have changed.
+     *
+     * @param chunk the chunk containing the blocks, which
+     * already holds the new blocks
+     * @param x the relative x coordinate
+     * @param z the relative z coordinate
+     * @param y0 the lowest changed y coordinate
+     * @param y1 the highest changed y coordinate, inclusive
+     */
+    public synchronized void updateColumn(Chunk chunk, int x, int z, int y0, int y1) {
+        int height = this.getHeight(x, z);
+        if (height - 1 > y1) {
+            // The highest block did not change
+            return;
+        }
+
+        if (height - 1 < y0) {
+            // Only something placed above can change it
+            int found = this.scan(chunk, x, z, y1, y0);
+            if (found != 0) {
+                this.set(x, z, found);
+            }
+            return;
+        }
+
+        this.set(x, z, this.scan(chunk, x, z, y1, 0));
+    }
+
+    /**
+     * Updates the given column after a single block has
+     * been set to the given state, without reading the chunk
+     * unless the highest block was removed.
+     *
+     * @param chunk the chunk containing the block
+     * @param x the relative x coordinate
+     * @param y the y coordinate
+     * @param z the relative z coordinate
+     * @param state the new state of the block
+     */
+    public synchronized void update(Chunk chunk, int x, int y, int z, int state) {
+        int height = this.getHeight(x, z);
+        if (this.type.counts(state)) {
+            if (y >= height) {
+                this.set(x, z, y + 1);
+            }
+        } else if (y == height - 1) {
+            this.set(x, z, this.scan(chunk, x, z, y - 1, 0));
+        }
+    }
+
+    /**
+     * Finds the height above the highest counting block
+     * between the two given y coordinates, inclusive.
+     */
+    private int scan(Chunk chunk, int x, int z, int from, int to) {
+        for (int y = from; y >= to; y--) {
+            if (this.type.counts(chunk.getStateIdAt(x, y, z))) {
+                return y + 1;
+            }
+        }
+        return 0;
+    }
+
+    private void set(int x, int z, int height) {
+        int i = z << 4 | x;
+        int word = i / PER_LONG;
+        int shift = i % PER_LONG * BITS;
+        long value = this.data.get(word);
+        this.data.set(word, value & ~(MASK << shift) | (long) height << shift);
+    }
+}
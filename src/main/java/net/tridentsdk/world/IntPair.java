@@ -16,6 +16,8 @@
  */
 package net.tridentsdk.world;
 
+import net.tridentsdk.util.Long2ReferenceOpenHashMap;
+
 import javax.annotation.concurrent.Immutable;
 
 /**
@@ -60,6 +62,65 @@ public final class IntPair {
         return new IntPair(x, z);
     }
 
+    /**
+     * Packs the two given {@code int}s into a single
+     * {@code long}, which can be used as a map key without
+     * allocating a pair, for example in a
+     * {@link Long2ReferenceOpenHashMap}.
+     *
+     * @param x the first {@code int}, stored in the high
+     * half
+     * @param z the second {@code int}, stored in the low
+     * half
+     * @return the packed {@code int}s
+     */
+    public static long pack(int x, int z) {
+        return (long) x << 32 | z & 0xFFFFFFFFL;
+    }
+
+    /**
+     * Obtains the first {@code int} from a {@code long}
+     * created with {@link #pack(int, int)}.
+     *
+     * @param packed the packed {@code int}s
+     * @return the first {@code int}
+     */
+    public static int unpackX(long packed) {
+        return (int) (packed >> 32);
+    }
+
+    /**
+     * Obtains the second {@code int} from a {@code long}
+     * created with {@link #pack(int, int)}.
+     *
+     * @param packed the packed {@code int}s
+     * @return the second {@code int}
+     */
+    public static int unpackZ(long packed) {
+        return (int) packed;
+    }
+
+    /**
+     * Creates a pair from a {@code long} created with
+     * {@link #pack(int, int)}.
+     *
+     * @param packed the packed {@code int}s
+     * @return the pair
+     */
+    public static IntPair unpack(long packed) {
+        return new IntPair(unpackX(packed), unpackZ(packed));
+    }
+
+    /**
+     * Packs this pair into a single {@code long}.
+     *
+     * @return the packed {@code int}s
+     * @see #pack(int, int)
+     */
+    public long pack() {
+        return pack(this.x, this.z);
+    }
+
     /**
      * Obtains the first {@code int} in the pair.
      *
@@ -90,10 +151,7 @@ public final class IntPair {
 
     @Override
     public int hashCode() {
-        int hash = 1;
-        hash = 31 * hash + this.x;
-        hash = 31 * hash + this.z;
-        return hash;
+        return Long2ReferenceOpenHashMap.mix(this.pack());
     }
 
     @Override
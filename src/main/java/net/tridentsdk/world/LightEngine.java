@@ -0,0 +1,932 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Substance;
+import net.tridentsdk.util.Long2ReferenceOpenHashMap;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Keeps the block and sky light levels of the
+ * {@link ChunkSection}s of a world up to date as blocks
+ * change, without recomputing whole chunks.
+ *
+ * <p>Changed blocks are {@link #markChanged(int, int, int)
+ * marked} from any thread into a bit set per section, and
+ * are relit together on the next {@link #update()}, or on
+ * a worker thread by {@link #updateAsync(Executor, Executor)}
+ * which hands the results back to the world's thread. Each
+ * update runs a breadth first decrease pass, which darkens
+ * the blocks which were lit through a changed block, and
+ * then an increase pass, which spreads light back into
+ * them. Both passes queue packed coordinates and levels in
+ * {@code int} ring buffers, so that no objects are created
+ * per block.</p>
+ *
+ * <p>Light only spreads through chunks which are already
+ * {@link World#getLoadedChunkAt(int, int) loaded}, so that
+ * an update never reads from disk, and which
+ * {@link Chunk#getSection(int) expose their sections}.
+ * Once an update completes, the
+ * {@link #setListener(ObjIntConsumer) listener} is called
+ * once for every chunk whose light changed, with a mask of
+ * its changed sections, so that light updates may be sent
+ * to the chunk's viewers.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@ThreadSafe
+public class LightEngine {
+    /**
+     * The highest light level
+     */
+    public static final int MAX_LEVEL = 15;
+
+    /**
+     * The light emitted by each block id
+     */
+    private static final byte[] EMISSION = new byte[1 << 9];
+    /**
+     * The amount by which each block id reduces light
+     * passing through it
+     */
+    private static final byte[] OPACITY = new byte[1 << 9];
+
+    static {
+        emit(15, Substance.GLOWSTONE, Substance.LAVA, Substance.FLOWING_LAVA, Substance.FIRE,
+                Substance.JACK_O_LANTERN, Substance.BEACON, Substance.SEA_LANTERN, Substance.END_PORTAL,
+                Substance.LIT_REDSTONE_LAMP);
+        emit(14, Substance.TORCH, Substance.END_ROD);
+        emit(13, Substance.BURNING_FURNACE);
+        emit(11, Substance.PORTAL);
+        emit(9, Substance.LIT_REDSTONE_ORE);
+        emit(7, Substance.LIT_REDSTONE_TORCH, Substance.ENDER_CHEST);
+        emit(3, Substance.MAGMA_BLOCK);
+        emit(1, Substance.BROWN_MUSHROOM, Substance.BREWING_STAND, Substance.DRAGON_EGG,
+                Substance.END_PORTAL_FRAME);
+
+        for (int i = 0; i < OPACITY.length; i++) {
+            OPACITY[i] = (byte) (HeightMap.isPassable(i) ? 0 : MAX_LEVEL);
+        }
+        opacity(0, Substance.GLASS, Substance.STAINED_GLASS, Substance.GLASS_PANE, Substance.STAINED_GLASS_PANE,
+                Substance.IRON_BARS, Substance.OAK_FENCE, Substance.SPRUCE_FENCE, Substance.BIRCH_FENCE,
+                Substance.JUNGLE_FENCE, Substance.DARK_OAK_FENCE, Substance.ACACIA_FENCE,
+                Substance.NETHER_BRICK_FENCE, Substance.FENCE_GATE, Substance.SPRUCE_FENCE_GATE,
+                Substance.BIRCH_FENCE_GATE, Substance.JUNGLE_FENCE_GATE, Substance.DARK_OAK_FENCE_GATE,
+                Substance.ACACIA_FENCE_GATE, Substance.COBBLESTONE_WALL, Substance.OAK_DOOR,
+                Substance.SPRUCE_DOOR, Substance.BIRCH_DOOR, Substance.JUNGLE_DOOR, Substance.ACACIA_DOOR,
+                Substance.DARK_OAK_DOOR, Substance.IRON_DOOR, Substance.TRAPDOOR, Substance.IRON_TRAPDOOR,
+                Substance.CHEST, Substance.TRAPPED_CHEST, Substance.ENDER_CHEST, Substance.BED, Substance.CAKE,
+                Substance.CACTUS, Substance.PISTON_HEAD, Substance.ENCHANTMENT_TABLE, Substance.BREWING_STAND,
+                Substance.END_PORTAL_FRAME, Substance.DRAGON_EGG, Substance.BEACON, Substance.FLOWER_POT,
+                Substance.MOB_HEAD, Substance.ANVIL, Substance.HOPPER, Substance.DAYLIGHT_SENSOR,
+                Substance.INVERTED_DAYLIGHT_SENSOR, Substance.REDSTONE_REPEATER,
+                Substance.LIT_REDSTONE_REPEATER, Substance.REDSTONE_COMPARATOR,
+                Substance.LIT_REDSTONE_COMPARATOR, Substance.FARMLAND, Substance.END_ROD, Substance.BARRIER,
+                Substance.STONE_SLAB, Substance.WOODEN_SLAB, Substance.RED_SANDSTONE_SLAB, Substance.PURPUR_SLAB,
+                Substance.OAK_WOOD_STAIRS, Substance.COBBLESTONE_STAIRS, Substance.BRICK_STAIRS,
+                Substance.STONE_BRICK_STAIRS, Substance.NETHER_BRICK_STAIRS, Substance.SANDSTONE_STAIRS,
+                Substance.SPRUCE_WOOD_STAIRS, Substance.BIRCH_WOOD_STAIRS, Substance.JUNGLE_WOOD_STAIRS,
+                Substance.QUARTZ_STAIRS, Substance.ACACIA_WOOD_STAIRS, Substance.DARK_OAK_WOOD_STAIRS,
+                Substance.RED_SANDSTONE_STAIRS, Substance.PURPUR_STAIRS);
+        opacity(1, Substance.LEAVES, Substance.COBWEB);
+        opacity(3, Substance.WATER, Substance.FLOWING_WATER, Substance.ICE, Substance.FROSTED_ICE);
+    }
+
+    private static void emit(int level, Substance... substances) {
+        for (Substance substance : substances) {
+            EMISSION[substance.getId()] = (byte) level;
+        }
+    }
+
+    private static void opacity(int opacity, Substance... substances) {
+        for (Substance substance : substances) {
+            OPACITY[substance.getId()] = (byte) opacity;
+        }
+    }
+
+    /**
+     * The block offsets of the six neighbors of a block
+     */
+    private static final int[] DX = { 1, -1, 0, 0, 0, 0 };
+    private static final int[] DY = { 0, 0, 1, -1, 0, 0 };
+    private static final int[] DZ = { 0, 0, 0, 0, 1, -1 };
+    /**
+     * The index of the neighbor below a block, which sky
+     * light reaches without losing a level
+     */
+    private static final int DOWN = 3;
+    /**
+     * The log2 of the width in chunks of the regions which
+     * are relit in a single pass, which keeps the packed
+     * coordinates of a pass within 12 bits
+     */
+    private static final int REGION_SHIFT = 6;
+
+    /**
+     * The light changes to a single chunk made by an update.
+     */
+    private static final class Changed {
+        private final Chunk chunk;
+        private int mask;
+
+        Changed(Chunk chunk) {
+            this.chunk = chunk;
+        }
+    }
+
+    /**
+     * A growable ring buffer of pairs of ints.
+     */
+    private static final class IntQueue {
+        private int[] data = new int[1024];
+        private int head;
+        private int tail;
+
+        void push(int a, int b) {
+            if (this.tail - this.head + 2 > this.data.length) {
+                int size = this.tail - this.head;
+                int[] grown = new int[this.data.length << 1];
+                for (int i = 0; i < size; i++) {
+                    grown[i] = this.data[this.head + i & this.data.length - 1];
+                }
+                this.data = grown;
+                this.head = 0;
+                this.tail = size;
+            }
+
+            int mask = this.data.length - 1;
+            this.data[this.tail & mask] = a;
+            this.data[this.tail + 1 & mask] = b;
+            this.tail += 2;
+        }
+
+        int poll() {
+            return this.data[this.head++ & this.data.length - 1];
+        }
+
+        boolean isEmpty() {
+            return this.head == this.tail;
+        }
+    }
+
+    private final World world;
+    private final boolean sky;
+    private volatile ObjIntConsumer<Chunk> listener;
+
+    private final Object pendingLock = new Object();
+    /**
+     * The bit sets of changed blocks, keyed by section
+     */
+    @GuardedBy("pendingLock")
+    private Long2ReferenceOpenHashMap<long[]> pending = new Long2ReferenceOpenHashMap<>();
+
+    // The state of the update in progress
+    @GuardedBy("this")
+    private final IntQueue increase = new IntQueue();
+    @GuardedBy("this")
+    private final IntQueue decrease = new IntQueue();
+    @GuardedBy("this")
+    private final Long2ReferenceOpenHashMap<Chunk> chunks = new Long2ReferenceOpenHashMap<>();
+    @GuardedBy("this")
+    private Long2ReferenceOpenHashMap<Changed> changed;
+    @GuardedBy("this")
+    private int originX;
+    @GuardedBy("this")
+    private int originZ;
+    @GuardedBy("this")
+    private long cachedKey;
+    @GuardedBy("this")
+    private Chunk cachedChunk;
+    @GuardedBy("this")
+    private ChunkSection cachedSection;
+    @GuardedBy("this")
+    private Changed cachedChanged;
+
+    /**
+     * Creates a new light engine for the given world.
+     *
+     * @param world the world whose light to maintain
+     * @param sky {@code true} to maintain sky light as well
+     * as block light
+     */
+    public LightEngine(World world, boolean sky) {
+        this.world = world;
+        this.sky = sky;
+    }
+
+    /**
+     * Obtains the light emitted by blocks with the given
+     * state id.
+     *
+     * @param state the state id
+     * @return the emitted light, from 0 to 15
+     */
+    public static int getEmission(int state) {
+        return EMISSION[state >>> 4];
+    }
+
+    /**
+     * Obtains the number of levels by which blocks with the
+     * given state id reduce light passing through them, in
+     * addition to the one level lost per block.
+     *
+     * @param state the state id
+     * @return the opacity, from 0 to 15
+     */
+    public static int getOpacity(int state) {
+        return OPACITY[state >>> 4];
+    }
+
+    /**
+     * Obtains the world whose light is maintained by this
+     * engine.
+     *
+     * @return the world
+     */
+    public World getWorld() {
+        return this.world;
+    }
+
+    /**
+     * Checks whether this engine maintains sky light.
+     *
+     * @return {@code true} if sky light is maintained
+     */
+    public boolean hasSky() {
+        return this.sky;
+    }
+
+    /**
+     * Sets the listener which is called after each update
+     * with every chunk whose light changed and a mask of its
+     * changed sections.
+     *
+     * @param listener the listener, or {@code null} to
+     * remove it
+     */
+    public void setListener(@Nullable ObjIntConsumer<Chunk> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Marks the block at the given coordinates as changed,
+     * so that the light around it is recomputed on the next
+     * update.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     */
+    public void markChanged(int x, int y, int z) {
+        if (y < 0 || y > 255) {
+            return;
+        }
+
+        long key = sectionKey(x >> 4, y >> 4, z >> 4);
+        int index = ChunkSection.index(x & 15, y & 15, z & 15);
+        synchronized (this.pendingLock) {
+            long[] bits = this.pendingBits(key);
+            bits[index >> 6] |= 1L << index;
+        }
+    }
+
+    /**
+     * Marks every block in the given box as changed, taking
+     * the lock only once, for example after a bulk write.
+     *
+     * @param x0 the smallest x coordinate
+     * @param y0 the smallest y coordinate
+     * @param z0 the smallest z coordinate
+     * @param x1 the largest x coordinate
+     * @param y1 the largest y coordinate
+     * @param z1 the largest z coordinate
+     */
+    public void markChanged(int x0, int y0, int z0, int x1, int y1, int z1) {
+        y0 = Math.max(y0, 0);
+        y1 = Math.min(y1, 255);
+        if (x0 > x1 || y0 > y1 || z0 > z1) {
+            return;
+        }
+
+        synchronized (this.pendingLock) {
+            for (int cx = x0 >> 4; cx <= x1 >> 4; cx++) {
+                int bx0 = Math.max(x0, cx << 4) & 15;
+                int bx1 = Math.min(x1, cx << 4 | 15) & 15;
+                for (int cz = z0 >> 4; cz <= z1 >> 4; cz++) {
+                    int bz0 = Math.max(z0, cz << 4) & 15;
+                    int bz1 = Math.min(z1, cz << 4 | 15) & 15;
+                    for (int sy = y0 >> 4; sy <= y1 >> 4; sy++) {
+                        int by0 = Math.max(y0, sy << 4) & 15;
+                        int by1 = Math.min(y1, sy << 4 | 15) & 15;
+                        long[] bits = this.pendingBits(sectionKey(cx, sy, cz));
+                        for (int y = by0; y <= by1; y++) {
+                            for (int z = bz0; z <= bz1; z++) {
+                                for (int x = bx0; x <= bx1; x++) {
+                                    int index = ChunkSection.index(x, y, z);
+                                    bits[index >> 6] |= 1L << index;
+                                }
+                            }
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    @GuardedBy("pendingLock")
+    private long[] pendingBits(long key) {
+        long[] bits = this.pending.get(key);
+        if (bits == null) {
+            bits = new long[ChunkSection.VOLUME / 64];
+            this.pending.put(key, bits);
+        }
+        return bits;
+    }
+
+    /**
+     * Obtains the number of sections which have changed
+     * blocks waiting for an update.
+     *
+     * @return the number of pending sections
+     */
+    public int getPendingCount() {
+        synchronized (this.pendingLock) {
+            return this.pending.size();
+        }
+    }
+
+    /**
+     * Relights the blocks which have been marked as changed
+     * on the calling thread, then calls the listener.
+     */
+    public void update() {
+        this.dispatch(this.process());
+    }
+
+    /**
+     * Relights the blocks which have been marked as changed
+     * on the given worker, then calls the listener on the
+     * given hand off executor, which is usually the world's
+     * tick thread.
+     *
+     * @param worker the executor which computes the light
+     * @param handOff the executor which calls the listener
+     * @return a future completed after the listener is
+     * called
+     */
+    public CompletableFuture<Void> updateAsync(Executor worker, Executor handOff) {
+        return CompletableFuture.supplyAsync(this::process, worker).thenAcceptAsync(this::dispatch, handOff);
+    }
+
+    /**
+     * Computes the light of every block in the given chunk
+     * from scratch, for example after it has been generated
+     * or loaded without light, then calls the listener.
+     *
+     * <p>Light from neighboring loaded chunks is spread into
+     * the chunk, and light from the chunk is spread out into
+     * them.</p>
+     *
+     * @param chunk the chunk to light
+     */
+    public void lightChunk(Chunk chunk) {
+        this.dispatch(this.relight(chunk));
+    }
+
+    /**
+     * Obtains the block light level at the given
+     * coordinates.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return the level, or 0 if the block is not in a loaded
+     * section
+     */
+    public int getBlockLight(int x, int y, int z) {
+        ChunkSection section = this.findSection(x, y, z);
+        return section == null ? 0 : section.getBlockLight().get(ChunkSection.index(x & 15, y & 15, z & 15));
+    }
+
+    /**
+     * Obtains the sky light level at the given coordinates.
+     *
+     * @param x the x coordinate
+     * @param y the y coordinate
+     * @param z the z coordinate
+     * @return the level, 15 above the world, or 0 if the
+     * block is not in a loaded section
+     */
+    public int getSkyLight(int x, int y, int z) {
+        if (y > 255) {
+            return this.sky ? MAX_LEVEL : 0;
+        }
+        ChunkSection section = this.findSection(x, y, z);
+        return section == null ? 0 : section.getSkyLight().get(ChunkSection.index(x & 15, y & 15, z & 15));
+    }
+
+    @Nullable
+    private ChunkSection findSection(int x, int y, int z) {
+        if (y < 0 || y > 255) {
+            return null;
+        }
+        Chunk chunk = this.world.getLoadedChunkAt(x >> 4, z >> 4);
+        return chunk == null ? null : chunk.getSection(y >> 4);
+    }
+
+    private void dispatch(Long2ReferenceOpenHashMap<Changed> changed) {
+        ObjIntConsumer<Chunk> listener = this.listener;
+        if (listener != null) {
+            changed.forEach((k, c) -> listener.accept(c.chunk, c.mask));
+        }
+    }
+
+    /**
+     * Relights every pending section, one region at a time.
+     *
+     * @return the light changes
+     */
+    private synchronized Long2ReferenceOpenHashMap<Changed> process() {
+        Long2ReferenceOpenHashMap<long[]> batch;
+        synchronized (this.pendingLock) {
+            batch = this.pending;
+            if (batch.isEmpty()) {
+                return new Long2ReferenceOpenHashMap<>();
+            }
+            this.pending = new Long2ReferenceOpenHashMap<>();
+        }
+
+        this.begin();
+        long[] keys = new long[batch.size()];
+        int[] count = new int[1];
+        batch.forEach((k, v) -> keys[count[0]++] = k);
+
+        boolean[] done = new boolean[keys.length];
+        for (int i = 0; i < keys.length; i++) {
+            if (done[i]) {
+                continue;
+            }
+
+            int rx = sectionX(keys[i]) >> REGION_SHIFT;
+            int rz = sectionZ(keys[i]) >> REGION_SHIFT;
+            this.setRegion(rx, rz);
+            for (int pass = 0; pass < (this.sky ? 2 : 1); pass++) {
+                boolean sky = pass == 1;
+                for (int j = i; j < keys.length; j++) {
+                    long key = keys[j];
+                    if (!done[j] && sectionX(key) >> REGION_SHIFT == rx && sectionZ(key) >> REGION_SHIFT == rz) {
+                        this.seed(key, batch.get(key), sky);
+                    }
+                }
+                this.propagateDecrease(sky);
+                this.propagateIncrease(sky);
+            }
+
+            for (int j = i; j < keys.length; j++) {
+                long key = keys[j];
+                if (sectionX(key) >> REGION_SHIFT == rx && sectionZ(key) >> REGION_SHIFT == rz) {
+                    done[j] = true;
+                }
+            }
+        }
+        return this.end();
+    }
+
+    /**
+     * Computes the light of the given chunk from scratch.
+     *
+     * @param chunk the chunk
+     * @return the light changes
+     */
+    private synchronized Long2ReferenceOpenHashMap<Changed> relight(Chunk chunk) {
+        this.begin();
+        int cx = chunk.getX();
+        int cz = chunk.getZ();
+        this.chunks.put(IntPair.pack(cx, cz), chunk);
+        this.setRegion(cx >> REGION_SHIFT, cz >> REGION_SHIFT);
+
+        Changed changed = new Changed(chunk);
+        this.changed.put(IntPair.pack(cx, cz), changed);
+        int[] states = new int[ChunkSection.VOLUME];
+        for (int sy = 0; sy < 16; sy++) {
+            ChunkSection section = chunk.getSection(sy);
+            if (section == null) {
+                continue;
+            }
+
+            changed.mask |= 1 << sy;
+            NibbleArray light = section.getBlockLight();
+            light.fill(0);
+            section.getSkyLight().fill(0);
+            section.getStateIds(states, 0);
+            for (int i = 0; i < ChunkSection.VOLUME; i++) {
+                int emission = EMISSION[states[i] >>> 4];
+                if (emission > 0) {
+                    light.set(i, emission);
+                    this.increase.push(this.pack(cx << 4 | i & 15, sy << 4 | i >> 8, cz << 4 | i >> 4 & 15),
+                            emission);
+                }
+            }
+        }
+        this.seedBorders(cx, cz, false);
+        this.propagateIncrease(false);
+
+        if (this.sky) {
+            // The lowest y of the column which the sky reaches
+            // without passing through any block
+            int[] lowest = new int[256];
+            for (int c = 0; c < 256; c++) {
+                int y = 255;
+                for (; y >= 0; y--) {
+                    ChunkSection section = chunk.getSection(y >> 4);
+                    int index = ChunkSection.index(c & 15, y & 15, c >> 4);
+                    if (section == null || OPACITY[section.getStateId(index) >>> 4] != 0) {
+                        break;
+                    }
+                    section.getSkyLight().set(index, MAX_LEVEL);
+                }
+                lowest[c] = y + 1;
+            }
+
+            // Light only spreads sideways from the part of a
+            // column below the top of its neighbors
+            for (int c = 0; c < 256; c++) {
+                int x = c & 15;
+                int z = c >> 4;
+                int top = 0;
+                top = Math.max(top, x == 15 ? 255 : lowest[c + 1]);
+                top = Math.max(top, x == 0 ? 255 : lowest[c - 1]);
+                top = Math.max(top, z == 15 ? 255 : lowest[c + 16]);
+                top = Math.max(top, z == 0 ? 255 : lowest[c - 16]);
+                for (int y = lowest[c]; y <= Math.min(top, 255); y++) {
+                    this.increase.push(this.pack(cx << 4 | x, y, cz << 4 | z), MAX_LEVEL);
+                }
+            }
+            this.seedBorders(cx, cz, true);
+            this.propagateIncrease(true);
+        }
+        return this.end();
+    }
+
+    @GuardedBy("this")
+    private void begin() {
+        this.changed = new Long2ReferenceOpenHashMap<>();
+        this.uncache();
+    }
+
+    /**
+     * Marks the changed sections dirty, and releases the
+     * state of the update.
+     *
+     * @return the light changes
+     */
+    @GuardedBy("this")
+    private Long2ReferenceOpenHashMap<Changed> end() {
+        Long2ReferenceOpenHashMap<Changed> changed = this.changed;
+        changed.forEach((k, c) -> {
+            for (int sy = 0; sy < 16; sy++) {
+                if ((c.mask & 1 << sy) != 0) {
+                    ChunkSection section = c.chunk.getSection(sy);
+                    if (section != null) {
+                        section.markDirty();
+                    }
+                }
+            }
+        });
+
+        this.changed = null;
+        this.chunks.clear();
+        this.uncache();
+        return changed;
+    }
+
+    @GuardedBy("this")
+    private void setRegion(int rx, int rz) {
+        // Centers the region in the 4096 blocks which fit
+        // in the packed coordinates
+        this.originX = (rx << REGION_SHIFT + 4) - 1024;
+        this.originZ = (rz << REGION_SHIFT + 4) - 1024;
+    }
+
+    @GuardedBy("this")
+    private void uncache() {
+        this.cachedKey = Long.MIN_VALUE;
+        this.cachedChunk = null;
+        this.cachedSection = null;
+        this.cachedChanged = null;
+    }
+
+    /**
+     * Queues the light changes caused by each of the changed
+     * blocks of the given section.
+     */
+    @GuardedBy("this")
+    private void seed(long key, long[] bits, boolean sky) {
+        int bx = sectionX(key) << 4;
+        int by = sectionY(key) << 4;
+        int bz = sectionZ(key) << 4;
+        for (int w = 0; w < bits.length; w++) {
+            long word = bits[w];
+            while (word != 0) {
+                int index = w << 6 | Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+
+                int x = bx | index & 15;
+                int y = by | index >> 8;
+                int z = bz | index >> 4 & 15;
+                ChunkSection section = this.section(x, y, z);
+                if (section == null) {
+                    continue;
+                }
+
+                NibbleArray light = sky ? section.getSkyLight() : section.getBlockLight();
+                int old = light.get(index);
+                int source = source(section.getStateId(index), y, sky);
+                int pos = this.pack(x, y, z);
+                if (old > 0) {
+                    this.write(light, index, 0);
+                    this.decrease.push(pos, old);
+                }
+                if (source > 0) {
+                    this.write(light, index, source);
+                    this.increase.push(pos, source);
+                }
+
+                // Spreads the light of the neighbors into the
+                // block in case it became more transparent
+                for (int d = 0; d < 6; d++) {
+                    int ny = y + DY[d];
+                    if (ny < 0 || ny > 255) {
+                        continue;
+                    }
+
+                    int nx = x + DX[d];
+                    int nz = z + DZ[d];
+                    ChunkSection neighbor = this.section(nx, ny, nz);
+                    if (neighbor != null) {
+                        int level = (sky ? neighbor.getSkyLight() : neighbor.getBlockLight())
+                                .get(ChunkSection.index(nx & 15, ny & 15, nz & 15));
+                        if (level > 0) {
+                            this.increase.push(this.pack(nx, ny, nz), level);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Queues the light at the faces of the neighbors of the
+     * given chunk which border it.
+     */
+    @GuardedBy("this")
+    private void seedBorders(int cx, int cz, boolean sky) {
+        for (int d = 0; d < 6; d++) {
+            if (DY[d] != 0) {
+                continue;
+            }
+
+            int nx = cx + DX[d];
+            int nz = cz + DZ[d];
+            Chunk neighbor = this.chunk(nx, nz);
+            if (neighbor == null) {
+                continue;
+            }
+
+            // The local coordinate of the face along the
+            // direction back toward the chunk
+            int face = DX[d] + DZ[d] > 0 ? 0 : 15;
+            for (int sy = 0; sy < 16; sy++) {
+                ChunkSection section = neighbor.getSection(sy);
+                if (section == null) {
+                    continue;
+                }
+
+                NibbleArray light = sky ? section.getSkyLight() : section.getBlockLight();
+                for (int y = 0; y < 16; y++) {
+                    for (int i = 0; i < 16; i++) {
+                        int x = DX[d] != 0 ? face : i;
+                        int z = DX[d] != 0 ? i : face;
+                        int level = light.get(ChunkSection.index(x, y, z));
+                        if (level > 1) {
+                            this.increase.push(this.pack(nx << 4 | x, sy << 4 | y, nz << 4 | z), level);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Darkens every block which may have been lit through
+     * the queued blocks, queueing the blocks from which
+     * light must spread back.
+     */
+    @GuardedBy("this")
+    private void propagateDecrease(boolean sky) {
+        IntQueue queue = this.decrease;
+        while (!queue.isEmpty()) {
+            int pos = queue.poll();
+            int level = queue.poll();
+            int x = this.unpackX(pos);
+            int y = pos & 255;
+            int z = this.unpackZ(pos);
+
+            for (int d = 0; d < 6; d++) {
+                int ny = y + DY[d];
+                if (ny < 0 || ny > 255) {
+                    continue;
+                }
+
+                int nx = x + DX[d];
+                int nz = z + DZ[d];
+                ChunkSection section = this.section(nx, ny, nz);
+                if (section == null) {
+                    continue;
+                }
+
+                NibbleArray light = sky ? section.getSkyLight() : section.getBlockLight();
+                int index = ChunkSection.index(nx & 15, ny & 15, nz & 15);
+                int current = light.get(index);
+                if (current == 0) {
+                    continue;
+                }
+
+                int npos = this.pack(nx, ny, nz);
+                if (current < level || sky && d == DOWN && level == MAX_LEVEL && current == MAX_LEVEL) {
+                    int source = source(section.getStateId(index), ny, sky);
+                    this.write(light, index, source);
+                    queue.push(npos, current);
+                    if (source > 0) {
+                        this.increase.push(npos, source);
+                    }
+                } else {
+                    this.increase.push(npos, current);
+                }
+            }
+        }
+    }
+
+    /**
+     * Spreads the light of the queued blocks.
+     */
+    @GuardedBy("this")
+    private void propagateIncrease(boolean sky) {
+        IntQueue queue = this.increase;
+        while (!queue.isEmpty()) {
+            int pos = queue.poll();
+            int level = queue.poll();
+            int x = this.unpackX(pos);
+            int y = pos & 255;
+            int z = this.unpackZ(pos);
+
+            // Skips blocks which have since been darkened or
+            // lit further by another block
+            ChunkSection origin = this.section(x, y, z);
+            if (level <= 1 || origin == null ||
+                    (sky ? origin.getSkyLight() : origin.getBlockLight())
+                            .get(ChunkSection.index(x & 15, y & 15, z & 15)) != level) {
+                continue;
+            }
+
+            for (int d = 0; d < 6; d++) {
+                int ny = y + DY[d];
+                if (ny < 0 || ny > 255) {
+                    continue;
+                }
+
+                int nx = x + DX[d];
+                int nz = z + DZ[d];
+                ChunkSection section = this.section(nx, ny, nz);
+                if (section == null) {
+                    continue;
+                }
+
+                int index = ChunkSection.index(nx & 15, ny & 15, nz & 15);
+                int opacity = OPACITY[section.getStateId(index) >>> 4];
+                int next = sky && d == DOWN && level == MAX_LEVEL && opacity == 0 ?
+                        MAX_LEVEL : level - Math.max(1, opacity);
+                NibbleArray light = sky ? section.getSkyLight() : section.getBlockLight();
+                if (next > light.get(index)) {
+                    this.write(light, index, next);
+                    queue.push(this.pack(nx, ny, nz), next);
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtains the light which the block with the given state
+     * produces by itself.
+     */
+    private static int source(int state, int y, boolean sky) {
+        if (sky) {
+            return y == 255 ? Math.max(0, MAX_LEVEL - OPACITY[state >>> 4]) : 0;
+        }
+        return EMISSION[state >>> 4];
+    }
+
+    /**
+     * Sets a light level in the section last obtained from
+     * {@link #section(int, int, int)}, recording the change.
+     */
+    @GuardedBy("this")
+    private void write(NibbleArray light, int index, int level) {
+        light.set(index, level);
+        if (this.cachedChanged == null) {
+            long key = IntPair.pack(this.cachedChunk.getX(), this.cachedChunk.getZ());
+            Changed changed = this.changed.get(key);
+            if (changed == null) {
+                changed = new Changed(this.cachedChunk);
+                this.changed.put(key, changed);
+            }
+            this.cachedChanged = changed;
+        }
+        this.cachedChanged.mask |= 1 << sectionY(this.cachedKey);
+    }
+
+    /**
+     * Obtains the section holding the given block, if it is
+     * loaded.
+     */
+    @GuardedBy("this")
+    @Nullable
+    private ChunkSection section(int x, int y, int z) {
+        long key = sectionKey(x >> 4, y >> 4, z >> 4);
+        if (key != this.cachedKey) {
+            Chunk chunk = this.chunk(x >> 4, z >> 4);
+            this.cachedKey = key;
+            this.cachedChunk = chunk;
+            this.cachedSection = chunk == null ? null : chunk.getSection(y >> 4);
+            this.cachedChanged = null;
+        }
+        return this.cachedSection;
+    }
+
+    @GuardedBy("this")
+    @Nullable
+    private Chunk chunk(int cx, int cz) {
+        long key = IntPair.pack(cx, cz);
+        Chunk chunk = this.chunks.get(key);
+        if (chunk == null) {
+            chunk = this.world.getLoadedChunkAt(cx, cz);
+            if (chunk != null) {
+                this.chunks.put(key, chunk);
+            }
+        }
+        return chunk;
+    }
+
+    @GuardedBy("this")
+    private int pack(int x, int y, int z) {
+        return x - this.originX << 20 | (z - this.originZ) << 8 | y;
+    }
+
+    @GuardedBy("this")
+    private int unpackX(int pos) {
+        return (pos >>> 20) + this.originX;
+    }
+
+    @GuardedBy("this")
+    private int unpackZ(int pos) {
+        return (pos >>> 8 & 0xFFF) + this.originZ;
+    }
+
+    private static long sectionKey(int cx, int sy, int cz) {
+        return IntPair.pack(cx, cz) << 4 | sy;
+    }
+
+    private static int sectionX(long key) {
+        return (int) (key >> 36);
+    }
+
+    private static int sectionY(long key) {
+        return (int) key & 15;
+    }
+
+    private static int sectionZ(long key) {
+        return (int) (key >>> 4);
+    }
+}
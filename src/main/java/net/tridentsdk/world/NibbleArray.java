@@ -0,0 +1,97 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import javax.annotation.concurrent.NotThreadSafe;
+import java.util.Arrays;
+
+/**
+ * An array of 4096 values from 0 to 15 packed two to a
+ * byte, in the same layout as the light arrays of a chunk
+ * section on disk.
+ *
+ * <p>Values are indexed as by
+ * {@link ChunkSection#index(int, int, int)}, with even
+ * indexes in the low nibble of each byte. Writes must be
+ * confined to a single thread at a time; reads from other
+ * threads may see a stale value but never a torn one.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@NotThreadSafe
+public class NibbleArray {
+    /**
+     * The number of bytes backing the array
+     */
+    public static final int BYTES = ChunkSection.VOLUME / 2;
+
+    private final byte[] data = new byte[BYTES];
+
+    /**
+     * Obtains the value at the given index.
+     *
+     * @param index the index
+     * @return the value, from 0 to 15
+     */
+    public int get(int index) {
+        return this.data[index >> 1] >> ((index & 1) << 2) & 15;
+    }
+
+    /**
+     * Sets the value at the given index.
+     *
+     * @param index the index
+     * @param value the new value, from 0 to 15
+     */
+    public void set(int index, int value) {
+        int i = index >> 1;
+        int shift = (index & 1) << 2;
+        this.data[i] = (byte) (this.data[i] & ~(15 << shift) | (value & 15) << shift);
+    }
+
+    /**
+     * Sets every value in this array.
+     *
+     * @param value the new value, from 0 to 15
+     */
+    public void fill(int value) {
+        Arrays.fill(this.data, (byte) ((value & 15) * 0x11));
+    }
+
+    /**
+     * Replaces the contents of this array with the given
+     * packed values.
+     *
+     * @param data the packed values, {@link #BYTES} long
+     */
+    public void copyFrom(byte[] data) {
+        if (data.length != BYTES) {
+            throw new IllegalArgumentException("Expected " + BYTES + " bytes, got " + data.length);
+        }
+        System.arraycopy(data, 0, this.data, 0, BYTES);
+    }
+
+    /**
+     * Obtains a copy of the packed values in this array.
+     *
+     * @return the packed values
+     */
+    public byte[] getData() {
+        return this.data.clone();
+    }
+}
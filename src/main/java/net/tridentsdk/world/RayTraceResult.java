@@ -0,0 +1,239 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.BlockDirection;
+import net.tridentsdk.entity.Entity;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * The outcome of a ray trace, which may be passed back into
+ * later traces so that frequent checks, such as reach checks
+ * on every interaction, do not allocate.
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@NotThreadSafe
+public class RayTraceResult {
+    /**
+     * What a ray has hit.
+     */
+    public enum Type {
+        /**
+         * Nothing within the maximum distance
+         */
+        MISS,
+        /**
+         * A block
+         */
+        BLOCK,
+        /**
+         * An entity
+         */
+        ENTITY
+    }
+
+    private Type type = Type.MISS;
+    private double distance = Double.POSITIVE_INFINITY;
+    private double x;
+    private double y;
+    private double z;
+    private int blockX;
+    private int blockY;
+    private int blockZ;
+    private int stateId;
+    @Nullable
+    private BlockDirection face;
+    @Nullable
+    private Entity entity;
+
+    /**
+     * Resets this result to a miss.
+     *
+     * @return this result
+     */
+    public RayTraceResult reset() {
+        this.type = Type.MISS;
+        this.distance = Double.POSITIVE_INFINITY;
+        this.face = null;
+        this.entity = null;
+        return this;
+    }
+
+    /**
+     * Records a hit on a block.
+     */
+    void hitBlock(double distance, double x, double y, double z, int blockX, int blockY, int blockZ,
+                  int stateId, @Nullable BlockDirection face) {
+        this.type = Type.BLOCK;
+        this.distance = distance;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.blockX = blockX;
+        this.blockY = blockY;
+        this.blockZ = blockZ;
+        this.stateId = stateId;
+        this.face = face;
+        this.entity = null;
+    }
+
+    /**
+     * Records a hit on an entity.
+     */
+    void hitEntity(double distance, double x, double y, double z, Entity entity) {
+        this.type = Type.ENTITY;
+        this.distance = distance;
+        this.x = x;
+        this.y = y;
+        this.z = z;
+        this.face = null;
+        this.entity = entity;
+    }
+
+    /**
+     * Obtains what the ray hit.
+     *
+     * @return the type of hit
+     */
+    public Type getType() {
+        return this.type;
+    }
+
+    /**
+     * Checks whether the ray hit anything.
+     *
+     * @return {@code true} if something was hit
+     */
+    public boolean isHit() {
+        return this.type != Type.MISS;
+    }
+
+    /**
+     * Obtains the distance from the origin to the hit.
+     *
+     * @return the distance, or infinity on a miss
+     */
+    public double getDistance() {
+        return this.distance;
+    }
+
+    /**
+     * Obtains the x coordinate of the point where the ray
+     * hit.
+     *
+     * @return the hit x coordinate
+     */
+    public double getX() {
+        return this.x;
+    }
+
+    /**
+     * Obtains the y coordinate of the point where the ray
+     * hit.
+     *
+     * @return the hit y coordinate
+     */
+    public double getY() {
+        return this.y;
+    }
+
+    /**
+     * Obtains the z coordinate of the point where the ray
+     * hit.
+     *
+     * @return the hit z coordinate
+     */
+    public double getZ() {
+        return this.z;
+    }
+
+    /**
+     * Obtains the x coordinate of the block which was hit.
+     *
+     * @return the block x coordinate
+     */
+    public int getBlockX() {
+        return this.blockX;
+    }
+
+    /**
+     * Obtains the y coordinate of the block which was hit.
+     *
+     * @return the block y coordinate
+     */
+    public int getBlockY() {
+        return this.blockY;
+    }
+
+    /**
+     * Obtains the z coordinate of the block which was hit.
+     *
+     * @return the block z coordinate
+     */
+    public int getBlockZ() {
+        return this.blockZ;
+    }
+
+    /**
+     * Obtains the state id of the block which was hit.
+     *
+     * @return the state id
+     */
+    public int getStateId() {
+        return this.stateId;
+    }
+
+    /**
+     * Obtains the face of the block through which the ray
+     * entered it.
+     *
+     * @return the face, or {@code null} if the ray started
+     * inside the block or did not hit a block
+     */
+    @Nullable
+    public BlockDirection getFace() {
+        return this.face;
+    }
+
+    /**
+     * Obtains the entity which was hit.
+     *
+     * @return the entity, or {@code null} if the ray did
+     * not hit an entity
+     */
+    @Nullable
+    public Entity getEntity() {
+        return this.entity;
+    }
+
+    @Override
+    public String toString() {
+        switch (this.type) {
+            case BLOCK:
+                return "RayTraceResult{BLOCK " + this.blockX + "," + this.blockY + "," + this.blockZ +
+                        " face=" + this.face + " distance=" + this.distance + "}";
+            case ENTITY:
+                return "RayTraceResult{ENTITY " + this.entity + " distance=" + this.distance + "}";
+            default:
+                return "RayTraceResult{MISS}";
+        }
+    }
+}
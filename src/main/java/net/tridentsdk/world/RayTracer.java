@@ -0,0 +1,301 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.BlockDirection;
+import net.tridentsdk.entity.Entity;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+
+/**
+ * Casts rays through the blocks of a world using the voxel
+ * traversal of Amanatides and Woo, which visits every block
+ * the ray passes through, in order, with a few additions per
+ * step and without creating any objects.
+ *
+ * <p>Blocks are read through
+ * {@link Chunk#getStateIdAt(int, int, int)}, and the chunk
+ * is only looked up again once the ray crosses into another
+ * one. Chunks are looked up with
+ * {@link World#getLoadedChunkAt(int, int)}, so a trace
+ * never reads from disk or generates; a ray which reaches
+ * a chunk that is not loaded ends there as a miss.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@ThreadSafe
+public final class RayTracer {
+    private RayTracer() {
+    }
+
+    /**
+     * Traces a ray through the blocks of the given world,
+     * stopping at the first block whose state id matches the
+     * given predicate.
+     *
+     * @param world the world to trace in
+     * @param ox the x coordinate of the origin
+     * @param oy the y coordinate of the origin
+     * @param oz the z coordinate of the origin
+     * @param dx the x component of the direction
+     * @param dy the y component of the direction
+     * @param dz the z component of the direction
+     * @param maxDistance the length of the ray
+     * @param stop the predicate matching the state ids of
+     * blocks which stop the ray
+     * @param result the result to fill in
+     * @return the given result, a miss if no block matched
+     * before the ray ended or reached a chunk which is not
+     * loaded
+     */
+    public static RayTraceResult traceBlocks(World world, double ox, double oy, double oz,
+                                             double dx, double dy, double dz, double maxDistance,
+                                             IntPredicate stop, RayTraceResult result) {
+        result.reset();
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (length == 0) {
+            return result;
+        }
+        dx /= length;
+        dy /= length;
+        dz /= length;
+
+        int x = (int) Math.floor(ox);
+        int y = (int) Math.floor(oy);
+        int z = (int) Math.floor(oz);
+        int stepX = dx > 0 ? 1 : dx < 0 ? -1 : 0;
+        int stepY = dy > 0 ? 1 : dy < 0 ? -1 : 0;
+        int stepZ = dz > 0 ? 1 : dz < 0 ? -1 : 0;
+        double deltaX = stepX == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dx);
+        double deltaY = stepY == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dy);
+        double deltaZ = stepZ == 0 ? Double.POSITIVE_INFINITY : Math.abs(1 / dz);
+        double maxX = boundary(ox, x, dx, deltaX);
+        double maxY = boundary(oy, y, dy, deltaY);
+        double maxZ = boundary(oz, z, dz, deltaZ);
+
+        Chunk chunk = null;
+        int chunkX = 0;
+        int chunkZ = 0;
+        BlockDirection face = null;
+        double t = 0;
+        while (true) {
+            if (y >= 0 && y <= 255) {
+                int cx = x >> 4;
+                int cz = z >> 4;
+                if (chunk == null || cx != chunkX || cz != chunkZ) {
+                    chunk = world.getLoadedChunkAt(cx, cz);
+                    if (chunk == null) {
+                        return result;
+                    }
+                    chunkX = cx;
+                    chunkZ = cz;
+                }
+
+                int state = chunk.getStateIdAt(x & 15, y, z & 15);
+                if (stop.test(state)) {
+                    result.hitBlock(t, ox + dx * t, oy + dy * t, oz + dz * t, x, y, z, state, face);
+                    return result;
+                }
+            } else if (y < 0 && stepY <= 0 || y > 255 && stepY >= 0) {
+                // Leaving the world, nothing left to hit
+                return result;
+            }
+
+            if (maxX < maxY && maxX < maxZ) {
+                t = maxX;
+                x += stepX;
+                maxX += deltaX;
+                face = stepX > 0 ? BlockDirection.WEST : BlockDirection.EAST;
+            } else if (maxY < maxZ) {
+                t = maxY;
+                y += stepY;
+                maxY += deltaY;
+                face = stepY > 0 ? BlockDirection.DOWN : BlockDirection.UP;
+            } else {
+                t = maxZ;
+                z += stepZ;
+                maxZ += deltaZ;
+                face = stepZ > 0 ? BlockDirection.NORTH : BlockDirection.SOUTH;
+            }
+
+            if (t > maxDistance) {
+                return result;
+            }
+        }
+    }
+
+    /**
+     * Traces a ray against the boxes of the entities in the
+     * given index, keeping the hit already in the result if
+     * it is closer.
+     *
+     * <p>Entities are treated as boxes centered on their
+     * position horizontally and extending upwards from
+     * it.</p>
+     *
+     * @param index the entities to test
+     * @param ox the x coordinate of the origin
+     * @param oy the y coordinate of the origin
+     * @param oz the z coordinate of the origin
+     * @param dx the x component of the direction
+     * @param dy the y component of the direction
+     * @param dz the z component of the direction
+     * @param maxDistance the length of the ray
+     * @param halfWidth half the width of an entity box
+     * @param height the height of an entity box
+     * @param type the type of entity which may be hit
+     * @param filter the predicate matching the entities
+     * which may be hit, such as one excluding the entity
+     * casting the ray, or {@code null} to allow any
+     * @param result the result to fill in, which should be
+     * {@link RayTraceResult#reset() reset} if it does not
+     * hold the hit of a previous trace along the same ray
+     * @return the given result
+     */
+    public static RayTraceResult traceEntities(EntityIndex index, double ox, double oy, double oz,
+                                               double dx, double dy, double dz, double maxDistance,
+                                               double halfWidth, double height, Class<? extends Entity> type,
+                                               @Nullable Predicate<? super Entity> filter,
+                                               RayTraceResult result) {
+        double length = Math.sqrt(dx * dx + dy * dy + dz * dz);
+        if (length == 0) {
+            return result;
+        }
+
+        EntitySearch search = new EntitySearch(ox, oy, oz, dx / length, dy / length, dz / length,
+                Math.min(maxDistance, result.getDistance()), halfWidth, height, filter, result);
+        double ex = search.dx * search.limit;
+        double ey = search.dy * search.limit;
+        double ez = search.dz * search.limit;
+        index.forEachInBox(Math.min(ox, ox + ex) - halfWidth, Math.min(oy, oy + ey) - height,
+                Math.min(oz, oz + ez) - halfWidth, Math.max(ox, ox + ex) + halfWidth,
+                Math.max(oy, oy + ey), Math.max(oz, oz + ez) + halfWidth, type, search);
+        return result;
+    }
+
+    /**
+     * Obtains the distance along the ray to the first
+     * boundary of the starting block on one axis.
+     */
+    private static double boundary(double origin, int block, double dir, double delta) {
+        if (dir > 0) {
+            return (block + 1 - origin) * delta;
+        } else if (dir < 0) {
+            return (origin - block) * delta;
+        }
+        return Double.POSITIVE_INFINITY;
+    }
+
+    /**
+     * Tests the ray against each visited entity box using
+     * the slab method, keeping the closest hit.
+     */
+    private static final class EntitySearch implements EntityIndex.PositionVisitor<Entity> {
+        private final double ox;
+        private final double oy;
+        private final double oz;
+        private final double dx;
+        private final double dy;
+        private final double dz;
+        private final double halfWidth;
+        private final double height;
+        @Nullable
+        private final Predicate<? super Entity> filter;
+        private final RayTraceResult result;
+        private double limit;
+
+        EntitySearch(double ox, double oy, double oz, double dx, double dy, double dz, double limit,
+                     double halfWidth, double height, @Nullable Predicate<? super Entity> filter,
+                     RayTraceResult result) {
+            this.ox = ox;
+            this.oy = oy;
+            this.oz = oz;
+            this.dx = dx;
+            this.dy = dy;
+            this.dz = dz;
+            this.limit = limit;
+            this.halfWidth = halfWidth;
+            this.height = height;
+            this.filter = filter;
+            this.result = result;
+        }
+
+        @Override
+        public boolean visit(Entity entity, double x, double y, double z) {
+            if (this.filter != null && !this.filter.test(entity)) {
+                return true;
+            }
+
+            double near = 0;
+            double far = this.limit;
+
+            for (int axis = 0; axis < 3; axis++) {
+                double min;
+                double max;
+                double o;
+                double d;
+                if (axis == 0) {
+                    min = x - this.halfWidth;
+                    max = x + this.halfWidth;
+                    o = this.ox;
+                    d = this.dx;
+                } else if (axis == 1) {
+                    min = y;
+                    max = y + this.height;
+                    o = this.oy;
+                    d = this.dy;
+                } else {
+                    min = z - this.halfWidth;
+                    max = z + this.halfWidth;
+                    o = this.oz;
+                    d = this.dz;
+                }
+
+                if (d == 0) {
+                    if (o < min || o > max) {
+                        return true;
+                    }
+                    continue;
+                }
+
+                double t0 = (min - o) / d;
+                double t1 = (max - o) / d;
+                if (t0 > t1) {
+                    double tmp = t0;
+                    t0 = t1;
+                    t1 = tmp;
+                }
+                near = Math.max(near, t0);
+                far = Math.min(far, t1);
+                if (near > far) {
+                    return true;
+                }
+            }
+
+            if (near < this.limit || !this.result.isHit()) {
+                this.limit = near;
+                this.result.hitEntity(near, this.ox + this.dx * near, this.oy + this.dy * near,
+                        this.oz + this.dz * near, entity);
+            }
+            return true;
+        }
+    }
+}
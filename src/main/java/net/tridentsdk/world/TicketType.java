@@ -0,0 +1,102 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * The reason for which a {@link ChunkTickets.Ticket} keeps
+ * chunks loaded, along with how long tickets of this type
+ * last.
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@Immutable
+public final class TicketType {
+    /**
+     * Chunks in the view distance of a player
+     */
+    public static final TicketType PLAYER = new TicketType("player", 0);
+    /**
+     * Chunks held by a plugin until it removes the ticket
+     */
+    public static final TicketType PLUGIN = new TicketType("plugin", 0);
+    /**
+     * Chunks which must always stay loaded, such as spawn
+     */
+    public static final TicketType FORCED = new TicketType("forced", 0);
+    /**
+     * Chunks around the destination of a teleport, held
+     * for a second until the player's own ticket moves
+     */
+    public static final TicketType TELEPORT = new TicketType("teleport", 20);
+
+    /**
+     * The name of this type
+     */
+    private final String name;
+    /**
+     * The number of ticks tickets of this type last
+     */
+    private final int lifetime;
+
+    private TicketType(String name, int lifetime) {
+        this.name = name;
+        this.lifetime = lifetime;
+    }
+
+    /**
+     * Creates a new ticket type.
+     *
+     * @param name the name of the type
+     * @param lifetime the number of ticks which tickets of
+     * this type last before removing themselves, or
+     * {@code 0} if they last until removed
+     * @return the new type
+     */
+    public static TicketType create(String name, int lifetime) {
+        if (lifetime < 0) {
+            throw new IllegalArgumentException("Lifetime must not be negative");
+        }
+        return new TicketType(name, lifetime);
+    }
+
+    /**
+     * Obtains the name of this type.
+     *
+     * @return the name
+     */
+    public String getName() {
+        return this.name;
+    }
+
+    /**
+     * Obtains the number of ticks which tickets of this type
+     * last, or {@code 0} if they last until removed.
+     *
+     * @return the lifetime in ticks
+     */
+    public int getLifetime() {
+        return this.lifetime;
+    }
+
+    @Override
+    public String toString() {
+        return "TicketType{" + this.name + "}";
+    }
+}
@@ -18,6 +18,8 @@ package net.tridentsdk.world;
 
 import net.tridentsdk.base.Block;
 import net.tridentsdk.base.Position;
+import net.tridentsdk.base.Substance;
+import net.tridentsdk.base.Vector;
 import net.tridentsdk.entity.Entity;
 import net.tridentsdk.entity.living.Player;
 import net.tridentsdk.world.opt.*;
@@ -27,7 +29,12 @@ import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 import java.nio.file.Path;
 import java.util.Collection;
+import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.IntPredicate;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 /**
@@ -78,6 +85,26 @@ public interface World {
      */
     Stream<? extends Entity> getEntities();
 
+    /**
+     * Obtains the entities within the given distance of the
+     * given position.
+     *
+     * <p>The default implementation filters
+     * {@link #getEntities()}. Implementations should keep
+     * an {@link EntityIndex} so that only the chunks in
+     * range are visited.</p>
+     *
+     * @param center the center of the query
+     * @param radius the largest distance from the center
+     * @return the entities in range
+     */
+    default List<Entity> getEntitiesWithin(Position center, double radius) {
+        double r2 = radius * radius;
+        return this.getEntities()
+                .filter(e -> e.getPosition().distanceSquared(center) <= r2)
+                .collect(Collectors.toList());
+    }
+
     /**
      * Obtains the options that this world has been created
      * to use.
@@ -143,6 +170,66 @@ public interface World {
     @Nullable
     Chunk getChunkAt(int x, int z, boolean gen);
 
+    /**
+     * Obtains the chunk at the given coordinates only if it
+     * is already loaded, without reading it from disk or
+     * generating it.
+     *
+     * <p>The default implementation searches the
+     * {@link #getLoadedChunks() loaded chunks}.
+     * Implementations should override it with a lookup into
+     * their map of loaded chunks.</p>
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     * @return the chunk, or {@code null} if it is not
+     * loaded
+     */
+    @Nullable
+    default Chunk getLoadedChunkAt(int x, int z) {
+        for (Chunk chunk : this.getLoadedChunks()) {
+            if (chunk.getX() == x && chunk.getZ() == z) {
+                return chunk;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Obtains the chunk at the given coordinates without
+     * blocking the caller on disk I/O or generation.
+     *
+     * <p>The default implementation loads the chunk on the
+     * common pool, ignoring the priority. Implementations
+     * should override it using a {@link ChunkLoadQueue} so
+     * that urgent and nearby chunks are loaded first and
+     * duplicate requests are only loaded once.</p>
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     * @param gen {@code true} to generate the chunk if it
+     * doesn't exist
+     * @param priority the urgency of the request
+     * @return a future completed with the chunk, or with
+     * {@code null} if {@code gen} is {@code false} and no
+     * chunk is found
+     */
+    default CompletableFuture<Chunk> getChunkAtAsync(int x, int z, boolean gen, ChunkLoadQueue.Priority priority) {
+        return CompletableFuture.supplyAsync(() -> this.getChunkAt(x, z, gen));
+    }
+
+    /**
+     * Obtains the chunk at the given coordinates, generating
+     * it if needed, without blocking the caller.
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     * @return a future completed with the chunk
+     */
+    default CompletableFuture<Chunk> getChunkAtAsync(int x, int z) {
+        return this.getChunkAtAsync(x, z, true, ChunkLoadQueue.Priority.NORMAL);
+    }
+
     /**
      * Obtains the collection of chunks that are currently
      * loaded on this world.
@@ -155,11 +242,33 @@ public interface World {
      * Obtains the highest non-air block at the given two
      * coordinates.
      *
+     * <p>The default implementation reads the
+     * {@link HeightMap.Type#WORLD_SURFACE} height map of the
+     * chunk, which takes constant time if the chunk keeps
+     * one.</p>
+     *
      * @param x the x coordinate
      * @param z the z coordinate
-     * @return the highest Y
+     * @return the highest Y, or {@code -1} if the column is
+     * empty
      */
-    int getHighestY(int x, int z);
+    default int getHighestY(int x, int z) {
+        return this.getHighestY(x, z, HeightMap.Type.WORLD_SURFACE);
+    }
+
+    /**
+     * Obtains the highest block at the given two coordinates
+     * which counts for the given type of height map.
+     *
+     * @param x the x coordinate
+     * @param z the z coordinate
+     * @param type the type of height map
+     * @return the highest Y, or {@code -1} if no block in
+     * the column counts
+     */
+    default int getHighestY(int x, int z, HeightMap.Type type) {
+        return this.getChunkAt(x >> 4, z >> 4).getHighestY(x & 15, z & 15, type);
+    }
 
     /**
      * Obtains the block that is located at the given XYZ
@@ -186,6 +295,193 @@ public interface World {
      */
     Block getBlockAt(Position pos);
 
+    /**
+     * Obtains the state id, as defined by
+     * {@link ChunkSection#stateId(Substance, byte)}, of the
+     * block at the given coordinates without creating a
+     * {@link Block} object.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @return the state id of the block
+     */
+    default int getStateIdAt(int x, int y, int z) {
+        return this.getChunkAt(x >> 4, z >> 4).getStateIdAt(x & 15, y, z & 15);
+    }
+
+    /**
+     * Obtains the substance of the block at the given
+     * coordinates without creating a {@link Block} object.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @return the substance of the block
+     */
+    default Substance getSubstanceAt(int x, int y, int z) {
+        return ChunkSection.substanceOf(this.getStateIdAt(x, y, z));
+    }
+
+    /**
+     * Obtains the data of the block at the given
+     * coordinates without creating a {@link Block} object.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @return the data of the block
+     */
+    default byte getDataAt(int x, int y, int z) {
+        return ChunkSection.dataOf(this.getStateIdAt(x, y, z));
+    }
+
+    /**
+     * Sets the state id of the block at the given
+     * coordinates without creating a {@link Block} object.
+     *
+     * <p>The change is marked in the
+     * {@link #getLightEngine() light engine}, if any.</p>
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @param state the new state id
+     */
+    default void setStateAt(int x, int y, int z, int state) {
+        this.getChunkAt(x >> 4, z >> 4).setStateAt(x & 15, y, z & 15, state);
+        LightEngine light = this.getLightEngine();
+        if (light != null) {
+            light.markChanged(x, y, z);
+        }
+    }
+
+    /**
+     * Sets the substance and data of the block at the given
+     * coordinates without creating a {@link Block} object.
+     *
+     * @param x the x coordinate of the block
+     * @param y the y coordinate of the block
+     * @param z the z coordinate of the block
+     * @param substance the new substance
+     * @param data the new data
+     */
+    default void setStateAt(int x, int y, int z, Substance substance, byte data) {
+        this.setStateAt(x, y, z, ChunkSection.stateId(substance, data));
+    }
+
+    /**
+     * Traces a ray from the given origin in the given
+     * direction, stopping at the first block whose state id
+     * matches the given predicate.
+     *
+     * @param origin the start of the ray
+     * @param direction the direction of the ray, which need
+     * not be normalized
+     * @param maxDistance the length of the ray
+     * @param stop the predicate matching the state ids of
+     * blocks which stop the ray
+     * @return the result of the trace
+     * @see RayTracer
+     */
+    default RayTraceResult rayTrace(Position origin, Vector direction, double maxDistance, IntPredicate stop) {
+        return this.rayTrace(origin, direction, maxDistance, stop, null, null, new RayTraceResult());
+    }
+
+    /**
+     * Traces a ray from the given origin in the given
+     * direction, stopping at the first block whose state id
+     * matches the given predicate or at the first entity in
+     * the given index, whichever is closer, and storing the
+     * outcome in the given result so that it may be reused.
+     *
+     * <p>Entities are tested as player-sized boxes.</p>
+     *
+     * @param origin the start of the ray
+     * @param direction the direction of the ray, which need
+     * not be normalized
+     * @param maxDistance the length of the ray
+     * @param stop the predicate matching the state ids of
+     * blocks which stop the ray
+     * @param entities the entities which may be hit, or
+     * {@code null} to only hit blocks
+     * @param filter the predicate matching the entities
+     * which may be hit, such as one excluding the entity
+     * casting the ray, or {@code null} to allow any
+     * @param result the result to fill in
+     * @return the given result
+     * @see RayTracer
+     */
+    default RayTraceResult rayTrace(Position origin, Vector direction, double maxDistance, IntPredicate stop,
+                                    @Nullable EntityIndex entities, @Nullable Predicate<? super Entity> filter,
+                                    RayTraceResult result) {
+        RayTracer.traceBlocks(this, origin.getX(), origin.getY(), origin.getZ(),
+                direction.getX(), direction.getY(), direction.getZ(), maxDistance, stop, result);
+        if (entities != null) {
+            RayTracer.traceEntities(entities, origin.getX(), origin.getY(), origin.getZ(),
+                    direction.getX(), direction.getY(), direction.getZ(), maxDistance, 0.3, 1.8,
+                    Entity.class, filter, result);
+        }
+        return result;
+    }
+
+    /**
+     * Obtains the engine which keeps the light levels of this
+     * world up to date.
+     *
+     * <p>The default implementation returns {@code null},
+     * in which case this world does not maintain light.</p>
+     *
+     * @return the light engine, or {@code null}
+     */
+    @Nullable
+    default LightEngine getLightEngine() {
+        return null;
+    }
+
+    /**
+     * Begins a new transaction which stages block changes in
+     * this world until it is committed.
+     *
+     * @return the new transaction
+     */
+    default BlockTransaction beginTransaction() {
+        return new BlockTransaction(this);
+    }
+
+    /**
+     * Obtains a view of the cuboid between the two given
+     * corners, inclusive, which can be read and written in
+     * bulk.
+     *
+     * @param x1 the x coordinate of the first corner
+     * @param y1 the y coordinate of the first corner
+     * @param z1 the z coordinate of the first corner
+     * @param x2 the x coordinate of the second corner
+     * @param y2 the y coordinate of the second corner
+     * @param z2 the z coordinate of the second corner
+     * @return the block volume
+     */
+    default BlockVolume getVolume(int x1, int y1, int z1, int x2, int y2, int z2) {
+        return new BlockVolume(this, x1, y1, z1, x2, y2, z2);
+    }
+
+    /**
+     * Obtains the tickets which keep the chunks of this
+     * world loaded.
+     *
+     * <p>The default implementation returns {@code null},
+     * in which case this world does not track chunk
+     * tickets.</p>
+     *
+     * @return the chunk tickets of this world, or
+     * {@code null}
+     */
+    @Nullable
+    default ChunkTickets getChunkTickets() {
+        return null;
+    }
+
     /**
      * Obtains the enclosing directory which contains the
      * region and data files of this worlds's chunks.
@@ -199,4 +495,22 @@ public interface World {
      * directory.
      */
     void save();
+
+    /**
+     * Saves the chunks of this world which have changed
+     * since they were last saved, without blocking the
+     * caller on disk I/O.
+     *
+     * <p>The default implementation runs {@link #save()} on
+     * the common pool. Implementations should override it
+     * using {@link net.tridentsdk.world.region.ChunkWriter#saveDirty(Collection,
+     * java.util.function.Function)} so that only dirty
+     * chunks are copied and written.</p>
+     *
+     * @return a future completed once the changes are
+     * durable on disk
+     */
+    default CompletableFuture<Void> saveAsync() {
+        return CompletableFuture.runAsync(this::save);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,368 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world.region;
+
+import net.tridentsdk.meta.nbt.Tag;
+import net.tridentsdk.world.Chunk;
+import net.tridentsdk.world.IntPair;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Writes snapshots of chunks to the region files of a world
+ * on a background thread.
+ *
+ * <p>Snapshots wait in a queue of bounded depth; once it is
+ * full, callers block until the writer catches up. The
+ * writer takes as many snapshots as are queued at once,
+ * writes them, then flushes each region file it touched,
+ * so the future of every snapshot completes only once its
+ * data is durable on disk.</p>
+ *
+ * <p>Region files are kept open by the writer thread
+ * between batches, up to a maximum number. Past it, the
+ * least recently written files which the last batch did
+ * not touch are closed.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@ThreadSafe
+public class ChunkWriter implements Closeable {
+    /**
+     * The default depth of the queue
+     */
+    public static final int DEFAULT_DEPTH = 256;
+    /**
+     * The default number of region files kept open
+     */
+    public static final int DEFAULT_OPEN_REGIONS = 32;
+
+    /**
+     * A chunk waiting to be written, or a marker if it has
+     * no data
+     */
+    private static final class Job {
+        private final int x;
+        private final int z;
+        @Nullable
+        private final Tag.Compound data;
+        private final CompletableFuture<Void> future = new CompletableFuture<>();
+
+        Job(int x, int z, @Nullable Tag.Compound data) {
+            this.x = x;
+            this.z = z;
+            this.data = data;
+        }
+    }
+
+    /**
+     * Placed in the queue to stop the writer thread
+     */
+    private static final Job STOP = new Job(0, 0, null);
+
+    private final Path directory;
+    private final BlockingQueue<Job> queue;
+    private final Thread thread;
+    // Held for reading while queueing, so that nothing can
+    // be queued after the stop marker
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    @GuardedBy("lock")
+    private boolean closed;
+
+    private final int maxOpen;
+    private volatile int openCount;
+
+    // Only accessed by the writer thread, least recently
+    // used first
+    private final LinkedHashMap<Long, RegionFile> regions = new LinkedHashMap<>(16, 0.75F, true);
+
+    /**
+     * Creates a new writer for the given world directory
+     * with the default queue depth.
+     *
+     * @param directory the world directory
+     */
+    public ChunkWriter(Path directory) {
+        this(directory, DEFAULT_DEPTH);
+    }
+
+    /**
+     * Creates a new writer for the given world directory.
+     *
+     * @param directory the world directory
+     * @param depth the number of snapshots which may wait
+     * before callers block
+     */
+    public ChunkWriter(Path directory, int depth) {
+        this(directory, depth, DEFAULT_OPEN_REGIONS);
+    }
+
+    /**
+     * Creates a new writer for the given world directory.
+     *
+     * @param directory the world directory
+     * @param depth the number of snapshots which may wait
+     * before callers block
+     * @param maxOpen the number of region files kept open
+     * between batches
+     */
+    public ChunkWriter(Path directory, int depth, int maxOpen) {
+        if (maxOpen < 1) {
+            throw new IllegalArgumentException("At least one region must be kept open");
+        }
+
+        this.directory = directory;
+        this.maxOpen = maxOpen;
+        this.queue = new ArrayBlockingQueue<>(depth);
+        this.thread = new Thread(this::run, "Trident - Chunk Writer " + directory.getFileName());
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Queues the given chunk data to be written, blocking
+     * while the queue is full.
+     *
+     * @param x the chunk x coordinate
+     * @param z the chunk z coordinate
+     * @param data the chunk data, which must not be modified
+     * afterwards
+     * @return a future completed once the data is durable
+     */
+    public CompletableFuture<Void> write(int x, int z, Tag.Compound data) {
+        return this.enqueue(new Job(x, z, data));
+    }
+
+    /**
+     * Obtains a future completed once every snapshot
+     * queued before this call is durable.
+     *
+     * @return the future
+     */
+    public CompletableFuture<Void> flush() {
+        return this.enqueue(new Job(0, 0, null));
+    }
+
+    /**
+     * Obtains the number of region files which the writer
+     * thread keeps open.
+     *
+     * @return the number of open region files
+     */
+    public int getOpenRegionCount() {
+        return this.openCount;
+    }
+
+    /**
+     * Saves the chunks among the given ones which are
+     * {@link Chunk#isDirty() dirty}. Each is marked clean,
+     * then copied on the calling thread with the given
+     * function, then queued. A chunk which fails to be
+     * copied or written is {@link Chunk#markDirty() marked
+     * dirty} again.
+     *
+     * @param chunks the chunks to save
+     * @param snapshot the function copying a chunk to NBT
+     * @return a future completed once every dirty chunk is
+     * durable
+     */
+    public CompletableFuture<Void> saveDirty(Collection<? extends Chunk> chunks,
+                                             Function<? super Chunk, Tag.Compound> snapshot) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (Chunk chunk : chunks) {
+            if (chunk.isDirty()) {
+                chunk.clearDirty();
+                CompletableFuture<Void> future;
+                try {
+                    future = this.write(chunk.getX(), chunk.getZ(), snapshot.apply(chunk));
+                } catch (RuntimeException e) {
+                    chunk.markDirty();
+                    throw e;
+                }
+                futures.add(future.whenComplete((v, e) -> {
+                    if (e != null) {
+                        chunk.markDirty();
+                    }
+                }));
+            }
+        }
+        return CompletableFuture.allOf(futures.toArray(new CompletableFuture[futures.size()]));
+    }
+
+    /**
+     * Writes every queued snapshot, then closes the region
+     * files and stops the writer thread.
+     *
+     * @throws IOException if the thread was interrupted
+     * while waiting for the writer
+     */
+    @Override
+    public void close() throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            if (this.closed) {
+                return;
+            }
+
+            this.queue.put(STOP);
+            this.closed = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing chunk writer", e);
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+
+        try {
+            this.thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while closing chunk writer", e);
+        }
+    }
+
+    private CompletableFuture<Void> enqueue(Job job) {
+        this.lock.readLock().lock();
+        try {
+            if (this.closed) {
+                throw new RejectedExecutionException("Chunk writer is closed");
+            }
+
+            this.queue.put(job);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            job.future.completeExceptionally(e);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+        return job.future;
+    }
+
+    private void run() {
+        List<Job> batch = new ArrayList<>();
+        boolean running = true;
+        while (running) {
+            try {
+                batch.add(this.queue.take());
+            } catch (InterruptedException e) {
+                continue;
+            }
+            this.queue.drainTo(batch);
+
+            List<RegionFile> touched = new ArrayList<>();
+            for (Job job : batch) {
+                if (job == STOP) {
+                    running = false;
+                } else if (job.data != null) {
+                    long key = IntPair.pack(job.x >> 5, job.z >> 5);
+                    try {
+                        RegionFile region = this.region(key, job.x, job.z);
+                        if (!touched.contains(region)) {
+                            touched.add(region);
+                        }
+                        region.writeChunk(job.x, job.z, job.data);
+                    } catch (IOException | RuntimeException e) {
+                        job.future.completeExceptionally(e);
+                    }
+                }
+            }
+
+            for (RegionFile region : touched) {
+                try {
+                    region.flush();
+                } catch (IOException e) {
+                    this.fail(batch, region, e);
+                }
+            }
+
+            this.evict(touched);
+            for (Job job : batch) {
+                job.future.complete(null);
+            }
+            batch.clear();
+        }
+
+        this.regions.forEach((k, region) -> {
+            try {
+                region.close();
+            } catch (IOException ignored) {
+            }
+        });
+        this.regions.clear();
+        this.openCount = 0;
+    }
+
+    /**
+     * Closes the least recently written region files past
+     * the maximum, other than those the last batch touched,
+     * which have all been flushed.
+     */
+    private void evict(List<RegionFile> touched) {
+        Iterator<RegionFile> it = this.regions.values().iterator();
+        while (this.regions.size() > this.maxOpen && it.hasNext()) {
+            RegionFile region = it.next();
+            if (!touched.contains(region)) {
+                it.remove();
+                try {
+                    region.close();
+                } catch (IOException ignored) {
+                }
+            }
+        }
+        this.openCount = this.regions.size();
+    }
+
+    /**
+     * Fails the jobs of the batch which were written to the
+     * given region.
+     */
+    private void fail(List<Job> batch, RegionFile region, IOException e) {
+        for (Job job : batch) {
+            if (job.data != null && this.regions.get(IntPair.pack(job.x >> 5, job.z >> 5)) == region) {
+                job.future.completeExceptionally(e);
+            }
+        }
+    }
+
+    private RegionFile region(long key, int x, int z) throws IOException {
+        RegionFile region = this.regions.get(key);
+        if (region == null) {
+            region = new RegionFile(RegionFile.pathOf(this.directory, x, z));
+            this.regions.put(key, region);
+            this.openCount = this.regions.size();
+        }
+        return region;
+    }
+}
@@ -0,0 +1,344 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world.region;
+
+import lombok.Getter;
+
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * The compression schemes that may be used to store chunk
+ * data in a region file.
+ *
+ * <p>Compressed schemes borrow their {@link Inflater} and
+ * {@link Deflater} instances from a shared pool rather than
+ * creating (and later finalizing) new ones for each chunk.
+ * </p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@ThreadSafe
+public enum Compression {
+    GZIP(1) {
+        @Override
+        public ByteBuffer compress(byte[] data, int off, int len) {
+            Deflater deflater = acquireDeflater(true);
+            try {
+                CRC32 crc = new CRC32();
+                crc.update(data, off, len);
+
+                ByteBuffer buf = deflate(deflater, data, off, len, GZIP_HEADER.length, 8);
+                System.arraycopy(GZIP_HEADER, 0, buf.array(), 0, GZIP_HEADER.length);
+
+                // The trailer is little endian
+                int end = buf.limit();
+                buf.limit(end + 8);
+                buf.order(ByteOrder.LITTLE_ENDIAN);
+                buf.putInt(end, (int) crc.getValue());
+                buf.putInt(end + 4, len);
+                return buf.order(ByteOrder.BIG_ENDIAN);
+            } finally {
+                releaseDeflater(deflater, true);
+            }
+        }
+
+        @Override
+        public ByteBuffer decompress(byte[] data, int off, int len) throws IOException {
+            int header = gzipHeaderLength(data, off, len);
+            Inflater inflater = acquireInflater(true);
+            try {
+                return inflate(inflater, data, off + header, len - header);
+            } finally {
+                releaseInflater(inflater, true);
+            }
+        }
+    },
+    ZLIB(2) {
+        @Override
+        public ByteBuffer compress(byte[] data, int off, int len) {
+            Deflater deflater = acquireDeflater(false);
+            try {
+                return deflate(deflater, data, off, len, 0, 0);
+            } finally {
+                releaseDeflater(deflater, false);
+            }
+        }
+
+        @Override
+        public ByteBuffer decompress(byte[] data, int off, int len) throws IOException {
+            Inflater inflater = acquireInflater(false);
+            try {
+                return inflate(inflater, data, off, len);
+            } finally {
+                releaseInflater(inflater, false);
+            }
+        }
+    },
+    NONE(3) {
+        @Override
+        public ByteBuffer compress(byte[] data, int off, int len) {
+            return ByteBuffer.wrap(data, off, len).slice();
+        }
+
+        @Override
+        public ByteBuffer decompress(byte[] data, int off, int len) {
+            return ByteBuffer.wrap(data, off, len).slice();
+        }
+    };
+
+    /**
+     * The most instances of each kind that are kept in the
+     * pools
+     */
+    private static final int POOL_SIZE = Runtime.getRuntime().availableProcessors() * 2;
+    /**
+     * The pools of idle deflaters and inflaters, GZIP uses
+     * raw deflate data so it needs separate instances
+     */
+    private static final BlockingQueue<Deflater> DEFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final BlockingQueue<Deflater> GZIP_DEFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final BlockingQueue<Inflater> INFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+    private static final BlockingQueue<Inflater> GZIP_INFLATERS = new ArrayBlockingQueue<>(POOL_SIZE);
+
+    /**
+     * A minimal GZIP member header with no optional fields
+     */
+    private static final byte[] GZIP_HEADER = { 0x1f, (byte) 0x8b, 8, 0, 0, 0, 0, 0, 0, (byte) 0xff };
+
+    /**
+     * The scheme ID which is stored in front of each chunk
+     */
+    @Getter
+    private final int id;
+
+    Compression(int id) {
+        this.id = id;
+    }
+
+    /**
+     * Obtains the compression scheme with the given ID.
+     *
+     * @param id the ID of the scheme
+     * @return the compression scheme
+     */
+    public static Compression fromId(int id) {
+        for (Compression compression : values()) {
+            if (compression.id == id) {
+                return compression;
+            }
+        }
+
+        throw new IllegalArgumentException("Unknown compression scheme " + id);
+    }
+
+    /**
+     * Compresses the given range of bytes.
+     *
+     * @param data the array containing the data
+     * @param off the offset of the data
+     * @param len the length of the data
+     * @return a buffer containing the compressed data
+     * between its position and limit
+     */
+    public abstract ByteBuffer compress(byte[] data, int off, int len);
+
+    /**
+     * Decompresses the given range of bytes.
+     *
+     * @param data the array containing the compressed data
+     * @param off the offset of the compressed data
+     * @param len the length of the compressed data
+     * @return a buffer containing the decompressed data
+     * between its position and limit
+     * @throws IOException if the data is corrupt
+     */
+    public abstract ByteBuffer decompress(byte[] data, int off, int len) throws IOException;
+
+    /**
+     * Takes a deflater from the pool, or creates one if
+     * the pool is empty.
+     *
+     * @param nowrap {@code true} for raw deflate data,
+     * {@code false} for zlib data
+     * @return the deflater
+     */
+    private static Deflater acquireDeflater(boolean nowrap) {
+        Deflater deflater = (nowrap ? GZIP_DEFLATERS : DEFLATERS).poll();
+        return deflater == null ? new Deflater(Deflater.DEFAULT_COMPRESSION, nowrap) : deflater;
+    }
+
+    /**
+     * Resets the given deflater and returns it to the pool,
+     * or frees it if the pool is full.
+     *
+     * @param deflater the deflater to release
+     * @param nowrap the kind of deflater
+     */
+    private static void releaseDeflater(Deflater deflater, boolean nowrap) {
+        deflater.reset();
+        if (!(nowrap ? GZIP_DEFLATERS : DEFLATERS).offer(deflater)) {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Takes an inflater from the pool, or creates one if
+     * the pool is empty.
+     *
+     * @param nowrap {@code true} for raw deflate data,
+     * {@code false} for zlib data
+     * @return the inflater
+     */
+    private static Inflater acquireInflater(boolean nowrap) {
+        Inflater inflater = (nowrap ? GZIP_INFLATERS : INFLATERS).poll();
+        return inflater == null ? new Inflater(nowrap) : inflater;
+    }
+
+    /**
+     * Resets the given inflater and returns it to the pool,
+     * or frees it if the pool is full.
+     *
+     * @param inflater the inflater to release
+     * @param nowrap the kind of inflater
+     */
+    private static void releaseInflater(Inflater inflater, boolean nowrap) {
+        inflater.reset();
+        if (!(nowrap ? GZIP_INFLATERS : INFLATERS).offer(inflater)) {
+            inflater.end();
+        }
+    }
+
+    /**
+     * Runs the given deflater over the data.
+     *
+     * @param deflater the deflater to use
+     * @param data the array containing the data
+     * @param off the offset of the data
+     * @param len the length of the data
+     * @param head the amount of bytes to reserve in front
+     * of the compressed data
+     * @param tail the amount of bytes to reserve after the
+     * compressed data
+     * @return a buffer over the whole output array, limited
+     * to the end of the compressed data
+     */
+    private static ByteBuffer deflate(Deflater deflater, byte[] data, int off, int len, int head, int tail) {
+        deflater.setInput(data, off, len);
+        deflater.finish();
+
+        byte[] out = new byte[head + (len >> 1) + 64 + tail];
+        int pos = head;
+        while (!deflater.finished()) {
+            if (pos == out.length - tail) {
+                out = Arrays.copyOf(out, out.length << 1);
+            }
+
+            pos += deflater.deflate(out, pos, out.length - tail - pos);
+        }
+
+        ByteBuffer buf = ByteBuffer.wrap(out);
+        buf.limit(pos);
+        return buf;
+    }
+
+    /**
+     * Runs the given inflater over the data.
+     *
+     * @param inflater the inflater to use
+     * @param data the array containing the compressed data
+     * @param off the offset of the compressed data
+     * @param len the length of the compressed data
+     * @return the decompressed data
+     * @throws IOException if the data is corrupt or
+     * truncated
+     */
+    private static ByteBuffer inflate(Inflater inflater, byte[] data, int off, int len) throws IOException {
+        inflater.setInput(data, off, len);
+
+        byte[] out = new byte[Math.max(1024, len << 2)];
+        int pos = 0;
+        try {
+            while (!inflater.finished()) {
+                if (pos == out.length) {
+                    out = Arrays.copyOf(out, out.length << 1);
+                }
+
+                int n = inflater.inflate(out, pos, out.length - pos);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IOException("Truncated compressed data");
+                }
+                pos += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IOException(e);
+        }
+
+        return ByteBuffer.wrap(out, 0, pos);
+    }
+
+    /**
+     * Finds the length of the GZIP member header at the
+     * given offset.
+     *
+     * @param data the array containing the compressed data
+     * @param off the offset of the compressed data
+     * @param len the length of the compressed data
+     * @return the length of the header
+     * @throws IOException if the header is invalid
+     */
+    private static int gzipHeaderLength(byte[] data, int off, int len) throws IOException {
+        if (len < 10 || data[off] != 0x1f || data[off + 1] != (byte) 0x8b || data[off + 2] != 8) {
+            throw new IOException("Not in GZIP format");
+        }
+
+        int flags = data[off + 3];
+        int pos = 10;
+        if ((flags & 4) != 0 && pos + 2 <= len) {
+            // FEXTRA
+            pos += 2 + ((data[off + pos] & 0xFF) | (data[off + pos + 1] & 0xFF) << 8);
+        }
+        if ((flags & 8) != 0) {
+            // FNAME
+            while (pos < len && data[off + pos++] != 0) ;
+        }
+        if ((flags & 16) != 0) {
+            // FCOMMENT
+            while (pos < len && data[off + pos++] != 0) ;
+        }
+        if ((flags & 2) != 0) {
+            // FHCRC
+            pos += 2;
+        }
+
+        if (pos > len) {
+            throw new IOException("Truncated GZIP header");
+        }
+
+        return pos;
+    }
+}
@@ -0,0 +1,464 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world.region;
+
+import lombok.Getter;
+import net.tridentsdk.meta.nbt.Tag;
+import net.tridentsdk.meta.nbt.TagWriter;
+
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A region file in the Anvil format, which stores the data
+ * for a 32x32 area of chunks.
+ *
+ * <p>The file is divided into 4 KiB sectors. The first two
+ * sectors form the header, which holds the location and
+ * timestamp of each chunk and is memory-mapped for the
+ * lifetime of this object. Chunk data is read and written
+ * with positional {@link FileChannel} operations.</p>
+ *
+ * <p>Any amount of chunks may be read at the same time.
+ * Writes are exclusive, but compression happens before the
+ * write lock is taken and decompression after the read lock
+ * is released, so they do not hold up other threads.</p>
+ *
+ * @author TridentSDK
+ * @since 0.5-alpha
+ */
+@ThreadSafe
+public class RegionFile implements Closeable {
+    /**
+     * The size of a sector in bytes
+     */
+    public static final int SECTOR_SIZE = 4096;
+    /**
+     * The most sectors that a single chunk may occupy
+     */
+    public static final int MAX_SECTORS = 255;
+    /**
+     * The amount of bytes preceding the compressed data of
+     * a chunk: its length and compression scheme
+     */
+    private static final int CHUNK_HEADER_SIZE = 5;
+    /**
+     * The size of the header, locations then timestamps
+     */
+    private static final int HEADER_SIZE = SECTOR_SIZE * 2;
+
+    /**
+     * The path to the region file
+     */
+    @Getter
+    private final Path path;
+    /**
+     * The channel used to read and write the file
+     */
+    private final FileChannel channel;
+    /**
+     * The mapped location and timestamp tables
+     */
+    @GuardedBy("lock")
+    private final MappedByteBuffer header;
+    /**
+     * The sectors which are in use, including the header
+     */
+    @GuardedBy("lock")
+    private final BitSet sectors = new BitSet();
+    /**
+     * Shared by readers, held exclusively while the sectors
+     * or header are modified
+     */
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    /**
+     * Opens the region file at the given path, creating it
+     * if it does not exist.
+     *
+     * @param path the path to the region file
+     * @throws IOException if the file could not be opened
+     */
+    public RegionFile(Path path) throws IOException {
+        this.path = path;
+        Path parent = path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+        try {
+            long size = this.channel.size();
+            if (size < HEADER_SIZE) {
+                this.channel.write(ByteBuffer.allocate((int) (HEADER_SIZE - size)), size);
+            }
+
+            this.header = this.channel.map(FileChannel.MapMode.READ_WRITE, 0, HEADER_SIZE);
+            this.sectors.set(0, 2);
+
+            int fileSectors = (int) ((Math.max(size, HEADER_SIZE) + SECTOR_SIZE - 1) / SECTOR_SIZE);
+            for (int i = 0; i < 1024; i++) {
+                int location = this.header.getInt(i << 2);
+                int offset = location >>> 8;
+                int count = location & 0xFF;
+                if (location != 0 && offset >= 2 && offset + count <= fileSectors) {
+                    this.sectors.set(offset, offset + count);
+                }
+            }
+        } catch (IOException e) {
+            this.channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Obtains the path of the region file which holds the
+     * given chunk in the given world directory.
+     *
+     * @param directory the world directory
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return the path to the region file
+     */
+    public static Path pathOf(Path directory, int chunkX, int chunkZ) {
+        return directory.resolve("region").resolve("r." + (chunkX >> 5) + '.' + (chunkZ >> 5) + ".mca");
+    }
+
+    /**
+     * Checks whether there is data stored for the given
+     * chunk.
+     *
+     * <p>Chunk coordinates may be given either relative to
+     * the region or as world chunk coordinates.</p>
+     *
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return {@code true} if the chunk exists
+     */
+    public boolean hasChunk(int chunkX, int chunkZ) {
+        this.lock.readLock().lock();
+        try {
+            return this.header.getInt(index(chunkX, chunkZ) << 2) != 0;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Obtains the time at which the given chunk was last
+     * written.
+     *
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return the timestamp in seconds since the epoch, or
+     * {@code 0} if the chunk does not exist
+     */
+    public int getTimestamp(int chunkX, int chunkZ) {
+        this.lock.readLock().lock();
+        try {
+            return this.header.getInt(SECTOR_SIZE + (index(chunkX, chunkZ) << 2));
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads and decompresses the data stored for the given
+     * chunk.
+     *
+     * <p>The result is the encoded NBT tag, suitable for
+     * {@link net.tridentsdk.meta.nbt.LazyCompound#decode(ByteBuffer)}
+     * or streaming through
+     * {@link net.tridentsdk.meta.nbt.TagReader}.</p>
+     *
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return a heap buffer holding the chunk data, or
+     * {@code null} if the chunk does not exist
+     * @throws IOException if the chunk could not be read
+     */
+    @Nullable
+    public ByteBuffer readChunkBytes(int chunkX, int chunkZ) throws IOException {
+        ByteBuffer buf;
+        this.lock.readLock().lock();
+        try {
+            int location = this.header.getInt(index(chunkX, chunkZ) << 2);
+            if (location == 0) {
+                return null;
+            }
+
+            buf = ByteBuffer.allocate((location & 0xFF) * SECTOR_SIZE);
+            this.readFully(buf, (long) (location >>> 8) * SECTOR_SIZE);
+        } finally {
+            this.lock.readLock().unlock();
+        }
+
+        int len = buf.getInt(0);
+        if (len <= 0 || len > buf.capacity() - 4) {
+            throw new IOException("Invalid length " + len + " for chunk " + chunkX + ", " + chunkZ +
+                    " in " + this.path);
+        }
+
+        Compression compression = Compression.fromId(buf.get(4));
+        return compression.decompress(buf.array(), CHUNK_HEADER_SIZE, len - 1);
+    }
+
+    /**
+     * Reads and decodes the data stored for the given
+     * chunk.
+     *
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return the chunk data, or {@code null} if the chunk
+     * does not exist
+     * @throws IOException if the chunk could not be read
+     */
+    @Nullable
+    public Tag.Compound readChunk(int chunkX, int chunkZ) throws IOException {
+        ByteBuffer buf = this.readChunkBytes(chunkX, chunkZ);
+        if (buf == null) {
+            return null;
+        }
+
+        return Tag.decode(new DataInputStream(
+                new ByteArrayInputStream(buf.array(), buf.arrayOffset() + buf.position(), buf.remaining())));
+    }
+
+    /**
+     * Encodes the given chunk data and writes it using
+     * {@link Compression#ZLIB}.
+     *
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @param compound the chunk data
+     * @throws IOException if the chunk could not be written
+     */
+    public void writeChunk(int chunkX, int chunkZ, Tag.Compound compound) throws IOException {
+        this.writeChunk(chunkX, chunkZ, compound, Compression.ZLIB);
+    }
+
+    /**
+     * Encodes the given chunk data and writes it using the
+     * given compression scheme.
+     *
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @param compound the chunk data
+     * @param compression the compression scheme to use
+     * @throws IOException if the chunk could not be written
+     */
+    public void writeChunk(int chunkX, int chunkZ, Tag.Compound compound, Compression compression)
+            throws IOException {
+        ByteBuffer buf = new TagWriter().write(compound).getBuffer();
+        byte[] arr = new byte[buf.remaining()];
+        buf.get(arr);
+        this.writeChunkBytes(chunkX, chunkZ, arr, 0, arr.length, compression);
+    }
+
+    /**
+     * Compresses and writes the given encoded chunk data.
+     *
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @param data the array holding the encoded NBT data
+     * @param off the offset of the data
+     * @param len the length of the data
+     * @param compression the compression scheme to use
+     * @throws IOException if the chunk could not be written
+     * @throws IllegalArgumentException if the compressed
+     * data does not fit into {@link #MAX_SECTORS} sectors
+     */
+    public void writeChunkBytes(int chunkX, int chunkZ, byte[] data, int off, int len,
+                                Compression compression) throws IOException {
+        ByteBuffer compressed = compression.compress(data, off, len);
+        int length = compressed.remaining() + 1;
+        int count = (length + 4 + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        if (count > MAX_SECTORS) {
+            throw new IllegalArgumentException("Chunk " + chunkX + ", " + chunkZ + " is too large (" +
+                    length + " bytes compressed)");
+        }
+
+        ByteBuffer buf = ByteBuffer.allocate(count * SECTOR_SIZE);
+        buf.putInt(length);
+        buf.put((byte) compression.getId());
+        buf.put(compressed);
+        buf.clear();
+
+        int index = index(chunkX, chunkZ) << 2;
+        this.lock.writeLock().lock();
+        try {
+            int location = this.header.getInt(index);
+            int offset = location >>> 8;
+            int oldCount = location & 0xFF;
+            if (location == 0 || count > oldCount) {
+                if (location != 0) {
+                    this.sectors.clear(offset, offset + oldCount);
+                }
+                offset = this.allocate(count);
+            } else if (count < oldCount) {
+                this.sectors.clear(offset + count, offset + oldCount);
+            }
+
+            this.writeFully(buf, (long) offset * SECTOR_SIZE);
+            this.header.putInt(index, offset << 8 | count);
+            this.header.putInt(SECTOR_SIZE + index, (int) (System.currentTimeMillis() / 1000L));
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Removes the data stored for the given chunk, freeing
+     * its sectors.
+     *
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return {@code true} if the chunk existed
+     */
+    public boolean deleteChunk(int chunkX, int chunkZ) {
+        int index = index(chunkX, chunkZ) << 2;
+        this.lock.writeLock().lock();
+        try {
+            int location = this.header.getInt(index);
+            if (location == 0) {
+                return false;
+            }
+
+            this.sectors.clear(location >>> 8, (location >>> 8) + (location & 0xFF));
+            this.header.putInt(index, 0);
+            this.header.putInt(SECTOR_SIZE + index, 0);
+            return true;
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Forces all written chunks and the header out to the
+     * storage device.
+     *
+     * @throws IOException if the file could not be flushed
+     */
+    public void flush() throws IOException {
+        this.lock.writeLock().lock();
+        try {
+            this.channel.force(false);
+            this.header.force();
+        } finally {
+            this.lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Flushes and closes this region file.
+     *
+     * @throws IOException if the file could not be flushed
+     * or closed
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            this.flush();
+        } finally {
+            this.channel.close();
+        }
+    }
+
+    /**
+     * Obtains the index of the given chunk in the header
+     * tables.
+     *
+     * @param chunkX the chunk x coordinate
+     * @param chunkZ the chunk z coordinate
+     * @return the header index
+     */
+    private static int index(int chunkX, int chunkZ) {
+        return (chunkX & 31) + ((chunkZ & 31) << 5);
+    }
+
+    /**
+     * Finds the first run of free sectors that can hold the
+     * given amount, marking them as used.
+     *
+     * @param count the amount of sectors needed
+     * @return the offset of the first sector
+     */
+    @GuardedBy("lock")
+    private int allocate(int count) {
+        int offset = this.sectors.nextClearBit(2);
+        while (true) {
+            int used = this.sectors.nextSetBit(offset);
+            if (used < 0 || used - offset >= count) {
+                this.sectors.set(offset, offset + count);
+                return offset;
+            }
+
+            offset = this.sectors.nextClearBit(used);
+        }
+    }
+
+    /**
+     * Fills the given buffer from the file.
+     *
+     * @param buf the buffer to fill
+     * @param pos the position in the file to read from
+     * @throws IOException if the file ends early
+     */
+    private void readFully(ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            int read = this.channel.read(buf, pos);
+            if (read < 0) {
+                // The last sector of a file is not always
+                // padded out
+                if (buf.position() >= CHUNK_HEADER_SIZE) {
+                    break;
+                }
+
+                throw new IOException("Unexpected end of " + this.path);
+            }
+            pos += read;
+        }
+    }
+
+    /**
+     * Writes the whole of the given buffer to the file.
+     *
+     * @param buf the buffer to write
+     * @param pos the position in the file to write to
+     * @throws IOException if the file could not be written
+     */
+    private void writeFully(ByteBuffer buf, long pos) throws IOException {
+        while (buf.hasRemaining()) {
+            pos += this.channel.write(buf, pos);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import net.tridentsdk.meta.ItemMeta;
+import org.junit.Test;
+
+import java.util.Iterator;
+
+import static org.junit.Assert.*;
+
+public class ImmutableCompoundTest {
+    @Test
+    public void testOf() {
+        Tag.Compound source = TagReaderTest.sample();
+        ImmutableCompound compound = ImmutableCompound.of(source);
+        assertSame(compound, ImmutableCompound.of(compound));
+        assertTrue(compound.getCompound("nested") instanceof ImmutableCompound);
+        assertTrue(compound.getList("list").get(0) instanceof ImmutableCompound);
+
+        // Changes to the source are not visible
+        source.putInt("int", 0);
+        source.getIntArray("ints")[0] = 100;
+        source.getCompound("nested").putLong("long", 0L);
+        assertEquals(42, compound.getInt("int"));
+        assertEquals(1, compound.getIntArray("ints")[0]);
+        assertEquals(7L, compound.getCompound("nested").getLong("long"));
+        assertEquals(TagReaderTest.encode(source).length, TagReaderTest.encode(compound).length);
+    }
+
+    @Test
+    public void testDerive() {
+        ImmutableCompound compound = ImmutableCompound.of(TagReaderTest.sample());
+        ImmutableCompound derived = compound.withCompound("nested", c -> c.with("long", Tag.Type.LONG, 8L));
+
+        assertEquals(7L, compound.getCompound("nested").getLong("long"));
+        assertEquals(8L, derived.getCompound("nested").getLong("long"));
+        assertEquals(1.5, derived.getCompound("nested").getDouble("double"), 0);
+
+        // Untouched subtrees are shared
+        assertSame(compound.getList("list"), derived.getList("list"));
+        assertSame(compound.getByteArray("bytes"), derived.getByteArray("bytes"));
+        assertNotSame(compound.getCompound("nested"), derived.getCompound("nested"));
+
+        ImmutableCompound created = compound.withCompound("new", c -> c.with("a", Tag.Type.INT, 1));
+        assertEquals(1, created.getCompound("new").getInt("a"));
+
+        ImmutableCompound removed = derived.without("nested");
+        assertNull(removed.get("nested"));
+        assertNotNull(derived.get("nested"));
+        assertSame(removed, removed.without("nested"));
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testPut() {
+        new ImmutableCompound("test").putInt("a", 1);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testEntries() {
+        new ImmutableCompound("test").getEntries().clear();
+    }
+
+    @Test
+    public void testFrozenList() {
+        ImmutableCompound compound = ImmutableCompound.of(TagReaderTest.sample());
+        Tag.List<Tag.Compound> list = compound.getList("list");
+        assertEquals(3, list.size());
+        assertEquals(Tag.Type.COMPOUND, list.getType());
+        assertTrue(list.get(0) instanceof ImmutableCompound);
+        assertSame(list, compound.with("int", Tag.Type.INT, 1).getList("list"));
+
+        Runnable[] edits = {
+                () -> list.add(new ImmutableCompound("")),
+                () -> list.remove(0),
+                list::clear,
+                () -> list.set(0, null),
+                () -> list.removeIf(c -> true),
+                () -> {
+                    Iterator<Tag.Compound> it = list.iterator();
+                    it.next();
+                    it.remove();
+                },
+                () -> list.subList(0, 1).clear()
+        };
+        for (Runnable edit : edits) {
+            try {
+                edit.run();
+                fail();
+            } catch (UnsupportedOperationException expected) {
+            }
+        }
+        assertEquals(3, list.size());
+    }
+
+    @Test
+    public void testItemMeta() {
+        ItemMeta meta = new ItemMeta();
+        ItemMeta derived = meta.with("Unbreakable", Tag.Type.BYTE, (byte) 1);
+        assertNull(meta.getNbt().get("Unbreakable"));
+        assertEquals(1, derived.getNbt().getByte("Unbreakable"));
+        assertSame(derived, derived.edit(c -> c));
+
+        ItemMeta display = derived.edit(c -> c.withCompound("display", d -> d.with("Name", Tag.Type.STRING, "x")));
+        assertEquals("x", display.getNbt().getCompound("display").getString("Name"));
+        assertEquals(1, display.getNbt().getByte("Unbreakable"));
+    }
+}
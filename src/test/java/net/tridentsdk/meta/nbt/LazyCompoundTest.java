@@ -0,0 +1,102 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class LazyCompoundTest {
+    private static byte[] write(Tag.Compound compound) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compound.write(new DataOutputStream(out));
+        return out.toByteArray();
+    }
+
+    private static Tag.Compound read(byte[] bytes) {
+        return Tag.decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void testGet() {
+        LazyCompound lazy = LazyCompound.decode(ByteBuffer.wrap(TagReaderTest.encode(TagReaderTest.sample())));
+        assertEquals("root", lazy.getName());
+        assertEquals(42, lazy.getInt("int"));
+        assertEquals("hello", lazy.getString("string"));
+        assertEquals(4096, lazy.getByteArray("bytes").length);
+        assertArrayEquals(new int[] { 1, 2, 3 }, lazy.getIntArray("ints"));
+
+        Tag.Compound nested = lazy.getCompound("nested");
+        assertTrue(nested instanceof LazyCompound);
+        assertEquals(7L, nested.getLong("long"));
+        assertEquals(1.5, nested.getDouble("double"), 0);
+
+        Tag.List<Tag.Compound> list = lazy.getList("list");
+        assertEquals(3, list.size());
+        assertEquals(2, list.get(2).getByte("Y"));
+        assertNull(lazy.get("missing"));
+    }
+
+    @Test
+    public void testUntouchedRoundTrip() {
+        byte[] bytes = TagReaderTest.encode(TagReaderTest.sample());
+        Tag.Compound copy = read(write(LazyCompound.decode(ByteBuffer.wrap(bytes))));
+        assertEquals(42, copy.getInt("int"));
+        assertEquals(7L, copy.getCompound("nested").getLong("long"));
+        assertEquals(3, copy.getList("list").size());
+        assertEquals(bytes.length, write(copy).length);
+    }
+
+    @Test
+    public void testModify() {
+        LazyCompound lazy = LazyCompound.decode(ByteBuffer.wrap(TagReaderTest.encode(TagReaderTest.sample())));
+        lazy.putInt("int", 43);
+        lazy.computeLong("added", (k, v) -> v == null ? 1L : v + 1);
+        lazy.getCompound("nested").putString("s", "t");
+        assertTrue(lazy.remove("bytes"));
+        assertFalse(lazy.remove("bytes"));
+
+        Tag.Compound copy = read(write(lazy));
+        assertEquals(43, copy.getInt("int"));
+        assertEquals(1L, copy.getLong("added"));
+        assertEquals("t", copy.getCompound("nested").getString("s"));
+        assertEquals(7L, copy.getCompound("nested").getLong("long"));
+        assertNull(copy.get("bytes"));
+        assertEquals(6, lazy.getEntries().size());
+    }
+
+    @Test
+    public void testMap() throws Exception {
+        Path path = Files.createTempFile("lazy", ".nbt");
+        try {
+            Files.write(path, TagReaderTest.encode(TagReaderTest.sample()));
+            LazyCompound lazy = LazyCompound.map(path);
+            assertEquals(42, lazy.getInt("int"));
+            assertEquals("hello", read(write(lazy)).getString("string"));
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+}
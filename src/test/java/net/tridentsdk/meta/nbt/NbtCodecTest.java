@@ -0,0 +1,246 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@State(Scope.Thread)
+public class NbtCodecTest {
+    public static class Stats {
+        @NbtField("Health")
+        float health;
+        @NbtField
+        boolean flying;
+        @NbtField
+        byte b;
+        @NbtField
+        short s;
+        @NbtField
+        long l;
+        @NbtField
+        double d;
+        @NbtField("Name")
+        String name;
+        @NbtField
+        byte[] bytes;
+        @NbtField
+        int[] ints;
+        @NbtField
+        Tag.Compound extra;
+        @NbtField
+        Tag.List<Integer> list;
+        @NbtField
+        Stats parent;
+        int ignored;
+    }
+
+    public static class Bad {
+        @NbtField
+        private int x;
+    }
+
+    private static Stats stats() {
+        Stats stats = new Stats();
+        stats.health = 20F;
+        stats.flying = true;
+        stats.b = 1;
+        stats.s = 2;
+        stats.l = 3L;
+        stats.d = 4.5;
+        stats.name = "agent";
+        stats.bytes = new byte[] { 1, 2 };
+        stats.ints = new int[] { 3, 4, 5 };
+        stats.extra = new Tag.Compound("extra");
+        stats.extra.putInt("x", 9);
+        stats.list = new Tag.List<>(Tag.Type.INT);
+        stats.list.add(7);
+        stats.parent = new Stats();
+        stats.parent.name = "parent";
+        stats.ignored = 99;
+        return stats;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        NbtCodec<Stats> codec = NbtCodec.of(Stats.class);
+        assertSame(codec, NbtCodec.of(Stats.class));
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        codec.write(stats(), "stats", new DataOutputStream(out));
+        Stats read = codec.read(TagReaderTest.in(out.toByteArray()));
+        assertEquals(20F, read.health, 0);
+        assertTrue(read.flying);
+        assertEquals(1, read.b);
+        assertEquals(2, read.s);
+        assertEquals(3L, read.l);
+        assertEquals(4.5, read.d, 0);
+        assertEquals("agent", read.name);
+        assertArrayEquals(new byte[] { 1, 2 }, read.bytes);
+        assertArrayEquals(new int[] { 3, 4, 5 }, read.ints);
+        assertEquals(9, read.extra.getInt("x"));
+        assertEquals(7, (int) read.list.get(0));
+        assertEquals("parent", read.parent.name);
+        assertNull(read.parent.parent);
+        assertEquals(0, read.ignored);
+    }
+
+    @Test
+    public void testCompound() {
+        NbtCodec<Stats> codec = NbtCodec.of(Stats.class);
+        Tag.Compound compound = codec.toCompound(stats(), "stats");
+        assertEquals(20F, compound.getFloat("Health"), 0);
+        assertEquals(1, compound.getByte("flying"));
+        assertEquals("agent", compound.getString("Name"));
+        assertEquals("parent", compound.getCompound("parent").getString("Name"));
+        assertFalse(compound.getEntries().containsKey("ignored"));
+
+        // Unknown keys, mismatched types and reordering
+        Tag.Compound other = new Tag.Compound("other");
+        other.putString("unknown", "?");
+        other.putInt("Name", 3);
+        other.putLong("l", 8L);
+        other.putFloat("Health", 5F);
+        Stats read = codec.fromCompound(other);
+        assertEquals(5F, read.health, 0);
+        assertEquals(8L, read.l);
+        assertNull(read.name);
+    }
+
+    private static byte[] unknownEntry(boolean list) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(Tag.Type.COMPOUND.ordinal());
+        out.writeUTF("stats");
+        out.writeByte(list ? Tag.Type.LIST.ordinal() : 99);
+        out.writeUTF("unknown");
+        if (list) {
+            out.writeByte(42);
+            out.writeInt(1);
+        }
+        out.writeInt(0);
+        out.writeByte(Tag.Type.END.ordinal());
+        return bytes.toByteArray();
+    }
+
+    @Test
+    public void testUnknownType() throws IOException {
+        NbtCodec<Stats> codec = NbtCodec.of(Stats.class);
+        for (boolean list : new boolean[] { false, true }) {
+            try {
+                codec.read(TagReaderTest.in(unknownEntry(list)));
+                fail();
+            } catch (RuntimeException e) {
+                assertTrue(e.getCause() instanceof IOException);
+                assertTrue(e.getCause().getMessage(), e.getCause().getMessage().startsWith("Unknown NBT tag type"));
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testPrivate() {
+        NbtCodec.of(Bad.class);
+    }
+
+    public static void main(String[] args) {
+        Options opt = new OptionsBuilder().include(".*" + NbtCodecTest.class.getSimpleName() + ".*")
+                .timeUnit(TimeUnit.SECONDS)
+                .mode(Mode.Throughput)
+                .warmupIterations(10)
+                .measurementIterations(5)
+                .forks(1)
+                .threads(1)
+                .build();
+
+        Collection<RunResult> results = null;
+        try {
+            results = new Runner(opt).run();
+        } catch (RunnerException e) {
+            e.printStackTrace();
+        }
+
+        for (RunResult result : results) {
+            System.out.println(result.getPrimaryResult().getLabel() + " - " + result.getPrimaryResult().getScore());
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // BENCHMARKING ////////////////////////////////////////
+    ////////////////////////////////////////////////////////
+
+    private Stats stats;
+    private NbtCodec<Stats> codec;
+    private byte[] encoded;
+    private ByteArrayOutputStream out;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.stats = stats();
+        this.codec = NbtCodec.of(Stats.class);
+        this.out = new ByteArrayOutputStream(1024);
+        this.codec.write(this.stats, "stats", new DataOutputStream(this.out));
+        this.encoded = this.out.toByteArray();
+    }
+
+    @Benchmark
+    public void codecWrite(Blackhole bh) {
+        this.out.reset();
+        this.codec.write(this.stats, "stats", new DataOutputStream(this.out));
+        bh.consume(this.out.size());
+    }
+
+    @Benchmark
+    public void compoundWrite(Blackhole bh) {
+        this.out.reset();
+        Tag.Compound compound = new Tag.Compound("stats");
+        compound.putFloat("Health", this.stats.health);
+        compound.putByte("flying", (byte) (this.stats.flying ? 1 : 0));
+        compound.putByte("b", this.stats.b);
+        compound.putShort("s", this.stats.s);
+        compound.putLong("l", this.stats.l);
+        compound.putDouble("d", this.stats.d);
+        compound.putString("Name", this.stats.name);
+        compound.putByteArray("bytes", this.stats.bytes);
+        compound.putIntArray("ints", this.stats.ints);
+        compound.write(new DataOutputStream(this.out));
+        bh.consume(this.out.size());
+    }
+
+    @Benchmark
+    public void codecRead(Blackhole bh) {
+        bh.consume(this.codec.read(TagReaderTest.in(this.encoded)));
+    }
+
+    @Benchmark
+    public void compoundRead(Blackhole bh) {
+        bh.consume(Tag.decode(TagReaderTest.in(this.encoded)));
+    }
+}
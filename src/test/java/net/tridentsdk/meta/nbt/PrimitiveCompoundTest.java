@@ -0,0 +1,148 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.lang.reflect.Field;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class PrimitiveCompoundTest {
+    @Test
+    public void testPutGet() {
+        PrimitiveCompound compound = new PrimitiveCompound("test");
+        for (int i = 0; i < 100; i++) {
+            compound.putInt("int" + i, i);
+        }
+        compound.putByte("byte", (byte) 1);
+        compound.putShort("short", (short) 2);
+        compound.putLong("long", 3L);
+        compound.putFloat("float", 4.5F);
+        compound.putDouble("double", -6.25);
+        compound.putString("string", "s");
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, compound.getInt("int" + i));
+        }
+        assertEquals(1, compound.getByte("byte"));
+        assertEquals(2, compound.getShort("short"));
+        assertEquals(3L, compound.getLong("long"));
+        assertEquals(4.5F, compound.getFloat("float"), 0);
+        assertEquals(-6.25, compound.getDouble("double"), 0);
+        assertEquals("s", compound.getString("string"));
+        assertEquals(Integer.valueOf(50), compound.get("int50"));
+        assertNull(compound.get("missing"));
+    }
+
+    @Test(expected = ClassCastException.class)
+    public void testWrongType() {
+        PrimitiveCompound compound = new PrimitiveCompound("test");
+        compound.putInt("int", 1);
+        compound.getLong("int");
+    }
+
+    @Test
+    public void testRemoveAndReplace() {
+        PrimitiveCompound compound = new PrimitiveCompound("test");
+        for (int i = 0; i < 50; i++) {
+            compound.putInt("int" + i, i);
+        }
+        for (int i = 0; i < 50; i += 2) {
+            assertTrue(compound.remove("int" + i));
+        }
+        for (int i = 1; i < 50; i += 2) {
+            assertEquals(i, compound.getInt("int" + i));
+        }
+        assertNull(compound.get("int0"));
+
+        compound.putString("int1", "now a string");
+        assertEquals("now a string", compound.getString("int1"));
+        compound.putInt("int1", 1);
+        assertEquals(1, compound.getInt("int1"));
+        assertEquals(25, compound.getEntries().size());
+    }
+
+    @Test
+    public void testCompute() {
+        PrimitiveCompound compound = new PrimitiveCompound("test");
+        assertEquals(1, compound.computeInt("i", i -> i + 1));
+        assertEquals(2, compound.computeInt("i", i -> i + 1));
+        assertEquals(10L, compound.computeLong("l", l -> l + 10));
+        assertEquals(0.5, compound.computeDouble("d", d -> d + 0.5), 0);
+
+        compound.computerInt("i", (k, v) -> v + 1);
+        assertEquals(3, compound.getInt("i"));
+        assertEquals(4, compound.computeInt("i", i -> i + 1));
+    }
+
+    @Test
+    public void testRoundTrip() {
+        byte[] bytes = TagReaderTest.encode(TagReaderTest.sample());
+        PrimitiveCompound compound = PrimitiveCompound.decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+        assertEquals(42, compound.getInt("int"));
+        assertTrue(compound.getCompound("nested") instanceof PrimitiveCompound);
+        assertEquals(7L, compound.getCompound("nested").getLong("long"));
+        Tag.List<Tag.Compound> list = compound.getList("list");
+        assertEquals(2, list.get(2).getByte("Y"));
+
+        byte[] written = TagReaderTest.encode(compound);
+        assertEquals(bytes.length, written.length);
+        assertArrayEquals(written, new TagWriter().write(compound).toByteArray());
+
+        Tag.Compound read = Tag.decode(new DataInputStream(new ByteArrayInputStream(written)));
+        assertEquals(1.5, read.getCompound("nested").getDouble("double"), 0);
+
+        PrimitiveCompound copy = PrimitiveCompound.copyOf(read);
+        assertEquals(42, copy.getInt("int"));
+        assertEquals(bytes.length, TagReaderTest.encode(copy).length);
+    }
+
+    @Test
+    public void testEntriesSnapshot() throws Exception {
+        PrimitiveCompound compound = new PrimitiveCompound("test");
+        compound.putInt("int", 1);
+        compound.putString("string", "s");
+        Map<String, Tag> entries = compound.getEntries();
+        assertEquals(2, entries.size());
+        assertEquals(1, entries.get("int").getObject());
+
+        // Reading the entries leaves the value in its slot
+        Field size = PrimitiveCompound.class.getDeclaredField("size");
+        size.setAccessible(true);
+        assertEquals(1, size.getInt(compound));
+        compound.toString();
+        assertEquals(1, size.getInt(compound));
+
+        compound.putInt("int", 2);
+        assertEquals(1, entries.get("int").getObject());
+        try {
+            entries.clear();
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testNonCompoundRoot() {
+        byte[] bytes = { (byte) Tag.Type.INT.ordinal(), 0, 0, 0, 0, 0, 42 };
+        PrimitiveCompound.decode(new DataInputStream(new ByteArrayInputStream(bytes)));
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@State(Scope.Thread)
+public class SnbtTest {
+    private static Tag.Compound everyType() {
+        Tag.Compound root = TagReaderTest.sample();
+        root.putByte("byte", (byte) -3);
+        root.putShort("short", (short) 300);
+        root.putFloat("float", 1.5e10F);
+        root.putFloat("nan", Float.NaN);
+        root.putDouble("double", -0.25);
+        root.putLong("long", Long.MIN_VALUE);
+        root.putString("quoted", "a \"b\" \\c");
+        root.putString("number", "12");
+        root.putString("", "empty key");
+        root.putByteArray("bytes", new byte[] { -128, 0, 127 });
+
+        Tag.List<Tag.List<String>> lists = new Tag.List<>(Tag.Type.LIST);
+        Tag.List<String> strings = new Tag.List<>(Tag.Type.STRING);
+        strings.add("x");
+        strings.add("y z");
+        lists.add(strings);
+        root.putList("lists", lists);
+        Tag.List<int[]> arrays = new Tag.List<>(Tag.Type.INT_ARRAY);
+        arrays.add(new int[] { Integer.MIN_VALUE, 2 });
+        root.putList("arrays", arrays);
+        return root;
+    }
+
+    @Test
+    public void testRoundTrip() {
+        Tag.Compound compound = everyType();
+        String text = Snbt.toString(compound);
+        Tag.Compound parsed = Snbt.parse(text);
+        assertTrue(TagPatch.diff(compound, parsed).isEmpty());
+        assertEquals(text, Snbt.toString(parsed));
+        assertTrue(Float.isNaN(parsed.getFloat("nan")));
+        assertEquals("12", parsed.getString("number"));
+        assertEquals(text, compound.toString());
+    }
+
+    @Test
+    public void testParse() {
+        Tag.Compound c = Snbt.parse(" { id : \"minecraft:stone\", Count:1b, 'Damage':3s, " +
+                "tag:{display:{Name:plain}, ench:[{id:16s,lvl:2s}], flag:true, d:1.5, i:[I;]}, ints:[1, 2] } ");
+        assertEquals("minecraft:stone", c.getString("id"));
+        assertEquals(1, c.getByte("Count"));
+        assertEquals(3, c.getShort("Damage"));
+        Tag.Compound tag = c.getCompound("tag");
+        assertEquals("plain", tag.getCompound("display").getString("Name"));
+        Tag.List<Tag.Compound> ench = tag.getList("ench");
+        assertEquals(2, ench.get(0).getShort("lvl"));
+        assertEquals(1, tag.getByte("flag"));
+        assertEquals(1.5, tag.getDouble("d"), 0);
+        assertEquals(0, tag.getIntArray("i").length);
+        Tag.List<Integer> ints = c.getList("ints");
+        assertEquals(Tag.Type.INT, ints.getType());
+    }
+
+    @Test
+    public void testErrors() {
+        for (String bad : new String[] { "", "[]", "{a:1", "{a:[1,2b]}", "{a:\"x}", "{a:1} b", "{:1}",
+                "{a:[B;1,2]}" }) {
+            try {
+                Snbt.parse(bad);
+                fail(bad);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+    }
+
+    public static void main(String[] args) {
+        Options opt = new OptionsBuilder().include(".*" + SnbtTest.class.getSimpleName() + ".*")
+                .timeUnit(TimeUnit.SECONDS)
+                .mode(Mode.Throughput)
+                .warmupIterations(10)
+                .measurementIterations(5)
+                .forks(1)
+                .threads(1)
+                .build();
+
+        Collection<RunResult> results = null;
+        try {
+            results = new Runner(opt).run();
+        } catch (RunnerException e) {
+            e.printStackTrace();
+        }
+
+        for (RunResult result : results) {
+            System.out.println(result.getPrimaryResult().getLabel() + " - " + result.getPrimaryResult().getScore());
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // BENCHMARKING ////////////////////////////////////////
+    ////////////////////////////////////////////////////////
+
+    // A few megabytes of chunk-like text
+    private Tag.Compound big;
+    private String text;
+    private StringBuilder out;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        this.big = new Tag.Compound("");
+        Tag.List<Tag.Compound> sections = new Tag.List<>(Tag.Type.COMPOUND);
+        for (int i = 0; i < 128; i++) {
+            Tag.Compound section = new Tag.Compound("");
+            byte[] blocks = new byte[4096];
+            r.nextBytes(blocks);
+            section.putByte("Y", (byte) i);
+            section.putByteArray("Blocks", blocks);
+            section.putDouble("Scale", r.nextDouble());
+            section.putString("Name", "section " + i);
+            sections.add(section);
+        }
+        this.big.putList("Sections", sections);
+        this.text = Snbt.toString(this.big);
+        this.out = new StringBuilder(this.text.length());
+    }
+
+    @Benchmark
+    public void parse(Blackhole bh) {
+        bh.consume(Snbt.parse(this.text));
+    }
+
+    @Benchmark
+    public void print(Blackhole bh) throws Exception {
+        this.out.setLength(0);
+        Snbt.print(this.big, this.out);
+        bh.consume(this.out.length());
+    }
+}
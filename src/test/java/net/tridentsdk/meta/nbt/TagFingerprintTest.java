@@ -0,0 +1,105 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import net.tridentsdk.meta.ItemMeta;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TagFingerprintTest {
+    private static Tag.Compound copy(Tag.Compound compound) {
+        return Tag.decode(TagReaderTest.in(TagReaderTest.encode(compound)));
+    }
+
+    @Test
+    public void testEqualContent() {
+        Tag.Compound a = TagReaderTest.sample();
+        Tag.Compound b = copy(a);
+        assertEquals(TagFingerprint.of(a), TagFingerprint.of(b));
+        assertTrue(TagFingerprint.contentEquals(a, b));
+        assertEquals(TagFingerprint.of(a), TagFingerprint.of(ImmutableCompound.of(b)));
+
+        b.getByteArray("bytes")[7] = 1;
+        assertNotEquals(TagFingerprint.of(a), TagFingerprint.of(b));
+        assertFalse(TagFingerprint.contentEquals(a, b));
+
+        Tag.Compound c = copy(a);
+        c.getList("list").add(new Tag.Compound(""));
+        assertNotEquals(TagFingerprint.of(a), TagFingerprint.of(c));
+    }
+
+    @Test
+    public void testDistinguishesTypes() {
+        Tag.Compound a = new Tag.Compound("");
+        a.putInt("x", 1);
+        Tag.Compound b = new Tag.Compound("");
+        b.putLong("x", 1L);
+        Tag.Compound c = new Tag.Compound("");
+        c.putInt("y", 1);
+        assertNotEquals(TagFingerprint.of(a), TagFingerprint.of(b));
+        assertNotEquals(TagFingerprint.of(a), TagFingerprint.of(c));
+    }
+
+    @Test
+    public void testIncremental() {
+        ImmutableCompound base = ImmutableCompound.of(TagReaderTest.sample());
+        ImmutableCompound derived = base.with("int", Tag.Type.INT, 7)
+                .withCompound("nested", n -> n.with("long", Tag.Type.LONG, 8L))
+                .without("string");
+
+        Tag.Compound expected = TagReaderTest.sample();
+        expected.putInt("int", 7);
+        expected.getCompound("nested").putLong("long", 8L);
+        expected.remove("string");
+        assertEquals(TagFingerprint.of(expected), derived.fingerprint());
+
+        ImmutableCompound back = derived.with("int", Tag.Type.INT, 42)
+                .withCompound("nested", n -> n.with("long", Tag.Type.LONG, 7L))
+                .with("string", Tag.Type.STRING, "hello");
+        assertEquals(base.fingerprint(), back.fingerprint());
+        assertEquals(base, back);
+        assertEquals(base.hashCode(), back.hashCode());
+    }
+
+    @Test
+    public void testIntern() {
+        ItemMeta a = new ItemMeta(TagReaderTest.sample());
+        ItemMeta b = new ItemMeta(TagReaderTest.sample());
+        assertNotSame(a, b);
+        assertEquals(a, b);
+        assertSame(a.intern(), b.intern());
+        assertNotEquals(a, a.with("int", Tag.Type.INT, 0));
+        assertSame(new ItemMeta().intern(), new ItemMeta().intern());
+    }
+
+    @Test
+    public void testInternedListFrozen() {
+        ItemMeta meta = new ItemMeta(TagReaderTest.sample()).intern();
+        long fingerprint = meta.fingerprint();
+        Tag.List<Tag.Compound> list = meta.getNbt().getList("list");
+        try {
+            list.add(new Tag.Compound(""));
+            fail();
+        } catch (UnsupportedOperationException expected) {
+        }
+
+        assertEquals(3, list.size());
+        assertEquals(fingerprint, meta.fingerprint());
+        assertSame(meta, new ItemMeta(TagReaderTest.sample()).intern());
+    }
+}
@@ -0,0 +1,145 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class TagLimitsTest {
+    @Test
+    public void testMatchesDecode() {
+        byte[] bytes = TagReaderTest.encode(TagReaderTest.sample());
+        Tag.Compound compound = TagLimits.DEFAULT.decode(ByteBuffer.wrap(bytes));
+        assertTrue(TagPatch.diff(Tag.decode(TagReaderTest.in(bytes)), compound).isEmpty());
+        assertTrue(TagPatch.diff(compound, TagLimits.UNLIMITED.decode(TagReaderTest.in(bytes))).isEmpty());
+    }
+
+    @Test
+    public void testSkip() {
+        byte[] bytes = TagReaderTest.encode(TagReaderTest.sample());
+        TagLimits limits = TagLimits.DEFAULT.withMaxBytes(1024).skipping("bytes", "list.Y", "nested");
+        Tag.Compound compound = limits.decode(TagReaderTest.in(bytes));
+        assertNull(compound.get("bytes"));
+        assertNull(compound.get("nested"));
+        assertEquals(42, compound.getInt("int"));
+        Tag.List<Tag.Compound> list = compound.getList("list");
+        assertEquals(3, list.size());
+        assertTrue(list.get(0).getEntries().isEmpty());
+    }
+
+    @Test(expected = TagLimitException.class)
+    public void testMaxBytes() {
+        TagLimits.DEFAULT.withMaxBytes(1024).decode(TagReaderTest.in(TagReaderTest.encode(TagReaderTest.sample())));
+    }
+
+    @Test(expected = TagLimitException.class)
+    public void testMaxArrayLength() throws IOException {
+        // Claims a huge array without the data behind it
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(Tag.Type.COMPOUND.ordinal());
+        out.writeShort(0);
+        out.writeByte(Tag.Type.INT_ARRAY.ordinal());
+        out.writeShort(0);
+        out.writeInt(Integer.MAX_VALUE);
+        TagLimits.DEFAULT.decode(TagReaderTest.in(bytes.toByteArray()));
+    }
+
+    @Test(expected = TagLimitException.class)
+    public void testMaxListLength() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(Tag.Type.COMPOUND.ordinal());
+        out.writeShort(0);
+        out.writeByte(Tag.Type.LIST.ordinal());
+        out.writeShort(0);
+        out.writeByte(Tag.Type.BYTE.ordinal());
+        out.writeInt(100);
+        TagLimits.DEFAULT.withMaxListLength(10).decode(TagReaderTest.in(bytes.toByteArray()));
+    }
+
+    @Test
+    public void testMaxDepth() throws IOException {
+        // Nested lists of lists which would overflow the stack
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(Tag.Type.COMPOUND.ordinal());
+        out.writeShort(0);
+        out.writeByte(Tag.Type.LIST.ordinal());
+        out.writeShort(1);
+        out.writeByte('a');
+        for (int i = 0; i < 100000; i++) {
+            out.writeByte(Tag.Type.LIST.ordinal());
+            out.writeInt(1);
+        }
+
+        for (TagLimits limits : new TagLimits[] { TagLimits.DEFAULT, TagLimits.DEFAULT.skipping("a") }) {
+            try {
+                limits.decode(TagReaderTest.in(bytes.toByteArray()));
+                fail();
+            } catch (TagLimitException ignored) {
+            }
+        }
+    }
+
+    private static byte[] compoundWith(int type, boolean list) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(Tag.Type.COMPOUND.ordinal());
+        out.writeShort(0);
+        if (list) {
+            out.writeByte(Tag.Type.LIST.ordinal());
+            out.writeShort(1);
+            out.writeByte('l');
+        }
+        out.writeByte(type);
+        if (list) {
+            out.writeInt(1);
+        } else {
+            out.writeShort(1);
+            out.writeByte('x');
+        }
+        out.writeInt(0);
+        return bytes.toByteArray();
+    }
+
+    @Test(expected = TagLimitException.class)
+    public void testUnknownEntryType() throws IOException {
+        TagLimits.DEFAULT.decode(TagReaderTest.in(compoundWith(99, false)));
+    }
+
+    @Test(expected = TagLimitException.class)
+    public void testUnknownListType() throws IOException {
+        TagLimits.DEFAULT.decode(TagReaderTest.in(compoundWith(-5, true)));
+    }
+
+    @Test(expected = TagLimitException.class)
+    public void testUnknownSkippedType() throws IOException {
+        TagLimits.DEFAULT.skipping("l").decode(TagReaderTest.in(compoundWith(42, true)));
+    }
+
+    @Test(expected = TagLimitException.class)
+    public void testNonCompoundRoot() {
+        TagLimits.DEFAULT.decode(TagReaderTest.in(new byte[] { (byte) Tag.Type.INT.ordinal(), 0, 0, 0, 0, 0, 1 }));
+    }
+}
@@ -0,0 +1,141 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+public class TagPatchTest {
+    private static Tag.Compound copy(Tag.Compound compound) {
+        return Tag.decode(TagReaderTest.in(TagReaderTest.encode(compound)));
+    }
+
+    private static void assertSameTag(Tag.Compound expected, Tag.Compound actual) {
+        assertTrue(TagPatch.diff(expected, actual).isEmpty());
+        assertTrue(TagPatch.diff(actual, expected).isEmpty());
+    }
+
+    @Test
+    public void testEmpty() {
+        Tag.Compound a = TagReaderTest.sample();
+        TagPatch patch = TagPatch.diff(a, copy(a));
+        assertTrue(patch.isEmpty());
+        assertEquals(1, patch.size());
+    }
+
+    @Test
+    public void testChanges() {
+        Tag.Compound a = TagReaderTest.sample();
+        Tag.Compound b = copy(a);
+        b.putInt("int", 43);
+        b.remove("string");
+        b.putLong("new", 5L);
+        b.getByteArray("bytes")[100] = 7;
+        b.putIntArray("ints", new int[] { 1, 9, 3, 4 });
+        b.getCompound("nested").putDouble("double", 2.5);
+        Tag.List<Tag.Compound> list = b.getList("list");
+        list.get(1).putByte("Y", (byte) 10);
+        Tag.Compound extra = new Tag.Compound("");
+        extra.putByte("Y", (byte) 11);
+        list.add(extra);
+
+        TagPatch patch = TagPatch.diff(a, b);
+        assertTrue(patch.size() < 200);
+        patch.apply(a);
+        assertSameTag(b, a);
+        assertEquals(7, a.getByteArray("bytes")[100]);
+        assertEquals(4, a.getList("list").size());
+    }
+
+    @Test
+    public void testTruncateAndTypeChange() {
+        Tag.Compound a = TagReaderTest.sample();
+        Tag.Compound b = copy(a);
+        b.getList("list").remove(2);
+        b.putByteArray("bytes", new byte[10]);
+        b.remove("int");
+        b.putString("int", "now a string");
+
+        TagPatch.diff(a, b).apply(a);
+        assertSameTag(b, a);
+        assertEquals("now a string", a.getString("int"));
+    }
+
+    @Test
+    public void testJournal() {
+        Tag.Compound base = TagReaderTest.sample();
+        Tag.Compound state = copy(base);
+        ByteArrayOutputStream journal = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(journal);
+        for (int i = 0; i < 5; i++) {
+            Tag.Compound next = copy(state);
+            next.putInt("int", i);
+            next.getByteArray("bytes")[i] = (byte) i;
+            TagPatch.diff(state, next).write(out);
+            state = next;
+        }
+
+        assertEquals(5, TagPatch.replay(base, TagReaderTest.in(journal.toByteArray())));
+        assertSameTag(state, base);
+    }
+
+    @Test
+    public void testLazyTarget() {
+        Tag.Compound a = TagReaderTest.sample();
+        Tag.Compound b = copy(a);
+        b.putInt("int", 1);
+        LazyCompound lazy = LazyCompound.decode(ByteBuffer.wrap(TagReaderTest.encode(a)));
+        TagPatch.diff(a, b).apply(lazy);
+        assertEquals(1, lazy.getInt("int"));
+    }
+
+    @Test
+    public void testSharedArraysCopied() {
+        Tag.Compound a = TagReaderTest.sample();
+        Tag.Compound b = copy(a);
+        b.getByteArray("bytes")[3] = 42;
+        byte[] shared = a.getByteArray("bytes");
+        byte before = shared[3];
+
+        TagPatch.diff(a, b).apply(a);
+        assertEquals(before, shared[3]);
+        assertEquals(42, a.getByteArray("bytes")[3]);
+    }
+
+    @Test(expected = UnsupportedOperationException.class)
+    public void testImmutableTarget() {
+        Tag.Compound a = TagReaderTest.sample();
+        Tag.Compound b = copy(a);
+        b.putInt("int", 1);
+        TagPatch.diff(a, b).apply(ImmutableCompound.of(a));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testMismatch() {
+        Tag.Compound a = TagReaderTest.sample();
+        Tag.Compound b = copy(a);
+        b.getCompound("nested").putLong("long", 1L);
+        Tag.Compound other = copy(a);
+        other.remove("nested");
+        TagPatch.diff(a, b).apply(other);
+    }
+}
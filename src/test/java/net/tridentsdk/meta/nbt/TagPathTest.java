@@ -0,0 +1,100 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.*;
+
+public class TagPathTest {
+    private static Tag.Compound chunk() {
+        Tag.Compound root = new Tag.Compound("");
+        Tag.Compound level = new Tag.Compound("Level");
+        level.putInt("xPos", 3);
+        level.putByteArray("Biomes", new byte[256]);
+        Tag.List<Tag.Compound> sections = new Tag.List<>(Tag.Type.COMPOUND);
+        for (int i = 0; i < 4; i++) {
+            Tag.Compound section = new Tag.Compound("");
+            section.putByte("Y", (byte) i);
+            section.putByteArray("Blocks", new byte[4096]);
+            sections.add(section);
+        }
+        level.putList("Sections", sections);
+        root.putCompound(level);
+        return root;
+    }
+
+    @Test
+    public void testCompile() {
+        assertEquals("Level.Sections[].Y", TagPath.compile("Level.Sections[].Y").toString());
+        for (String bad : Arrays.asList("", "a..b", "a[", "a]", "a[x]", "a[-1]", "[].a")) {
+            try {
+                TagPath.compile(bad);
+                fail(bad);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+    }
+
+    @Test
+    public void testTree() {
+        Tag.Compound chunk = chunk();
+        assertEquals(Arrays.asList((byte) 0, (byte) 1, (byte) 2, (byte) 3),
+                TagPath.compile("Level.Sections[].Y").select(chunk));
+        assertEquals((byte) 2, (byte) TagPath.compile("Level.Sections[2].Y").first(chunk));
+        assertEquals(3, (int) TagPath.compile("Level.xPos").first(chunk));
+        assertEquals(Collections.emptyList(), TagPath.compile("Level.Sections[9].Y").select(chunk));
+        assertEquals(Collections.emptyList(), TagPath.compile("Level.xPos.Y").select(chunk));
+        assertNull(TagPath.compile("Missing.Y").first(chunk));
+    }
+
+    @Test
+    public void testEncoded() {
+        Tag.Compound chunk = chunk();
+        ByteBuffer buf = ByteBuffer.wrap(TagReaderTest.encode(chunk));
+        for (String path : Arrays.asList("Level.Sections[].Y", "Level.Sections[1].Y", "Level.xPos",
+                "Level.Biomes", "Level.Sections[3]", "Level.Sections", "Level.Nope", "Level.Sections.Y")) {
+            TagPath p = TagPath.compile(path);
+            assertEquals(path, p.select(chunk).size(), p.select(buf).size());
+        }
+
+        assertEquals(Arrays.asList((byte) 0, (byte) 1, (byte) 2, (byte) 3),
+                TagPath.compile("Level.Sections[].Y").select(buf));
+        assertEquals(0, buf.position());
+
+        Tag.Compound section = TagPath.compile("Level.Sections[2]").first(buf);
+        assertEquals(2, (byte) section.getByte("Y"));
+        assertEquals(4096, section.getByteArray("Blocks").length);
+
+        Tag.List<Tag.Compound> sections = TagPath.compile("Level.Sections").first(buf);
+        assertEquals(4, sections.size());
+        assertEquals(3, (byte) sections.get(3).getByte("Y"));
+
+        assertArrayEquals(new byte[256], TagPath.compile("Level.Biomes").first(buf));
+    }
+
+    @Test
+    public void testLazy() {
+        LazyCompound lazy = LazyCompound.decode(ByteBuffer.wrap(TagReaderTest.encode(chunk())));
+        assertEquals(Arrays.asList((byte) 0, (byte) 1, (byte) 2, (byte) 3),
+                TagPath.compile("Level.Sections[].Y").select(lazy));
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TagReaderTest {
+    static Tag.Compound sample() {
+        Tag.Compound root = new Tag.Compound("root");
+        root.putInt("int", 42);
+        root.putString("string", "hello");
+        root.putByteArray("bytes", new byte[4096]);
+        root.putIntArray("ints", new int[] { 1, 2, 3 });
+
+        Tag.Compound nested = new Tag.Compound("nested");
+        nested.putLong("long", 7L);
+        nested.putDouble("double", 1.5);
+        root.putCompound(nested);
+
+        Tag.List<Tag.Compound> list = new Tag.List<>(Tag.Type.COMPOUND);
+        for (int i = 0; i < 3; i++) {
+            Tag.Compound c = new Tag.Compound("");
+            c.putByte("Y", (byte) i);
+            list.add(c);
+        }
+        root.putList("list", list);
+        return root;
+    }
+
+    static byte[] encode(Tag.Compound compound) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        compound.write(new DataOutputStream(out));
+        return out.toByteArray();
+    }
+
+    static DataInputStream in(byte[] bytes) {
+        return new DataInputStream(new ByteArrayInputStream(bytes));
+    }
+
+    @Test
+    public void testVisitAll() {
+        List<String> events = new ArrayList<>();
+        TagReader.read(in(encode(sample())), new TagVisitor() {
+            @Override
+            public boolean visitCompound(String name) {
+                events.add("enter " + name);
+                return true;
+            }
+
+            @Override
+            public void visitCompoundEnd(String name) {
+                events.add("leave " + name);
+            }
+
+            @Override
+            public void visitInt(String name, int value) {
+                assertEquals("int", name);
+                assertEquals(42, value);
+                events.add(name);
+            }
+
+            @Override
+            public void visitLong(String name, long value) {
+                assertEquals(7L, value);
+                events.add(name);
+            }
+
+            @Override
+            public void visitByte(String name, byte value) {
+                events.add("Y" + value);
+            }
+
+            @Override
+            public boolean visitIntArrayLength(String name, int length) {
+                assertEquals(3, length);
+                return true;
+            }
+
+            @Override
+            public void visitIntArray(String name, int[] value) {
+                assertArrayEquals(new int[] { 1, 2, 3 }, value);
+                events.add(name);
+            }
+        });
+
+        assertTrue(events.contains("enter root"));
+        assertEquals("leave root", events.get(events.size() - 1));
+        assertTrue(events.contains("int"));
+        assertTrue(events.contains("long"));
+        assertTrue(events.contains("ints"));
+        assertTrue(events.contains("Y0") && events.contains("Y1") && events.contains("Y2"));
+    }
+
+    @Test
+    public void testSkip() {
+        byte[] bytes = encode(sample());
+        List<String> seen = new ArrayList<>();
+        TagReader.read(in(bytes), new TagVisitor() {
+            @Override
+            public boolean visitCompound(String name) {
+                return name.equals("root");
+            }
+
+            @Override
+            public boolean visitList(String name, Tag.Type type, int length) {
+                assertEquals(Tag.Type.COMPOUND, type);
+                assertEquals(3, length);
+                return false;
+            }
+
+            @Override
+            public void visitLong(String name, long value) {
+                fail("nested compound should have been skipped");
+            }
+
+            @Override
+            public void visitString(String name, String value) {
+                seen.add(value);
+            }
+        });
+        assertEquals(1, seen.size());
+        assertEquals("hello", seen.get(0));
+    }
+
+    @Test
+    public void testTypeSkip() throws Exception {
+        byte[] bytes = encode(sample());
+        DataInputStream stream = in(bytes);
+        assertEquals(Tag.Type.COMPOUND.ordinal(), stream.readByte());
+        TagReader.readName(stream);
+        Tag.Type.COMPOUND.skip(stream);
+        assertEquals(-1, stream.read());
+    }
+
+    @Test
+    public void testComplete() {
+        byte[] bytes = encode(sample());
+        DataInputStream stream = in(bytes);
+        int[] found = new int[1];
+        TagReader.read(stream, new TagVisitor() {
+            @Override
+            public void visitInt(String name, int value) {
+                found[0] = value;
+            }
+
+            @Override
+            public boolean isComplete() {
+                return found[0] != 0;
+            }
+        });
+        assertEquals(42, found[0]);
+    }
+}
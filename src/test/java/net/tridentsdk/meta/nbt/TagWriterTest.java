@@ -0,0 +1,134 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.meta.nbt;
+
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.util.Collection;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@State(Scope.Thread)
+public class TagWriterTest {
+    @Test
+    public void testMatchesStream() {
+        Tag.Compound compound = TagReaderTest.sample();
+        byte[] expected = TagReaderTest.encode(compound);
+        assertArrayEquals(expected, new TagWriter().write(compound).toByteArray());
+        assertArrayEquals(expected, new TagWriter(ByteBuffer.allocateDirect(1)).write(compound).toByteArray());
+    }
+
+    @Test
+    public void testLazy() {
+        byte[] expected = TagReaderTest.encode(TagReaderTest.sample());
+        LazyCompound lazy = LazyCompound.decode(ByteBuffer.wrap(expected));
+        byte[] written = new TagWriter().write(lazy).toByteArray();
+        assertEquals(expected.length, written.length);
+        assertEquals(42, LazyCompound.decode(ByteBuffer.wrap(written)).getInt("int"));
+    }
+
+    @Test
+    public void testFlush() throws Exception {
+        Tag.Compound compound = TagReaderTest.sample();
+        TagWriter writer = new TagWriter(ByteBuffer.allocate(16));
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        writer.write(compound).flush(Channels.newChannel(out));
+        assertEquals(0, writer.size());
+        assertArrayEquals(TagReaderTest.encode(compound), out.toByteArray());
+    }
+
+    public static void main(String[] args) {
+        Options opt = new OptionsBuilder().include(".*" + TagWriterTest.class.getSimpleName() + ".*")
+                .timeUnit(TimeUnit.SECONDS)
+                .mode(Mode.Throughput)
+                .warmupIterations(10)
+                .measurementIterations(5)
+                .forks(1)
+                .threads(1)
+                .build();
+
+        Collection<RunResult> results = null;
+        try {
+            results = new Runner(opt).run();
+        } catch (RunnerException e) {
+            e.printStackTrace();
+        }
+
+        for (RunResult result : results) {
+            System.out.println(result.getPrimaryResult().getLabel() + " - " + result.getPrimaryResult().getScore());
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // BENCHMARKING ////////////////////////////////////////
+    ////////////////////////////////////////////////////////
+
+    // A chunk section worth of data, which is where the
+    // per-byte writes hurt the most
+    private Tag.Compound section;
+    private TagWriter writer;
+    private ByteArrayOutputStream out;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        ThreadLocalRandom r = ThreadLocalRandom.current();
+        byte[] blocks = new byte[4096];
+        r.nextBytes(blocks);
+        int[] heights = new int[256];
+        for (int i = 0; i < heights.length; i++) {
+            heights[i] = r.nextInt(256);
+        }
+
+        this.section = new Tag.Compound("Section");
+        this.section.putByte("Y", (byte) 4);
+        this.section.putByteArray("Blocks", blocks);
+        this.section.putByteArray("Data", new byte[2048]);
+        this.section.putByteArray("BlockLight", new byte[2048]);
+        this.section.putByteArray("SkyLight", new byte[2048]);
+        this.section.putIntArray("HeightMap", heights);
+
+        this.writer = new TagWriter();
+        this.out = new ByteArrayOutputStream(16384);
+    }
+
+    @Benchmark
+    public void stream(Blackhole bh) {
+        this.out.reset();
+        this.section.write(new DataOutputStream(this.out));
+        bh.consume(this.out.size());
+    }
+
+    @Benchmark
+    public void buffer(Blackhole bh) {
+        this.writer.reset();
+        this.writer.write(this.section);
+        bh.consume(this.writer.size());
+    }
+}
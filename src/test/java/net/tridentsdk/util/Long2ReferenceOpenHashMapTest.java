@@ -0,0 +1,178 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.util;
+
+import net.tridentsdk.world.IntPair;
+import org.junit.Test;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+@State(Scope.Thread)
+public class Long2ReferenceOpenHashMapTest {
+    @Test
+    public void testPutGetRemove() {
+        Long2ReferenceOpenHashMap<String> map = new Long2ReferenceOpenHashMap<>();
+        Map<Long, String> expected = new HashMap<>();
+        for (int x = -40; x < 40; x++) {
+            for (int z = -40; z < 40; z++) {
+                long key = IntPair.pack(x, z);
+                String value = x + "," + z;
+                assertNull(map.put(key, value));
+                expected.put(key, value);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals("0,0", map.get(0));
+        assertEquals("-1,-40", map.get(IntPair.pack(-1, -40)));
+        assertNull(map.get(IntPair.pack(40, 0)));
+        assertEquals("3,4", map.put(IntPair.pack(3, 4), "x"));
+
+        for (int x = -40; x < 40; x += 2) {
+            for (int z = -40; z < 40; z++) {
+                long key = IntPair.pack(x, z);
+                assertNotNull(map.remove(key));
+                expected.remove(key);
+            }
+        }
+        assertNull(map.remove(0));
+        assertFalse(map.containsKey(0));
+        assertEquals(expected.size(), map.size());
+
+        Map<Long, String> seen = new HashMap<>();
+        map.forEach((k, v) -> seen.put(k, v));
+        assertEquals(expected.keySet(), seen.keySet());
+
+        map.clear();
+        assertTrue(map.isEmpty());
+        assertNull(map.get(IntPair.pack(1, 1)));
+    }
+
+    @Test
+    public void testComputeIfAbsent() {
+        Long2ReferenceOpenHashMap<String> map = new Long2ReferenceOpenHashMap<>();
+        assertEquals("a", map.computeIfAbsent(5, k -> "a"));
+        assertEquals("a", map.computeIfAbsent(5, k -> "b"));
+        assertNull(map.computeIfAbsent(6, k -> null));
+        assertEquals(1, map.size());
+    }
+
+    @Test
+    public void testSpread() {
+        // Transposed coordinates must not collide
+        assertNotEquals(Long2ReferenceOpenHashMap.mix(IntPair.pack(1, 2)),
+                Long2ReferenceOpenHashMap.mix(IntPair.pack(2, 1)));
+
+        Set<Integer> slots = new HashSet<>();
+        for (int x = 0; x < 32; x++) {
+            for (int z = 0; z < 32; z++) {
+                slots.add(Long2ReferenceOpenHashMap.mix(IntPair.pack(x, z)) & 2047);
+            }
+        }
+        assertTrue(slots.size() > 600);
+    }
+
+    public static void main(String[] args) {
+        Options opt = new OptionsBuilder().include(".*" + Long2ReferenceOpenHashMapTest.class.getSimpleName() + ".*")
+                .timeUnit(TimeUnit.SECONDS)
+                .mode(Mode.Throughput)
+                .warmupIterations(10)
+                .measurementIterations(5)
+                .forks(1)
+                .threads(1)
+                .build();
+
+        Collection<RunResult> results = null;
+        try {
+            results = new Runner(opt).run();
+        } catch (RunnerException e) {
+            e.printStackTrace();
+        }
+
+        for (RunResult result : results) {
+            System.out.println(result.getPrimaryResult().getLabel() + " - " + result.getPrimaryResult().getScore());
+        }
+    }
+
+    ////////////////////////////////////////////////////////
+    // BENCHMARKING ////////////////////////////////////////
+    ////////////////////////////////////////////////////////
+
+    // The chunks within a view distance of 10 around the
+    // origin, looked up the way a tick loop would
+    private static final int RADIUS = 10;
+    private final Object chunk = new Object();
+    private HashMap<IntPair, Object> boxed;
+    private Long2ReferenceOpenHashMap<Object> packed;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        this.boxed = new HashMap<>();
+        this.packed = new Long2ReferenceOpenHashMap<>();
+        for (int x = -RADIUS; x <= RADIUS; x++) {
+            for (int z = -RADIUS; z <= RADIUS; z++) {
+                this.boxed.put(IntPair.make(x, z), this.chunk);
+                this.packed.put(IntPair.pack(x, z), this.chunk);
+            }
+        }
+    }
+
+    @Benchmark
+    public void hashMapGet(Blackhole bh) {
+        for (int x = -RADIUS; x <= RADIUS; x++) {
+            for (int z = -RADIUS; z <= RADIUS; z++) {
+                bh.consume(this.boxed.get(IntPair.make(x, z)));
+            }
+        }
+    }
+
+    @Benchmark
+    public void packedGet(Blackhole bh) {
+        for (int x = -RADIUS; x <= RADIUS; x++) {
+            for (int z = -RADIUS; z <= RADIUS; z++) {
+                bh.consume(this.packed.get(IntPair.pack(x, z)));
+            }
+        }
+    }
+
+    @Benchmark
+    public void hashMapChurn(Blackhole bh) {
+        for (int x = -RADIUS; x <= RADIUS; x++) {
+            IntPair key = IntPair.make(x, RADIUS + 1);
+            this.boxed.put(key, this.chunk);
+            bh.consume(this.boxed.remove(key));
+        }
+    }
+
+    @Benchmark
+    public void packedChurn(Blackhole bh) {
+        for (int x = -RADIUS; x <= RADIUS; x++) {
+            long key = IntPair.pack(x, RADIUS + 1);
+            this.packed.put(key, this.chunk);
+            bh.consume(this.packed.remove(key));
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Substance;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BlockTransactionTest {
+    private static final int STONE = ChunkSection.stateId(Substance.STONE, (byte) 0);
+    private static final int WOOL = ChunkSection.stateId(Substance.WOOL, (byte) 3);
+
+    private static void commit(boolean sections) {
+        SectionWorld world = new SectionWorld(sections, true);
+        BlockTransaction tx = new BlockTransaction(world);
+        tx.set(20, 70, 3, STONE).set(-1, 5, -1, STONE).set(3, 20, 4, WOOL).set(3, 40, 4, STONE);
+        tx.set(20, 70, 3, Substance.WOOL, (byte) 3);
+        assertEquals(4, tx.size());
+        assertEquals(WOOL, tx.getStateId(20, 70, 3));
+        assertEquals(0, tx.getStateId(20, 71, 3));
+        assertEquals(0, world.chunk(1, 0).getStateIdAt(4, 70, 3));
+
+        List<String> changed = new ArrayList<>();
+        tx.commit((chunk, mask) -> changed.add(chunk.getX() + "," + chunk.getZ() + ":" + mask));
+        assertEquals(0, tx.size());
+        assertEquals("[-1,-1:1, 0,0:6, 1,0:16]", changed.toString());
+
+        SectionChunk origin = world.chunk(0, 0);
+        assertEquals(WOOL, origin.getStateIdAt(3, 20, 4));
+        assertEquals(STONE, origin.getStateIdAt(3, 40, 4));
+        assertEquals(WOOL, world.chunk(1, 0).getStateIdAt(4, 70, 3));
+        assertEquals(STONE, world.chunk(-1, -1).getStateIdAt(15, 5, 15));
+        assertEquals(40, origin.getHighestY(3, 4, HeightMap.Type.WORLD_SURFACE));
+        assertEquals(40, origin.getHighestY(3, 4, HeightMap.Type.MOTION_BLOCKING));
+        assertEquals(-1, origin.getHighestY(4, 4, HeightMap.Type.WORLD_SURFACE));
+
+        // Staging an existing state changes nothing
+        tx.set(3, 20, 4, WOOL);
+        changed.clear();
+        tx.commit((chunk, mask) -> changed.add(chunk.getX() + "," + chunk.getZ() + ":" + mask));
+        assertTrue(changed.isEmpty());
+    }
+
+    @Test
+    public void testCommitSections() {
+        commit(true);
+    }
+
+    @Test
+    public void testCommitBlocks() {
+        commit(false);
+    }
+
+    @Test
+    public void testRollback() {
+        BlockTransaction tx = new BlockTransaction(new SectionWorld(true, true));
+        tx.set(1, 1, 1, STONE).set(40, 1, 40, STONE);
+        tx.rollback();
+        assertEquals(0, tx.size());
+        tx.commit((chunk, mask) -> fail());
+        assertEquals(0, tx.getStateId(1, 1, 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testOutOfRange() {
+        new BlockTransaction(new SectionWorld(true, true)).set(0, 256, 0, STONE);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testStateIdOutOfRange() {
+        new BlockTransaction(new SectionWorld(true, true)).getStateId(0, -1, 0);
+    }
+
+    @Test
+    public void testFailedCommit() {
+        SectionWorld world = new SectionWorld(true, true);
+        BlockTransaction tx = new BlockTransaction(world);
+        tx.set(1, 1, 1, STONE).set(40, 1, 40, STONE);
+        try {
+            tx.commit((chunk, mask) -> {
+                throw new IllegalStateException();
+            });
+            fail();
+        } catch (IllegalStateException expected) {
+        }
+
+        // Nothing was dropped, so committing again finishes
+        assertEquals(2, tx.size());
+        tx.commit();
+        assertEquals(0, tx.size());
+        assertEquals(STONE, world.chunk(0, 0).getStateIdAt(1, 1, 1));
+        assertEquals(STONE, world.chunk(2, 2).getStateIdAt(8, 1, 8));
+    }
+}
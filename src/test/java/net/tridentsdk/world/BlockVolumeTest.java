@@ -0,0 +1,95 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Substance;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class BlockVolumeTest {
+    private static final int STONE = ChunkSection.stateId(Substance.STONE, (byte) 0);
+    private static final int WOOL = ChunkSection.stateId(Substance.WOOL, (byte) 3);
+
+    private static void roundTrip(boolean sections) {
+        SectionWorld world = new SectionWorld(sections);
+        BlockVolume volume = new BlockVolume(world, 20, 40, -3, -5, 10, 7);
+        assertEquals(-5, volume.getMinX());
+        assertEquals(26, volume.getSizeX());
+        assertEquals(31, volume.getSizeY());
+        assertEquals(11, volume.getSizeZ());
+
+        int[] states = new int[volume.getVolume()];
+        for (int i = 0; i < states.length; i++) {
+            states[i] = i % 7 == 0 ? WOOL : STONE;
+        }
+        volume.write(states);
+        assertEquals(6, world.chunks.size());
+
+        for (int y = 10; y <= 40; y++) {
+            for (int z = -3; z <= 7; z++) {
+                for (int x = -5; x <= 20; x++) {
+                    SectionChunk chunk = world.chunk(x >> 4, z >> 4);
+                    assertEquals(states[volume.indexOf(x, y, z)], chunk.getStateIdAt(x & 15, y, z & 15));
+                }
+            }
+        }
+        assertEquals(0, world.chunk(0, 0).getStateIdAt(5, 41, 5));
+        assertEquals(0, world.chunk(0, 0).getStateIdAt(5, 9, 5));
+        assertArrayEquals(states, volume.read());
+    }
+
+    @Test
+    public void testRoundTripSections() {
+        roundTrip(true);
+    }
+
+    @Test
+    public void testRoundTripBlocks() {
+        roundTrip(false);
+    }
+
+    @Test
+    public void testFillNotifiesOncePerChunk() {
+        SectionWorld world = new SectionWorld(true);
+        BlockVolume volume = new BlockVolume(world, 0, 0, 0, 31, 20, 15);
+        List<Integer> masks = new ArrayList<>();
+        volume.fill(STONE, (chunk, mask) -> masks.add(mask));
+        assertEquals(2, masks.size());
+        assertEquals(0b11, (int) masks.get(0));
+        SectionChunk origin = world.chunk(0, 0);
+        assertEquals(16 * 16 * 16, origin.sections[0].getNonAirCount());
+        assertEquals(16 * 16 * 5, origin.sections[1].getNonAirCount());
+        assertEquals(ChunkSection.MIN_BITS, origin.sections[0].getBitsPerBlock());
+
+        masks.clear();
+        volume.fill(STONE, (chunk, mask) -> masks.add(mask));
+        assertTrue(masks.isEmpty());
+
+        new BlockVolume(volume.getWorld(), 16, 0, 0, 16, 0, 0).fill(WOOL, (chunk, mask) -> masks.add(mask));
+        assertEquals(1, masks.size());
+        assertEquals(WOOL, world.chunk(1, 0).getStateIdAt(0, 0, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testShortArray() {
+        new BlockVolume(new SectionWorld(true), 0, 0, 0, 1, 1, 1).write(new int[7]);
+    }
+}
@@ -0,0 +1,107 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.world.ChunkLoadQueue.Priority;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.*;
+
+import static org.junit.Assert.*;
+
+public class ChunkLoadQueueTest {
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<String> loads = new CopyOnWriteArrayList<>();
+
+    // Blocks on the chunk at 0, 0 so that the rest of the
+    // requests pile up in the queue
+    private Chunk load(int x, int z, boolean gen) {
+        if (x == 0 && z == 0) {
+            try {
+                this.release.await();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        }
+
+        this.loads.add(x + "," + z);
+        return gen || x >= 0 ? new SectionChunk(x, z) : null;
+    }
+
+    @Test
+    public void testOrdering() throws Exception {
+        ChunkLoadQueue queue = new ChunkLoadQueue(this::load, 1);
+        queue.setDistanceFunction((x, z) -> x * x + z * z);
+        CompletableFuture<Chunk> first = queue.submit(0, 0, true, Priority.NORMAL);
+
+        CompletableFuture<Chunk> low = queue.submit(1, 0, true, Priority.LOW);
+        CompletableFuture<Chunk> far = queue.submit(5, 5, true, Priority.NORMAL);
+        CompletableFuture<Chunk> near = queue.submit(2, 0, true, Priority.NORMAL);
+        CompletableFuture<Chunk> urgent = queue.submit(9, 9, true, Priority.URGENT);
+        CompletableFuture<Chunk> bumped = queue.submit(1, 0, true, Priority.HIGH);
+        assertNotSame(low, bumped);
+        assertEquals(5, queue.getPendingCount());
+
+        this.release.countDown();
+        CompletableFuture.allOf(first, low, far, near, urgent, bumped).get(5, TimeUnit.SECONDS);
+        assertEquals("[0,0, 9,9, 1,0, 2,0, 5,5]", this.loads.toString());
+        assertSame(low.get(), bumped.get());
+        assertEquals(5, far.get().getX());
+        assertEquals(0, queue.getPendingCount());
+        queue.shutdown();
+    }
+
+    @Test
+    public void testCancel() throws Exception {
+        ChunkLoadQueue queue = new ChunkLoadQueue(this::load, 1);
+        CompletableFuture<Chunk> first = queue.submit(0, 0, true, Priority.NORMAL);
+        CompletableFuture<Chunk> a = queue.submit(3, 3, true, Priority.LOW);
+        CompletableFuture<Chunk> b = queue.submit(3, 3, true, Priority.LOW);
+        CompletableFuture<Chunk> c = queue.submit(4, 4, true, Priority.LOW);
+
+        a.cancel(false);
+        assertEquals(3, queue.getPendingCount());
+        c.cancel(false);
+        assertEquals(2, queue.getPendingCount());
+
+        this.release.countDown();
+        assertEquals(3, b.get(5, TimeUnit.SECONDS).getX());
+        first.get(5, TimeUnit.SECONDS);
+        assertEquals("[0,0, 3,3]", this.loads.toString());
+        queue.shutdown();
+    }
+
+    @Test
+    public void testNoGen() throws Exception {
+        ChunkLoadQueue queue = new ChunkLoadQueue(this::load, 2);
+        this.release.countDown();
+        assertNull(queue.submit(-1, 0, false, Priority.NORMAL).get(5, TimeUnit.SECONDS));
+        assertNotNull(queue.submit(-1, 0, true, Priority.NORMAL).get(5, TimeUnit.SECONDS));
+        queue.shutdown();
+    }
+
+    @Test
+    public void testShutdown() throws Exception {
+        ChunkLoadQueue queue = new ChunkLoadQueue(this::load, 1);
+        queue.submit(0, 0, true, Priority.NORMAL);
+        CompletableFuture<Chunk> queued = queue.submit(1, 1, true, Priority.NORMAL);
+        queue.shutdown();
+        assertTrue(queued.isCancelled());
+        this.release.countDown();
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Position;
+import net.tridentsdk.entity.Entity;
+import org.junit.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ChunkPrefetcherTest {
+    private final CountDownLatch started = new CountDownLatch(1);
+    private final CountDownLatch release = new CountDownLatch(1);
+    private final List<IntPair> loads = new CopyOnWriteArrayList<>();
+    private final ChunkLoadQueue queue = new ChunkLoadQueue((x, z, gen) -> {
+        this.started.countDown();
+        try {
+            // Bounded so that a failed test cannot leave the
+            // loader thread blocked
+            this.release.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+        this.loads.add(IntPair.make(x, z));
+        return new SectionChunk(x, z);
+    }, 1);
+    private final World world = mock(World.class);
+    private final ChunkPrefetcher prefetcher = new ChunkPrefetcher(this.world, this.queue, 4);
+
+    private void awaitLoads() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (this.queue.getPendingCount() > 0) {
+            assertTrue("Loads did not finish", System.nanoTime() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void testTurn() throws Exception {
+        double x = 0;
+        for (int i = 0; i < 5; i++) {
+            this.prefetcher.update(1, x += 2, 8);
+        }
+        int east = this.prefetcher.getPendingCount(1);
+        assertTrue(east > 20);
+        assertEquals(east, this.queue.getPendingCount());
+        assertTrue(this.started.await(5, TimeUnit.SECONDS));
+
+        // Turn around, which cancels everything but the load
+        // that already started
+        for (int i = 0; i < 5; i++) {
+            this.prefetcher.update(1, x -= 2, 8);
+        }
+        int west = this.prefetcher.getPendingCount(1);
+        assertTrue(west > 20);
+        assertEquals(west + 1, this.queue.getPendingCount());
+
+        this.release.countDown();
+        this.awaitLoads();
+        assertEquals(west + 1, this.loads.size());
+        assertTrue(this.loads.get(0).getX() > 4);
+        for (IntPair pair : this.loads.subList(1, this.loads.size())) {
+            assertTrue(pair.toString(), pair.getX() < -4);
+            assertTrue(pair.toString(), Math.abs(pair.getZ()) <= pair.getX() * -1);
+        }
+
+        assertEquals(0, this.prefetcher.getPendingCount(1));
+        this.queue.shutdown();
+    }
+
+    @Test
+    public void testTeleport() {
+        double x = 0;
+        for (int i = 0; i < 5; i++) {
+            this.prefetcher.update(1, x += 2, 8);
+        }
+        assertTrue(this.prefetcher.getPendingCount(1) > 0);
+
+        // The jump cancels everything, and the old velocity
+        // is not carried over to the next slow move
+        this.prefetcher.update(1, 5000, 8);
+        assertEquals(0, this.prefetcher.getPendingCount(1));
+        this.prefetcher.update(1, 5000.2, 8);
+        assertEquals(0, this.prefetcher.getPendingCount(1));
+
+        this.release.countDown();
+        this.queue.shutdown();
+    }
+
+    @Test
+    public void testWorldChange() throws Exception {
+        Entity entity = mock(Entity.class);
+        when(entity.getId()).thenReturn(2);
+        for (int i = 0; i < 5; i++) {
+            when(entity.getPosition()).thenReturn(new Position(this.world, 2.0 * i, 64, 8));
+            this.prefetcher.update(entity);
+        }
+        assertTrue(this.prefetcher.getPendingCount(2) > 0);
+        assertTrue(this.started.await(5, TimeUnit.SECONDS));
+
+        // Nothing is prefetched in a world the queue does
+        // not load from
+        World nether = mock(World.class);
+        for (int i = 0; i < 5; i++) {
+            when(entity.getPosition()).thenReturn(new Position(nether, -3000 - 2.0 * i, 64, 8));
+            this.prefetcher.update(entity);
+            assertEquals(0, this.prefetcher.getPendingCount(2));
+        }
+
+        this.release.countDown();
+        this.awaitLoads();
+        assertEquals(1, this.loads.size());
+        assertTrue(this.loads.get(0).toString(), this.loads.get(0).getX() > 4);
+        this.queue.shutdown();
+    }
+
+    @Test
+    public void testSlowAndRemove() {
+        this.prefetcher.update(1, 0, 0);
+        this.prefetcher.update(1, 0.1, 0);
+        assertEquals(0, this.prefetcher.getPendingCount(1));
+
+        this.prefetcher.update(2, 0, 0);
+        this.prefetcher.update(2, 0, 3);
+        assertTrue(this.prefetcher.getPendingCount(2) > 0);
+        this.prefetcher.remove(2);
+        assertEquals(0, this.prefetcher.getPendingCount(2));
+        // Only a load which already started may remain
+        assertTrue(this.queue.getPendingCount() <= 1);
+
+        this.release.countDown();
+        this.queue.shutdown();
+    }
+}
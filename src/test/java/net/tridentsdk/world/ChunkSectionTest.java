@@ -0,0 +1,138 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Substance;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ChunkSectionTest {
+    @Test
+    public void testEmpty() {
+        ChunkSection section = new ChunkSection();
+        assertTrue(section.isEmpty());
+        assertEquals(ChunkSection.MIN_BITS, section.getBitsPerBlock());
+        assertEquals(Substance.AIR, section.getSubstance(3, 4, 5));
+        assertArrayEquals(new int[] { ChunkSection.AIR }, section.getPalette());
+        assertEquals(256, section.getPackedData().length);
+    }
+
+    @Test
+    public void testSetGet() {
+        ChunkSection section = new ChunkSection();
+        section.set(1, 2, 3, Substance.STONE, (byte) 0);
+        section.set(15, 15, 15, Substance.WOOL, (byte) 14);
+        assertEquals(Substance.STONE, section.getSubstance(1, 2, 3));
+        assertEquals(Substance.WOOL, section.getSubstance(15, 15, 15));
+        assertEquals(14, section.getData(15, 15, 15));
+        assertEquals(2, section.getNonAirCount());
+        assertEquals(ChunkSection.stateId(Substance.STONE, (byte) 0),
+                section.setStateId(1, 2, 3, ChunkSection.AIR));
+        assertEquals(1, section.getNonAirCount());
+    }
+
+    @Test
+    public void testGrowth() {
+        Random random = new Random(1);
+        ChunkSection section = new ChunkSection();
+        int[] expected = new int[ChunkSection.VOLUME];
+        for (int n = 0; n < 50000; n++) {
+            int i = random.nextInt(ChunkSection.VOLUME);
+            int state = random.nextInt(n < 20000 ? 16 : 4000);
+            expected[i] = state;
+            section.setStateId(i, state);
+        }
+
+        assertEquals(ChunkSection.GLOBAL_BITS, section.getBitsPerBlock());
+        assertNull(section.getPalette());
+        int[] actual = new int[ChunkSection.VOLUME];
+        section.getStateIds(actual, 0);
+        assertArrayEquals(expected, actual);
+        for (int i = 0; i < ChunkSection.VOLUME; i++) {
+            assertEquals(expected[i], section.getStateId(i));
+        }
+    }
+
+    @Test
+    public void testTrim() {
+        ChunkSection section = new ChunkSection();
+        for (int i = 0; i < 100; i++) {
+            section.setStateId(i, i + 1);
+        }
+        assertEquals(7, section.getBitsPerBlock());
+
+        for (int i = 0; i < 100; i++) {
+            section.setStateId(i, i < 50 ? 1 : ChunkSection.AIR);
+        }
+        section.trim();
+        assertEquals(ChunkSection.MIN_BITS, section.getBitsPerBlock());
+        assertEquals(2, section.getPalette().length);
+        assertEquals(1, section.getStateId(0));
+        assertEquals(ChunkSection.AIR, section.getStateId(99));
+        assertEquals(50, section.getNonAirCount());
+
+        section.fill(ChunkSection.stateId(Substance.DIRT, (byte) 0));
+        assertEquals(ChunkSection.VOLUME, section.getNonAirCount());
+        assertEquals(Substance.DIRT, section.getSubstance(7, 7, 7));
+    }
+
+    @Test
+    public void testLegacy() {
+        Random random = new Random(2);
+        byte[] blocks = new byte[ChunkSection.VOLUME];
+        byte[] add = new byte[ChunkSection.VOLUME / 2];
+        byte[] data = new byte[ChunkSection.VOLUME / 2];
+        random.nextBytes(blocks);
+        random.nextBytes(data);
+        add[5] = 0x10;
+
+        ChunkSection section = ChunkSection.fromLegacy(blocks, add, data);
+        assertEquals(blocks[11] & 0xFF | 1 << 8, section.getStateId(11) >>> 4);
+
+        byte[] b = new byte[blocks.length];
+        byte[] a = new byte[add.length];
+        byte[] d = new byte[data.length];
+        section.toLegacy(b, a, d);
+        assertArrayEquals(blocks, b);
+        assertArrayEquals(add, a);
+        assertArrayEquals(data, d);
+    }
+
+    @Test
+    public void testDirty() {
+        ChunkSection section = new ChunkSection();
+        assertFalse(section.isDirty());
+        section.setStateId(0, 0);
+        assertFalse(section.isDirty());
+        section.set(1, 2, 3, Substance.STONE, (byte) 0);
+        assertTrue(section.isDirty());
+        section.clearDirty();
+        section.fill(0, 0, 0, 3, 3, 3, ChunkSection.stateId(Substance.STONE, (byte) 0));
+        assertTrue(section.isDirty());
+
+        SectionChunk chunk = new SectionChunk(0, 0, true);
+        assertFalse(chunk.isDirty());
+        chunk.sections[7].markDirty();
+        assertTrue(chunk.isDirty());
+        chunk.clearDirty();
+        assertFalse(chunk.isDirty());
+        assertTrue(new SectionChunk(0, 0).isDirty());
+    }
+}
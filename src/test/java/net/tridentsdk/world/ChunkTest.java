@@ -0,0 +1,37 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Substance;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class ChunkTest {
+    @Test
+    public void testPrimitiveAccess() {
+        SectionChunk chunk = new SectionChunk(0, 0);
+        chunk.sections[4].set(1, 2, 3, Substance.WOOL, (byte) 5);
+        assertEquals(Substance.WOOL, chunk.getSubstanceAt(1, 66, 3));
+        assertEquals(5, chunk.getDataAt(1, 66, 3));
+        assertEquals(ChunkSection.stateId(Substance.WOOL, (byte) 5), chunk.getStateIdAt(1, 66, 3));
+        assertEquals(Substance.AIR, chunk.getSubstanceAt(1, 67, 3));
+
+        chunk.setStateAt(15, 255, 15, ChunkSection.stateId(Substance.GLASS, (byte) 0));
+        assertEquals(Substance.GLASS, chunk.sections[15].getSubstance(15, 15, 15));
+    }
+}
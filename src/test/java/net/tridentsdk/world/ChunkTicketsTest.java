@@ -0,0 +1,133 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class ChunkTicketsTest {
+    private final List<String> unloaded = new ArrayList<>();
+    private final ChunkTickets tickets = new ChunkTickets((x, z) -> this.unloaded.add(x + "," + z), 3, 100);
+
+    private void tick(int n) {
+        for (int i = 0; i < n; i++) {
+            this.tickets.tick();
+        }
+    }
+
+    @Test
+    public void testLevels() {
+        ChunkTickets.Ticket ticket = this.tickets.add(TicketType.PLAYER, 0, 0, 2, 1);
+        this.tickets.add(TicketType.PLUGIN, 3, 0, 0, 0);
+        assertEquals(1, this.tickets.getLevel(0, 0));
+        assertEquals(3, this.tickets.getLevel(2, -2));
+        assertEquals(0, this.tickets.getLevel(3, 0));
+        assertEquals(ChunkTickets.NO_LEVEL, this.tickets.getLevel(3, 1));
+        assertTrue(this.tickets.isTicketed(-2, 2));
+        assertFalse(this.tickets.isTicketed(-3, 2));
+        assertEquals(ticket, this.tickets.getTickets(1, 1).iterator().next());
+    }
+
+    @Test
+    public void testDelayedUnload() {
+        ChunkTickets.Ticket ticket = this.tickets.add(TicketType.PLAYER, 0, 0, 1, 0);
+        for (int x = -1; x <= 1; x++) {
+            for (int z = -1; z <= 1; z++) {
+                this.tickets.markLoaded(x, z);
+            }
+        }
+        assertEquals(0, this.tickets.getIdleCount());
+        assertTrue(this.tickets.remove(ticket));
+        assertFalse(this.tickets.remove(ticket));
+        assertEquals(9, this.tickets.getIdleCount());
+
+        this.tick(2);
+        assertTrue(this.unloaded.isEmpty());
+
+        // Reticketing before the delay keeps the chunk
+        this.tickets.add(TicketType.PLAYER, 1, 1, 0, 0);
+        this.tick(1);
+        assertEquals(8, this.unloaded.size());
+        assertFalse(this.unloaded.contains("1,1"));
+        assertEquals(0, this.tickets.getIdleCount());
+    }
+
+    @Test
+    public void testBudget() {
+        ChunkTickets tickets = new ChunkTickets((x, z) -> this.unloaded.add(x + "," + z), 100, 2);
+        tickets.idle(0, 0);
+        tickets.idle(1, 0);
+        tickets.idle(2, 0);
+        tickets.idle(0, 0);
+        tickets.tick();
+        assertEquals("[1,0]", this.unloaded.toString());
+        assertEquals(2, tickets.getIdleCount());
+    }
+
+    @Test
+    public void testExpiry() {
+        this.tickets.add(TicketType.create("short", 2), 5, 5, 0, 0);
+        this.tickets.markLoaded(5, 5);
+        this.tick(1);
+        assertTrue(this.tickets.isTicketed(5, 5));
+        this.tick(1);
+        assertFalse(this.tickets.isTicketed(5, 5));
+        this.tick(3);
+        assertEquals("[5,5]", this.unloaded.toString());
+    }
+
+    @Test
+    public void testUnloadedChunks() {
+        ChunkTickets.Ticket ticket = this.tickets.add(TicketType.PLAYER, 0, 0, 2, 0);
+        this.tickets.markLoaded(1, 1);
+        this.tickets.idle(7, 7);
+        assertTrue(this.tickets.remove(ticket));
+        assertEquals(2, this.tickets.getIdleCount());
+        assertTrue(this.tickets.getTickets(0, 0).isEmpty());
+
+        this.tick(3);
+        assertEquals(2, this.unloaded.size());
+        assertTrue(this.unloaded.contains("1,1"));
+        assertTrue(this.unloaded.contains("7,7"));
+    }
+
+    @Test
+    public void testForget() {
+        ChunkTickets.Ticket ticket = this.tickets.add(TicketType.PLAYER, 0, 0, 1, 0);
+        this.tickets.markLoaded(1, 0);
+        this.tickets.idle(5, 5);
+        this.tickets.forget(1, 0);
+        this.tickets.forget(5, 5);
+        assertEquals(0, this.tickets.getIdleCount());
+        assertTrue(this.tickets.isTicketed(1, 0));
+        assertEquals(1, this.tickets.getLevel(1, 0));
+
+        // Reloaded under the same ticket, the chunk stays
+        this.tickets.markLoaded(1, 0);
+        assertEquals(0, this.tickets.getIdleCount());
+        this.tick(5);
+        assertTrue(this.unloaded.isEmpty());
+
+        this.tickets.remove(ticket);
+        this.tick(3);
+        assertEquals("[1,0]", this.unloaded.toString());
+    }
+}
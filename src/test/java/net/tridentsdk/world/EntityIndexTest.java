@@ -0,0 +1,127 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Position;
+import net.tridentsdk.entity.Entity;
+import net.tridentsdk.entity.living.Player;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class EntityIndexTest {
+    private static final World WORLD = mock(World.class);
+
+    private final EntityIndex index = new EntityIndex();
+    private final Map<Entity, double[]> positions = new HashMap<>();
+
+    private <T extends Entity> T spawn(Class<T> type, int id, double x, double y, double z) {
+        T entity = mock(type);
+        when(entity.getId()).thenReturn(id);
+        this.index.update(entity, x, y, z);
+        this.positions.put(entity, new double[] { x, y, z });
+        return entity;
+    }
+
+    private void scatter(int count) {
+        Random random = new Random(42);
+        for (int i = 0; i < count; i++) {
+            Class<? extends Entity> type = i % 3 == 0 ? Player.class : Entity.class;
+            this.spawn(type, i, random.nextDouble() * 200 - 100, random.nextDouble() * 64,
+                    random.nextDouble() * 200 - 100);
+        }
+    }
+
+    private double distanceSquared(Entity entity, double x, double y, double z) {
+        double[] p = this.positions.get(entity);
+        return (p[0] - x) * (p[0] - x) + (p[1] - y) * (p[1] - y) + (p[2] - z) * (p[2] - z);
+    }
+
+    @Test
+    public void testWithin() {
+        this.scatter(500);
+        Position center = new Position(WORLD, 10.5, 30, -20.25);
+        Set<Entity> expected = new HashSet<>();
+        Set<Entity> players = new HashSet<>();
+        for (Entity entity : this.positions.keySet()) {
+            if (this.distanceSquared(entity, 10.5, 30, -20.25) <= 40 * 40) {
+                expected.add(entity);
+                if (entity instanceof Player) {
+                    players.add(entity);
+                }
+            }
+        }
+
+        assertFalse(expected.isEmpty());
+        assertEquals(expected, new HashSet<>(this.index.getEntitiesWithin(center, 40)));
+        assertEquals(players, new HashSet<>(this.index.getEntitiesWithin(center, 40, Player.class)));
+
+        int[] visited = new int[1];
+        assertFalse(this.index.forEachWithin(10.5, 30, -20.25, 40, Entity.class, e -> ++visited[0] < 3));
+        assertEquals(3, visited[0]);
+    }
+
+    @Test
+    public void testBox() {
+        this.scatter(500);
+        Set<Entity> expected = new HashSet<>();
+        for (Map.Entry<Entity, double[]> e : this.positions.entrySet()) {
+            double[] p = e.getValue();
+            if (p[0] >= -33 && p[0] <= 17 && p[1] >= 10 && p[1] <= 20 && p[2] >= 0 && p[2] <= 50) {
+                expected.add(e.getKey());
+            }
+        }
+        assertEquals(expected, new HashSet<>(this.index.getEntitiesInBox(new Position(WORLD, -33, 10, 0),
+                new Position(WORLD, 17, 20, 50), Entity.class)));
+    }
+
+    @Test
+    public void testNearest() {
+        this.scatter(500);
+        List<Entity> all = new ArrayList<>(this.positions.keySet());
+        all.sort(Comparator.comparingDouble(e -> this.distanceSquared(e, -7, 12, 33)));
+
+        assertEquals(all.subList(0, 5), this.index.getNearest(-7, 12, 33, 5, 1000, Entity.class));
+        List<Player> players = this.index.getNearest(-7, 12, 33, 3, 1000, Player.class);
+        assertEquals(3, players.size());
+        for (int i = 1; i < players.size(); i++) {
+            assertTrue(this.distanceSquared(players.get(i - 1), -7, 12, 33) <=
+                    this.distanceSquared(players.get(i), -7, 12, 33));
+        }
+        assertTrue(this.index.getNearest(-7, 12, 33, 5, 0.001, Entity.class).isEmpty());
+    }
+
+    @Test
+    public void testMoveAndRemove() {
+        Entity entity = this.spawn(Entity.class, 1, 0, 0, 0);
+        Entity other = this.spawn(Entity.class, 2, 1, 0, 1);
+        assertEquals(2, this.index.size());
+
+        this.index.update(entity, 100, 0, 100);
+        assertEquals(Collections.singletonList(other), this.index.getNearest(0, 0, 0, 1, 50, Entity.class));
+        assertEquals(Collections.singletonList(entity), this.index.getNearest(99, 0, 99, 1, 50, Entity.class));
+
+        assertTrue(this.index.remove(entity));
+        assertFalse(this.index.remove(entity));
+        assertEquals(1, this.index.size());
+        assertTrue(this.index.getNearest(99, 0, 99, 1, 50, Entity.class).isEmpty());
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Substance;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+
+public class HeightMapTest {
+    private static final int STONE = ChunkSection.stateId(Substance.STONE, (byte) 0);
+    private static final int POPPY = ChunkSection.stateId(Substance.POPPY, (byte) 0);
+
+    private static SectionChunk chunk() {
+        SectionChunk chunk = new SectionChunk(0, 0, true);
+        chunk.heightMaps = new HeightMap[] {
+                new HeightMap(HeightMap.Type.WORLD_SURFACE),
+                new HeightMap(HeightMap.Type.MOTION_BLOCKING)
+        };
+        return chunk;
+    }
+
+    @Test
+    public void testIncremental() {
+        SectionChunk chunk = chunk();
+        assertEquals(-1, chunk.getHighestY(3, 4, HeightMap.Type.WORLD_SURFACE));
+
+        chunk.setStateAt(3, 64, 4, STONE);
+        chunk.setStateAt(3, 65, 4, POPPY);
+        assertEquals(65, chunk.getHighestY(3, 4, HeightMap.Type.WORLD_SURFACE));
+        assertEquals(64, chunk.getHighestY(3, 4, HeightMap.Type.MOTION_BLOCKING));
+        assertEquals(66, chunk.getHeightMap(HeightMap.Type.WORLD_SURFACE).getHeight(3, 4));
+
+        chunk.setStateAt(3, 255, 4, STONE);
+        assertEquals(256, chunk.getHeightMap(HeightMap.Type.WORLD_SURFACE).getHeight(3, 4));
+        chunk.setStateAt(3, 255, 4, 0);
+        chunk.setStateAt(3, 65, 4, 0);
+        assertEquals(64, chunk.getHighestY(3, 4, HeightMap.Type.WORLD_SURFACE));
+        chunk.setStateAt(3, 64, 4, 0);
+        assertEquals(-1, chunk.getHighestY(3, 4, HeightMap.Type.MOTION_BLOCKING));
+
+        // Neighbouring columns in the same word are untouched
+        assertEquals(0, chunk.getHeightMap(HeightMap.Type.WORLD_SURFACE).getHeight(2, 4));
+        assertEquals(0, chunk.getHeightMap(HeightMap.Type.WORLD_SURFACE).getHeight(4, 4));
+    }
+
+    @Test
+    public void testBulkAndCompute() {
+        SectionChunk chunk = chunk();
+        chunk.fillStates(0, 0, 0, 15, 70, 15, STONE);
+        chunk.fillStates(2, 71, 2, 5, 71, 5, POPPY);
+        chunk.fillStates(0, 30, 0, 15, 70, 0, 0);
+        assertEquals(70, chunk.getHighestY(8, 8, HeightMap.Type.MOTION_BLOCKING));
+        assertEquals(71, chunk.getHighestY(3, 3, HeightMap.Type.WORLD_SURFACE));
+        assertEquals(70, chunk.getHighestY(3, 3, HeightMap.Type.MOTION_BLOCKING));
+        assertEquals(29, chunk.getHighestY(7, 0, HeightMap.Type.WORLD_SURFACE));
+
+        HeightMap computed = new HeightMap(HeightMap.Type.MOTION_BLOCKING);
+        computed.compute(chunk);
+        long[] expected = chunk.getHeightMap(HeightMap.Type.MOTION_BLOCKING).getPackedData();
+        assertEquals(37, expected.length);
+        for (int i = 0; i < expected.length; i++) {
+            assertEquals(expected[i], computed.getPackedData()[i]);
+        }
+
+        // Without height maps the column is scanned
+        SectionChunk plain = new SectionChunk(0, 0, true);
+        plain.fillStates(0, 0, 0, 15, 70, 15, STONE);
+        assertEquals(70, plain.getHighestY(1, 1, HeightMap.Type.WORLD_SURFACE));
+    }
+}
@@ -36,4 +36,15 @@ public class IntPairTest {
         assertEquals(dup, this.pair);
         assertEquals(dup.toString(), this.pair.toString());
     }
+
+    @Test
+    public void testPack() {
+        long packed = IntPair.pack(-7, 200);
+        assertEquals(-7, IntPair.unpackX(packed));
+        assertEquals(200, IntPair.unpackZ(packed));
+        assertEquals(packed, IntPair.make(-7, 200).pack());
+        assertEquals(IntPair.make(-7, 200), IntPair.unpack(packed));
+        assertEquals(0, IntPair.pack(0, 0));
+        assertEquals(-1, IntPair.unpackZ(IntPair.pack(Integer.MIN_VALUE, -1)));
+    }
 }
@@ -0,0 +1,217 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Substance;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+
+public class LightEngineTest {
+    private static final int AIR = 0;
+    private static final int STONE = ChunkSection.stateId(Substance.STONE, (byte) 0);
+    private static final int GLOWSTONE = ChunkSection.stateId(Substance.GLOWSTONE, (byte) 0);
+    private static final int TORCH = ChunkSection.stateId(Substance.TORCH, (byte) 5);
+
+    private final SectionWorld world = new SectionWorld(true);
+    private LightEngine engine;
+
+    private World world(boolean sky, int radius) {
+        this.world.load(radius);
+        this.engine = new LightEngine(this.world, sky);
+        this.world.lightEngine = this.engine;
+        return this.world;
+    }
+
+    private void set(int x, int y, int z, int state) {
+        this.world.chunk(x >> 4, z >> 4).setStateAt(x & 15, y, z & 15, state);
+        this.engine.markChanged(x, y, z);
+    }
+
+    @Test
+    public void testNibbles() {
+        NibbleArray array = new NibbleArray();
+        array.set(0, 15);
+        array.set(1, 7);
+        array.set(4095, 9);
+        assertEquals(15, array.get(0));
+        assertEquals(7, array.get(1));
+        assertEquals(9, array.get(4095));
+        assertEquals((byte) 0x7F, array.getData()[0]);
+
+        array.fill(3);
+        assertEquals(3, array.get(1234));
+        array.set(1234, 0);
+        assertEquals(0, array.get(1234));
+        assertEquals(3, array.get(1235));
+    }
+
+    @Test
+    public void testVolumeFill() {
+        World world = this.world(false, 1);
+        BlockVolume volume = new BlockVolume(world, 14, 64, 0, 17, 64, 0);
+        volume.fill(GLOWSTONE);
+        assertEquals(2, this.engine.getPendingCount());
+        this.engine.update();
+        assertEquals(15, this.engine.getBlockLight(15, 64, 0));
+        assertEquals(15, this.engine.getBlockLight(16, 64, 0));
+        assertEquals(14, this.engine.getBlockLight(13, 64, 0));
+        assertEquals(14, this.engine.getBlockLight(16, 65, 0));
+
+        volume.fill(AIR);
+        this.engine.update();
+        assertEquals(0, this.engine.getBlockLight(13, 64, 0));
+        assertEquals(0, this.engine.getBlockLight(16, 64, 0));
+    }
+
+    @Test
+    public void testTorch() {
+        this.world(false, 1);
+        List<String> changed = new ArrayList<>();
+        this.engine.setListener((chunk, mask) -> changed.add(chunk.getX() + "," + chunk.getZ() + ":" + mask));
+
+        this.set(0, 64, 0, TORCH);
+        assertEquals(1, this.engine.getPendingCount());
+        this.engine.update();
+        assertEquals(0, this.engine.getPendingCount());
+        assertEquals(14, this.engine.getBlockLight(0, 64, 0));
+        assertEquals(11, this.engine.getBlockLight(3, 64, 0));
+        assertEquals(10, this.engine.getBlockLight(-2, 66, 0));
+        assertEquals(1, this.engine.getBlockLight(-13, 64, 0));
+        assertEquals(0, this.engine.getBlockLight(0, 64, 14));
+        assertEquals(4, changed.size());
+        assertTrue(changed.contains("0,0:" + (1 << 3 | 1 << 4)));
+        assertTrue(this.world.chunk(0, 0).sections[4].isDirty());
+
+        this.set(0, 64, 0, AIR);
+        this.engine.update();
+        for (int x = -16; x < 16; x++) {
+            for (int y = 48; y < 80; y++) {
+                assertEquals(0, this.engine.getBlockLight(x, y, 0));
+            }
+        }
+    }
+
+    @Test
+    public void testOpacity() {
+        this.world(false, 1);
+        this.set(0, 64, 0, GLOWSTONE);
+        for (int x = -1; x <= 1; x++) {
+            for (int y = 63; y <= 65; y++) {
+                for (int z = -1; z <= 1; z++) {
+                    if (x != 0 || y != 64 || z != 0) {
+                        this.set(x, y, z, STONE);
+                    }
+                }
+            }
+        }
+        this.engine.update();
+        assertEquals(15, this.engine.getBlockLight(0, 64, 0));
+        assertEquals(0, this.engine.getBlockLight(2, 64, 0));
+
+        this.set(1, 64, 0, AIR);
+        this.engine.update();
+        assertEquals(14, this.engine.getBlockLight(1, 64, 0));
+        assertEquals(13, this.engine.getBlockLight(2, 64, 0));
+        assertEquals(11, this.engine.getBlockLight(2, 64, 2));
+
+        this.set(1, 64, 0, Substance.WATER.getId() << 4);
+        this.engine.update();
+        assertEquals(12, this.engine.getBlockLight(1, 64, 0));
+        assertEquals(11, this.engine.getBlockLight(2, 64, 0));
+
+        this.set(1, 64, 0, STONE);
+        this.engine.update();
+        assertEquals(0, this.engine.getBlockLight(2, 64, 0));
+        assertEquals(0, this.engine.getBlockLight(2, 64, 2));
+    }
+
+    @Test
+    public void testSky() {
+        this.world(true, 0);
+        SectionChunk chunk = this.world.chunk(0, 0);
+        chunk.setStateAt(3, 10, 3, TORCH);
+        this.engine.lightChunk(chunk);
+        assertEquals(15, this.engine.getSkyLight(5, 0, 5));
+        assertEquals(15, this.engine.getSkyLight(5, 255, 5));
+        assertEquals(14, this.engine.getBlockLight(3, 10, 3));
+
+        for (int x = 4; x <= 6; x++) {
+            for (int z = 4; z <= 6; z++) {
+                this.set(x, 100, z, STONE);
+            }
+        }
+        this.engine.update();
+        assertEquals(0, this.engine.getSkyLight(5, 100, 5));
+        assertEquals(15, this.engine.getSkyLight(5, 101, 5));
+        assertEquals(14, this.engine.getSkyLight(4, 99, 5));
+        assertEquals(13, this.engine.getSkyLight(5, 99, 5));
+        assertEquals(13, this.engine.getSkyLight(5, 20, 5));
+        assertEquals(15, this.engine.getSkyLight(3, 99, 5));
+
+        this.set(5, 100, 5, AIR);
+        this.engine.update();
+        assertEquals(15, this.engine.getSkyLight(5, 100, 5));
+        assertEquals(15, this.engine.getSkyLight(5, 20, 5));
+        assertEquals(14, this.engine.getSkyLight(4, 99, 5));
+
+        // A fresh relight agrees with the incremental one
+        byte[] incremental = chunk.sections[6].getSkyLight().getData();
+        this.engine.lightChunk(chunk);
+        assertArrayEquals(incremental, chunk.sections[6].getSkyLight().getData());
+    }
+
+    @Test
+    public void testAsync() throws Exception {
+        this.world(false, 0);
+        ExecutorService worker = Executors.newSingleThreadExecutor();
+        ExecutorService world = Executors.newSingleThreadExecutor();
+        try {
+            Thread worldThread = world.submit(Thread::currentThread).get(5, TimeUnit.SECONDS);
+            List<Thread> threads = new ArrayList<>();
+            this.engine.setListener((chunk, mask) -> threads.add(Thread.currentThread()));
+
+            this.set(8, 8, 8, GLOWSTONE);
+            this.engine.updateAsync(worker, world).get(5, TimeUnit.SECONDS);
+            assertEquals(15, this.engine.getBlockLight(8, 8, 8));
+            assertEquals(1, threads.size());
+            assertSame(worldThread, threads.get(0));
+        } finally {
+            worker.shutdown();
+            world.shutdown();
+        }
+    }
+
+    @Test
+    public void testTransaction() {
+        World world = this.world(false, 1);
+        new BlockTransaction(world)
+                .set(0, 10, 0, GLOWSTONE)
+                .set(20, 10, 0, GLOWSTONE)
+                .commit();
+        assertEquals(2, this.engine.getPendingCount());
+        this.engine.update();
+        assertEquals(5, this.engine.getBlockLight(10, 10, 0));
+        assertEquals(6, this.engine.getBlockLight(11, 10, 0));
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.BlockDirection;
+import net.tridentsdk.base.Substance;
+import net.tridentsdk.entity.Entity;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.function.IntPredicate;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class RayTracerTest {
+    private static final int STONE = ChunkSection.stateId(Substance.STONE, (byte) 0);
+    private static final IntPredicate SOLID = state -> state != 0;
+
+    private final SectionWorld world = new SectionWorld(true);
+
+    @Before
+    public void load() {
+        this.world.load(3);
+    }
+
+    private void set(int x, int y, int z, int state) {
+        this.world.getChunkAt(x >> 4, z >> 4).setStateAt(x & 15, y, z & 15, state);
+    }
+
+    private RayTraceResult trace(double ox, double oy, double oz, double dx, double dy, double dz, double max) {
+        this.world.lookups = 0;
+        return RayTracer.traceBlocks(this.world, ox, oy, oz, dx, dy, dz, max, SOLID, new RayTraceResult());
+    }
+
+    @Test
+    public void testStraight() {
+        this.set(5, 64, 0, STONE);
+        RayTraceResult result = this.trace(0.5, 64.5, 0.5, 2, 0, 0, 10);
+        assertEquals(RayTraceResult.Type.BLOCK, result.getType());
+        assertEquals(5, result.getBlockX());
+        assertEquals(STONE, result.getStateId());
+        assertEquals(BlockDirection.WEST, result.getFace());
+        assertEquals(4.5, result.getDistance(), 1e-9);
+        assertEquals(5.0, result.getX(), 1e-9);
+
+        assertFalse(this.trace(0.5, 64.5, 0.5, 1, 0, 0, 4).isHit());
+        assertFalse(this.trace(0.5, 64.5, 0.5, -1, 0, 0, 100).isHit());
+        assertFalse(this.trace(0.5, 64.5, 0.5, 0, 0, 0, 100).isHit());
+    }
+
+    @Test
+    public void testDiagonalAcrossChunks() {
+        this.set(-20, 60, -3, STONE);
+        RayTraceResult result = this.trace(0.5, 70.5, 0.5, -20.5, -10, -3.5, 50);
+        assertTrue(result.isHit());
+        assertEquals(-20, result.getBlockX());
+        assertEquals(60, result.getBlockY());
+        assertEquals(-3, result.getBlockZ());
+        assertTrue(this.world.lookups <= 4);
+
+        this.set(7, 0, 7, STONE);
+        result = this.trace(7.5, 10.5, 7.5, 0, -1, 0, 50);
+        assertEquals(BlockDirection.UP, result.getFace());
+        assertEquals(0, result.getBlockY());
+    }
+
+    @Test
+    public void testInsideAndOutside() {
+        this.set(1, 1, 1, STONE);
+        RayTraceResult result = this.trace(1.5, 1.5, 1.5, 0, 1, 0, 5);
+        assertNull(result.getFace());
+        assertEquals(0, result.getDistance(), 0);
+
+        assertFalse(this.trace(0.5, 300, 0.5, 0, 1, 0, 1000).isHit());
+        assertEquals(0, this.world.lookups);
+    }
+
+    @Test
+    public void testUnloadedChunk() {
+        this.set(70, 64, 0, STONE);
+        this.world.chunks.remove(IntPair.pack(3, 0));
+        int loaded = this.world.chunks.size();
+        assertFalse(this.trace(0.5, 64.5, 0.5, 1, 0, 0, 100).isHit());
+        assertEquals(loaded, this.world.chunks.size());
+        assertFalse(this.world.chunks.containsKey(IntPair.pack(3, 0)));
+    }
+
+    @Test
+    public void testChunkCached() {
+        this.trace(0.5, 64.5, 0.5, 1, 0, 0, 40);
+        assertEquals(3, this.world.lookups);
+    }
+
+    @Test
+    public void testEntities() {
+        this.set(5, 64, 0, STONE);
+        Entity entity = mock(Entity.class);
+        when(entity.getId()).thenReturn(1);
+        EntityIndex index = new EntityIndex();
+        index.update(entity, 3, 64, 0.5);
+
+        RayTraceResult result = this.trace(0.5, 64.5, 0.5, 1, 0, 0, 10);
+        RayTracer.traceEntities(index, 0.5, 64.5, 0.5, 1, 0, 0, 10, 0.3, 1.8, Entity.class, null, result);
+        assertEquals(RayTraceResult.Type.ENTITY, result.getType());
+        assertSame(entity, result.getEntity());
+        assertEquals(2.2, result.getDistance(), 1e-9);
+
+        // Behind the block
+        index.update(entity, 7, 64, 0.5);
+        this.trace(0.5, 64.5, 0.5, 1, 0, 0, 10);
+        RayTracer.traceEntities(index, 0.5, 64.5, 0.5, 1, 0, 0, 10, 0.3, 1.8, Entity.class, null,
+                RayTracer.traceBlocks(this.world, 0.5, 64.5, 0.5, 1, 0, 0, 10, SOLID, result));
+        assertEquals(RayTraceResult.Type.BLOCK, result.getType());
+
+        // Above the box
+        RayTracer.traceEntities(index, 0.5, 70, 0.5, 1, 0, 0, 10, 0.3, 1.8, Entity.class, null, result.reset());
+        assertFalse(result.isHit());
+    }
+
+    @Test
+    public void testExcludeCaster() {
+        Entity caster = mock(Entity.class);
+        when(caster.getId()).thenReturn(1);
+        Entity target = mock(Entity.class);
+        when(target.getId()).thenReturn(2);
+        EntityIndex index = new EntityIndex();
+        index.update(caster, 0.5, 63, 0.5);
+        index.update(target, 3, 63, 0.5);
+
+        // From the caster's eyes, the ray starts inside its own box
+        RayTraceResult result = new RayTraceResult();
+        RayTracer.traceEntities(index, 0.5, 64.62, 0.5, 1, 0, 0, 10, 0.3, 1.8, Entity.class, null, result);
+        assertSame(caster, result.getEntity());
+        assertEquals(0, result.getDistance(), 0);
+
+        RayTracer.traceEntities(index, 0.5, 64.62, 0.5, 1, 0, 0, 10, 0.3, 1.8, Entity.class,
+                e -> e != caster, result.reset());
+        assertSame(target, result.getEntity());
+        assertEquals(2.2, result.getDistance(), 1e-9);
+    }
+}
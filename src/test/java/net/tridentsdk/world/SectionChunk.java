@@ -0,0 +1,127 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Block;
+import net.tridentsdk.base.Position;
+import net.tridentsdk.base.Substance;
+import net.tridentsdk.entity.Entity;
+import net.tridentsdk.entity.living.Player;
+
+import javax.annotation.Nonnull;
+import java.util.Collections;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * Chunk backed by sections which only relies on the default
+ * methods of {@link Chunk} for primitive block access,
+ * optionally exposing its sections to the bulk methods.
+ */
+class SectionChunk implements Chunk {
+    final ChunkSection[] sections = new ChunkSection[16];
+    private final int x;
+    private final int z;
+    private final boolean exposeSections;
+    HeightMap[] heightMaps;
+
+    SectionChunk(int x, int z) {
+        this(x, z, false);
+    }
+
+    SectionChunk(int x, int z, boolean exposeSections) {
+        this.x = x;
+        this.z = z;
+        this.exposeSections = exposeSections;
+        for (int i = 0; i < this.sections.length; i++) {
+            this.sections[i] = new ChunkSection();
+        }
+    }
+
+    @Override
+    public int getX() {
+        return this.x;
+    }
+
+    @Override
+    public int getZ() {
+        return this.z;
+    }
+
+    @Nonnull
+    @Override
+    public Block getBlockAt(int x, int y, int z) {
+        ChunkSection section = this.sections[y >> 4];
+        int idx = ChunkSection.index(x, y & 15, z);
+        return new Block() {
+            @Override
+            public Substance getSubstance() {
+                return ChunkSection.substanceOf(section.getStateId(idx));
+            }
+
+            @Override
+            public void setSubstance(Substance substance) {
+                this.setSubstanceData(substance, this.getData());
+            }
+
+            @Override
+            public byte getData() {
+                return ChunkSection.dataOf(section.getStateId(idx));
+            }
+
+            @Override
+            public void setData(byte data) {
+                this.setSubstanceData(this.getSubstance(), data);
+            }
+
+            @Override
+            public void setSubstanceData(Substance substance, byte data) {
+                section.setStateId(idx, ChunkSection.stateId(substance, data));
+            }
+
+            @Override
+            public Position getPosition() {
+                throw new UnsupportedOperationException();
+            }
+        };
+    }
+
+    @Override
+    public ChunkSection getSection(int sectionY) {
+        return this.exposeSections ? this.sections[sectionY] : null;
+    }
+
+    @Override
+    public HeightMap getHeightMap(HeightMap.Type type) {
+        return this.heightMaps == null ? null : this.heightMaps[type.ordinal()];
+    }
+
+    @Override
+    public World getWorld() {
+        return null;
+    }
+
+    @Override
+    public Set<? extends Player> getPlayers() {
+        return Collections.emptySet();
+    }
+
+    @Override
+    public Stream<? extends Entity> getEntities() {
+        return Stream.empty();
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world;
+
+import net.tridentsdk.base.Block;
+import net.tridentsdk.base.Position;
+import net.tridentsdk.entity.Entity;
+import net.tridentsdk.entity.living.Player;
+import net.tridentsdk.world.opt.*;
+
+import javax.annotation.Nonnull;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Stream;
+
+/**
+ * World of {@link SectionChunk}s held in memory which only
+ * relies on the default methods of {@link World} for block
+ * access. Chunks are created the first time they are
+ * requested, unless only loaded chunks are asked for.
+ */
+class SectionWorld implements World {
+    final Map<Long, SectionChunk> chunks = new HashMap<>();
+    private final boolean exposeSections;
+    private final boolean heightMaps;
+    LightEngine lightEngine;
+    int lookups;
+
+    SectionWorld(boolean exposeSections) {
+        this(exposeSections, false);
+    }
+
+    SectionWorld(boolean exposeSections, boolean heightMaps) {
+        this.exposeSections = exposeSections;
+        this.heightMaps = heightMaps;
+    }
+
+    /**
+     * Loads every chunk within the given radius of the
+     * origin chunk.
+     */
+    void load(int radius) {
+        for (int x = -radius; x <= radius; x++) {
+            for (int z = -radius; z <= radius; z++) {
+                this.getChunkAt(x, z);
+            }
+        }
+    }
+
+    /**
+     * Obtains the chunk at the given coordinates, or
+     * {@code null} if it has not been created.
+     */
+    SectionChunk chunk(int x, int z) {
+        return this.chunks.get(IntPair.pack(x, z));
+    }
+
+    @Nonnull
+    @Override
+    public SectionChunk getChunkAt(int x, int z) {
+        return this.chunks.computeIfAbsent(IntPair.pack(x, z), k -> {
+            SectionChunk chunk = new SectionChunk(x, z, this.exposeSections);
+            if (this.heightMaps) {
+                chunk.heightMaps = new HeightMap[] {
+                        new HeightMap(HeightMap.Type.WORLD_SURFACE),
+                        new HeightMap(HeightMap.Type.MOTION_BLOCKING)
+                };
+            }
+            return chunk;
+        });
+    }
+
+    @Override
+    public SectionChunk getChunkAt(int x, int z, boolean gen) {
+        return gen ? this.getChunkAt(x, z) : this.chunk(x, z);
+    }
+
+    @Override
+    public SectionChunk getLoadedChunkAt(int x, int z) {
+        this.lookups++;
+        return this.chunk(x, z);
+    }
+
+    @Override
+    public Collection<? extends Chunk> getLoadedChunks() {
+        return this.chunks.values();
+    }
+
+    @Override
+    public LightEngine getLightEngine() {
+        return this.lightEngine;
+    }
+
+    @Override
+    public String getName() {
+        return "test";
+    }
+
+    @Override
+    public int getTime() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Set<? extends Player> getPlayers() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Stream<? extends Entity> getEntities() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public WorldOpts getWorldOptions() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Weather getWeather() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public GenOpts getGeneratorOptions() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public WorldBorder getBorder() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Dimension getDimension() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Block getBlockAt(int x, int y, int z) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Block getBlockAt(Position pos) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Path getDirectory() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public void save() {
+        throw new UnsupportedOperationException();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world.region;
+
+import net.tridentsdk.meta.nbt.Tag;
+import net.tridentsdk.world.Chunk;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class ChunkWriterTest {
+    private Path dir;
+
+    @Before
+    public void setup() throws Exception {
+        this.dir = Files.createTempDirectory("writer");
+    }
+
+    @After
+    public void teardown() throws Exception {
+        Files.walk(this.dir).sorted((a, b) -> b.compareTo(a)).forEach(p -> p.toFile().delete());
+    }
+
+    private static Tag.Compound chunk(int x, int z) {
+        Tag.Compound root = new Tag.Compound("");
+        root.putInt("xPos", x);
+        root.putInt("zPos", z);
+        return root;
+    }
+
+    @Test
+    public void testWrite() throws Exception {
+        ChunkWriter writer = new ChunkWriter(this.dir, 2);
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int x = -3; x < 40; x += 7) {
+            futures.add(writer.write(x, 5, chunk(x, 5)));
+        }
+        writer.flush().get(5, TimeUnit.SECONDS);
+        for (CompletableFuture<Void> future : futures) {
+            assertTrue(future.isDone());
+            assertFalse(future.isCompletedExceptionally());
+        }
+        writer.close();
+
+        try (RegionFile region = new RegionFile(RegionFile.pathOf(this.dir, 32, 0))) {
+            assertEquals(39, region.readChunk(39, 5).getInt("xPos"));
+        }
+        try (RegionFile region = new RegionFile(RegionFile.pathOf(this.dir, -3, 0))) {
+            assertEquals(-3, region.readChunk(-3, 5).getInt("xPos"));
+        }
+    }
+
+    @Test
+    public void testOpenRegionsCapped() throws Exception {
+        ChunkWriter writer = new ChunkWriter(this.dir, 8, 2);
+        for (int r = 0; r < 5; r++) {
+            writer.write(r * 32, 0, chunk(r * 32, 0));
+            writer.flush().get(5, TimeUnit.SECONDS);
+            assertTrue(writer.getOpenRegionCount() <= 2);
+        }
+
+        // A region closed in between is reopened
+        writer.write(1, 1, chunk(1, 1)).get(5, TimeUnit.SECONDS);
+        writer.close();
+        assertEquals(0, writer.getOpenRegionCount());
+        try (RegionFile region = new RegionFile(RegionFile.pathOf(this.dir, 0, 0))) {
+            assertEquals(0, region.readChunk(0, 0).getInt("xPos"));
+            assertEquals(1, region.readChunk(1, 1).getInt("xPos"));
+        }
+        try (RegionFile region = new RegionFile(RegionFile.pathOf(this.dir, 128, 0))) {
+            assertEquals(128, region.readChunk(128, 0).getInt("xPos"));
+        }
+    }
+
+    @Test(expected = RejectedExecutionException.class)
+    public void testClosed() throws Exception {
+        ChunkWriter writer = new ChunkWriter(this.dir);
+        writer.close();
+        writer.write(0, 0, chunk(0, 0));
+    }
+
+    @Test
+    public void testCloseWhileWriting() throws Exception {
+        ChunkWriter writer = new ChunkWriter(this.dir, 2);
+        List<CompletableFuture<Void>> futures = Collections.synchronizedList(new ArrayList<>());
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            int x = i;
+            Thread thread = new Thread(() -> {
+                try {
+                    for (int z = 0; ; z++) {
+                        futures.add(writer.write(x, z & 31, chunk(x, z & 31)));
+                    }
+                } catch (RejectedExecutionException ignored) {
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        Thread.sleep(50);
+        writer.close();
+        for (Thread thread : threads) {
+            thread.join(5000);
+            assertFalse(thread.isAlive());
+        }
+        for (CompletableFuture<Void> future : futures) {
+            assertTrue(future.isDone());
+        }
+    }
+
+    @Test
+    public void testSaveDirty() throws Exception {
+        Chunk dirty = mock(Chunk.class);
+        when(dirty.isDirty()).thenReturn(true);
+        when(dirty.getX()).thenReturn(1);
+        when(dirty.getZ()).thenReturn(1);
+        Chunk clean = mock(Chunk.class);
+        when(clean.getX()).thenReturn(2);
+        when(clean.getZ()).thenReturn(2);
+
+        List<Integer> saved = new ArrayList<>();
+        ChunkWriter writer = new ChunkWriter(this.dir);
+        writer.saveDirty(Arrays.asList(dirty, clean), c -> {
+            saved.add(c.getX());
+            return chunk(c.getX(), c.getZ());
+        }).get(5, TimeUnit.SECONDS);
+        writer.close();
+
+        assertEquals(Collections.singletonList(1), saved);
+        verify(dirty).clearDirty();
+        verify(clean, never()).clearDirty();
+        try (RegionFile region = new RegionFile(RegionFile.pathOf(this.dir, 0, 0))) {
+            assertTrue(region.hasChunk(1, 1));
+            assertFalse(region.hasChunk(2, 2));
+        }
+    }
+
+    @Test
+    public void testFailedSaveMarksDirty() throws Exception {
+        // A file in place of the region directory makes every write fail
+        Files.createFile(this.dir.resolve("region"));
+        Chunk dirty = mock(Chunk.class);
+        when(dirty.isDirty()).thenReturn(true);
+
+        ChunkWriter writer = new ChunkWriter(this.dir);
+        CompletableFuture<Void> future = writer.saveDirty(Collections.singletonList(dirty),
+                c -> chunk(c.getX(), c.getZ()));
+        try {
+            future.get(5, TimeUnit.SECONDS);
+            fail();
+        } catch (ExecutionException e) {
+            assertTrue(e.getCause() instanceof IOException);
+        }
+        writer.close();
+
+        verify(dirty).clearDirty();
+        verify(dirty).markDirty();
+    }
+}
@@ -0,0 +1,148 @@
+/*
+ * Trident - A Multithreaded Server Alternative
+ * Copyright 2017 The TridentSDK Team
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package net.tridentsdk.world.region;
+
+import net.tridentsdk.meta.nbt.Tag;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.concurrent.ThreadLocalRandom;
+
+import static org.junit.Assert.*;
+
+public class RegionFileTest {
+    private Path dir;
+
+    @Before
+    public void setup() throws Exception {
+        this.dir = Files.createTempDirectory("region");
+    }
+
+    @After
+    public void teardown() throws Exception {
+        Files.walk(this.dir).sorted((a, b) -> b.compareTo(a)).forEach(p -> p.toFile().delete());
+    }
+
+    private static Tag.Compound chunk(int x, int z, int size) {
+        Tag.Compound level = new Tag.Compound("Level");
+        level.putInt("xPos", x);
+        level.putInt("zPos", z);
+        byte[] blocks = new byte[size];
+        ThreadLocalRandom.current().nextBytes(blocks);
+        level.putByteArray("Blocks", blocks);
+
+        Tag.Compound root = new Tag.Compound("");
+        root.putCompound(level);
+        return root;
+    }
+
+    @Test
+    public void testPathOf() {
+        assertEquals(Paths.get("w", "region", "r.-1.2.mca"), RegionFile.pathOf(Paths.get("w"), -1, 64));
+    }
+
+    @Test
+    public void testCompression() throws Exception {
+        byte[] data = new byte[100_000];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) (i % 7);
+        }
+
+        for (Compression compression : Compression.values()) {
+            ByteBuffer compressed = compression.compress(data, 0, data.length);
+            byte[] arr = new byte[compressed.remaining()];
+            compressed.get(arr);
+            ByteBuffer buf = compression.decompress(arr, 0, arr.length);
+            byte[] out = new byte[buf.remaining()];
+            buf.get(out);
+            assertArrayEquals(compression.name(), data, out);
+            assertEquals(compression, Compression.fromId(compression.getId()));
+        }
+    }
+
+    @Test
+    public void testReadWrite() throws Exception {
+        Path path = RegionFile.pathOf(this.dir, 0, 0);
+        try (RegionFile region = new RegionFile(path)) {
+            assertFalse(region.hasChunk(3, 4));
+            assertNull(region.readChunk(3, 4));
+
+            region.writeChunk(3, 4, chunk(3, 4, 100));
+            region.writeChunk(5, 6, chunk(5, 6, 10_000), Compression.NONE);
+            region.writeChunk(7, 8, chunk(7, 8, 100), Compression.GZIP);
+
+            assertTrue(region.hasChunk(3, 4));
+            assertTrue(region.getTimestamp(3, 4) > 0);
+            assertEquals(4, region.readChunk(3, 4).getCompound("Level").getInt("zPos"));
+            assertEquals(10_000, region.readChunk(5, 6).getCompound("Level").getByteArray("Blocks").length);
+            assertEquals(7, region.readChunk(7, 8).getCompound("Level").getInt("xPos"));
+
+            // Grow the first chunk so that it must move
+            region.writeChunk(3, 4, chunk(3, 4, 20_000), Compression.NONE);
+            assertEquals(20_000, region.readChunk(3, 4).getCompound("Level").getByteArray("Blocks").length);
+            assertEquals(10_000, region.readChunk(5, 6).getCompound("Level").getByteArray("Blocks").length);
+
+            assertTrue(region.deleteChunk(7, 8));
+            assertFalse(region.deleteChunk(7, 8));
+            assertFalse(region.hasChunk(7, 8));
+        }
+
+        try (RegionFile region = new RegionFile(path)) {
+            assertEquals(20_000, region.readChunk(3, 4).getCompound("Level").getByteArray("Blocks").length);
+            assertEquals(6, region.readChunk(5, 6).getCompound("Level").getInt("zPos"));
+            assertFalse(region.hasChunk(7, 8));
+
+            // Reuses the freed sectors rather than growing
+            long size = Files.size(path);
+            region.writeChunk(7, 8, chunk(7, 8, 100));
+            assertEquals(size, Files.size(path));
+        }
+    }
+
+    @Test
+    public void testConcurrentReaders() throws Exception {
+        try (RegionFile region = new RegionFile(RegionFile.pathOf(this.dir, 0, 0))) {
+            for (int i = 0; i < 32; i++) {
+                region.writeChunk(i, i, chunk(i, i, 1000));
+            }
+
+            Thread[] threads = new Thread[4];
+            Throwable[] failure = new Throwable[1];
+            for (int t = 0; t < threads.length; t++) {
+                threads[t] = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < 32; i++) {
+                            assertEquals(i, region.readChunk(i, i).getCompound("Level").getInt("xPos"));
+                        }
+                    } catch (Throwable e) {
+                        failure[0] = e;
+                    }
+                });
+                threads[t].start();
+            }
+            for (Thread thread : threads) {
+                thread.join();
+            }
+            assertNull(failure[0]);
+        }
+    }
+}